@@ -0,0 +1,142 @@
+package io.agora.vlive.agora.rtm;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.agora.vlive.agora.rtm.model.ChatMessage;
+import io.agora.vlive.agora.rtm.model.GiftMessage;
+import io.agora.vlive.agora.rtm.model.NotificationMessage;
+import io.agora.vlive.agora.rtm.model.SeatStateMessage;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares parse-once dispatch of channel messages with
+ * parsing per listener at a high message rate on a device.
+ * The times are logged, and are not checked.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RtmEventBenchmark {
+    private static final String TAG = RtmEventBenchmark.class.getSimpleName();
+
+    private static final int LISTENERS = 4;
+    private static final int MESSAGES = 50000;
+
+    private static final String CHAT = "{\"cmd\":1,\"data\":{\"fromUserId\":\"u1\"," +
+            "\"fromUserName\":\"Alice\",\"message\":\"hello\"}}";
+
+    private static final String GIFT = "{\"cmd\":7,\"data\":{\"fromUserId\":\"u1\"," +
+            "\"fromUserName\":\"Alice\",\"toUserId\":\"u2\",\"toUserName\":\"Bob\",\"giftId\":3}}";
+
+    private static final String NOTIFY = "{\"cmd\":2,\"data\":{\"total\":12,\"list\":[" +
+            "{\"userId\":\"u3\",\"userName\":\"Carol\",\"role\":3,\"state\":1}]}}";
+
+    private static final String SEAT = "{\"cmd\":5,\"data\":[" +
+            "{\"seat\":{\"no\":1,\"state\":1},\"user\":{\"userId\":\"u1\",\"userName\":\"Alice\"," +
+            "\"uid\":101,\"enableAudio\":1,\"enableVideo\":0}}]}";
+
+    // Like a busy room, mostly chats and gifts
+    private static final String[] STREAM = {
+            CHAT, CHAT, CHAT, GIFT, CHAT, CHAT, GIFT, CHAT, NOTIFY, CHAT,
+            CHAT, GIFT, CHAT, CHAT, CHAT, GIFT, CHAT, CHAT, SEAT, CHAT
+    };
+
+    private static RtmMessageListener countingListener(AtomicInteger calls) {
+        return (RtmMessageListener) Proxy.newProxyInstance(
+                RtmMessageListener.class.getClassLoader(),
+                new Class[] { RtmMessageListener.class },
+                (proxy, method, args) -> {
+                    calls.incrementAndGet();
+                    return null;
+                });
+    }
+
+    @Test
+    public void dispatchCostAtHighRate() {
+        RtmMessageListener[] listeners = new RtmMessageListener[LISTENERS];
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < LISTENERS; i++) {
+            listeners[i] = countingListener(calls);
+        }
+
+        // Warm up both paths
+        runParseOnce(listeners, MESSAGES / 10);
+        runParsePerListener(listeners, MESSAGES / 10);
+
+        calls.set(0);
+        long start = System.nanoTime();
+        runParseOnce(listeners, MESSAGES);
+        long parseOnce = System.nanoTime() - start;
+        int onceCalls = calls.get();
+
+        calls.set(0);
+        start = System.nanoTime();
+        runParsePerListener(listeners, MESSAGES);
+        long perListener = System.nanoTime() - start;
+
+        assertEquals(MESSAGES * LISTENERS, onceCalls);
+        assertEquals(onceCalls, calls.get());
+
+        Log.i(TAG, String.format("%d messages, %d listeners: parse once %d ms " +
+                        "(%d msg/s), parse per listener with new Gson %d ms (%d msg/s)",
+                MESSAGES, LISTENERS, parseOnce / 1000000, rate(parseOnce),
+                perListener / 1000000, rate(perListener)));
+    }
+
+    private static long rate(long nanos) {
+        return MESSAGES * 1000000000L / Math.max(1, nanos);
+    }
+
+    private static void runParseOnce(RtmMessageListener[] listeners, int count) {
+        for (int i = 0; i < count; i++) {
+            RtmEvent event = RtmEvent.fromChannelMessage(STREAM[i % STREAM.length]);
+            for (RtmMessageListener listener : listeners) {
+                event.dispatch(listener);
+            }
+        }
+    }
+
+    /**
+     * How channel messages were dispatched before: a full
+     * parse for "cmd", then a new parse for every listener.
+     */
+    private static void runParsePerListener(RtmMessageListener[] listeners, int count) {
+        for (int i = 0; i < count; i++) {
+            String json = STREAM[i % STREAM.length];
+            Gson gson = new Gson();
+            int cmd = gson.fromJson(json, JsonObject.class).get("cmd").getAsInt();
+            for (RtmMessageListener listener : listeners) {
+                switch (cmd) {
+                    case RtmMessageManager.CHANNEL_MSG_TYPE_CHAT:
+                        ChatMessage chat = gson.fromJson(json, ChatMessage.class);
+                        listener.onRtmChannelMessageReceived(chat.data.fromUserId,
+                                chat.data.fromUserName, chat.data.message);
+                        break;
+                    case RtmMessageManager.CHANNEL_MSG_TYPE_NOTIFY:
+                        NotificationMessage notification = gson.fromJson(json, NotificationMessage.class);
+                        listener.onRtmChannelNotification(notification.data.total, notification.data.list);
+                        break;
+                    case RtmMessageManager.CHANNEL_MSG_TYPE_SEAT:
+                        SeatStateMessage seat = gson.fromJson(json, SeatStateMessage.class);
+                        listener.onRtmSeatStateChanged(seat.data);
+                        break;
+                    case RtmMessageManager.CHANNEL_MSG_TYPE_GIFT:
+                        GiftMessage gift = gson.fromJson(json, GiftMessage.class);
+                        listener.onRtmGiftMessage(gift.data.fromUserId, gift.data.fromUserName,
+                                gift.data.toUserId, gift.data.toUserName, gift.data.giftId, 1);
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package io.agora.framework;
 import android.content.Context;
 import android.opengl.GLES20;
 
+import com.elvishew.xlog.XLog;
 import com.faceunity.FURenderer;
 import com.faceunity.authpack;
 import com.faceunity.entity.Effect;
@@ -35,6 +36,7 @@ public class PreprocessorFaceUnity implements IPreprocessor, CameraVideoChannel.
     private Context mContext;
     private boolean mEnabled;
     private boolean mAuthenticated = true;
+    private boolean mBeautifyOnly;
 
     private Effect mHaskiEffect;
     private Effect mGirlEffect;
@@ -57,9 +59,24 @@ public class PreprocessorFaceUnity implements IPreprocessor, CameraVideoChannel.
             return outFrame;
         }
 
-        outFrame.textureId = mFURenderer.onDrawFrame(outFrame.image,
-                outFrame.textureId, outFrame.format.getWidth(),
-                outFrame.format.getHeight());
+        boolean beautifyOnly = mFURenderer.isBeautifyOnly();
+        if (beautifyOnly != mBeautifyOnly) {
+            mBeautifyOnly = beautifyOnly;
+            XLog.i(TAG + " switch to " + (beautifyOnly ?
+                    "beautify-only path" : "face tracking path"));
+        }
+
+        if (beautifyOnly) {
+            // No face-dependent effect is active, the image
+            // data is not needed and face tracking is skipped.
+            outFrame.textureId = mFURenderer.onDrawFrameBeautify(
+                    outFrame.textureId, outFrame.format.getWidth(),
+                    outFrame.format.getHeight());
+        } else {
+            outFrame.textureId = mFURenderer.onDrawFrame(outFrame.image,
+                    outFrame.textureId, outFrame.format.getWidth(),
+                    outFrame.format.getHeight());
+        }
 
         // The texture is transformed to texture2D by beauty module.
         outFrame.format.setTexFormat(GLES20.GL_TEXTURE_2D);
@@ -75,6 +92,9 @@ public class PreprocessorFaceUnity implements IPreprocessor, CameraVideoChannel.
 
         mFURenderer = new FURenderer.Builder(mContext).
                 inputImageFormat(FURenderer.FU_ADM_FLAG_EXTERNAL_OES_TEXTURE)
+                // The beautify-only interface only takes
+                // the texture type into account
+                .inputTextureType(FURenderer.FU_ADM_FLAG_EXTERNAL_OES_TEXTURE)
                 .setNeedAnimoji3D(true)
                 // Don't want FURenderer to loads beauty
                 // bundle at the initialization phase
@@ -160,28 +180,24 @@ public class PreprocessorFaceUnity implements IPreprocessor, CameraVideoChannel.
         }
     }
 
-    @Override
     public void setBlurValue(float blur) {
         if (mFURenderer != null) {
             mFURenderer.onBlurLevelSelected(blur);
         }
     }
 
-    @Override
     public void setWhitenValue(float whiten) {
         if (mFURenderer != null) {
             mFURenderer.onColorLevelSelected(whiten);
         }
     }
 
-    @Override
     public void setCheekValue(float cheek) {
         if (mFURenderer != null) {
             mFURenderer.onCheekThinningSelected(cheek);
         }
     }
 
-    @Override
     public void setEyeValue(float eye) {
         if (mFURenderer != null) {
             mFURenderer.onEyeEnlargeSelected(eye);
@@ -30,28 +30,63 @@ import io.agora.rtm.RtmClient;
 import io.agora.vlive.agora.AgoraEngine;
 import io.agora.vlive.agora.rtc.RtcEventHandler;
 import io.agora.vlive.protocol.ClientProxy;
+import io.agora.vlive.protocol.http.HttpStack;
+import io.agora.vlive.protocol.model.request.Request;
+import io.agora.vlive.protocol.model.response.AppVersionResponse;
+import io.agora.vlive.ui.components.GiftFrameCache;
+import io.agora.vlive.utils.AvatarCache;
 import io.agora.vlive.utils.Global;
+import io.agora.vlive.utils.StartupGraph;
 import io.agora.vlive.utils.UserUtil;
 
 public class AgoraLiveApplication extends Application {
     private static final String TAG = AgoraLiveApplication.class.getSimpleName();
 
+    public static final String STARTUP_XLOG = "xlog";
+    public static final String STARTUP_CRASH_REPORT = "crash_report";
+    public static final String STARTUP_APP_ID = "app_id";
+    public static final String STARTUP_VIDEO = "video";
+    public static final String STARTUP_ENGINE = "engine";
+
     private SharedPreferences mPref;
     private Config mConfig;
-    private AgoraEngine mAgoraEngine;
-    private CameraManager mCameraVideoManager;
+    private StartupGraph mStartup;
+    private volatile AgoraEngine mAgoraEngine;
+    private String mEngineAppId;
+    private volatile CameraManager mCameraVideoManager;
+    private volatile String mCachedAppId;
 
     @Override
     public void onCreate() {
         super.onCreate();
         mPref = getSharedPreferences(Global.Constants.SF_NAME, Context.MODE_PRIVATE);
         mConfig = new Config(this);
-        initXLog();
-        initVideoGlobally();
-        initCrashReport();
+        initHttpStack();
+        ClientProxy.setCacheDirectory(getCacheDir());
+
+        // Every step logs, so XLog is initialized
+        // in the UI thread before the others start.
+        mStartup = new StartupGraph(StartupGraph.newPool());
+        mStartup.setListener(graph -> XLog.i("startup trace\n" + graph.getTrace()));
+        // The native libraries of video and engines are
+        // loaded after the crash report can catch them.
+        mStartup.run(STARTUP_XLOG, this::initXLog);
+        mStartup.add(STARTUP_CRASH_REPORT, this::initCrashReport, STARTUP_XLOG)
+                .add(STARTUP_APP_ID, this::loadCachedAppId, STARTUP_XLOG)
+                .add(STARTUP_VIDEO, this::initVideoGlobally,
+                        STARTUP_XLOG, STARTUP_CRASH_REPORT)
+                .add(STARTUP_ENGINE, this::initEngineFromCache,
+                        STARTUP_APP_ID, STARTUP_CRASH_REPORT)
+                .start();
         XLog.i("onApplicationCreate");
     }
 
+    private void initHttpStack() {
+        HttpStack.Config config = new HttpStack.Config();
+        config.cacheDir = getCacheDir();
+        HttpStack.configure(config);
+    }
+
     public Config config() {
         return mConfig;
     }
@@ -60,8 +95,51 @@ public class AgoraLiveApplication extends Application {
         return mPref;
     }
 
-    public void initEngine(String appId) {
+    /**
+     * The steps of the cold start, which the first activity
+     * can add its own steps to.
+     */
+    public StartupGraph startup() {
+        return mStartup;
+    }
+
+    /**
+     * Creates the engines of the app id unless they have been
+     * created, which is done at startup if the app id has been
+     * received last time.
+     */
+    public synchronized void initEngine(String appId) {
+        if (mAgoraEngine != null) {
+            if (TextUtils.equals(appId, mEngineAppId)) return;
+            XLog.i("app id changed, engines are created again");
+            mAgoraEngine.release();
+        }
+
         mAgoraEngine = new AgoraEngine(this, appId);
+        mEngineAppId = appId;
+    }
+
+    /**
+     * The app id rarely changes, so the engines are created
+     * with the one of the last app version response without
+     * waiting for the network.
+     */
+    private void loadCachedAppId() {
+        AppVersionResponse response = proxy().catalogStore().get(
+                Request.APP_VERSION, null, AppVersionResponse.class);
+        if (response == null || response.data == null || response.data.config == null ||
+                TextUtils.isEmpty(response.data.config.appId)) {
+            return;
+        }
+
+        mCachedAppId = response.data.config.appId;
+    }
+
+    private void initEngineFromCache() {
+        String appId = mCachedAppId;
+        if (appId == null) return;
+        initEngine(appId);
+        mConfig.setAppId(appId);
     }
 
     public RtcEngine rtcEngine() {
@@ -89,14 +167,13 @@ public class AgoraLiveApplication extends Application {
     }
 
     private void initVideoGlobally() {
-        new Thread(() -> {
-            FURenderer.initFURenderer(getApplicationContext());
-            PreprocessorFaceUnity preprocessor =
-                    new PreprocessorFaceUnity(this);
-            mCameraVideoManager = new CameraManager(
-                    this, preprocessor);
-            mCameraVideoManager.setCameraStateListener(preprocessor);
-        }).start();
+        FURenderer.initFURenderer(getApplicationContext());
+        PreprocessorFaceUnity preprocessor =
+                new PreprocessorFaceUnity(this);
+        CameraManager manager = new CameraManager(
+                this, preprocessor);
+        manager.setCameraStateListener(preprocessor);
+        mCameraVideoManager = manager;
     }
 
     private void initXLog() {
@@ -143,10 +220,20 @@ public class AgoraLiveApplication extends Application {
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // Decoded again when gifts are sent
+            GiftFrameCache.trim();
+            AvatarCache.trim();
+        }
+    }
+
     @Override
     public void onTerminate() {
         XLog.i("onApplicationTerminate");
         super.onTerminate();
-        mAgoraEngine.release();
+        if (mAgoraEngine != null) mAgoraEngine.release();
     }
 }
\ No newline at end of file
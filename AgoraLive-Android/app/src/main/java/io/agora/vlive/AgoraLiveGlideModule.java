@@ -0,0 +1,50 @@
+package io.agora.vlive;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.module.AppGlideModule;
+
+import java.io.InputStream;
+
+import io.agora.vlive.protocol.http.HttpStack;
+
+/**
+ * Glide loads remote images with the shared http stack, so
+ * that images and server requests share connections.
+ * Images are not kept in the http cache because Glide
+ * has its own disk cache, besides the cache in memory.
+ */
+@GlideModule
+public class AgoraLiveGlideModule extends AppGlideModule {
+    private static final String IMAGE_CACHE_DIR = "image";
+    private static final long IMAGE_CACHE_SIZE = 100 * 1024 * 1024;
+
+    @Override
+    public void registerComponents(@NonNull Context context,
+                                   @NonNull Glide glide, @NonNull Registry registry) {
+        registry.replace(GlideUrl.class, InputStream.class, new OkHttpUrlLoader.Factory(
+                HttpStack.client().newBuilder().cache(null).build()));
+    }
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        // Keeps the images decoded at the sizes shown, which
+        // are loaded without decoding the originals again.
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(
+                context, IMAGE_CACHE_DIR, IMAGE_CACHE_SIZE));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
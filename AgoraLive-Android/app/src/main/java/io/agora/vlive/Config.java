@@ -2,10 +2,8 @@ package io.agora.vlive;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.graphics.drawable.Drawable;
 import android.text.TextUtils;
 
-import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,7 +25,6 @@ public class Config {
         private String rtcToken;
         private String rtmToken;
         private long agoraUid;
-        private SoftReference<Drawable> userIcon;
 
         public boolean isValid() {
             return userId != null;
@@ -88,14 +85,6 @@ public class Config {
         public void setAgoraUid(long agoraUid) {
             this.agoraUid = agoraUid;
         }
-
-        public Drawable getProfileIcon() {
-            return userIcon == null ? null : userIcon.get();
-        }
-
-        public void setProfileIcon(Drawable userProfileDrawable) {
-            this.userIcon = new SoftReference<>(userProfileDrawable);
-        }
     }
 
     public static final int LIVE_TYPE_MULTI_HOST = 1;
@@ -125,7 +114,8 @@ public class Config {
 
     private UserProfile mUserProfile;
     private AppVersionInfo mVersionInfo;
-    private String mAppId;
+    // Set in the startup thread if cached
+    private volatile String mAppId;
     private List<GiftInfo> mGiftInfoList = new ArrayList<>();
     private List<MusicInfo> mMusicInfoList = new ArrayList<>();
     private int mLastTabPosition = Global.Constants.TAB_ID_MULTI;
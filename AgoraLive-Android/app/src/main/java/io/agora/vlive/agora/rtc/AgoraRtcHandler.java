@@ -36,6 +36,13 @@ public class AgoraRtcHandler extends IRtcEngineEventHandler {
         }
     }
 
+    @Override
+    public void onFirstLocalVideoFrame(int width, int height, int elapsed) {
+        for (RtcEventHandler handler : mHandlers) {
+            handler.onRtcFirstLocalVideoFrame(width, height, elapsed);
+        }
+    }
+
     @Override
     public void onRtcStats(RtcStats stats) {
         for (RtcEventHandler handler : mHandlers) {
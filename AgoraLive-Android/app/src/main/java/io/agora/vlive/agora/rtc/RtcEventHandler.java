@@ -7,6 +7,8 @@ public interface RtcEventHandler {
 
     void onRtcRemoteVideoStateChanged(int uid, int state, int reason, int elapsed);
 
+    void onRtcFirstLocalVideoFrame(int width, int height, int elapsed);
+
     void onRtcStats(IRtcEngineEventHandler.RtcStats stats);
 
     void onRtcChannelMediaRelayStateChanged(int state, int code);
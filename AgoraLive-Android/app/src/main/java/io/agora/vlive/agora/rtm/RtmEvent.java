@@ -0,0 +1,391 @@
+package io.agora.vlive.agora.rtm;
+
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import io.agora.vlive.agora.rtm.model.ChatMessage;
+import io.agora.vlive.agora.rtm.model.GiftMessage;
+import io.agora.vlive.agora.rtm.model.GiftRankMessage;
+import io.agora.vlive.agora.rtm.model.NotificationMessage;
+import io.agora.vlive.agora.rtm.model.OwnerStateMessage;
+import io.agora.vlive.agora.rtm.model.PKInvitationMessage;
+import io.agora.vlive.agora.rtm.model.PKStateMessage;
+import io.agora.vlive.agora.rtm.model.ProductStatedChangedMessage;
+import io.agora.vlive.agora.rtm.model.SeatInteractionMessage;
+import io.agora.vlive.agora.rtm.model.SeatStateMessage;
+import io.agora.vlive.protocol.json.ProtocolGson;
+import io.agora.vlive.protocol.model.types.PKConstant;
+import io.agora.vlive.protocol.model.types.SeatInteraction;
+
+/**
+ * An RTM message parsed once, then delivered to every
+ * message listener. Events do not change after created,
+ * and the lists they carry can not be modified, so the
+ * same event can be shared by all listeners.
+ */
+abstract class RtmEvent {
+    final int cmd;
+
+    RtmEvent(int cmd) {
+        this.cmd = cmd;
+    }
+
+    abstract void dispatch(RtmMessageListener listener);
+
+    /**
+     * @return true if the event is shown in the message list
+     * and may arrive many times a second, so it is delivered
+     * in batches once a frame.
+     */
+    boolean isBatched() {
+        return false;
+    }
+
+    /**
+     * @return the event of a channel message, or null if the
+     * message is unknown or has nothing to deliver
+     * @throws com.google.gson.JsonParseException if malformed
+     */
+    @Nullable
+    static RtmEvent fromChannelMessage(String json) {
+        Gson gson = ProtocolGson.gson();
+        int cmd = ProtocolGson.peekInt(json, "cmd", -1);
+        switch (cmd) {
+            case RtmMessageManager.CHANNEL_MSG_TYPE_CHAT:
+                ChatMessage chat = gson.fromJson(json, ChatMessage.class);
+                return chat == null || chat.data == null ? null : new Chat(cmd, chat.data);
+            case RtmMessageManager.CHANNEL_MSG_TYPE_NOTIFY:
+                NotificationMessage notification = gson.fromJson(json, NotificationMessage.class);
+                return notification == null || notification.data == null
+                        ? null : new Notification(cmd, notification.data);
+            case RtmMessageManager.CHANNEL_MSG_TYPE_GIFT_RANK:
+                GiftRankMessage rank = gson.fromJson(json, GiftRankMessage.class);
+                return rank == null || rank.data == null ? null : new GiftRank(cmd, rank.data);
+            case RtmMessageManager.CHANNEL_MSG_CMD_OWNER_STATE:
+                OwnerStateMessage owner = gson.fromJson(json, OwnerStateMessage.class);
+                return owner == null || owner.data == null ? null : new OwnerState(cmd, owner.data);
+            case RtmMessageManager.CHANNEL_MSG_TYPE_SEAT:
+                SeatStateMessage seat = gson.fromJson(json, SeatStateMessage.class);
+                return seat == null ? null : new SeatState(cmd, seat.data);
+            case RtmMessageManager.CHANNEL_MSG_TYPE_PK:
+                PKStateMessage pk = gson.fromJson(json, PKStateMessage.class);
+                return pk == null || pk.data == null ? null : new PKState(cmd, pk.data);
+            case RtmMessageManager.CHANNEL_MSG_TYPE_GIFT:
+                GiftMessage gift = gson.fromJson(json, GiftMessage.class);
+                return gift == null || gift.data == null ? null : new Gift(cmd, gift.data);
+            case RtmMessageManager.CHANNEL_MSG_TYPE_LEAVE:
+                return new Leave(cmd);
+            case RtmMessageManager.CHANNEL_MSG_TYPE_PRODUCT_STATE_CHANGED:
+                ProductStatedChangedMessage product = gson.fromJson(json, ProductStatedChangedMessage.class);
+                return product == null || product.data == null ? null : new ProductState(cmd, product.data);
+            default:
+                // Including the purchased products that
+                // are not shown by the UI
+                return null;
+        }
+    }
+
+    /**
+     * @return the event of a peer message, or null if the
+     * message is unknown or has nothing to deliver
+     * @throws com.google.gson.JsonParseException if malformed
+     */
+    @Nullable
+    static RtmEvent fromPeerMessage(String json) {
+        Gson gson = ProtocolGson.gson();
+        int cmd = ProtocolGson.peekInt(json, "cmd", -1);
+        switch (cmd) {
+            case RtmMessageManager.PEER_MSG_TYPE_SEAT:
+                SeatInteractionMessage seat = gson.fromJson(json, SeatInteractionMessage.class);
+                return seat == null || seat.data == null || seat.data.fromUser == null
+                        ? null : new SeatInteractionEvent(cmd, seat.data);
+            case RtmMessageManager.PEER_MSG_TYPE_PK:
+                PKInvitationMessage pk = gson.fromJson(json, PKInvitationMessage.class);
+                return pk == null || pk.data == null || pk.data.fromRoom == null ||
+                        pk.data.fromRoom.owner == null ? null : new PKInvitation(cmd, pk.data);
+            default:
+                return null;
+        }
+    }
+
+    private static <T> List<T> readOnly(List<T> list) {
+        return list == null ? null : Collections.unmodifiableList(list);
+    }
+
+    static final class Chat extends RtmEvent {
+        final String userId;
+        final String userName;
+        final String message;
+
+        Chat(int cmd, ChatMessage.ChatMessageData data) {
+            super(cmd);
+            userId = data.fromUserId;
+            userName = data.fromUserName;
+            message = data.message;
+        }
+
+        @Override
+        boolean isBatched() {
+            return true;
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            listener.onRtmChannelMessageReceived(userId, userName, message);
+        }
+    }
+
+    static final class Notification extends RtmEvent {
+        final int total;
+        final List<NotificationMessage.NotificationItem> list;
+
+        Notification(int cmd, NotificationMessage.Notification data) {
+            super(cmd);
+            total = data.total;
+            list = readOnly(data.list);
+        }
+
+        @Override
+        boolean isBatched() {
+            return true;
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            listener.onRtmChannelNotification(total, list);
+        }
+    }
+
+    static final class GiftRank extends RtmEvent {
+        final int total;
+        final List<GiftRankMessage.GiftRankItem> list;
+
+        GiftRank(int cmd, GiftRankMessage.GiftRank data) {
+            super(cmd);
+            total = data.total;
+            list = readOnly(data.list);
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            listener.onRtmRoomGiftRankChanged(total, list);
+        }
+    }
+
+    static final class OwnerState extends RtmEvent {
+        final String userId;
+        final String userName;
+        final int uid;
+        final int enableAudio;
+        final int enableVideo;
+
+        OwnerState(int cmd, OwnerStateMessage.OwnerState data) {
+            super(cmd);
+            userId = data.userId;
+            userName = data.userName;
+            uid = data.uid;
+            enableAudio = data.enableAudio;
+            enableVideo = data.enableVideo;
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            listener.onRtmOwnerStateChanged(userId, userName, uid, enableAudio, enableVideo);
+        }
+    }
+
+    static final class SeatState extends RtmEvent {
+        final List<SeatStateMessage.SeatStateMessageDataItem> list;
+
+        SeatState(int cmd, List<SeatStateMessage.SeatStateMessageDataItem> data) {
+            super(cmd);
+            list = readOnly(data);
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            listener.onRtmSeatStateChanged(list);
+        }
+    }
+
+    static final class PKState extends RtmEvent {
+        // Listeners only read the message body
+        final PKStateMessage.PKStateMessageBody body;
+
+        PKState(int cmd, PKStateMessage.PKStateMessageBody body) {
+            super(cmd);
+            this.body = body;
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            listener.onRtmReceivePKEvent(body);
+        }
+    }
+
+    static final class Gift extends RtmEvent {
+        final String fromUserId;
+        final String fromUserName;
+        final String toUserId;
+        final String toUserName;
+        final int giftId;
+
+        // The same gifts sent repeatedly in a short time
+        final int count;
+
+        Gift(int cmd, GiftMessage.GiftMessageData data) {
+            super(cmd);
+            fromUserId = data.fromUserId;
+            fromUserName = data.fromUserName;
+            toUserId = data.toUserId;
+            toUserName = data.toUserName;
+            giftId = data.giftId;
+            count = 1;
+        }
+
+        private Gift(Gift gift, int count) {
+            super(gift.cmd);
+            fromUserId = gift.fromUserId;
+            fromUserName = gift.fromUserName;
+            toUserId = gift.toUserId;
+            toUserName = gift.toUserName;
+            giftId = gift.giftId;
+            this.count = count;
+        }
+
+        boolean isSameGift(Gift gift) {
+            return giftId == gift.giftId &&
+                    Objects.equals(fromUserId, gift.fromUserId) &&
+                    Objects.equals(toUserId, gift.toUserId);
+        }
+
+        /**
+         * @return a new event of both gifts, which must be
+         * the same gift from the same user
+         */
+        Gift merge(Gift gift) {
+            return new Gift(this, count + gift.count);
+        }
+
+        @Override
+        boolean isBatched() {
+            return true;
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            listener.onRtmGiftMessage(fromUserId, fromUserName, toUserId, toUserName, giftId, count);
+        }
+    }
+
+    static final class Leave extends RtmEvent {
+        Leave(int cmd) {
+            super(cmd);
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            listener.onRtmLeaveMessage();
+        }
+    }
+
+    static final class ProductState extends RtmEvent {
+        final String productId;
+        final int state;
+
+        ProductState(int cmd, ProductStatedChangedMessage.ProductState data) {
+            super(cmd);
+            productId = data.productId;
+            state = data.state;
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            listener.onRtmProductStateChanged(productId, state);
+        }
+    }
+
+    static final class SeatInteractionEvent extends RtmEvent {
+        final int type;
+        final long processId;
+        final String userId;
+        final String userName;
+        final int seatNo;
+
+        SeatInteractionEvent(int cmd, SeatInteractionMessage.SeatInteractionInfo data) {
+            super(cmd);
+            type = data.type;
+            processId = data.processId;
+            userId = data.fromUser.userId;
+            userName = data.fromUser.userName;
+            seatNo = data.no;
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            switch (type) {
+                case SeatInteraction.OWNER_INVITE:
+                    listener.onRtmSeatInvited(userId, userName, seatNo);
+                    break;
+                case SeatInteraction.AUDIENCE_APPLY:
+                    listener.onRtmSeatApplied(userId, userName, seatNo);
+                    break;
+                case SeatInteraction.OWNER_REJECT:
+                    listener.onRtmApplicationRejected(processId, userId, userName, seatNo);
+                    break;
+                case SeatInteraction.AUDIENCE_REJECT:
+                    listener.onRtmInvitationRejected(processId, userId, userName, seatNo);
+                    break;
+                case SeatInteraction.OWNER_ACCEPT:
+                    listener.onRtmApplicationAccepted(processId, userId, userName, seatNo);
+                    break;
+                case SeatInteraction.AUDIENCE_ACCEPT:
+                    listener.onRtmInvitationAccepted(processId, userId, userName, seatNo);
+                    break;
+                case SeatInteraction.OWNER_FORCE_LEAVE:
+                    listener.onRtmOwnerForceLeaveSeat(userId, userName, seatNo);
+                    break;
+                case SeatInteraction.HOST_LEAVE:
+                    listener.onRtmHostLeaveSeat(userId, userName, seatNo);
+                    break;
+            }
+        }
+    }
+
+    static final class PKInvitation extends RtmEvent {
+        final int type;
+        final String roomId;
+        final String userId;
+        final String userName;
+
+        PKInvitation(int cmd, PKInvitationMessage.PKMessageData data) {
+            super(cmd);
+            type = data.type;
+            roomId = data.fromRoom.roomId;
+            userId = data.fromRoom.owner.userId;
+            userName = data.fromRoom.owner.userName;
+        }
+
+        @Override
+        void dispatch(RtmMessageListener listener) {
+            switch (type) {
+                case PKConstant.PK_BEHAVIOR_INVITE:
+                    listener.onRtmPkReceivedFromAnotherHost(userId, userName, roomId);
+                    break;
+                case PKConstant.PK_BEHAVIOR_ACCEPT:
+                    listener.onRtmPkAcceptedByTargetHost(userId, userName, roomId);
+                    break;
+                case PKConstant.PK_BEHAVIOR_REJECT:
+                    listener.onRtmPkRejectedByTargetHost(userId, userName, roomId);
+                    break;
+                case PKConstant.PK_BEHAVIOR_TIMEOUT:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package io.agora.vlive.agora.rtm;
+
+import android.os.Handler;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delivers the events shown in the message list (chats,
+ * gifts and notifications) once a frame instead of once a
+ * message, so that a busy room does not flood the callback
+ * thread. Within a batch, the same gift sent again by the
+ * same user is merged into one event with a count.
+ * At most MAX_EVENTS_PER_FRAME events are delivered in a
+ * frame, the rest wait for the next frames. When too many
+ * events are waiting, the oldest chat messages are dropped,
+ * or the oldest events if no chat is waiting. Control events
+ * (seats, PK and so on) are never batched, nor dropped.
+ */
+class RtmEventBatcher implements Choreographer.FrameCallback {
+    static final int MAX_EVENTS_PER_FRAME = 30;
+    static final int MAX_PENDING_EVENTS = 500;
+
+    interface Sink {
+        void deliver(RtmEvent event);
+    }
+
+    private final Handler mHandler;
+    private final Sink mSink;
+
+    // Guarded by this
+    private final List<RtmEvent> mPending = new ArrayList<>();
+    private boolean mScheduled;
+    private long mMergedCount;
+    private long mDroppedCount;
+
+    /**
+     * @param handler of the thread that events are delivered
+     *                in, which must have a looper; events are
+     *                not scheduled if null, until drained.
+     */
+    RtmEventBatcher(Handler handler, Sink sink) {
+        mHandler = handler;
+        mSink = sink;
+    }
+
+    /**
+     * Called in any thread
+     */
+    void add(RtmEvent event) {
+        synchronized (this) {
+            if (!merge(event)) {
+                if (mPending.size() >= MAX_PENDING_EVENTS) dropOldest();
+                mPending.add(event);
+            }
+
+            if (mScheduled || mHandler == null) return;
+            mScheduled = true;
+        }
+
+        // Choreographer works with the looper of the calling thread
+        mHandler.post(() -> Choreographer.getInstance().postFrameCallback(this));
+    }
+
+    private boolean merge(RtmEvent event) {
+        if (!(event instanceof RtmEvent.Gift)) return false;
+        RtmEvent.Gift gift = (RtmEvent.Gift) event;
+
+        // Only merge with the latest pending gift of the sender,
+        // so that gifts are still shown in the sending order.
+        for (int i = mPending.size() - 1; i >= 0; i--) {
+            RtmEvent pending = mPending.get(i);
+            if (!(pending instanceof RtmEvent.Gift)) continue;
+
+            RtmEvent.Gift pendingGift = (RtmEvent.Gift) pending;
+            if (!pendingGift.isSameGift(gift)) {
+                if (pendingGift.fromUserId != null &&
+                        pendingGift.fromUserId.equals(gift.fromUserId)) {
+                    return false;
+                }
+                continue;
+            }
+
+            mPending.set(i, pendingGift.merge(gift));
+            mMergedCount++;
+            return true;
+        }
+        return false;
+    }
+
+    private void dropOldest() {
+        int index = 0;
+        for (int i = 0; i < mPending.size(); i++) {
+            if (mPending.get(i) instanceof RtmEvent.Chat) {
+                index = i;
+                break;
+            }
+        }
+
+        // A storm of gifts or notifications without chats
+        // is bounded too
+        mPending.remove(index);
+        mDroppedCount++;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        List<RtmEvent> batch;
+        boolean more;
+        synchronized (this) {
+            batch = drain(MAX_EVENTS_PER_FRAME);
+            more = !mPending.isEmpty();
+            mScheduled = more;
+        }
+
+        for (RtmEvent event : batch) {
+            mSink.deliver(event);
+        }
+
+        if (more) Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * @return at most max events in the order of arrival
+     */
+    synchronized List<RtmEvent> drain(int max) {
+        int count = Math.min(max, mPending.size());
+        List<RtmEvent> batch = new ArrayList<>(mPending.subList(0, count));
+        mPending.subList(0, count).clear();
+        return batch;
+    }
+
+    synchronized void clear() {
+        mPending.clear();
+    }
+
+    synchronized int getPendingCount() {
+        return mPending.size();
+    }
+
+    synchronized long getMergedCount() {
+        return mMergedCount;
+    }
+
+    synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+}
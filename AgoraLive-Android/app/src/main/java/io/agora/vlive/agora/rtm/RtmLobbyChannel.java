@@ -0,0 +1,293 @@
+package io.agora.vlive.agora.rtm;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.elvishew.xlog.XLog;
+import com.google.gson.JsonParseException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.agora.rtm.ErrorInfo;
+import io.agora.rtm.ResultCallback;
+import io.agora.rtm.RtmChannel;
+import io.agora.rtm.RtmChannelAttribute;
+import io.agora.rtm.RtmChannelListener;
+import io.agora.rtm.RtmChannelMember;
+import io.agora.rtm.RtmClient;
+import io.agora.rtm.RtmMessage;
+import io.agora.rtm.RtmStatusCode;
+import io.agora.vlive.agora.rtm.model.RoomListChangeMessage;
+import io.agora.vlive.protocol.json.ProtocolGson;
+
+/**
+ * The lobby channel where the server sends the changes of
+ * room lists: rooms created or closed, and the numbers of
+ * users in rooms. Room list pages subscribe while they are
+ * shown, and request the list periodically only when the
+ * lobby is not live.
+ * The server is expected to send every change of rooms as
+ * a message of cmd 101, and a heartbeat of cmd 102 at least
+ * every 30 seconds while nothing changes. The lobby is live
+ * only while these messages come, so that room lists are
+ * still requested periodically if the channel is joined
+ * but no server sends to it.
+ * Any member can send to the channel, so the messages are
+ * only accepted from the accounts in SERVER_ACCOUNTS, and
+ * the others are dropped.
+ * The channel is joined while there are listeners, and is
+ * left a while after the last one is removed, so that the
+ * channel is not joined again when switching tabs.
+ * Called in the UI thread, and listeners are called in the
+ * UI thread.
+ */
+public class RtmLobbyChannel implements RtmChannelListener {
+    public static final String LOBBY_CHANNEL_NAME = "agora_live_lobby";
+
+    // The RTM accounts that the server sends lobby messages as
+    private static final Set<String> SERVER_ACCOUNTS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("agora_live_server")));
+
+    static final int LOBBY_MSG_TYPE_ROOM_LIST = 101;
+    static final int LOBBY_MSG_TYPE_HEARTBEAT = 102;
+
+    private static final long LEAVE_DELAY = 5 * 1000;
+
+    // Two heartbeats may be missed before the lobby is quiet
+    private static final long QUIET_TIMEOUT = 65 * 1000;
+
+    public interface LobbyListener {
+        /**
+         * @param live true if the changes of rooms are being
+         *             received, false if the list needs to
+         *             be requested periodically
+         */
+        void onLobbyStateChanged(boolean live);
+
+        void onLobbyRoomListChanged(int roomType, List<RoomListChangeMessage.RoomChange> changes);
+    }
+
+    private volatile static RtmLobbyChannel sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<LobbyListener> mListeners = new ArrayList<>();
+    private final Runnable mLeaveRunnable = this::leave;
+    private final Runnable mQuietRunnable = this::onQuiet;
+
+    private RtmClient mRtmClient;
+    private RtmChannel mChannel;
+    private boolean mJoining;
+    private boolean mJoined;
+    private boolean mConnected;
+    private boolean mReceiving;
+
+    private int mMessageCount;
+    private int mChangeCount;
+    private volatile int mRejectedCount;
+
+    public static RtmLobbyChannel instance() {
+        if (sInstance == null) {
+            synchronized (RtmLobbyChannel.class) {
+                if (sInstance == null) {
+                    sInstance = new RtmLobbyChannel();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private RtmLobbyChannel() {
+
+    }
+
+    public boolean isLive() {
+        return mJoined && mConnected && mReceiving;
+    }
+
+    /**
+     * @param client null if RTM is not available, and the
+     *               listener is told that the lobby is not
+     *               live
+     */
+    public void subscribe(RtmClient client, LobbyListener listener) {
+        mHandler.removeCallbacks(mLeaveRunnable);
+        if (!mListeners.contains(listener)) mListeners.add(listener);
+        if (client != null) mRtmClient = client;
+        listener.onLobbyStateChanged(isLive());
+        join();
+    }
+
+    public void unsubscribe(LobbyListener listener) {
+        mListeners.remove(listener);
+        if (mListeners.isEmpty()) {
+            mHandler.removeCallbacks(mLeaveRunnable);
+            mHandler.postDelayed(mLeaveRunnable, LEAVE_DELAY);
+        }
+    }
+
+    /**
+     * Called in RTM threads, the channel is joined when RTM
+     * has logged in or connected again.
+     */
+    void onConnectionStateChanged(int state) {
+        mHandler.post(() -> {
+            boolean live = isLive();
+            mConnected = state == RtmStatusCode.ConnectionState.CONNECTION_STATE_CONNECTED;
+            if (mConnected && !mJoined) join();
+            if (live != isLive()) notifyStateChanged();
+        });
+    }
+
+    private void join() {
+        if (mRtmClient == null || mListeners.isEmpty() || mJoining || mJoined) return;
+
+        RtmChannel channel = mRtmClient.createChannel(LOBBY_CHANNEL_NAME, this);
+        if (channel == null) return;
+        mChannel = channel;
+        mJoining = true;
+        channel.join(new ResultCallback<Void>() {
+            @Override
+            public void onSuccess(Void aVoid) {
+                mHandler.post(() -> onJoinResult(channel, true));
+            }
+
+            @Override
+            public void onFailure(ErrorInfo errorInfo) {
+                XLog.w("join lobby channel fails: " + errorInfo.getErrorDescription());
+                mHandler.post(() -> onJoinResult(channel, false));
+            }
+        });
+    }
+
+    private void onJoinResult(RtmChannel channel, boolean joined) {
+        if (channel != mChannel) return;
+        mJoining = false;
+        if (!joined) {
+            // Joined again when RTM is connected
+            channel.release();
+            mChannel = null;
+            return;
+        }
+
+        // Only logged in clients can join channels. Not live
+        // until the first message of the server comes.
+        boolean live = isLive();
+        mJoined = true;
+        mConnected = true;
+        if (mListeners.isEmpty()) {
+            leave();
+        } else if (live != isLive()) {
+            notifyStateChanged();
+        }
+    }
+
+    private void leave() {
+        // Left when joined if there is no listener
+        if (mChannel == null || mJoining) return;
+        XLog.i("lobby messages " + mMessageCount + " room changes " +
+                mChangeCount + " rejected " + mRejectedCount);
+        boolean live = isLive();
+        mChannel.leave(null);
+        mChannel.release();
+        mChannel = null;
+        mJoining = false;
+        mJoined = false;
+        mReceiving = false;
+        mHandler.removeCallbacks(mQuietRunnable);
+        if (live) notifyStateChanged();
+    }
+
+    /**
+     * Any message of the server, a change or a heartbeat,
+     * keeps the lobby live for a while.
+     */
+    private void onServerMessage() {
+        if (!mJoined) return;
+        mHandler.removeCallbacks(mQuietRunnable);
+        mHandler.postDelayed(mQuietRunnable, QUIET_TIMEOUT);
+        if (mReceiving) return;
+
+        boolean live = isLive();
+        mReceiving = true;
+        if (live != isLive()) notifyStateChanged();
+    }
+
+    private void onQuiet() {
+        boolean live = isLive();
+        mReceiving = false;
+        if (live) {
+            XLog.i("lobby channel is quiet, request room lists periodically");
+            notifyStateChanged();
+        }
+    }
+
+    private void notifyStateChanged() {
+        boolean live = isLive();
+        for (LobbyListener listener : new ArrayList<>(mListeners)) {
+            listener.onLobbyStateChanged(live);
+        }
+    }
+
+    @Override
+    public void onMessageReceived(RtmMessage rtmMessage, RtmChannelMember fromMember) {
+        String userId = fromMember == null ? null : fromMember.getUserId();
+        if (!SERVER_ACCOUNTS.contains(userId)) {
+            // Only called in the RTM callback thread
+            mRejectedCount++;
+            XLog.w("lobby message from " + userId + " is not from the server, dropped");
+            return;
+        }
+
+        String json = rtmMessage.getText();
+        RoomListChangeMessage message;
+        try {
+            int cmd = ProtocolGson.peekInt(json, "cmd", -1);
+            if (cmd == LOBBY_MSG_TYPE_HEARTBEAT) {
+                mHandler.post(this::onServerMessage);
+                return;
+            } else if (cmd != LOBBY_MSG_TYPE_ROOM_LIST) {
+                return;
+            }
+            message = ProtocolGson.gson().fromJson(json, RoomListChangeMessage.class);
+        } catch (JsonParseException e) {
+            XLog.w("lobby message parse failed: " + e.getMessage());
+            return;
+        }
+
+        if (message == null || message.data == null || message.data.list == null) return;
+        RoomListChangeMessage.RoomListChange change = message.data;
+        mHandler.post(() -> {
+            onServerMessage();
+            mMessageCount++;
+            mChangeCount += change.list.size();
+            for (LobbyListener listener : new ArrayList<>(mListeners)) {
+                listener.onLobbyRoomListChanged(change.type, change.list);
+            }
+        });
+    }
+
+    @Override
+    public void onMemberCountUpdated(int memberCount) {
+
+    }
+
+    @Override
+    public void onAttributesUpdated(List<RtmChannelAttribute> attributeList) {
+
+    }
+
+    @Override
+    public void onMemberJoined(RtmChannelMember rtmChannelMember) {
+
+    }
+
+    @Override
+    public void onMemberLeft(RtmChannelMember rtmChannelMember) {
+
+    }
+}
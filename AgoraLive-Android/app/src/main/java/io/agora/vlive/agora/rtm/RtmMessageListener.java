@@ -60,7 +60,11 @@ public interface RtmMessageListener {
 
     void onRtmReceivePKEvent(PKStateMessage.PKStateMessageBody messageData);
 
-    void onRtmGiftMessage(String fromUserId, String fromUserName, String toUserId, String toUserName, int giftId);
+    /**
+     * @param count how many times the gift is sent in a row,
+     *              usually 1 unless the user sends quickly.
+     */
+    void onRtmGiftMessage(String fromUserId, String fromUserName, String toUserId, String toUserName, int giftId, int count);
 
     void onRtmProductPurchased(String productId, int count);
 
@@ -0,0 +1,218 @@
+package io.agora.vlive.agora.rtm;
+
+import android.os.Handler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.rtm.ErrorInfo;
+import io.agora.rtm.ResultCallback;
+import io.agora.rtm.RtmStatusCode;
+import io.agora.vlive.agora.rtm.model.ChatMessage;
+import io.agora.vlive.protocol.json.ProtocolGson;
+
+/**
+ * Sends channel messages at a bounded rate, because RTM
+ * fails the messages that a client sends too often.
+ * A token bucket is refilled by SEND_RATE tokens a second
+ * up to SEND_BURST tokens, and a message is sent when it
+ * gets a token, or waits in the queue otherwise.
+ * When too many chat messages are waiting, the oldest one
+ * is dropped and its callback fails with
+ * CHANNEL_MESSAGE_ERR_TOO_OFTEN.
+ */
+class RtmSendQueue {
+    static final int SEND_RATE = 10;
+    static final int SEND_BURST = 10;
+    static final int MAX_PENDING_CHATS = 50;
+
+    interface Sender {
+        void send(String message, ResultCallback<Void> callback);
+    }
+
+    private final Handler mHandler;
+    private final Sender mSender;
+    private final Runnable mDrainRunnable = this::drainAndSchedule;
+
+    // Guarded by this
+    private final ArrayDeque<Outgoing> mChats = new ArrayDeque<>();
+    private boolean mScheduled;
+    private double mTokens = SEND_BURST;
+    private long mLastRefill = -1;
+    private long mQueuedCount;
+    private long mSentCount;
+    private long mDroppedCount;
+
+    /**
+     * @param handler to send the waiting messages later;
+     *                they are not scheduled if null, until
+     *                drained.
+     */
+    RtmSendQueue(Handler handler, Sender sender) {
+        mHandler = handler;
+        mSender = sender;
+    }
+
+    /**
+     * Called in any thread
+     */
+    void enqueueChat(ChatMessage message, ResultCallback<Void> callback) {
+        Outgoing dropped = null;
+        synchronized (this) {
+            mQueuedCount++;
+            if (mChats.size() >= MAX_PENDING_CHATS) {
+                dropped = mChats.poll();
+                mDroppedCount++;
+            }
+            mChats.add(new Outgoing(message, callback));
+        }
+
+        if (dropped != null) {
+            dropped.fail(RtmStatusCode.ChannelMessageError.CHANNEL_MESSAGE_ERR_TOO_OFTEN,
+                    "dropped by the send queue");
+        }
+        sendOrSchedule();
+    }
+
+    private void sendOrSchedule() {
+        List<Outgoing> sends = new ArrayList<>();
+        long delay;
+        synchronized (this) {
+            // A drain is waiting for the next token
+            if (mScheduled) return;
+            delay = take(now(), sends);
+            // Checked and set under the same lock, so that
+            // only one drain is posted
+            mScheduled = delay >= 0 && mHandler != null;
+        }
+
+        send(sends);
+        if (delay >= 0 && mHandler != null) {
+            mHandler.postDelayed(mDrainRunnable, delay);
+        }
+    }
+
+    static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    private void drainAndSchedule() {
+        synchronized (this) {
+            mScheduled = false;
+        }
+        sendOrSchedule();
+    }
+
+    /**
+     * Sends the messages that tokens are available for.
+     * @return the delay in milliseconds until the next
+     * message can be sent, or -1 if no message is waiting
+     */
+    long drain(long nowMs) {
+        List<Outgoing> sends = new ArrayList<>();
+        long delay;
+        synchronized (this) {
+            delay = take(nowMs, sends);
+        }
+
+        send(sends);
+        return delay;
+    }
+
+    /**
+     * Takes the messages that tokens are available for,
+     * called with the lock held.
+     */
+    private long take(long nowMs, List<Outgoing> sends) {
+        refill(nowMs);
+        while (mTokens >= 1 && !mChats.isEmpty()) {
+            sends.add(mChats.poll());
+            mTokens -= 1;
+        }
+        mSentCount += sends.size();
+
+        return mChats.isEmpty() ? -1 :
+                (long) Math.ceil((1 - mTokens) * 1000 / SEND_RATE);
+    }
+
+    private void send(List<Outgoing> sends) {
+        for (Outgoing outgoing : sends) {
+            mSender.send(outgoing.payload(), outgoing);
+        }
+    }
+
+    private void refill(long nowMs) {
+        if (mLastRefill >= 0 && nowMs > mLastRefill) {
+            mTokens = Math.min(SEND_BURST,
+                    mTokens + (nowMs - mLastRefill) * SEND_RATE / 1000.0);
+        }
+        mLastRefill = nowMs;
+    }
+
+    /**
+     * Drops the waiting messages when the channel is left,
+     * whose callbacks fail as if not in a channel
+     */
+    void clear() {
+        List<Outgoing> dropped;
+        synchronized (this) {
+            dropped = new ArrayList<>(mChats);
+            mChats.clear();
+            mDroppedCount += dropped.size();
+        }
+
+        for (Outgoing outgoing : dropped) {
+            outgoing.fail(RtmStatusCode.ChannelMessageError.CHANNEL_MESSAGE_ERR_FAILURE,
+                    "not in a channel");
+        }
+    }
+
+    synchronized int getPendingCount() {
+        return mChats.size();
+    }
+
+    synchronized long getQueuedCount() {
+        return mQueuedCount;
+    }
+
+    synchronized long getSentCount() {
+        return mSentCount;
+    }
+
+    synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * A chat message to send, which is also the callback
+     * of the sending.
+     */
+    private static class Outgoing implements ResultCallback<Void> {
+        private final ChatMessage mChat;
+        private final ResultCallback<Void> mCallback;
+
+        Outgoing(ChatMessage chat, ResultCallback<Void> callback) {
+            mChat = chat;
+            mCallback = callback;
+        }
+
+        String payload() {
+            return ProtocolGson.gson().toJson(mChat);
+        }
+
+        void fail(int code, String description) {
+            onFailure(new ErrorInfo(code, description));
+        }
+
+        @Override
+        public void onSuccess(Void aVoid) {
+            if (mCallback != null) mCallback.onSuccess(aVoid);
+        }
+
+        @Override
+        public void onFailure(ErrorInfo errorInfo) {
+            if (mCallback != null) mCallback.onFailure(errorInfo);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package io.agora.vlive.agora.rtm.model;
+
+import java.util.List;
+
+public class RoomListChangeMessage extends AbsRtmMessage {
+    public RoomListChange data;
+
+    public static class RoomListChange {
+        // The room type of all the changes
+        public int type;
+        public List<RoomChange> list;
+    }
+
+    public static class RoomChange {
+        public static final int ROOM_ADDED = 1;
+        public static final int ROOM_REMOVED = 2;
+        public static final int ROOM_UPDATED = 3;
+
+        public int action;
+        public String roomId;
+        public String roomName;
+        public String thumbnail;
+        public int currentUsers;
+        public int ownerUid;
+    }
+}
@@ -0,0 +1,204 @@
+package io.agora.vlive.protocol;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.elvishew.xlog.XLog;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.agora.vlive.protocol.json.ProtocolGson;
+import io.agora.vlive.protocol.model.request.Request;
+import io.agora.vlive.protocol.model.response.Response;
+
+/**
+ * Keeps the latest successful responses of catalogs that
+ * rarely change (app version, gift list, music list and
+ * the product list of a room), in memory and on disk, so
+ * that they can be used at once on a cold start while the
+ * network request refreshes them in the background.
+ * Disk access runs in a single background thread.
+ */
+public class CatalogStore {
+    private static final String DIR_NAME = "catalog";
+
+    // Catalogs older than this period are not used
+    public static final long MAX_AGE = 7L * 24 * 60 * 60 * 1000;
+
+    public interface LoadCallback<T> {
+        /**
+         * Called in the store thread
+         * @param response null if nothing stored or expired
+         */
+        void onCatalogLoaded(@Nullable T response);
+    }
+
+    private static class Entry {
+        Response response;
+        long updateTime;
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - updateTime > MAX_AGE;
+        }
+    }
+
+    private final Map<String, Entry> mMemory = new HashMap<>();
+    private final ExecutorService mDiskExecutor = Executors.newSingleThreadExecutor();
+    private final Gson mGson = ProtocolGson.gson();
+    private volatile File mDir;
+
+    /**
+     * @param dir the directory for disk cache, usually under
+     *            Context.getCacheDir(); null to keep responses
+     *            in memory only.
+     */
+    void setDirectory(@Nullable File dir) {
+        mDir = dir == null ? null : new File(dir, DIR_NAME);
+    }
+
+    /**
+     * @param key to tell catalogs of the same request type,
+     *            like the room id of product lists; null if
+     *            there is only one catalog of the type.
+     * @return the response in memory, null if not loaded
+     * yet or expired.
+     */
+    @Nullable
+    public <T extends Response> T peek(int request, @Nullable String key, @NonNull Class<T> type) {
+        Entry entry;
+        synchronized (mMemory) {
+            entry = mMemory.get(name(request, key));
+        }
+        return entry == null || entry.isExpired() || !type.isInstance(entry.response)
+                ? null : type.cast(entry.response);
+    }
+
+    /**
+     * Get the response from memory or disk.
+     */
+    public <T extends Response> void load(int request, @Nullable String key,
+                                          @NonNull Class<T> type, @NonNull LoadCallback<T> callback) {
+        String name = name(request, key);
+        mDiskExecutor.execute(() -> callback.onCatalogLoaded(loadEntry(name, type)));
+    }
+
+    /**
+     * Get the response from memory or disk, and wait for it.
+     * The disk is still read in the store thread, after the
+     * responses being written.
+     * @return null if nothing stored, expired, or interrupted
+     */
+    @WorkerThread
+    @Nullable
+    public <T extends Response> T get(int request, @Nullable String key, @NonNull Class<T> type) {
+        String name = name(request, key);
+        try {
+            return mDiskExecutor.submit(() -> loadEntry(name, type)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private <T extends Response> T loadEntry(String name, Class<T> type) {
+        Entry entry;
+        synchronized (mMemory) {
+            entry = mMemory.get(name);
+        }
+
+        if (entry == null) {
+            Entry disk = readFromDisk(name, type);
+            synchronized (mMemory) {
+                // A newer response may have been
+                // put when reading the disk
+                entry = mMemory.get(name);
+                if (entry == null && disk != null) {
+                    mMemory.put(name, disk);
+                    entry = disk;
+                }
+            }
+        }
+
+        return entry == null || entry.isExpired() ||
+                !type.isInstance(entry.response) ? null : type.cast(entry.response);
+    }
+
+    /**
+     * Replace the catalog with the latest response
+     * from the server.
+     */
+    void put(int request, @Nullable String key, @NonNull Response response) {
+        Entry entry = new Entry();
+        entry.response = response;
+        entry.updateTime = System.currentTimeMillis();
+
+        String name = name(request, key);
+        synchronized (mMemory) {
+            mMemory.put(name, entry);
+        }
+        mDiskExecutor.execute(() -> writeToDisk(name, entry));
+    }
+
+    private String name(int request, String key) {
+        String name = Request.getRequestString(request);
+        return key == null ? name : name + "-" + key;
+    }
+
+    private Entry readFromDisk(String name, Class<? extends Response> type) {
+        File dir = mDir;
+        if (dir == null) return null;
+        File file = new File(dir, name + ".json");
+        if (!file.exists()) return null;
+
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8)) {
+            Entry entry = new Entry();
+            entry.response = mGson.fromJson(reader, type);
+            entry.updateTime = file.lastModified();
+            return entry.response == null ? null : entry;
+        } catch (IOException | JsonParseException e) {
+            XLog.w("catalog read failed: " + name + " " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(String name, Entry entry) {
+        File dir = mDir;
+        if (dir == null || (!dir.exists() && !dir.mkdirs())) return;
+
+        // Write to a temporary file then rename, so that a
+        // partially written file is never read.
+        File temp = new File(dir, name + ".tmp");
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            mGson.toJson(entry.response, writer);
+        } catch (IOException e) {
+            XLog.w("catalog write failed: " + name + " " + e.getMessage());
+            temp.delete();
+            return;
+        }
+
+        if (!temp.renameTo(new File(dir, name + ".json"))) {
+            temp.delete();
+        }
+    }
+}
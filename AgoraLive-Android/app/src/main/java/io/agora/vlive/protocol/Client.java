@@ -3,13 +3,13 @@ package io.agora.vlive.protocol;
 import com.elvishew.xlog.XLog;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import io.agora.vlive.BuildConfig;
+import io.agora.vlive.protocol.http.HttpStack;
 import io.agora.vlive.protocol.interfaces.GeneralService;
+import io.agora.vlive.protocol.json.ProtocolGson;
 import io.agora.vlive.protocol.interfaces.ProductService;
 import io.agora.vlive.protocol.interfaces.RoomService;
 import io.agora.vlive.protocol.interfaces.PKService;
@@ -43,14 +43,15 @@ import io.agora.vlive.protocol.model.response.MusicListResponse;
 import io.agora.vlive.protocol.model.response.OssPolicyResponse;
 import io.agora.vlive.protocol.model.response.ProductListResponse;
 import io.agora.vlive.protocol.model.response.RefreshTokenResponse;
+import io.agora.vlive.protocol.model.response.Response;
 import io.agora.vlive.protocol.model.response.RoomListResponse;
 import io.agora.vlive.protocol.model.response.SeatStateResponse;
 import io.agora.vlive.protocol.model.response.SendGiftResponse;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Call;
 import retrofit2.Callback;
-import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import retrofit2.internal.EverythingIsNonNull;
@@ -58,12 +59,24 @@ import retrofit2.internal.EverythingIsNonNull;
 class Client {
     private static final String PRODUCT_URL = "https://api-solutions.sh.agoralab.co";
     private static final String MSG_NULL_RESPONSE = "Response content is null";
-    private static final int MAX_RESPONSE_THREAD = 10;
-    private static final int DEFAULT_TIMEOUT_IN_SECONDS = 30;
 
     private static final int ERROR_OK = 0;
-    private static final int ERROR_CONNECTION = -1;
-    private static final int ERROR_NULL = -2;
+    private static final int ERROR_CONNECTION = RequestFuture.ERROR_CONNECTION;
+    private static final int ERROR_NULL = RequestFuture.ERROR_NULL;
+
+    /**
+     * Tells a proxy listener about a successful response
+     */
+    private interface Dispatcher<T> {
+        void dispatch(ClientProxyListener listener, T response);
+    }
+
+    /**
+     * Works with a successful response before it is delivered
+     */
+    private interface ResponseHook<T> {
+        void onResponse(T response);
+    }
 
     private GeneralService mGeneralService;
     private RoomService mRoomService;
@@ -72,28 +85,35 @@ class Client {
     private PKService mPKService;
     private ProductService mProductService;
 
-    private List<ClientProxyListener> mProxyListeners = new ArrayList<>();
-
-    Client() {
-        OkHttpClient okHttpClient = new OkHttpClient().newBuilder()
-                .connectTimeout(DEFAULT_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
-                .readTimeout(DEFAULT_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
-                .writeTimeout(DEFAULT_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)
-                .build();
+    // Registered and removed in UI threads, iterated in response threads
+    private List<ClientProxyListener> mProxyListeners = new CopyOnWriteArrayList<>();
+    private RoomListCache mRoomListCache;
+    private CatalogStore mCatalogStore;
+    private RequestCoalescer mCoalescer;
 
-        Retrofit.Builder builder = new Retrofit.Builder()
-                .baseUrl(PRODUCT_URL)
-                .client(okHttpClient)
-                .callbackExecutor(Executors.newFixedThreadPool(MAX_RESPONSE_THREAD))
-                .addConverterFactory(GsonConverterFactory.create());
+    Client(RoomListCache roomListCache, CatalogStore catalogStore, RequestCoalescer coalescer) {
+        mRoomListCache = roomListCache;
+        mCatalogStore = catalogStore;
+        mCoalescer = coalescer;
 
+        // Clients derived from the shared one keep sharing
+        // its connection pool, dispatcher and http cache.
+        OkHttpClient okHttpClient = HttpStack.client();
         if (BuildConfig.DEBUG) {
             HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor(XLog::d);
             interceptor.level(HttpLoggingInterceptor.Level.BODY);
-            OkHttpClient client = new OkHttpClient.Builder().addInterceptor(interceptor).build();
-            builder.client(client);
+            okHttpClient = okHttpClient.newBuilder()
+                    .addInterceptor(interceptor)
+                    .addNetworkInterceptor(Client::logCacheState)
+                    .build();
         }
 
+        Retrofit.Builder builder = new Retrofit.Builder()
+                .baseUrl(PRODUCT_URL)
+                .client(okHttpClient)
+                .callbackExecutor(HttpStack.callbackExecutor())
+                .addConverterFactory(GsonConverterFactory.create(ProtocolGson.gson()));
+
         Retrofit retrofit = builder.build();
         mGeneralService = retrofit.create(GeneralService.class);
         mRoomService = retrofit.create(RoomService.class);
@@ -113,725 +133,238 @@ class Client {
         mProxyListeners.remove(listener);
     }
 
-    void requestVersion(long reqId, String appCode, int osType, int terminalType, String appVersion) {
-        mGeneralService.requestAppVersion(reqId, Request.APP_VERSION,
-                appCode, osType, terminalType, appVersion).enqueue(new Callback<AppVersionResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<AppVersionResponse> call, Response<AppVersionResponse> response) {
-                AppVersionResponse appVersionResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (appVersionResponse == null) {
-                        try {
-                            listener.onResponseError(Request.APP_VERSION, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (appVersionResponse.code == ERROR_OK) {
-                        listener.onAppVersionResponse(appVersionResponse);
-                    } else {
-                        listener.onResponseError(Request.APP_VERSION, appVersionResponse.code, appVersionResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<AppVersionResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.APP_VERSION, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void requestVersion(PendingCall<AppVersionResponse> call, long reqId,
+                        String appCode, int osType, int terminalType, String appVersion) {
+        enqueue(call, mGeneralService.requestAppVersion(reqId, Request.APP_VERSION,
+                appCode, osType, terminalType, appVersion),
+                response -> mCatalogStore.put(Request.APP_VERSION, null, response),
+                ClientProxyListener::onAppVersionResponse);
     }
 
-    void requestGiftList(long reqId) {
-        mGeneralService.requestGiftList(reqId, Request.GIFT_LIST).enqueue(new Callback<GiftListResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<GiftListResponse> call, Response<GiftListResponse> response) {
-                GiftListResponse giftListResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (giftListResponse == null) {
-                        try {
-                            listener.onResponseError(Request.GIFT_LIST, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (giftListResponse.code == ERROR_OK) {
-                        listener.onGiftListResponse(giftListResponse);
-                    } else {
-                        listener.onResponseError(Request.GIFT_LIST, giftListResponse.code, giftListResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<GiftListResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.GIFT_LIST, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void requestGiftList(PendingCall<GiftListResponse> call, long reqId) {
+        enqueue(call, mGeneralService.requestGiftList(reqId, Request.GIFT_LIST),
+                response -> mCatalogStore.put(Request.GIFT_LIST, null, response),
+                ClientProxyListener::onGiftListResponse);
     }
 
-    void requestMusicList(long reqId) {
-        mGeneralService.requestMusicList(reqId, Request.MUSIC_LIST).enqueue(new Callback<MusicListResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<MusicListResponse> call, Response<MusicListResponse> response) {
-                MusicListResponse musicListResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (musicListResponse == null) {
-                        try {
-                            listener.onResponseError(Request.MUSIC_LIST, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (musicListResponse.code == ERROR_OK) {
-                        listener.onMusicLisResponse(musicListResponse);
-                    } else {
-                        listener.onResponseError(Request.MUSIC_LIST, musicListResponse.code, musicListResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<MusicListResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.MUSIC_LIST, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void requestMusicList(PendingCall<MusicListResponse> call, long reqId) {
+        enqueue(call, mGeneralService.requestMusicList(reqId, Request.MUSIC_LIST),
+                response -> mCatalogStore.put(Request.MUSIC_LIST, null, response),
+                ClientProxyListener::onMusicLisResponse);
     }
 
-    void requestOssPolicy(long reqId, String token, int type) {
-        mGeneralService.requestOssPolicy(reqId, Request.OSS, token, type).enqueue(new Callback<OssPolicyResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<OssPolicyResponse> call, Response<OssPolicyResponse> response) {
-                OssPolicyResponse ossPolicyResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (ossPolicyResponse == null) {
-                        try {
-                            listener.onResponseError(Request.OSS, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (ossPolicyResponse.code == ERROR_OK) {
-                        listener.onOssPolicyResponse(ossPolicyResponse);
-                    } else {
-                        listener.onResponseError(Request.OSS, ossPolicyResponse.code, ossPolicyResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<OssPolicyResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.OSS, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void requestOssPolicy(PendingCall<OssPolicyResponse> call, long reqId, String token, int type) {
+        enqueue(call, mGeneralService.requestOssPolicy(reqId, Request.OSS, token, type),
+                ClientProxyListener::onOssPolicyResponse);
     }
 
-    void createUser(long reqId, String userName) {
-        mUserService.requestCreateUser(reqId, Request.CREATE_USER,
-                new CreateUserBody(userName)).enqueue(new Callback<CreateUserResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<CreateUserResponse> call, Response<CreateUserResponse> response) {
-                CreateUserResponse createUserResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (createUserResponse == null) {
-                        try {
-                            listener.onResponseError(Request.CREATE_USER, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (createUserResponse.code == ERROR_OK) {
-                        listener.onCreateUserResponse(createUserResponse);
-                    } else {
-                        listener.onResponseError(Request.CREATE_USER, createUserResponse.code, createUserResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<CreateUserResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.CREATE_USER, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void createUser(PendingCall<CreateUserResponse> call, long reqId, String userName) {
+        enqueue(call, mUserService.requestCreateUser(reqId, Request.CREATE_USER,
+                new CreateUserBody(userName)), ClientProxyListener::onCreateUserResponse);
     }
 
-    void editUser(long reqId, String token, String userId, String userName, String avatar) {
-        mUserService.requestEditUser(token, reqId, Request.EDIT_USER, userId,
-                new UserRequestBody(userName, avatar)).enqueue(new Callback<EditUserResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<EditUserResponse> call, Response<EditUserResponse> response) {
-                EditUserResponse editUserResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (editUserResponse == null) {
-                        try {
-                            listener.onResponseError(Request.EDIT_USER, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (editUserResponse.code == ERROR_OK) {
-                        listener.onEditUserResponse(editUserResponse);
-                    } else {
-                        listener.onResponseError(Request.EDIT_USER, editUserResponse.code, editUserResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<EditUserResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.EDIT_USER, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void editUser(PendingCall<EditUserResponse> call, long reqId, String token,
+                  String userId, String userName, String avatar) {
+        enqueue(call, mUserService.requestEditUser(token, reqId, Request.EDIT_USER, userId,
+                new UserRequestBody(userName, avatar)), ClientProxyListener::onEditUserResponse);
     }
 
-    void login(long reqId, String userId) {
-        mUserService.requestLogin(reqId, Request.USER_LOGIN, new LoginBody(userId)).enqueue(new Callback<LoginResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<LoginResponse> call, Response<LoginResponse> response) {
-                LoginResponse loginResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (loginResponse == null) {
-                        try {
-                            listener.onResponseError(Request.USER_LOGIN, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (loginResponse.code == ERROR_OK) {
-                        listener.onLoginResponse(loginResponse);
-                    } else {
-                        listener.onResponseError(Request.USER_LOGIN, loginResponse.code, loginResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<LoginResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.USER_LOGIN, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void login(PendingCall<LoginResponse> call, long reqId, String userId) {
+        enqueue(call, mUserService.requestLogin(reqId, Request.USER_LOGIN,
+                new LoginBody(userId)), ClientProxyListener::onLoginResponse);
     }
 
-    void requestRoomList(long reqId, String token, String nextId, int count, int type, Integer pkState) {
-        mRoomService.requestRoomList(reqId, token, Request.ROOM_LIST, nextId, count, type, pkState).enqueue(new Callback<RoomListResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<RoomListResponse> call, Response<RoomListResponse> response) {
-                RoomListResponse roomListResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (roomListResponse == null) {
-                        try {
-                            listener.onResponseError(Request.ROOM_LIST, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (roomListResponse.code == ERROR_OK) {
-                        listener.onRoomListResponse(roomListResponse);
-                    } else {
-                        listener.onResponseError(Request.ROOM_LIST, roomListResponse.code, roomListResponse.msg);
+    void requestRoomList(PendingCall<RoomListResponse> call, long reqId, String token,
+                         String nextId, int count, int type, Integer pkState) {
+        enqueue(call, mRoomService.requestRoomList(reqId, token, Request.ROOM_LIST,
+                nextId, count, type, pkState), response -> {
+                    // Only the first pages are cached
+                    if (nextId == null && response.data != null) {
+                        mRoomListCache.put(type, pkState, response.data.list);
                     }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<RoomListResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.ROOM_LIST, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+                }, ClientProxyListener::onRoomListResponse);
     }
 
-    void createRoom(long reqId, String token, String roomName, int type, String avatar) {
-        mRoomService.requestCreateLiveRoom(token, reqId, Request.CREATE_ROOM,
-                new CreateRoomRequestBody(roomName, type, avatar)).enqueue(new Callback<CreateRoomResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<CreateRoomResponse> call, Response<CreateRoomResponse> response) {
-                CreateRoomResponse createRoomResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (createRoomResponse == null) {
-                        try {
-                            listener.onResponseError(Request.CREATE_ROOM, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (createRoomResponse.code == ERROR_OK) {
-                        listener.onCreateRoomResponse(createRoomResponse);
-                    } else {
-                        listener.onResponseError(Request.CREATE_ROOM, createRoomResponse.code, createRoomResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<CreateRoomResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.CREATE_ROOM, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void createRoom(PendingCall<CreateRoomResponse> call, long reqId, String token,
+                    String roomName, int type, String avatar) {
+        enqueue(call, mRoomService.requestCreateLiveRoom(token, reqId, Request.CREATE_ROOM,
+                new CreateRoomRequestBody(roomName, type, avatar)), ClientProxyListener::onCreateRoomResponse);
     }
 
-    void enterRoom(long reqId, String token, String roomId) {
-        mRoomService.requestEnterLiveRoom(token, reqId, Request.ENTER_ROOM, roomId).enqueue(new Callback<EnterRoomResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<EnterRoomResponse> call, Response<EnterRoomResponse> response) {
-                EnterRoomResponse enterRoomResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (enterRoomResponse == null) {
-                        try {
-                            listener.onResponseError(Request.ENTER_ROOM, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (enterRoomResponse.code == ERROR_OK) {
-                        listener.onEnterRoomResponse(enterRoomResponse);
-                    } else {
-                        listener.onResponseError(Request.ENTER_ROOM, enterRoomResponse.code, enterRoomResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<EnterRoomResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.ENTER_ROOM, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void enterRoom(PendingCall<EnterRoomResponse> call, long reqId, String token, String roomId) {
+        enqueue(call, mRoomService.requestEnterLiveRoom(token, reqId, Request.ENTER_ROOM, roomId),
+                ClientProxyListener::onEnterRoomResponse);
     }
 
-    void leaveRoom(long reqId, String token, String roomId) {
-        mRoomService.requestLeaveLiveRoom(token, reqId, Request.LEAVE_ROOM, roomId).enqueue(new Callback<LeaveRoomResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<LeaveRoomResponse> call, Response<LeaveRoomResponse> response) {
-                LeaveRoomResponse leaveRoomResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (leaveRoomResponse == null) {
-                        try {
-                            listener.onResponseError(Request.LEAVE_ROOM, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (leaveRoomResponse.code == ERROR_OK) {
-                        listener.onLeaveRoomResponse(leaveRoomResponse);
-                    } else {
-                        listener.onResponseError(Request.LEAVE_ROOM, leaveRoomResponse.code, leaveRoomResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<LeaveRoomResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.LEAVE_ROOM, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void leaveRoom(PendingCall<LeaveRoomResponse> call, long reqId, String token, String roomId) {
+        enqueue(call, mRoomService.requestLeaveLiveRoom(token, reqId, Request.LEAVE_ROOM, roomId),
+                ClientProxyListener::onLeaveRoomResponse);
     }
 
-    void requestAudienceList(long reqId, String token, String roomId, String nextId, int count ,int type) {
-        mRoomService.requestAudienceList(token, reqId, Request.AUDIENCE_LIST,
-                roomId, nextId, count, type).enqueue(new Callback<AudienceListResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<AudienceListResponse> call, Response<AudienceListResponse> response) {
-                AudienceListResponse audienceListResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (audienceListResponse == null) {
-                        try {
-                            listener.onResponseError(Request.AUDIENCE_LIST, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (audienceListResponse.code == ERROR_OK) {
-                        listener.onAudienceListResponse(audienceListResponse);
-                    } else {
-                        listener.onResponseError(Request.AUDIENCE_LIST, audienceListResponse.code, audienceListResponse.msg);
-                    }
-                }
-            }
+    void requestAudienceList(PendingCall<AudienceListResponse> call, long reqId, String token,
+                             String roomId, String nextId, int count, int type) {
+        enqueue(call, mRoomService.requestAudienceList(token, reqId, Request.AUDIENCE_LIST,
+                roomId, nextId, count, type), ClientProxyListener::onAudienceListResponse);
+    }
 
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<AudienceListResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.AUDIENCE_LIST, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void requestSeatState(PendingCall<SeatStateResponse> call, long reqId, String token, String roomId) {
+        enqueue(call, mRoomService.requestSeatState(token, reqId, Request.SEAT_STATE, roomId),
+                ClientProxyListener::onRequestSeatStateResponse);
     }
 
-    void requestSeatState(long reqId, String token, String roomId) {
-        mRoomService.requestSeatState(token, reqId,
-                Request.SEAT_STATE, roomId).enqueue(new Callback<SeatStateResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<SeatStateResponse> call, Response<SeatStateResponse> response) {
-                SeatStateResponse seatStateResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (seatStateResponse == null) {
-                        try {
-                            listener.onResponseError(Request.SEAT_STATE, ERROR_NULL,
-                                    response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().string());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    } else if (seatStateResponse.code == ERROR_OK) {
-                        listener.onRequestSeatStateResponse(seatStateResponse);
-                    } else {
-                        listener.onResponseError(Request.SEAT_STATE, seatStateResponse.code, seatStateResponse.msg);
-                    }
-                }
-            }
+    void modifyUserState(PendingCall<ModifyUserStateResponse> call, String token, String roomId,
+                         String userId, int enableAudio, int enableVideo, int enableChat) {
+        enqueue(call, mRoomService.requestModifyUserState(token, roomId, userId,
+                new ModifyUserStateRequestBody(enableAudio, enableVideo, enableChat)),
+                ClientProxyListener::onModifyUserStateResponse);
+    }
 
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<SeatStateResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.SEAT_STATE, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void modifySeatState(PendingCall<BooleanResponse> call, String token, String roomId, int no, int state) {
+        enqueue(call, mSeatService.requestModifySeatStates(token, roomId,
+                new RequestModifySeatStateBody(no, state)), null);
     }
 
-    void modifyUserState(String token, String roomId, String userId, int enableAudio, int enableVideo, int enableChat) {
-        mRoomService.requestModifyUserState(token, roomId, userId,
-                new ModifyUserStateRequestBody(enableAudio, enableVideo, enableChat)).enqueue(new Callback<ModifyUserStateResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<ModifyUserStateResponse> call, Response<ModifyUserStateResponse> response) {
-                ModifyUserStateResponse modifyUserStateResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (modifyUserStateResponse == null) {
-                        listener.onResponseError(Request.MODIFY_SEAT_STATE, ERROR_NULL,
-                                response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().toString());
-                    } else if (modifyUserStateResponse.code == ERROR_OK) {
-                        listener.onModifyUserStateResponse(modifyUserStateResponse);
-                    } else {
-                        listener.onResponseError(Request.MODIFY_SEAT_STATE, modifyUserStateResponse.code, modifyUserStateResponse.msg);
-                    }
-                }
-            }
+    void sendGift(PendingCall<SendGiftResponse> call, long reqId, String token,
+                  String roomId, int giftId, int count) {
+        enqueue(call, mRoomService.requestSendGift(token, reqId, Request.SEND_GIFT,
+                roomId, new SendGiftBody(giftId, count)), ClientProxyListener::onSendGiftResponse);
+    }
 
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<ModifyUserStateResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.MODIFY_SEAT_STATE, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void giftRank(PendingCall<GiftRankResponse> call, long reqId, String roomId) {
+        enqueue(call, mRoomService.requestGiftRank(reqId, Request.GIFT_RANK, roomId),
+                ClientProxyListener::onGiftRankResponse);
     }
 
-    void modifySeatState(String token, String roomId, int no, int state) {
-        RequestModifySeatStateBody body = new RequestModifySeatStateBody(no, state);
-        mSeatService.requestModifySeatStates(token, roomId, body).enqueue(new Callback<BooleanResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<BooleanResponse> call, Response<BooleanResponse> response) {
-                BooleanResponse resp = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (resp == null || resp.code != ERROR_OK) {
-                        listener.onResponseError(Request.MODIFY_SEAT_STATE,
-                                resp == null ? ERROR_NULL : resp.code,
-                                resp == null ? MSG_NULL_RESPONSE : resp.msg);
-                    }
-                }
-            }
+    void refreshToken(PendingCall<RefreshTokenResponse> call, long reqId, String token, String roomId) {
+        enqueue(call, mGeneralService.requestRefreshToken(reqId, Request.REFRESH_TOKEN, token, roomId),
+                ClientProxyListener::onRefreshTokenResponse);
+    }
 
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<BooleanResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.MODIFY_SEAT_STATE, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void requestPKBehavior(PendingCall<LongResponse> call, String token,
+                           String myRoomId, String targetRoomId, int type) {
+        enqueue(call, mPKService.requestPKBehavior(token, myRoomId,
+                new PkRequestBody(targetRoomId, type)), null);
     }
 
-    void sendGift(long reqId, String token, String roomId, int giftId, int count) {
-        mRoomService.requestSendGift(token, reqId, Request.SEND_GIFT,
-                roomId, new SendGiftBody(giftId, count)).enqueue(new Callback<SendGiftResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<SendGiftResponse> call, Response<SendGiftResponse> response) {
-                SendGiftResponse sendGiftResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (sendGiftResponse == null) {
-                        listener.onResponseError(Request.SEND_GIFT, ERROR_NULL,
-                                response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().toString());
-                    } else if (sendGiftResponse.code == ERROR_OK) {
-                        listener.onSendGiftResponse(sendGiftResponse);
-                    } else {
-                        listener.onResponseError(Request.SEND_GIFT, sendGiftResponse.code, sendGiftResponse.msg);
-                    }
-                }
-            }
+    void requestPKEnd(PendingCall<BooleanResponse> call, String token, String myRoomId) {
+        enqueue(call, mPKService.requestPKEnd(token, myRoomId, new PkRequestBody("", 0)), null);
+    }
 
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<SendGiftResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.SEND_GIFT, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void requestSeatInteraction(PendingCall<LongResponse> call, String token,
+                                String roomId, String userId, int seatNo, int type) {
+        enqueue(call, mSeatService.requestSeatInteraction(token, roomId, userId,
+                new RequestSeatInteractionBody(seatNo, type)), (listener, response) ->
+                listener.onSeatInteractionResponse(response.data, userId, seatNo, type));
     }
 
-    void giftRank(long reqId, String roomId) {
-        mRoomService.requestGiftRank(reqId, Request.GIFT_RANK,
-                roomId).enqueue(new Callback<GiftRankResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<GiftRankResponse> call, Response<GiftRankResponse> response) {
-                GiftRankResponse giftRankResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (giftRankResponse == null) {
-                        listener.onResponseError(Request.GIFT_RANK, ERROR_NULL,
-                                response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().toString());
-                    } else if (giftRankResponse.code == ERROR_OK) {
-                        listener.onGiftRankResponse(giftRankResponse);
-                    } else {
-                        listener.onResponseError(Request.GIFT_RANK, giftRankResponse.code, giftRankResponse.msg);
-                    }
-                }
-            }
+    void requestProductList(PendingCall<ProductListResponse> call, String token, String roomId) {
+        enqueue(call, mProductService.requestProductList(token, roomId),
+                response -> mCatalogStore.put(Request.PRODUCT_LIST, roomId, response),
+                ClientProxyListener::onGetProductListResponse);
+    }
 
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<GiftRankResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.GIFT_RANK, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    void requestManageProductState(PendingCall<BooleanResponse> call, String token,
+                                   String roomId, String productId, int state) {
+        enqueue(call, mProductService.requestManageProductState(token, roomId, productId, state),
+                (listener, response) -> listener.onProductStateChangedResponse(
+                        productId, state, response.data));
     }
 
-    void refreshToken(long reqId, String token, String roomId) {
-        mGeneralService.requestRefreshToken(reqId, Request.REFRESH_TOKEN,
-                token, roomId).enqueue(new Callback<RefreshTokenResponse>() {
-            @Override
-            @EverythingIsNonNull
-            public void onResponse(Call<RefreshTokenResponse> call, Response<RefreshTokenResponse> response) {
-                RefreshTokenResponse refreshTokenResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (refreshTokenResponse == null) {
-                        listener.onResponseError(Request.REFRESH_TOKEN, ERROR_NULL,
-                                response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().toString());
-                    } else if (refreshTokenResponse.code == ERROR_OK) {
-                        listener.onRefreshTokenResponse(refreshTokenResponse);
-                    } else {
-                        listener.onResponseError(Request.REFRESH_TOKEN, refreshTokenResponse.code, refreshTokenResponse.msg);
-                    }
-                }
-            }
+    void requestPurchaseProduct(PendingCall<BooleanResponse> call, String token,
+                                String roomId, String productId, int count) {
+        enqueue(call, mProductService.requestPurchaseProduct(token, roomId,
+                new PurchaseProductBody(productId, count)), (listener, response) ->
+                listener.onProductPurchasedResponse(response.data));
+    }
 
-            @Override
-            @EverythingIsNonNull
-            public void onFailure(Call<RefreshTokenResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.REFRESH_TOKEN, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    /**
+     * Send the network request of a pending call, and deliver
+     * the result to the futures attached to it, and to all
+     * proxy listeners if any caller expects the broadcast.
+     * @param dispatcher tells a listener about the successful
+     *                   response, null if listeners are only
+     *                   told about errors.
+     */
+    private <T extends Response> void enqueue(PendingCall<T> pendingCall, Call<T> call,
+                                              Dispatcher<T> dispatcher) {
+        enqueue(pendingCall, call, null, dispatcher);
     }
 
-    void requestPKBehavior(String token, String myRoomId, String targetRoomId, int type) {
-        mPKService.requestPKBehavior(token, myRoomId, new PkRequestBody(targetRoomId, type)).enqueue(new Callback<LongResponse>() {
+    private <T extends Response> void enqueue(PendingCall<T> pendingCall, Call<T> call,
+                                              ResponseHook<T> hook, Dispatcher<T> dispatcher) {
+        pendingCall.setCall(call);
+        call.enqueue(new Callback<T>() {
             @Override
             @EverythingIsNonNull
-            public void onResponse(Call<LongResponse> call, Response<LongResponse> response) {
-                LongResponse pkResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (pkResponse == null || pkResponse.code != ERROR_OK) {
-                        listener.onResponseError(Request.PK_BEHAVIOR,
-                                pkResponse == null ? ERROR_NULL : pkResponse.code,
-                                pkResponse == null ? MSG_NULL_RESPONSE : pkResponse.msg);
-                    }
+            public void onResponse(Call<T> call, retrofit2.Response<T> response) {
+                T body = response.body();
+                if (body == null) {
+                    onError(pendingCall, ERROR_NULL, getErrorMessage(response));
+                } else if (body.code != ERROR_OK) {
+                    onError(pendingCall, body.code, body.msg);
+                } else {
+                    onSuccess(pendingCall, body, hook, dispatcher);
                 }
             }
 
             @Override
             @EverythingIsNonNull
-            public void onFailure(Call<LongResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.PK_BEHAVIOR, ERROR_CONNECTION, t.getMessage());
-                }
+            public void onFailure(Call<T> call, Throwable t) {
+                onError(pendingCall, ERROR_CONNECTION, t.getMessage());
             }
         });
     }
 
-    void requestPKEnd(String token, String myRoomId) {
-        mPKService.requestPKEnd(token, myRoomId, new PkRequestBody("", 0)).enqueue(new Callback<BooleanResponse>() {
-            @Override
-            public void onResponse(Call<BooleanResponse> call, Response<BooleanResponse> response) {
-                BooleanResponse pkResponse = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (pkResponse == null || pkResponse.code != ERROR_OK) {
-                        listener.onResponseError(Request.PK_BEHAVIOR,
-                                pkResponse == null ? ERROR_NULL : pkResponse.code,
-                                pkResponse == null ? MSG_NULL_RESPONSE : pkResponse.msg);
-                    }
-                }
-            }
-
-            @Override
-            public void onFailure(Call<BooleanResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.PK_BEHAVIOR, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
+    /**
+     * Logs whether a response is from the network, or the
+     * http cache after a conditional request (304).
+     */
+    private static okhttp3.Response logCacheState(Interceptor.Chain chain) throws IOException {
+        okhttp3.Request request = chain.request();
+        okhttp3.Response response = chain.proceed(request);
+        if (request.header("If-None-Match") != null || request.header("If-Modified-Since") != null) {
+            XLog.d("http conditional request " + request.url().encodedPath() + ": " + response.code());
+        }
+        return response;
     }
 
-    void requestSeatInteraction(String token, String roomId, String userId, int seatNo, int type) {
-        mSeatService.requestSeatInteraction(token, roomId, userId, new RequestSeatInteractionBody(seatNo, type))
-            .enqueue(new Callback<LongResponse>() {
-                @Override
-                public void onResponse(Call<LongResponse> call, Response<LongResponse> response) {
-                    LongResponse seatBehaviorResponse = response.body();
-                    if (seatBehaviorResponse == null || seatBehaviorResponse.code != ERROR_OK) {
-                        for (ClientProxyListener listener : mProxyListeners) {
-                            listener.onResponseError(Request.SEAT_INTERACTION,
-                                    seatBehaviorResponse == null ? ERROR_NULL : seatBehaviorResponse.code,
-                                    seatBehaviorResponse == null ? MSG_NULL_RESPONSE : seatBehaviorResponse.msg);
-                        }
-                    } else {
-                        for (ClientProxyListener listener : mProxyListeners) {
-                            listener.onSeatInteractionResponse(seatBehaviorResponse.data,
-                                    userId, seatNo, type);
-                        }
-                    }
-                }
-
-                @Override
-                public void onFailure(Call<LongResponse> call, Throwable t) {
-                    for (ClientProxyListener listener : mProxyListeners) {
-                        listener.onResponseError(Request.SEAT_INTERACTION, ERROR_CONNECTION, t.getMessage());
-                    }
-                }
-            });
+    private String getErrorMessage(retrofit2.Response<?> response) {
+        if (response.errorBody() == null) return MSG_NULL_RESPONSE;
+        try {
+            return response.errorBody().string();
+        } catch (IOException e) {
+            return e.getMessage();
+        }
     }
 
-    void requestProductList(String token, String roomId) {
-        mProductService.requestProductList(token, roomId).enqueue(new Callback<ProductListResponse>() {
-            @Override
-            public void onResponse(Call<ProductListResponse> call, Response<ProductListResponse> response) {
-                ProductListResponse productList = response.body();
-                for (ClientProxyListener listener : mProxyListeners) {
-                    if (productList == null) {
-                        listener.onResponseError(Request.PRODUCT_LIST, ERROR_NULL,
-                                response.errorBody() == null ? MSG_NULL_RESPONSE : response.errorBody().toString());
-                    } else if (productList.code == ERROR_OK) {
-                        listener.onGetProductListResponse(productList);
-                    } else {
-                        listener.onResponseError(Request.PRODUCT_LIST, productList.code, productList.msg);
-                    }
-                }
-            }
-
-            @Override
-            public void onFailure(Call<ProductListResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.PRODUCT_LIST, ERROR_CONNECTION, t.getMessage());
-                }
-            }
-        });
-    }
+    private <T> void onSuccess(PendingCall<T> call, T response,
+                               ResponseHook<T> hook, Dispatcher<T> dispatcher) {
+        mCoalescer.finish(call);
+        List<RequestFuture<T>> futures = call.finish();
+        if (hook != null) hook.onResponse(response);
 
-    void requestManageProductState(String token, String roomId, String productId, int state) {
-        mProductService.requestManageProductState(token, roomId, productId, state).enqueue(new Callback<BooleanResponse>() {
-            @Override
-            public void onResponse(Call<BooleanResponse> call, Response<BooleanResponse> response) {
-                BooleanResponse productManageResponse = response.body();
-                if (productManageResponse == null || productManageResponse.code != ERROR_OK) {
-                    for (ClientProxyListener listener : mProxyListeners) {
-                        listener.onResponseError(Request.PRODUCT_MANAGE,
-                                productManageResponse == null ? ERROR_NULL : productManageResponse.code,
-                                productManageResponse == null ? MSG_NULL_RESPONSE : productManageResponse.msg);
-                    }
-                } else {
-                    for (ClientProxyListener listener : mProxyListeners) {
-                        listener.onProductStateChangedResponse(productId, state, productManageResponse.data);
-                    }
-                }
-            }
+        for (RequestFuture<T> future : futures) {
+            future.complete(response);
+        }
 
-            @Override
-            public void onFailure(Call<BooleanResponse> call, Throwable t) {
-                for (ClientProxyListener listener : mProxyListeners) {
-                    listener.onResponseError(Request.PRODUCT_MANAGE, ERROR_CONNECTION, t.getMessage());
-                }
+        if (dispatcher != null && call.isBroadcast()) {
+            for (ClientProxyListener listener : mProxyListeners) {
+                dispatcher.dispatch(listener, response);
             }
-        });
+        }
     }
 
-    void requestPurchaseProduct(String token, String roomId, String productId, int count) {
-        mProductService.requestPurchaseProduct(token, roomId, new PurchaseProductBody(productId, count))
-                .enqueue(new Callback<BooleanResponse>() {
-                    @Override
-                    public void onResponse(Call<BooleanResponse> call, Response<BooleanResponse> response) {
-                        BooleanResponse purchaseResponse = response.body();
-                        if (purchaseResponse == null || purchaseResponse.code != ERROR_OK) {
-                            for (ClientProxyListener listener : mProxyListeners) {
-                                listener.onResponseError(Request.PRODUCT_MANAGE,
-                                        purchaseResponse == null ? ERROR_NULL : purchaseResponse.code,
-                                        purchaseResponse == null ? MSG_NULL_RESPONSE : purchaseResponse.msg);
-                            }
-                        } else {
-                            for (ClientProxyListener listener : mProxyListeners) {
-                                listener.onProductPurchasedResponse(purchaseResponse.data);
-                            }
-                        }
-                    }
+    private <T> void onError(PendingCall<T> call, int error, String message) {
+        mCoalescer.finish(call);
+        List<RequestFuture<T>> futures = call.finish();
+        for (RequestFuture<T> future : futures) {
+            future.fail(error, message);
+        }
 
-                    @Override
-                    public void onFailure(Call<BooleanResponse> call, Throwable t) {
-                        for (ClientProxyListener listener : mProxyListeners) {
-                            listener.onResponseError(Request.PRODUCT_PURCHASE, ERROR_CONNECTION, t.getMessage());
-                        }
-                    }
-                });
+        if (call.isBroadcast()) {
+            for (ClientProxyListener listener : mProxyListeners) {
+                listener.onResponseError(call.getRequestType(), error, message);
+            }
+        }
     }
 }
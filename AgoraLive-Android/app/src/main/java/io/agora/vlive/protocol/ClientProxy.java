@@ -1,5 +1,9 @@
 package io.agora.vlive.protocol;
 
+import com.elvishew.xlog.XLog;
+
+import java.io.File;
+
 import io.agora.vlive.protocol.model.request.AudienceListRequest;
 import io.agora.vlive.protocol.model.request.CreateRoomRequest;
 import io.agora.vlive.protocol.model.request.ModifySeatStateRequest;
@@ -14,6 +18,26 @@ import io.agora.vlive.protocol.model.request.SendGiftRequest;
 import io.agora.vlive.protocol.model.request.UserRequest;
 import io.agora.vlive.protocol.model.request.OssPolicyRequest;
 import io.agora.vlive.protocol.model.request.Request;
+import io.agora.vlive.protocol.model.response.AppVersionResponse;
+import io.agora.vlive.protocol.model.response.AudienceListResponse;
+import io.agora.vlive.protocol.model.response.BooleanResponse;
+import io.agora.vlive.protocol.model.response.CreateRoomResponse;
+import io.agora.vlive.protocol.model.response.CreateUserResponse;
+import io.agora.vlive.protocol.model.response.EditUserResponse;
+import io.agora.vlive.protocol.model.response.EnterRoomResponse;
+import io.agora.vlive.protocol.model.response.GiftListResponse;
+import io.agora.vlive.protocol.model.response.GiftRankResponse;
+import io.agora.vlive.protocol.model.response.LeaveRoomResponse;
+import io.agora.vlive.protocol.model.response.LoginResponse;
+import io.agora.vlive.protocol.model.response.LongResponse;
+import io.agora.vlive.protocol.model.response.ModifyUserStateResponse;
+import io.agora.vlive.protocol.model.response.MusicListResponse;
+import io.agora.vlive.protocol.model.response.OssPolicyResponse;
+import io.agora.vlive.protocol.model.response.ProductListResponse;
+import io.agora.vlive.protocol.model.response.RefreshTokenResponse;
+import io.agora.vlive.protocol.model.response.RoomListResponse;
+import io.agora.vlive.protocol.model.response.SeatStateResponse;
+import io.agora.vlive.protocol.model.response.SendGiftResponse;
 
 public class ClientProxy {
     public static final int ROOM_TYPE_SINGLE = 1;
@@ -33,12 +57,34 @@ public class ClientProxy {
     private static final int TERMINAL_TYPE = 1;
 
     private Client mClient;
+    private RoomListCache mRoomListCache;
+    private CatalogStore mCatalogStore;
+    private RequestCoalescer mCoalescer;
     private long mReqId = 1;
 
     private static volatile ClientProxy sInstance;
+    private static volatile File sCacheDir;
 
     private ClientProxy() {
-        mClient = new Client();
+        mRoomListCache = new RoomListCache();
+        mRoomListCache.setDirectory(sCacheDir);
+        mCatalogStore = new CatalogStore();
+        mCatalogStore.setDirectory(sCacheDir);
+        mCoalescer = new RequestCoalescer();
+        mClient = new Client(mRoomListCache, mCatalogStore, mCoalescer);
+    }
+
+    /**
+     * Set the directory of disk caches before the proxy
+     * is used, it does not create the proxy instance.
+     * The http cache is configured by HttpStack.
+     */
+    public static void setCacheDirectory(File dir) {
+        sCacheDir = dir;
+        if (sInstance != null) {
+            sInstance.mRoomListCache.setDirectory(dir);
+            sInstance.mCatalogStore.setDirectory(dir);
+        }
     }
 
     public static ClientProxy instance() {
@@ -53,123 +99,282 @@ public class ClientProxy {
         return sInstance;
     }
 
+    /**
+     * Send a request to the server, results are broadcast
+     * to all proxy listeners.
+     * Read-only requests identical to one that has not got
+     * its response are not sent again, the listeners are
+     * told by the response of the request in flight.
+     * @return request id
+     */
     public long sendRequest(int request, Object params) {
+        return send(request, params, true).getRequestId();
+    }
+
+    public RequestFuture<AppVersionResponse> requestAppVersion(String appVersion) {
+        return send(Request.APP_VERSION, appVersion, false);
+    }
+
+    public RequestFuture<GiftListResponse> requestGiftList() {
+        return send(Request.GIFT_LIST, null, false);
+    }
+
+    public RequestFuture<MusicListResponse> requestMusicList() {
+        return send(Request.MUSIC_LIST, null, false);
+    }
+
+    public RequestFuture<OssPolicyResponse> requestOssPolicy(OssPolicyRequest request) {
+        return send(Request.OSS, request, false);
+    }
+
+    public RequestFuture<CreateUserResponse> requestCreateUser(UserRequest request) {
+        return send(Request.CREATE_USER, request, false);
+    }
+
+    public RequestFuture<EditUserResponse> requestEditUser(UserRequest request) {
+        return send(Request.EDIT_USER, request, false);
+    }
+
+    public RequestFuture<LoginResponse> requestLogin(String userId) {
+        return send(Request.USER_LOGIN, userId, false);
+    }
+
+    public RequestFuture<RoomListResponse> requestRoomList(RoomListRequest request) {
+        return send(Request.ROOM_LIST, request, false);
+    }
+
+    public RequestFuture<CreateRoomResponse> requestCreateRoom(CreateRoomRequest request) {
+        return send(Request.CREATE_ROOM, request, false);
+    }
+
+    public RequestFuture<EnterRoomResponse> requestEnterRoom(RoomRequest request) {
+        return send(Request.ENTER_ROOM, request, false);
+    }
+
+    public RequestFuture<LeaveRoomResponse> requestLeaveRoom(RoomRequest request) {
+        return send(Request.LEAVE_ROOM, request, false);
+    }
+
+    public RequestFuture<AudienceListResponse> requestAudienceList(AudienceListRequest request) {
+        return send(Request.AUDIENCE_LIST, request, false);
+    }
+
+    public RequestFuture<SendGiftResponse> requestSendGift(SendGiftRequest request) {
+        return send(Request.SEND_GIFT, request, false);
+    }
+
+    public RequestFuture<GiftRankResponse> requestGiftRank(String roomId) {
+        return send(Request.GIFT_RANK, roomId, false);
+    }
+
+    public RequestFuture<SeatStateResponse> requestSeatState(RoomRequest request) {
+        return send(Request.SEAT_STATE, request, false);
+    }
+
+    public RequestFuture<ModifyUserStateResponse> requestModifyUserState(ModifyUserStateRequest request) {
+        return send(Request.MODIFY_USER_STATE, request, false);
+    }
+
+    public RequestFuture<BooleanResponse> requestModifySeatState(ModifySeatStateRequest request) {
+        return send(Request.MODIFY_SEAT_STATE, request, false);
+    }
+
+    public RequestFuture<RefreshTokenResponse> requestRefreshToken(RefreshTokenRequest request) {
+        return send(Request.REFRESH_TOKEN, request, false);
+    }
+
+    public RequestFuture<LongResponse> requestPKBehavior(PKRequest request) {
+        return send(Request.PK_BEHAVIOR, request, false);
+    }
+
+    public RequestFuture<BooleanResponse> requestPKEnd(PKRequest request) {
+        return send(Request.PK_END, request, false);
+    }
+
+    public RequestFuture<LongResponse> requestSeatInteraction(SeatInteractionRequest request) {
+        return send(Request.SEAT_INTERACTION, request, false);
+    }
+
+    public RequestFuture<ProductListResponse> requestProductList(ProductRequest request) {
+        return send(Request.PRODUCT_LIST, request, false);
+    }
+
+    public RequestFuture<BooleanResponse> requestManageProduct(ProductRequest request) {
+        return send(Request.PRODUCT_MANAGE, request, false);
+    }
+
+    public RequestFuture<BooleanResponse> requestPurchaseProduct(ProductRequest request) {
+        return send(Request.PRODUCT_PURCHASE, request, false);
+    }
+
+    /**
+     * The response type of a future is decided by the
+     * request type, callers must match them.
+     * @param broadcast whether the result is broadcast to
+     *                  proxy listeners, otherwise it is only
+     *                  delivered to the returned future.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> RequestFuture<T> send(int request, Object params, boolean broadcast) {
+        long reqId = nextRequestId();
+        RequestFuture<T> future = (RequestFuture<T>)
+                mCoalescer.attach(request, params, reqId, broadcast);
+        PendingCall<?> call = future.getCall();
+        if (call.start()) {
+            dispatch(call, request, params, reqId);
+        } else {
+            XLog.d("request merged: " + Request.getRequestString(request) +
+                    ", " + mCoalescer.getStatistics());
+        }
+        return future;
+    }
+
+    private synchronized long nextRequestId() {
+        return mReqId++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(PendingCall call, int request, Object params, long reqId) {
         switch (request) {
             case Request.APP_VERSION:
                 String ver = (String) params;
-                mClient.requestVersion(mReqId, APP_CODE, OS_TYPE, TERMINAL_TYPE, ver);
+                mClient.requestVersion(call, reqId, APP_CODE, OS_TYPE, TERMINAL_TYPE, ver);
                 break;
             case Request.GIFT_LIST:
-                mClient.requestGiftList(mReqId);
+                mClient.requestGiftList(call, reqId);
                 break;
             case Request.MUSIC_LIST:
-                mClient.requestMusicList(mReqId);
+                mClient.requestMusicList(call, reqId);
                 break;
             case Request.OSS:
                 OssPolicyRequest ossRequest = (OssPolicyRequest) params;
-                mClient.requestOssPolicy(mReqId, ossRequest.token, ossRequest.type);
+                mClient.requestOssPolicy(call, reqId, ossRequest.token, ossRequest.type);
                 break;
             case Request.CREATE_USER:
                 UserRequest userRequest = (UserRequest) params;
-                mClient.createUser(mReqId, userRequest.userName);
+                mClient.createUser(call, reqId, userRequest.userName);
                 break;
             case Request.EDIT_USER:
                 userRequest = (UserRequest) params;
-                mClient.editUser(mReqId, userRequest.token, userRequest.userId,
+                mClient.editUser(call, reqId, userRequest.token, userRequest.userId,
                         userRequest.userName, userRequest.avatar);
                 break;
             case Request.USER_LOGIN:
                 String userId = (String) params;
-                mClient.login(mReqId, userId);
+                mClient.login(call, reqId, userId);
                 break;
             case Request.ROOM_LIST:
                 RoomListRequest roomListRequest = (RoomListRequest) params;
-                mClient.requestRoomList(mReqId, roomListRequest.token, roomListRequest.nextId,
+                mClient.requestRoomList(call, reqId, roomListRequest.token, roomListRequest.nextId,
                         roomListRequest.count, roomListRequest.type, roomListRequest.pkState);
                 break;
             case Request.CREATE_ROOM:
                 CreateRoomRequest createRoomRequest = (CreateRoomRequest) params;
-                mClient.createRoom(mReqId, createRoomRequest.token,
+                mClient.createRoom(call, reqId, createRoomRequest.token,
                         createRoomRequest.roomName, createRoomRequest.type,
                         createRoomRequest.avatar);
                 break;
             case Request.ENTER_ROOM:
                 RoomRequest roomRequest = (RoomRequest) params;
-                mClient.enterRoom(mReqId, roomRequest.token, roomRequest.roomId);
+                mClient.enterRoom(call, reqId, roomRequest.token, roomRequest.roomId);
                 break;
             case Request.LEAVE_ROOM:
                 roomRequest = (RoomRequest) params;
-                mClient.leaveRoom(mReqId, roomRequest.token, roomRequest.roomId);
+                mClient.leaveRoom(call, reqId, roomRequest.token, roomRequest.roomId);
                 break;
             case Request.AUDIENCE_LIST:
                 AudienceListRequest audienceRequest = (AudienceListRequest) params;
-                mClient.requestAudienceList(mReqId, audienceRequest.token, audienceRequest.roomId,
+                mClient.requestAudienceList(call, reqId, audienceRequest.token, audienceRequest.roomId,
                         audienceRequest.nextId, audienceRequest.count, audienceRequest.type);
                 break;
             case Request.SEND_GIFT:
                 SendGiftRequest sendGiftRequest = (SendGiftRequest) params;
-                mClient.sendGift(mReqId, sendGiftRequest.token, sendGiftRequest.roomId,
+                mClient.sendGift(call, reqId, sendGiftRequest.token, sendGiftRequest.roomId,
                         sendGiftRequest.giftId, sendGiftRequest.count);
                 break;
             case Request.GIFT_RANK:
                 String roomId = (String) params;
-                mClient.giftRank(mReqId, roomId);
+                mClient.giftRank(call, reqId, roomId);
                 break;
             case Request.SEAT_STATE:
                 roomRequest = (RoomRequest) params;
-                mClient.requestSeatState(mReqId, roomRequest.token, roomRequest.roomId);
+                mClient.requestSeatState(call, reqId, roomRequest.token, roomRequest.roomId);
                 break;
             case Request.MODIFY_USER_STATE:
                 ModifyUserStateRequest userStateRequest = (ModifyUserStateRequest) params;
-                mClient.modifyUserState(userStateRequest.token, userStateRequest.roomId,
+                mClient.modifyUserState(call, userStateRequest.token, userStateRequest.roomId,
                         userStateRequest.userId, userStateRequest.enableAudio,
                         userStateRequest.enableVideo, userStateRequest.enableChat);
                 break;
             case Request.MODIFY_SEAT_STATE:
                 ModifySeatStateRequest modifySeatRequest = (ModifySeatStateRequest) params;
-                mClient.modifySeatState(modifySeatRequest.token,
+                mClient.modifySeatState(call, modifySeatRequest.token,
                         modifySeatRequest.roomId,
                         modifySeatRequest.no,
                         modifySeatRequest.state);
                 break;
             case Request.REFRESH_TOKEN:
                 RefreshTokenRequest refreshTokenRequest = (RefreshTokenRequest) params;
-                mClient.refreshToken(mReqId, refreshTokenRequest.token, refreshTokenRequest.roomId);
+                mClient.refreshToken(call, reqId, refreshTokenRequest.token, refreshTokenRequest.roomId);
                 break;
             case Request.PK_BEHAVIOR:
                 PKRequest pkRequest = (PKRequest) params;
-                mClient.requestPKBehavior(pkRequest.token, pkRequest.myRoomId,
+                mClient.requestPKBehavior(call, pkRequest.token, pkRequest.myRoomId,
                         pkRequest.targetRoomId, pkRequest.type);
                 break;
             case Request.PK_END:
                 pkRequest = (PKRequest) params;
-                mClient.requestPKEnd(pkRequest.token, pkRequest.myRoomId);
+                mClient.requestPKEnd(call, pkRequest.token, pkRequest.myRoomId);
                 break;
             case Request.SEAT_INTERACTION:
                 SeatInteractionRequest seatInteractionRequest = (SeatInteractionRequest) params;
-                mClient.requestSeatInteraction(seatInteractionRequest.token,
+                mClient.requestSeatInteraction(call, seatInteractionRequest.token,
                         seatInteractionRequest.roomId, seatInteractionRequest.userId,
                         seatInteractionRequest.no, seatInteractionRequest.type);
                 break;
             case Request.PRODUCT_LIST:
                 ProductRequest productRequest = (ProductRequest) params;
-                mClient.requestProductList(productRequest.token, productRequest.roomId);
+                mClient.requestProductList(call, productRequest.token, productRequest.roomId);
                 break;
             case Request.PRODUCT_MANAGE:
                 productRequest = (ProductRequest) params;
-                mClient.requestManageProductState(productRequest.token,
+                mClient.requestManageProductState(call, productRequest.token,
                         productRequest.roomId, productRequest.productId,
                         productRequest.state);
                 break;
             case Request.PRODUCT_PURCHASE:
                 productRequest = (ProductRequest) params;
-                mClient.requestPurchaseProduct(productRequest.token,
+                mClient.requestPurchaseProduct(call, productRequest.token,
                         productRequest.roomId, productRequest.productId,
                         productRequest.count);
                 break;
+            default:
+                throw new IllegalArgumentException("Unknown request type: " + request);
         }
+    }
 
-        return mReqId++;
+    /**
+     * The first room list page of every room type received
+     * recently, which is updated by ROOM_LIST responses.
+     */
+    public RoomListCache roomListCache() {
+        return mRoomListCache;
+    }
+
+    /**
+     * @return the number of network requests saved by
+     * merging identical requests in flight
+     */
+    public long getMergedRequestCount() {
+        return mCoalescer.getMergedCount();
+    }
+
+    /**
+     * The latest app version, gift, music and product lists
+     * received, which are updated by their responses.
+     */
+    public CatalogStore catalogStore() {
+        return mCatalogStore;
     }
 
     public void registerProxyListener(ClientProxyListener listener) {
@@ -0,0 +1,110 @@
+package io.agora.vlive.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import retrofit2.Call;
+
+/**
+ * One network request and all the callers waiting for its
+ * result: the futures of typed requests, and the proxy
+ * listeners if any caller sends the request by request type.
+ * Identical requests merged by RequestCoalescer share one
+ * pending call.
+ */
+class PendingCall<T> {
+    private final int mRequestType;
+    private final long mCreateTime;
+
+    // The key in RequestCoalescer, null if not merged
+    private String mKey;
+
+    private Call<T> mCall;
+    private final List<RequestFuture<T>> mFutures = new ArrayList<>(1);
+    private boolean mBroadcast;
+    private boolean mStarted;
+    private boolean mFinished;
+    private boolean mCancelled;
+
+    PendingCall(int requestType, long createTime) {
+        mRequestType = requestType;
+        mCreateTime = createTime;
+    }
+
+    int getRequestType() {
+        return mRequestType;
+    }
+
+    long getCreateTime() {
+        return mCreateTime;
+    }
+
+    void setKey(String key) {
+        mKey = key;
+    }
+
+    String getKey() {
+        return mKey;
+    }
+
+    /**
+     * @param broadcast whether the caller expects the result
+     *                  from the proxy listeners
+     * @return null if the call has been cancelled
+     */
+    synchronized RequestFuture<T> attach(long reqId, boolean broadcast) {
+        // RequestCoalescer removes a call before it finishes,
+        // callers cannot attach to a finished call.
+        if (mCancelled) return null;
+        RequestFuture<T> future = new RequestFuture<>(this, reqId);
+        if (broadcast) mBroadcast = true;
+        mFutures.add(future);
+        return future;
+    }
+
+    /**
+     * @return true only for the first caller, which
+     * should send the network request.
+     */
+    synchronized boolean start() {
+        if (mStarted) return false;
+        mStarted = true;
+        return true;
+    }
+
+    void setCall(Call<T> call) {
+        boolean cancelled;
+        synchronized (this) {
+            mCall = call;
+            cancelled = mCancelled;
+        }
+        if (cancelled) call.cancel();
+    }
+
+    void detach(RequestFuture<T> future) {
+        Call<T> call = null;
+        synchronized (this) {
+            mFutures.remove(future);
+            if (!mFinished && !mBroadcast && mFutures.isEmpty()) {
+                mCancelled = true;
+                call = mCall;
+            }
+        }
+        if (call != null) call.cancel();
+    }
+
+    synchronized boolean isBroadcast() {
+        return mBroadcast;
+    }
+
+    /**
+     * @return the futures waiting for the result, callers
+     * attached afterwards will not be completed.
+     */
+    synchronized List<RequestFuture<T>> finish() {
+        mFinished = true;
+        List<RequestFuture<T>> futures = new ArrayList<>(mFutures);
+        mFutures.clear();
+        return futures;
+    }
+}
@@ -0,0 +1,107 @@
+package io.agora.vlive.protocol;
+
+import com.google.gson.Gson;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.agora.vlive.protocol.json.ProtocolGson;
+import io.agora.vlive.protocol.model.request.Request;
+
+/**
+ * Merges identical read-only requests that are sent while
+ * the same request is still waiting for its response.
+ * A duplicate request is attached to the pending call of
+ * the one in flight and does not go to the network again.
+ * Requests that change the server state (send gift, enter
+ * room and so on) are never merged.
+ */
+class RequestCoalescer {
+    // A request is regarded as lost if it has no response
+    // for this period, and identical requests are sent again.
+    static final long MAX_IN_FLIGHT_PERIOD = 60 * 1000;
+
+    private final Map<String, PendingCall<?>> mInFlight = new HashMap<>();
+    private final Gson mGson = ProtocolGson.gson();
+
+    private long mSentCount;
+    private long mMergedCount;
+
+    /**
+     * @return whether requests of this type only read data
+     * from the server and can be merged.
+     */
+    static boolean isCoalescable(int request) {
+        switch (request) {
+            case Request.APP_VERSION:
+            case Request.GIFT_LIST:
+            case Request.MUSIC_LIST:
+            case Request.ROOM_LIST:
+            case Request.AUDIENCE_LIST:
+            case Request.GIFT_RANK:
+            case Request.SEAT_STATE:
+            case Request.PRODUCT_LIST:
+                return true;
+            default: return false;
+        }
+    }
+
+    /**
+     * Attach a caller to the identical request in flight, or
+     * to a new pending call. The network request should be
+     * sent if the pending call of the future is not started.
+     * @param broadcast whether the caller expects the result
+     *                  from the proxy listeners
+     */
+    synchronized RequestFuture<?> attach(int request, Object params, long reqId, boolean broadcast) {
+        if (!isCoalescable(request)) {
+            return new PendingCall<>(request, now()).attach(reqId, broadcast);
+        }
+
+        String key = request + ":" + mGson.toJson(params);
+        PendingCall<?> call = mInFlight.get(key);
+        if (call != null && now() - call.getCreateTime() < MAX_IN_FLIGHT_PERIOD) {
+            // Null if every caller of the request has cancelled
+            RequestFuture<?> future = call.attach(reqId, broadcast);
+            if (future != null) {
+                mMergedCount++;
+                return future;
+            }
+        }
+
+        call = new PendingCall<>(request, now());
+        call.setKey(key);
+        mInFlight.put(key, call);
+        mSentCount++;
+        return call.attach(reqId, broadcast);
+    }
+
+    /**
+     * Called when the request gets its response or fails,
+     * before the result is delivered, so that callers that
+     * send the request again in the callbacks are not merged
+     * into the request that has finished.
+     */
+    synchronized void finish(PendingCall<?> call) {
+        String key = call.getKey();
+        if (key != null && mInFlight.get(key) == call) {
+            mInFlight.remove(key);
+        }
+    }
+
+    /**
+     * @return the number of network requests saved
+     * by merging since created
+     */
+    synchronized long getMergedCount() {
+        return mMergedCount;
+    }
+
+    synchronized String getStatistics() {
+        return "sent " + mSentCount + " merged " + mMergedCount;
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,142 @@
+package io.agora.vlive.protocol;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The pending result of one request sent by the typed
+ * methods of ClientProxy. The result is delivered only to
+ * the callbacks added to this future, not broadcast to
+ * proxy listeners.
+ * Callbacks are called in the network response thread, or
+ * in the calling thread if the future has completed when
+ * the callback is added. A cancelled future never calls
+ * its callbacks.
+ */
+public class RequestFuture<T> {
+    // Error codes besides those returned by the server
+    public static final int ERROR_CONNECTION = -1;
+    public static final int ERROR_NULL = -2;
+
+    public interface Callback<T> {
+        void onSuccess(@NonNull T response);
+
+        void onFailure(int requestType, int error, String message);
+    }
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_SUCCEEDED = 1;
+    private static final int STATE_FAILED = 2;
+    private static final int STATE_CANCELLED = 3;
+
+    private final PendingCall<T> mCall;
+    private final long mReqId;
+
+    private int mState = STATE_PENDING;
+    private T mResponse;
+    private int mError;
+    private String mMessage;
+    private List<Callback<T>> mCallbacks = new ArrayList<>(1);
+
+    RequestFuture(PendingCall<T> call, long reqId) {
+        mCall = call;
+        mReqId = reqId;
+    }
+
+    PendingCall<T> getCall() {
+        return mCall;
+    }
+
+    public long getRequestId() {
+        return mReqId;
+    }
+
+    public int getRequestType() {
+        return mCall.getRequestType();
+    }
+
+    /**
+     * Add a callback for the result.
+     * @return this future, so that it can be kept and
+     * cancelled later
+     */
+    public RequestFuture<T> then(@NonNull Callback<T> callback) {
+        synchronized (this) {
+            if (mState == STATE_PENDING) {
+                mCallbacks.add(callback);
+                return this;
+            } else if (mState == STATE_CANCELLED) {
+                return this;
+            }
+        }
+
+        // Already completed, the result does not change any more
+        notifyCallback(callback);
+        return this;
+    }
+
+    /**
+     * Stop waiting for the result. The network request is
+     * cancelled too if no other caller waits for it.
+     * @return false if the future has completed or cancelled
+     */
+    public boolean cancel() {
+        synchronized (this) {
+            if (mState != STATE_PENDING) return false;
+            mState = STATE_CANCELLED;
+            mCallbacks = null;
+        }
+
+        mCall.detach(this);
+        return true;
+    }
+
+    public synchronized boolean isDone() {
+        return mState != STATE_PENDING;
+    }
+
+    public synchronized boolean isCancelled() {
+        return mState == STATE_CANCELLED;
+    }
+
+    void complete(T response) {
+        List<Callback<T>> callbacks;
+        synchronized (this) {
+            if (mState != STATE_PENDING) return;
+            mState = STATE_SUCCEEDED;
+            mResponse = response;
+            callbacks = mCallbacks;
+            mCallbacks = null;
+        }
+
+        for (Callback<T> callback : callbacks) {
+            notifyCallback(callback);
+        }
+    }
+
+    void fail(int error, String message) {
+        List<Callback<T>> callbacks;
+        synchronized (this) {
+            if (mState != STATE_PENDING) return;
+            mState = STATE_FAILED;
+            mError = error;
+            mMessage = message;
+            callbacks = mCallbacks;
+            mCallbacks = null;
+        }
+
+        for (Callback<T> callback : callbacks) {
+            notifyCallback(callback);
+        }
+    }
+
+    private void notifyCallback(Callback<T> callback) {
+        if (mState == STATE_SUCCEEDED) {
+            callback.onSuccess(mResponse);
+        } else if (mState == STATE_FAILED) {
+            callback.onFailure(getRequestType(), mError, mMessage);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.agora.vlive.protocol;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps the request futures of a component, usually an
+ * activity, so that all requests still waiting for their
+ * results can be cancelled when the component is destroyed.
+ */
+public class RequestGroup {
+    private final List<RequestFuture<?>> mFutures = new ArrayList<>();
+
+    public synchronized <T> RequestFuture<T> add(RequestFuture<T> future) {
+        // Forget the completed ones so that the list
+        // does not grow during a long session
+        Iterator<RequestFuture<?>> iterator = mFutures.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isDone()) iterator.remove();
+        }
+
+        mFutures.add(future);
+        return future;
+    }
+
+    public void cancelAll() {
+        List<RequestFuture<?>> futures;
+        synchronized (this) {
+            futures = new ArrayList<>(mFutures);
+            mFutures.clear();
+        }
+
+        for (RequestFuture<?> future : futures) {
+            future.cancel();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package io.agora.vlive.protocol;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.elvishew.xlog.XLog;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.agora.vlive.protocol.json.ProtocolGson;
+import io.agora.vlive.protocol.model.model.RoomInfo;
+
+/**
+ * Keeps the first page of the room list of every room type,
+ * in memory and on disk, so that the room list pages can be
+ * shown immediately and revalidated by the network later
+ * (stale-while-revalidate).
+ * Entries younger than the fresh period need no revalidation,
+ * entries older than the max stale period are not shown.
+ * Disk access runs in a single background thread.
+ */
+public class RoomListCache {
+    private static final String DIR_NAME = "room_list";
+
+    // Tab switches within this period do not request again
+    public static final long FRESH_PERIOD = 10 * 1000;
+
+    // The room list changes quickly, do not show
+    // rooms older than this period.
+    public static final long MAX_STALE_PERIOD = 24 * 60 * 60 * 1000;
+
+    public static class Entry {
+        public List<RoomInfo> rooms;
+        public long updateTime;
+
+        public boolean isFresh() {
+            return age() < FRESH_PERIOD;
+        }
+
+        boolean isExpired() {
+            return age() > MAX_STALE_PERIOD;
+        }
+
+        private long age() {
+            return System.currentTimeMillis() - updateTime;
+        }
+    }
+
+    public interface LoadCallback {
+        /**
+         * Called in the cache thread
+         * @param entry null if nothing cached or expired
+         */
+        void onRoomListLoaded(@Nullable Entry entry);
+    }
+
+    private final Map<String, Entry> mMemory = new HashMap<>();
+    private final ExecutorService mDiskExecutor = Executors.newSingleThreadExecutor();
+    private final Gson mGson = ProtocolGson.gson();
+    private volatile File mDir;
+
+    /**
+     * @param dir the directory for disk cache, usually under
+     *            Context.getCacheDir(); null to keep entries
+     *            in memory only.
+     */
+    void setDirectory(@Nullable File dir) {
+        mDir = dir == null ? null : new File(dir, DIR_NAME);
+    }
+
+    /**
+     * @return the entry in memory, null if not loaded yet
+     * or expired.
+     */
+    @Nullable
+    public Entry peek(int type, Integer pkState) {
+        synchronized (mMemory) {
+            Entry entry = mMemory.get(key(type, pkState));
+            return entry == null || entry.isExpired() ? null : entry;
+        }
+    }
+
+    /**
+     * Get the entry from memory or disk.
+     */
+    public void load(int type, Integer pkState, @NonNull LoadCallback callback) {
+        String key = key(type, pkState);
+        mDiskExecutor.execute(() -> {
+            Entry entry;
+            synchronized (mMemory) {
+                entry = mMemory.get(key);
+            }
+
+            if (entry == null) {
+                entry = readFromDisk(key);
+                if (entry != null) {
+                    synchronized (mMemory) {
+                        // A newer response may have been
+                        // put when reading the disk
+                        if (!mMemory.containsKey(key)) mMemory.put(key, entry);
+                    }
+                }
+            }
+
+            callback.onRoomListLoaded(entry == null || entry.isExpired() ? null : entry);
+        });
+    }
+
+    /**
+     * Replace the first page of a room type with the
+     * latest response from the server.
+     */
+    void put(int type, Integer pkState, List<RoomInfo> rooms) {
+        Entry entry = new Entry();
+        entry.rooms = rooms == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(rooms));
+        entry.updateTime = System.currentTimeMillis();
+
+        String key = key(type, pkState);
+        synchronized (mMemory) {
+            mMemory.put(key, entry);
+        }
+        mDiskExecutor.execute(() -> writeToDisk(key, entry));
+    }
+
+    private String key(int type, Integer pkState) {
+        return pkState == null ? String.valueOf(type) : type + "-" + pkState;
+    }
+
+    private Entry readFromDisk(String key) {
+        File dir = mDir;
+        if (dir == null) return null;
+        File file = new File(dir, key + ".json");
+        if (!file.exists()) return null;
+
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return mGson.fromJson(reader, Entry.class);
+        } catch (IOException | JsonParseException e) {
+            XLog.w("room list cache read failed: " + key + " " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        File dir = mDir;
+        if (dir == null || (!dir.exists() && !dir.mkdirs())) return;
+
+        // Write to a temporary file then rename, so that a
+        // partially written file is never read.
+        File temp = new File(dir, key + ".tmp");
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            mGson.toJson(entry, writer);
+        } catch (IOException e) {
+            XLog.w("room list cache write failed: " + key + " " + e.getMessage());
+            temp.delete();
+            return;
+        }
+
+        if (!temp.renameTo(new File(dir, key + ".json"))) {
+            temp.delete();
+        }
+    }
+}
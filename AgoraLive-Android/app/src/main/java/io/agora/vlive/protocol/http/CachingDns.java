@@ -0,0 +1,52 @@
+package io.agora.vlive.protocol.http;
+
+import androidx.annotation.NonNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Dns;
+
+/**
+ * Keeps the addresses of hosts for a while, so that new
+ * connections to the same few hosts do not wait for the
+ * system resolver every time.
+ * Failed lookups are not cached.
+ */
+class CachingDns implements Dns {
+    private static class Entry {
+        List<InetAddress> addresses;
+        long expireTime;
+    }
+
+    private final long mTtlMs;
+    private final Map<String, Entry> mCache = new HashMap<>();
+
+    CachingDns(long ttlMs) {
+        mTtlMs = ttlMs;
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        long now = System.currentTimeMillis();
+        synchronized (mCache) {
+            Entry entry = mCache.get(hostname);
+            if (entry != null && entry.expireTime > now) {
+                return entry.addresses;
+            }
+        }
+
+        List<InetAddress> addresses = Dns.SYSTEM.lookup(hostname);
+        Entry entry = new Entry();
+        entry.addresses = addresses;
+        entry.expireTime = now + mTtlMs;
+        synchronized (mCache) {
+            mCache.put(hostname, entry);
+        }
+        return addresses;
+    }
+}
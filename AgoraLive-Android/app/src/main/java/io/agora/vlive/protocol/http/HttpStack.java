@@ -0,0 +1,130 @@
+package io.agora.vlive.protocol.http;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import io.agora.vlive.BuildConfig;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * The one http stack of the app. Server requests and image
+ * loading share the connection pool, the dispatcher and the
+ * dns cache, so that connections to the same host are
+ * reused (and multiplexed over HTTP/2 when the server
+ * supports it) instead of opened by every component.
+ * Gzip is handled by OkHttp transparently, as long as no
+ * Accept-Encoding header is set by the callers.
+ */
+public class HttpStack {
+    public static class Config {
+        public int maxIdleConnections = 5;
+        public long keepAliveMinutes = 5;
+
+        // Limits of concurrent requests of the dispatcher
+        public int maxRequests = 32;
+        public int maxRequestsPerHost = 6;
+
+        public long timeoutSeconds = 30;
+        public long dnsCacheSeconds = 5 * 60;
+
+        // The http cache, null if not used
+        public File cacheDir;
+        public long cacheSize = 10 * 1024 * 1024;
+
+        // Response callbacks of all requests, the threads
+        // stop after idle for a while.
+        public int callbackThreads = 4;
+
+        // Log the timing of every request, in debug builds
+        public boolean logTiming = BuildConfig.DEBUG;
+    }
+
+    private static final String CACHE_DIR_NAME = "http";
+    private static final long CALLBACK_KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile Config sConfig = new Config();
+    private static volatile OkHttpClient sClient;
+    private static volatile Executor sCallbackExecutor;
+
+    /**
+     * Configure the stack before it is used, usually when the
+     * application is created. It has no effect afterwards.
+     */
+    public static void configure(@NonNull Config config) {
+        sConfig = config;
+    }
+
+    /**
+     * @return the shared client, components that need
+     * interceptors of their own should create clients
+     * by client().newBuilder() to keep sharing the pool.
+     */
+    public static OkHttpClient client() {
+        if (sClient == null) {
+            synchronized (HttpStack.class) {
+                if (sClient == null) {
+                    sClient = createClient(sConfig);
+                }
+            }
+        }
+        return sClient;
+    }
+
+    /**
+     * @return the executor of response callbacks, whose threads
+     * are created when needed and stop when idle.
+     */
+    public static Executor callbackExecutor() {
+        if (sCallbackExecutor == null) {
+            synchronized (HttpStack.class) {
+                if (sCallbackExecutor == null) {
+                    int threads = sConfig.callbackThreads;
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                            CALLBACK_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+                    executor.allowCoreThreadTimeOut(true);
+                    sCallbackExecutor = executor;
+                }
+            }
+        }
+        return sCallbackExecutor;
+    }
+
+    private static OkHttpClient createClient(Config config) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.maxRequests);
+        dispatcher.setMaxRequestsPerHost(config.maxRequestsPerHost);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(config.maxIdleConnections,
+                        config.keepAliveMinutes, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .dns(new CachingDns(TimeUnit.SECONDS.toMillis(config.dnsCacheSeconds)))
+                .connectTimeout(config.timeoutSeconds, TimeUnit.SECONDS)
+                .readTimeout(config.timeoutSeconds, TimeUnit.SECONDS)
+                .writeTimeout(config.timeoutSeconds, TimeUnit.SECONDS);
+
+        if (config.cacheDir != null) {
+            // Responses with an ETag or Last-Modified header are
+            // revalidated by conditional requests, a 304 response
+            // is served by the cached body.
+            builder.cache(new Cache(new File(config.cacheDir, CACHE_DIR_NAME), config.cacheSize));
+        }
+
+        if (config.logTiming) {
+            builder.eventListenerFactory(HttpTimingListener.FACTORY);
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,136 @@
+package io.agora.vlive.protocol.http;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.elvishew.xlog.XLog;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Measures the phases of every http call and writes one
+ * line of log when the call ends, like:
+ * "http GET /room/list 200 h2 dns 12 connect 85 tls 60
+ * ttfb 140 total 152 reused false".
+ * Phases that do not happen, like the dns lookup and the
+ * connection of a reused connection, are logged as -1.
+ * One listener is created for each call.
+ */
+class HttpTimingListener extends EventListener {
+    static final Factory FACTORY = call -> new HttpTimingListener();
+
+    private long mCallStart;
+    private long mDnsStart;
+    private long mDnsTime = -1;
+    private long mConnectStart;
+    private long mConnectTime = -1;
+    private long mTlsStart;
+    private long mTlsTime = -1;
+    private long mRequestStart;
+    private long mFirstByteTime = -1;
+
+    private boolean mReused = true;
+    private Protocol mProtocol;
+    private int mCode = -1;
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        mCallStart = now();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        mDnsStart = now();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName,
+                       @NonNull List<InetAddress> inetAddressList) {
+        mDnsTime = now() - mDnsStart;
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                             @NonNull Proxy proxy) {
+        mConnectStart = now();
+        mReused = false;
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        mTlsStart = now();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+        mTlsTime = now() - mTlsStart;
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, @Nullable Protocol protocol) {
+        mConnectTime = now() - mConnectStart;
+    }
+
+    @Override
+    public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+        mProtocol = connection.protocol();
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        mRequestStart = now();
+    }
+
+    @Override
+    public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+        mFirstByteTime = now() - mRequestStart;
+        mCode = response.code();
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        log(call, null);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        log(call, ioe);
+    }
+
+    private void log(Call call, IOException error) {
+        StringBuilder builder = new StringBuilder("http ")
+                .append(call.request().method()).append(' ')
+                .append(call.request().url().encodedPath()).append(' ')
+                .append(mCode).append(' ')
+                .append(mProtocol)
+                .append(" dns ").append(mDnsTime)
+                .append(" connect ").append(mConnectTime)
+                .append(" tls ").append(mTlsTime)
+                .append(" ttfb ").append(mFirstByteTime)
+                .append(" total ").append(now() - mCallStart)
+                .append(" reused ").append(mReused);
+
+        if (error != null) {
+            builder.append(" failed ").append(error.getMessage());
+            XLog.w(builder.toString());
+        } else {
+            XLog.d(builder.toString());
+        }
+    }
+}
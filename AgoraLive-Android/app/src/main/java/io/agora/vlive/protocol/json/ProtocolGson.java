@@ -0,0 +1,52 @@
+package io.agora.vlive.protocol.json;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * The Gson instance shared by server responses, RTM messages
+ * and disk caches. Gson instances cache the adapters they
+ * create, so one instance should be shared instead of
+ * created for each message.
+ */
+public final class ProtocolGson {
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private ProtocolGson() {
+
+    }
+
+    public static Gson gson() {
+        return GSON;
+    }
+
+    /**
+     * Read an integer field at the top level of a json object
+     * without parsing the whole object, like the "cmd" field
+     * of RTM messages. The reading stops at the field.
+     * @return the value, or defValue if the field is not found
+     * or the json is malformed.
+     */
+    public static int peekInt(@NonNull String json, @NonNull String name, int defValue) {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) return defValue;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (name.equals(reader.nextName()) && reader.peek() != JsonToken.NULL) {
+                    return reader.nextInt();
+                }
+                reader.skipValue();
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return defValue;
+        }
+        return defValue;
+    }
+}
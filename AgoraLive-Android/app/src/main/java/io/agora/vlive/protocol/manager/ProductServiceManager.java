@@ -4,9 +4,13 @@ import android.text.TextUtils;
 
 import com.elvishew.xlog.XLog;
 
+import java.util.List;
+
 import io.agora.vlive.AgoraLiveApplication;
+import io.agora.vlive.protocol.model.model.Product;
 import io.agora.vlive.protocol.model.request.ProductRequest;
 import io.agora.vlive.protocol.model.request.Request;
+import io.agora.vlive.protocol.model.response.ProductListResponse;
 
 public class ProductServiceManager {
     private AgoraLiveApplication mApplication;
@@ -33,6 +37,16 @@ public class ProductServiceManager {
         }
     }
 
+    /**
+     * @return the product list of the room received
+     * last time, null if none
+     */
+    public List<Product> getCachedProductList(String roomId) {
+        ProductListResponse response = mApplication.proxy().catalogStore()
+                .peek(Request.PRODUCT_LIST, roomId, ProductListResponse.class);
+        return response == null ? null : response.data;
+    }
+
     public void requestPurchaseProduct(String roomId, String productId, int count) {
         String token = getValidToken("ProductManager product purchase token invalid");
         if (token != null) {
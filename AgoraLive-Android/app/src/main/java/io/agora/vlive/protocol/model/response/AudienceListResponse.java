@@ -5,14 +5,14 @@ import java.util.List;
 public class AudienceListResponse extends Response {
     public RoomProfile data;
 
-    public class RoomProfile {
+    public static class RoomProfile {
         public int count;
         public int total;
         public String next;
         public List<AudienceInfo> list;
     }
 
-    public class AudienceInfo {
+    public static class AudienceInfo {
         public String userId;
         public String userName;
         public String avatar;
@@ -5,7 +5,7 @@ import java.util.List;
 public class SeatStateResponse extends Response {
     public List<SeatInfo> data;
 
-    public class SeatInfo {
+    public static class SeatInfo {
         public int no;
         public String userId;
         public String userName;
@@ -30,6 +30,8 @@ import io.agora.vlive.Config;
 import io.agora.vlive.agora.rtc.RtcEventHandler;
 import io.agora.vlive.protocol.ClientProxy;
 import io.agora.vlive.protocol.ClientProxyListener;
+import io.agora.vlive.protocol.RequestFuture;
+import io.agora.vlive.protocol.RequestGroup;
 import io.agora.vlive.protocol.model.response.AppVersionResponse;
 import io.agora.vlive.protocol.model.response.AudienceListResponse;
 import io.agora.vlive.protocol.model.response.CreateRoomResponse;
@@ -91,6 +93,7 @@ public abstract class BaseActivity extends AppCompatActivity implements ClientPr
     private Stack<AbstractActionSheet> mActionSheetStack = new Stack<>();
     private BottomSheetDialog mSheetDialog;
     private long mLastToastTime;
+    private RequestGroup mRequests = new RequestGroup();
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -367,6 +370,14 @@ public abstract class BaseActivity extends AppCompatActivity implements ClientPr
         return proxy().sendRequest(req, params);
     }
 
+    /**
+     * Keep a typed request that only this activity waits
+     * for, it is cancelled when the activity is destroyed.
+     */
+    public <T> RequestFuture<T> bindRequest(RequestFuture<T> future) {
+        return mRequests.add(future);
+    }
+
     public void registerRtcHandler(RtcEventHandler handler) {
         application().registerRtcHandler(handler);
     }
@@ -417,6 +428,12 @@ public abstract class BaseActivity extends AppCompatActivity implements ClientPr
         proxy().removeProxyListener(this);
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mRequests.cancelAll();
+    }
+
     @Override
     public void onAppVersionResponse(AppVersionResponse response) {
 
@@ -16,6 +16,7 @@ import java.util.List;
 
 import io.agora.vlive.R;
 import io.agora.vlive.protocol.model.response.AudienceListResponse.AudienceInfo;
+import io.agora.vlive.utils.AvatarCache;
 import io.agora.vlive.utils.UserUtil;
 
 public class InviteUserActionSheet extends AbstractActionSheet {
@@ -78,7 +79,8 @@ public class InviteUserActionSheet extends AbstractActionSheet {
         public void onBindViewHolder(@NonNull RoomUserViewHolder holder, final int position) {
             AudienceInfo info = mUserList.get(position);
             holder.name.setText(UserUtil.getUserText(info.userId, info.userName));
-            holder.icon.setImageDrawable(UserUtil.getUserRoundIcon(getResources(), info.userId));
+            AvatarCache.loadRoundIcon(holder.icon, info.avatar,
+                    info.userId, holder.icon.getLayoutParams().width);
             holder.button.setOnClickListener(view -> {
                 if (mListener != null) mListener.onActionSheetAudienceInvited(mSeatNo, info.userId, info.userName);
             });
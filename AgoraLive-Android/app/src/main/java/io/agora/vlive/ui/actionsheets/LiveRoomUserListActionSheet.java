@@ -5,6 +5,7 @@ import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.widget.AppCompatImageView;
@@ -12,16 +13,19 @@ import androidx.appcompat.widget.AppCompatTextView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.elvishew.xlog.XLog;
+
 import java.util.ArrayList;
 import java.util.List;
 
 import io.agora.vlive.R;
 import io.agora.vlive.protocol.ClientProxy;
 import io.agora.vlive.protocol.ClientProxyListener;
+import io.agora.vlive.protocol.RequestFuture;
 import io.agora.vlive.protocol.model.model.UserProfile;
 import io.agora.vlive.protocol.model.request.AudienceListRequest;
-import io.agora.vlive.protocol.model.request.Request;
-import io.agora.vlive.utils.UserUtil;
+import io.agora.vlive.protocol.model.response.AudienceListResponse;
+import io.agora.vlive.utils.AvatarCache;
 
 public class LiveRoomUserListActionSheet extends AbstractActionSheet {
     private static final String TAG = LiveRoomUserListActionSheet.class.getSimpleName();
@@ -36,6 +40,7 @@ public class LiveRoomUserListActionSheet extends AbstractActionSheet {
     private ClientProxy mProxy;
     private String mRoomId;
     private String mToken;
+    private RequestFuture<AudienceListResponse> mAudienceRequest;
 
     public LiveRoomUserListActionSheet(Context context) {
         super(context);
@@ -72,10 +77,40 @@ public class LiveRoomUserListActionSheet extends AbstractActionSheet {
     }
 
     public void requestMoreAudience() {
+        // Wait for the page being requested
+        if (mAudienceRequest != null && !mAudienceRequest.isDone()) return;
+
         AudienceListRequest request = new AudienceListRequest(
                 mToken, mRoomId, mAdapter.getLastUserId(),
                 AudienceListRequest.TYPE_ALL);
-        mProxy.sendRequest(Request.AUDIENCE_LIST, request);
+        mAudienceRequest = mProxy.requestAudienceList(request).then(
+                new RequestFuture.Callback<AudienceListResponse>() {
+            @Override
+            public void onSuccess(@NonNull AudienceListResponse response) {
+                List<UserProfile> userList = new ArrayList<>();
+                for (AudienceListResponse.AudienceInfo info : response.data.list) {
+                    UserProfile profile = new UserProfile();
+                    profile.setUserId(info.userId);
+                    profile.setUserName(info.userName);
+                    profile.setAvatar(info.avatar);
+                    userList.add(profile);
+                }
+                post(() -> appendUsers(userList));
+            }
+
+            @Override
+            public void onFailure(int requestType, int error, String message) {
+                XLog.e("request:" + requestType + " error:" + error + " msg:" + message);
+                post(() -> Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show());
+            }
+        });
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // The sheet is closed, nobody waits for the users
+        if (mAudienceRequest != null) mAudienceRequest.cancel();
     }
 
     @Override
@@ -109,7 +144,8 @@ public class LiveRoomUserListActionSheet extends AbstractActionSheet {
             UserProfile profile = mUserList.get(position);
             RoomUserViewHolder viewHolder = (RoomUserViewHolder) holder;
             viewHolder.name.setText(getUserText(profile));
-            viewHolder.icon.setImageDrawable(UserUtil.getUserRoundIcon(getResources(), profile.getUserId()));
+            AvatarCache.loadRoundIcon(viewHolder.icon, profile.getAvatar(),
+                    profile.getUserId(), viewHolder.icon.getLayoutParams().width);
             viewHolder.itemView.setOnClickListener(view -> {
                 if (mOnUserSelectedListener != null) mOnUserSelectedListener
                         .onActionSheetUserListItemSelected(profile.getUserId(), profile.getUserName());
@@ -26,6 +26,7 @@ import io.agora.vlive.protocol.manager.SeatServiceManager;
 import io.agora.vlive.protocol.model.model.UserProfile;
 import io.agora.vlive.protocol.model.request.AudienceListRequest;
 import io.agora.vlive.protocol.model.request.Request;
+import io.agora.vlive.utils.AvatarCache;
 import io.agora.vlive.utils.UserUtil;
 
 public class OnlineUserInviteCallActionSheet extends AbstractActionSheet implements View.OnClickListener {
@@ -196,7 +197,8 @@ public class OnlineUserInviteCallActionSheet extends AbstractActionSheet impleme
         public void onBindViewHolder(@NonNull OnlineUserInviteCallViewHolder holder, final int position) {
             UserProfile profile = mUserList.get(position);
             holder.name.setText(getUserText(profile));
-            holder.icon.setImageDrawable(UserUtil.getUserRoundIcon(getResources(), profile.getUserId()));
+            AvatarCache.loadRoundIcon(holder.icon, profile.getAvatar(),
+                    profile.getUserId(), holder.icon.getLayoutParams().width);
 
             if (mOwnerId != null && mOwnerId.equals(profile.getUserId())) {
                 holder.status.setVisibility(View.GONE);
@@ -103,6 +103,10 @@ public class ProductActionSheet extends AbstractActionSheet implements View.OnCl
         }
 
         if (mProductManager != null) {
+            // Show the products known last time until
+            // the latest list arrives.
+            List<Product> cached = mProductManager.getCachedProductList(mRoomId);
+            if (cached != null) updateList(cached);
             mProductManager.requestProductList(mRoomId);
         }
     }
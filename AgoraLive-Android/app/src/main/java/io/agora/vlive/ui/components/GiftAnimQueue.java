@@ -0,0 +1,132 @@
+package io.agora.vlive.ui.components;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The gifts waiting for their animations. The same gift sent
+ * again by the same user is merged into the waiting or playing
+ * gift as a combo. At most MAX_PENDING gifts wait; when more
+ * arrive, the cheapest waiting gift is dropped, or the new one
+ * if it is not more expensive. Gifts with larger indexes in
+ * GiftUtil cost more. Dropped gifts are still shown in the
+ * message list, only their animations are skipped.
+ * Not thread safe, used in the UI thread.
+ */
+public class GiftAnimQueue {
+    static final int MAX_PENDING = 6;
+
+    public static class Entry {
+        public final String senderId;
+        public final int giftIndex;
+        public int count;
+
+        Entry(String senderId, int giftIndex, int count) {
+            this.senderId = senderId;
+            this.giftIndex = giftIndex;
+            this.count = count;
+        }
+
+        boolean isSameGift(String senderId, int giftIndex) {
+            return this.giftIndex == giftIndex && this.senderId != null &&
+                    this.senderId.equals(senderId);
+        }
+    }
+
+    private final List<Entry> mPending = new ArrayList<>();
+    private Entry mPlaying;
+
+    private long mMergedCount;
+    private long mDroppedCount;
+    private long mPlayedCount;
+
+    /**
+     * @return the entry that the gift is added or merged to,
+     * which may be the playing one, or null if it is dropped
+     */
+    public Entry add(String senderId, int giftIndex, int count) {
+        if (mPlaying != null && mPlaying.isSameGift(senderId, giftIndex)) {
+            mPlaying.count += count;
+            mMergedCount++;
+            return mPlaying;
+        }
+
+        for (Entry entry : mPending) {
+            if (entry.isSameGift(senderId, giftIndex)) {
+                entry.count += count;
+                mMergedCount++;
+                return entry;
+            }
+        }
+
+        if (mPending.size() >= MAX_PENDING) {
+            int cheapest = cheapestPending();
+            if (mPending.get(cheapest).giftIndex >= giftIndex) {
+                mDroppedCount++;
+                return null;
+            }
+            mPending.remove(cheapest);
+            mDroppedCount++;
+        }
+
+        Entry entry = new Entry(senderId, giftIndex, count);
+        mPending.add(entry);
+        return entry;
+    }
+
+    private int cheapestPending() {
+        int cheapest = 0;
+        for (int i = 1; i < mPending.size(); i++) {
+            if (mPending.get(i).giftIndex < mPending.get(cheapest).giftIndex) {
+                cheapest = i;
+            }
+        }
+        return cheapest;
+    }
+
+    /**
+     * Starts playing the first waiting gift
+     * @return the gift to play, or null if none is waiting
+     */
+    public Entry next() {
+        mPlaying = mPending.isEmpty() ? null : mPending.remove(0);
+        if (mPlaying != null) mPlayedCount++;
+        return mPlaying;
+    }
+
+    /**
+     * @return the gift to play after the playing one
+     */
+    public Entry peek() {
+        return mPending.isEmpty() ? null : mPending.get(0);
+    }
+
+    public Entry playing() {
+        return mPlaying;
+    }
+
+    public void finish() {
+        mPlaying = null;
+    }
+
+    public void clear() {
+        mPending.clear();
+        mPlaying = null;
+    }
+
+    public int getPendingCount() {
+        return mPending.size();
+    }
+
+    public long getMergedCount() {
+        return mMergedCount;
+    }
+
+    public long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    public long getPlayedCount() {
+        return mPlayedCount;
+    }
+}
@@ -0,0 +1,188 @@
+package io.agora.vlive.ui.components;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.elvishew.xlog.XLog;
+
+import io.agora.vlive.R;
+
+/**
+ * One overlay that plays the gift animations of a room one
+ * after another, with the frames decoded by GiftFrameCache.
+ * A gift sent again by the same user is shown as a combo
+ * count instead of another animation.
+ * Frames are drawn with hardware acceleration, and the view
+ * does not take touch events.
+ */
+public class GiftAnimView extends View implements GiftFrameCache.Callback {
+    private static final int COMBO_TEXT_SIZE_SP = 36;
+    private static final int COMBO_SHADOW_RADIUS = 6;
+
+    private GiftAnimQueue mQueue = new GiftAnimQueue();
+    private GiftFrameCache mFrameCache;
+
+    private GiftFrameCache.Frames mFrames;
+    private int mFrameIndex;
+
+    private final Rect mDstRect = new Rect();
+    private final Paint mFramePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint mComboPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final Runnable mNextFrame = this::nextFrame;
+
+    public GiftAnimView(Context context) {
+        super(context);
+        init();
+    }
+
+    public GiftAnimView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    private void init() {
+        mFrameCache = GiftFrameCache.instance(getContext());
+        mComboPaint.setColor(Color.WHITE);
+        mComboPaint.setTextAlign(Paint.Align.CENTER);
+        mComboPaint.setFakeBoldText(true);
+        mComboPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP,
+                COMBO_TEXT_SIZE_SP, getResources().getDisplayMetrics()));
+        mComboPaint.setShadowLayer(COMBO_SHADOW_RADIUS, 0, 0, Color.BLACK);
+        setVisibility(INVISIBLE);
+    }
+
+    /**
+     * Decodes the gifts that the frame cache has room for,
+     * before they are sent
+     */
+    public void prefetch() {
+        mFrameCache.prefetch();
+    }
+
+    /**
+     * Called in the UI thread
+     * @param count how many gifts are sent in a row
+     */
+    public void showGift(String senderId, int giftIndex, int count) {
+        GiftAnimQueue.Entry entry = mQueue.add(senderId, giftIndex, count);
+        if (entry == null) return;
+
+        if (entry == mQueue.playing()) {
+            // The combo count changes
+            invalidate();
+        } else if (mQueue.playing() == null) {
+            playNext();
+        }
+    }
+
+    private void playNext() {
+        GiftAnimQueue.Entry entry = mQueue.next();
+        if (entry == null) {
+            setFrames(null);
+            setVisibility(INVISIBLE);
+            return;
+        }
+
+        mFrameCache.load(entry.giftIndex, this);
+    }
+
+    @Override
+    public void onFramesLoaded(int giftIndex, @Nullable GiftFrameCache.Frames frames) {
+        GiftAnimQueue.Entry entry = mQueue.playing();
+        if (entry == null || entry.giftIndex != giftIndex || mFrames != null) {
+            // Finished or cleared while loading
+            return;
+        }
+
+        if (frames == null) {
+            finishGift();
+            return;
+        }
+
+        setFrames(frames);
+        mFrameIndex = 0;
+        setVisibility(VISIBLE);
+        invalidate();
+        postDelayed(mNextFrame, frames.delays[0]);
+
+        // Decode the next gift while this one plays
+        GiftAnimQueue.Entry next = mQueue.peek();
+        if (next != null && next.giftIndex != giftIndex) {
+            mFrameCache.load(next.giftIndex, this);
+        }
+    }
+
+    private void nextFrame() {
+        if (mFrames == null) return;
+        if (++mFrameIndex >= mFrames.bitmaps.length) {
+            finishGift();
+            return;
+        }
+
+        invalidate();
+        postDelayed(mNextFrame, mFrames.delays[mFrameIndex]);
+    }
+
+    /**
+     * The frames played are kept from going back to the
+     * bitmap pool until they are replaced.
+     */
+    private void setFrames(GiftFrameCache.Frames frames) {
+        if (mFrames == frames) return;
+        if (mFrames != null) mFrameCache.release(mFrames);
+        mFrames = frames;
+        if (frames != null) mFrameCache.acquire(frames);
+    }
+
+    private void finishGift() {
+        setFrames(null);
+        mQueue.finish();
+        playNext();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        GiftFrameCache.Frames frames = mFrames;
+        if (frames == null) return;
+
+        Bitmap frame = frames.bitmaps[mFrameIndex];
+        centerCrop(frame.getWidth(), frame.getHeight());
+        canvas.drawBitmap(frame, null, mDstRect, mFramePaint);
+
+        GiftAnimQueue.Entry entry = mQueue.playing();
+        if (entry != null && entry.count > 1) {
+            canvas.drawText(getResources().getString(R.string.live_gift_anim_combo, entry.count),
+                    getWidth() / 2f, getHeight() * 2 / 3f, mComboPaint);
+        }
+    }
+
+    private void centerCrop(int width, int height) {
+        float scale = Math.max((float) getWidth() / width, (float) getHeight() / height);
+        int dstWidth = Math.round(width * scale);
+        int dstHeight = Math.round(height * scale);
+        int left = (getWidth() - dstWidth) / 2;
+        int top = (getHeight() - dstHeight) / 2;
+        mDstRect.set(left, top, left + dstWidth, top + dstHeight);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mNextFrame);
+        XLog.i("gift animations played " + mQueue.getPlayedCount() +
+                " merged " + mQueue.getMergedCount() +
+                " dropped " + mQueue.getDroppedCount());
+        mQueue.clear();
+        setFrames(null);
+    }
+}
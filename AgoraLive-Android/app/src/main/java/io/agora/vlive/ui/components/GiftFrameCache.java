@@ -0,0 +1,337 @@
+package io.agora.vlive.ui.components;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.LruCache;
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.gifdecoder.GifDecoder;
+import com.bumptech.glide.gifdecoder.GifHeader;
+import com.bumptech.glide.gifdecoder.GifHeaderParser;
+import com.bumptech.glide.gifdecoder.StandardGifDecoder;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.gif.GifBitmapProvider;
+import com.elvishew.xlog.XLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.agora.vlive.utils.GiftUtil;
+
+/**
+ * Keeps the decoded frames of gift animations, so that a gift
+ * sent again is played without decoding its gif again.
+ * A gift takes at most MAX_GIFT_BYTES, or a sixteenth of the
+ * heap if smaller, which decides the sample size that a gif
+ * is decoded at, and the frames of MAX_GIFTS gifts are kept.
+ * Frames come from the bitmap pool of Glide, and go back to
+ * it once removed from the cache and not played any more.
+ * Gifs are decoded one by one in a background thread.
+ */
+public class GiftFrameCache {
+    private static final int MAX_SAMPLE_SIZE = 8;
+
+    // 60 frames of a 750x1334 gif at sample size 4 take 14 MB
+    private static final long MAX_GIFT_BYTES = 16 * 1024 * 1024;
+
+    // The gift playing and the next one
+    private static final int MAX_GIFTS = 2;
+
+    public static class Frames {
+        public final Bitmap[] bitmaps;
+        public final int[] delays;
+        final int byteCount;
+
+        // Called in the UI thread
+        private int mUsers;
+        private boolean mRemoved;
+
+        Frames(Bitmap[] bitmaps, int[] delays) {
+            this.bitmaps = bitmaps;
+            this.delays = delays;
+            int bytes = 0;
+            for (Bitmap bitmap : bitmaps) bytes += bitmap.getAllocationByteCount();
+            byteCount = bytes;
+        }
+    }
+
+    public interface Callback {
+        /**
+         * Called in the UI thread
+         * @param frames null if the gif cannot be decoded
+         */
+        void onFramesLoaded(int giftIndex, @Nullable Frames frames);
+    }
+
+    private static class Loading {
+        final List<Callback> callbacks = new ArrayList<>();
+
+        // Prefetching only decodes gifts that fit in the
+        // budget without removing others
+        volatile boolean prefetch;
+        volatile boolean skipped;
+    }
+
+    private static volatile GiftFrameCache sInstance;
+
+    private final Context mContext;
+    private final int mMaxWidth;
+    private final long mGiftBudget;
+    private final LruCache<Integer, Frames> mCache;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final SparseArray<Loading> mLoading = new SparseArray<>();
+    private int mPrefetchIndex = -1;
+    private final ExecutorService mDecoder = Executors.newSingleThreadExecutor(runnable ->
+            new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "gift-frame-decoder"));
+
+    public static GiftFrameCache instance(Context context) {
+        if (sInstance == null) {
+            synchronized (GiftFrameCache.class) {
+                if (sInstance == null) {
+                    sInstance = new GiftFrameCache(context.getApplicationContext());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * Removes all the frames if the cache has been created
+     */
+    public static void trim() {
+        GiftFrameCache cache = sInstance;
+        if (cache != null) cache.mCache.evictAll();
+    }
+
+    private GiftFrameCache(Context context) {
+        mContext = context;
+        mMaxWidth = context.getResources().getDisplayMetrics().widthPixels;
+        mGiftBudget = Math.min(MAX_GIFT_BYTES, Runtime.getRuntime().maxMemory() / 16);
+        mCache = new LruCache<Integer, Frames>((int) (mGiftBudget * MAX_GIFTS)) {
+            @Override
+            protected int sizeOf(Integer key, Frames value) {
+                return value.byteCount;
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Integer key,
+                                        Frames oldValue, Frames newValue) {
+                oldValue.mRemoved = true;
+                if (oldValue.mUsers == 0) recycle(oldValue);
+            }
+        };
+    }
+
+    /**
+     * Keeps the frames from going back to the bitmap pool
+     * while they are played, even if removed from the cache.
+     * Called in the UI thread.
+     */
+    public void acquire(Frames frames) {
+        frames.mUsers++;
+    }
+
+    /**
+     * Called in the UI thread when the frames are not
+     * played any more.
+     */
+    public void release(Frames frames) {
+        if (--frames.mUsers == 0 && frames.mRemoved) recycle(frames);
+    }
+
+    private void recycle(Frames frames) {
+        BitmapPool pool = Glide.get(mContext).getBitmapPool();
+        for (Bitmap bitmap : frames.bitmaps) {
+            pool.put(bitmap);
+        }
+    }
+
+    /**
+     * @return the frames of the gift, or null if not decoded
+     */
+    public Frames get(int giftIndex) {
+        return mCache.get(giftIndex);
+    }
+
+    /**
+     * Called in the UI thread.
+     * @param callback called when the frames are ready
+     */
+    public void load(int giftIndex, Callback callback) {
+        Frames frames = mCache.get(giftIndex);
+        if (frames != null) {
+            callback.onFramesLoaded(giftIndex, frames);
+            return;
+        }
+
+        Loading loading = mLoading.get(giftIndex);
+        if (loading == null) {
+            loading = startLoading(giftIndex, false);
+        } else {
+            loading.prefetch = false;
+        }
+        loading.callbacks.add(callback);
+    }
+
+    /**
+     * Decodes the gifts in the background when the budget
+     * allows. Called in the UI thread.
+     */
+    public void prefetch() {
+        if (mPrefetchIndex < 0) prefetchNext(0);
+    }
+
+    // One gift is prefetched at a time, so that the gifts
+    // being sent do not wait for all the others.
+    private void prefetchNext(int from) {
+        mPrefetchIndex = -1;
+        for (int i = from; i < GiftUtil.GIFT_ANIM_RES.length; i++) {
+            if (mCache.get(i) == null && mLoading.get(i) == null) {
+                mPrefetchIndex = i;
+                startLoading(i, true);
+                return;
+            }
+        }
+    }
+
+    private Loading startLoading(int giftIndex, boolean prefetch) {
+        Loading loading = new Loading();
+        loading.prefetch = prefetch;
+        mLoading.put(giftIndex, loading);
+        mDecoder.execute(() -> {
+            Frames frames = decode(giftIndex, loading);
+            mHandler.post(() -> onDecoded(giftIndex, loading, frames));
+        });
+        return loading;
+    }
+
+    private void onDecoded(int giftIndex, Loading loading, Frames frames) {
+        mLoading.remove(giftIndex);
+
+        // Frames larger than the cache are removed at once,
+        // but kept for the callbacks.
+        if (frames != null) {
+            acquire(frames);
+            mCache.put(giftIndex, frames);
+        }
+
+        if (giftIndex == mPrefetchIndex) {
+            // Stop when the budget is full
+            if (loading.skipped) {
+                mPrefetchIndex = -1;
+            } else {
+                prefetchNext(giftIndex + 1);
+            }
+        }
+
+        if (frames == null && loading.skipped && !loading.callbacks.isEmpty()) {
+            // The gift is sent right after prefetching skips it
+            startLoading(giftIndex, false).callbacks.addAll(loading.callbacks);
+            return;
+        }
+
+        for (Callback callback : loading.callbacks) {
+            callback.onFramesLoaded(giftIndex, frames);
+        }
+        if (frames != null) release(frames);
+    }
+
+    private Frames decode(int giftIndex, Loading loading) {
+        long start = System.currentTimeMillis();
+        byte[] data;
+        try {
+            data = readResource(GiftUtil.getGiftAnimRes(giftIndex));
+        } catch (IOException e) {
+            XLog.e("read gift animation fails: " + e.getMessage());
+            return null;
+        }
+
+        GifHeader header = new GifHeaderParser().setData(data).parseHeader();
+        if (header.getStatus() != GifDecoder.STATUS_OK || header.getNumFrames() <= 0) {
+            return null;
+        }
+
+        int sampleSize = sampleSize(header);
+        long bytes = frameBytes(header, sampleSize) * header.getNumFrames();
+        if (loading.prefetch && mCache.size() + bytes > mCache.maxSize()) {
+            loading.skipped = true;
+            return null;
+        }
+
+        GifBitmapProvider provider = new GifBitmapProvider(
+                Glide.get(mContext).getBitmapPool(), Glide.get(mContext).getArrayPool());
+        StandardGifDecoder decoder = new StandardGifDecoder(provider,
+                header, ByteBuffer.wrap(data), sampleSize);
+        decoder.setDefaultBitmapConfig(Bitmap.Config.ARGB_8888);
+
+        int count = decoder.getFrameCount();
+        Bitmap[] bitmaps = new Bitmap[count];
+        int[] delays = new int[count];
+        for (int i = 0; i < count; i++) {
+            decoder.advance();
+            delays[i] = decoder.getNextDelay();
+            bitmaps[i] = decoder.getNextFrame();
+            if (bitmaps[i] == null) {
+                BitmapPool pool = Glide.get(mContext).getBitmapPool();
+                for (int j = 0; j < i; j++) pool.put(bitmaps[j]);
+                decoder.clear();
+                return null;
+            }
+        }
+        decoder.clear();
+
+        Frames frames = new Frames(bitmaps, delays);
+        XLog.d("gift " + giftIndex + " decoded " + count + " frames, sample size " +
+                sampleSize + ", " + (frames.byteCount >> 10) + " KB in " +
+                (System.currentTimeMillis() - start) + " ms");
+        return frames;
+    }
+
+    private int sampleSize(GifHeader header) {
+        long budget = mGiftBudget;
+        int sampleSize = 1;
+
+        // No need to be larger than the screen
+        while (sampleSize < MAX_SAMPLE_SIZE &&
+                header.getWidth() / (sampleSize * 2) >= mMaxWidth) {
+            sampleSize *= 2;
+        }
+
+        while (sampleSize < MAX_SAMPLE_SIZE &&
+                frameBytes(header, sampleSize) * header.getNumFrames() > budget) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static long frameBytes(GifHeader header, int sampleSize) {
+        return (long) (header.getWidth() / sampleSize) * (header.getHeight() / sampleSize) * 4;
+    }
+
+    private byte[] readResource(int res) throws IOException {
+        try (InputStream in = mContext.getResources().openRawResource(res)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 1024));
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -12,12 +12,9 @@ import android.widget.TextView;
 
 import androidx.appcompat.widget.AppCompatImageView;
 import androidx.appcompat.widget.AppCompatTextView;
-import androidx.core.graphics.drawable.RoundedBitmapDrawable;
-import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
-
-import java.io.IOException;
 
 import io.agora.vlive.R;
+import io.agora.vlive.utils.AvatarCache;
 
 public class LiveHostNameLayout extends RelativeLayout {
     private static final int IMAGE_VIEW_ID = 1 << 4;
@@ -118,14 +115,17 @@ public class LiveHostNameLayout extends RelativeLayout {
      * @param name
      */
     public void setIconResource(String name) {
-        RoundedBitmapDrawable drawable = null;
-        try {
-            drawable = RoundedBitmapDrawableFactory.create(getResources(),
-                    getResources().getAssets().open(name));
-            drawable.setCircular(true);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        mIconImageView.setImageDrawable(drawable);
+        mIconImageView.setImageDrawable(AvatarCache.getRoundIcon(
+                getResources(), name, mIconImageView.getLayoutParams().width));
+    }
+
+    /**
+     * Shows the remote avatar of the user if there is one,
+     * or the default icon of the user id
+     * @param avatar the url of the avatar, may be null
+     */
+    public void setIcon(String avatar, String userId) {
+        AvatarCache.loadRoundIcon(mIconImageView, avatar, userId,
+                mIconImageView.getLayoutParams().width);
     }
 }
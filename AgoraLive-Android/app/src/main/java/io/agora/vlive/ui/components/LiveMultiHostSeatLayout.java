@@ -2,6 +2,7 @@ package io.agora.vlive.ui.components;
 
 import android.content.Context;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.SurfaceView;
 import android.view.View;
@@ -97,7 +98,7 @@ public class LiveMultiHostSeatLayout extends RelativeLayout {
         AppCompatTextView nickname;
         AppCompatImageView popup;
         AppCompatImageView voiceState;
-        VoiceIndicateGifView voiceIndicate;
+        VoiceIndicateView voiceIndicate;
         SurfaceView surfaceView;
         public int position;
         public int seatState;
@@ -127,6 +128,9 @@ public class LiveMultiHostSeatLayout extends RelativeLayout {
     public static final int VIDEO_MUTED = 0;
 
     private List<SeatItem> mSeatList;
+
+    // Finds the seats of speakers in volume indications
+    private SparseArray<SeatItem> mSeatsByUid = new SparseArray<>(MAX_SEAT);
     private boolean mIsOwner;
     private boolean mIsHost;
     private String mMyUserId;
@@ -358,12 +362,21 @@ public class LiveMultiHostSeatLayout extends RelativeLayout {
 
         seatState.userId = user.userId;
         seatState.userName = user.userName;
-        seatState.rtcUid = user.uid;
+        setRtcUid(seatState, user.uid);
         seatState.videoMuteState = user.enableVideo;
         seatState.audioMuteState = user.enableAudio;
         seatState.seatState = seat.state;
     }
 
+    private void setRtcUid(@NonNull SeatItem seatState, int uid) {
+        if (seatState.rtcUid != 0 && mSeatsByUid.get(seatState.rtcUid) == seatState) {
+            mSeatsByUid.remove(seatState.rtcUid);
+        }
+
+        seatState.rtcUid = uid;
+        if (uid != 0) mSeatsByUid.put(uid, seatState);
+    }
+
     private void clearSeatStates(@NonNull SeatItem seatState) {
         if (containsChild(seatState.videoLayout, seatState.surfaceView)) {
             seatState.videoLayout.removeView(seatState.surfaceView);
@@ -372,7 +385,7 @@ public class LiveMultiHostSeatLayout extends RelativeLayout {
 
         seatState.userId = null;
         seatState.userName = null;
-        seatState.rtcUid = 0;
+        setRtcUid(seatState, 0);
         seatState.videoMuteState = MUTE_NONE;
         seatState.audioMuteState = MUTE_NONE;
         seatState.seatState = SEAT_OPEN;
@@ -441,16 +454,13 @@ public class LiveMultiHostSeatLayout extends RelativeLayout {
 
     public void audioIndicate(IRtcEngineEventHandler.AudioVolumeInfo[] audioVolumes, int myRtcUid) {
         for (IRtcEngineEventHandler.AudioVolumeInfo info : audioVolumes) {
-            for (SeatItem item : mSeatList) {
-                if (mIsHost && info.uid == 0 && myRtcUid == item.rtcUid) {
-                    // Need special care here because when I am one of the hosts,
-                    // the uid returned in volume indication is 0.
-                    // Double check is necessary to see if this is my seat
-                    item.startIndicate();
-                } else if (item.rtcUid == info.uid) {
-                    item.startIndicate();
-                }
-            }
+            // Need special care here because when I am one of the hosts,
+            // the uid returned in volume indication is 0.
+            int uid = info.uid == 0 && mIsHost ? myRtcUid : info.uid;
+            if (uid == 0) continue;
+
+            SeatItem item = mSeatsByUid.get(uid);
+            if (item != null) item.startIndicate();
         }
     }
 }
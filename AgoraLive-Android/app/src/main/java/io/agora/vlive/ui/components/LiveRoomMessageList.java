@@ -22,9 +22,11 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import io.agora.vlive.R;
 import io.agora.vlive.utils.GiftUtil;
+import io.agora.vlive.utils.RingBuffer;
 
 public class LiveRoomMessageList extends RecyclerView {
     public static final int MSG_TYPE_SYSTEM = 0;
@@ -40,7 +42,7 @@ public class LiveRoomMessageList extends RecyclerView {
 
     private static final int MESSAGE_TEXT_COLOR = Color.rgb(196, 196, 196);
     private static final int MESSAGE_TEXT_COLOR_LIGHT = Color.argb(101, 35, 35, 35);
-    private static final int MAX_SAVED_MESSAGE = 50;
+    private static final int DEFAULT_MAX_MESSAGE = 50;
     private static final int MESSAGE_ITEM_MARGIN = 16;
 
     private LiveRoomMessageAdapter mAdapter;
@@ -52,6 +54,14 @@ public class LiveRoomMessageList extends RecyclerView {
     private String mLeaveNotificationText;
 
     private boolean mNarrow = false;
+    private boolean mUpdateScheduled;
+
+    private final Runnable mUpdateRunnable = () -> {
+        mUpdateScheduled = false;
+        if (mAdapter.notifyPendingChanges()) {
+            mLayoutManager.scrollToPosition(mAdapter.getItemCount() - 1);
+        }
+    };
 
     public LiveRoomMessageList(@NonNull Context context) {
         super(context);
@@ -84,11 +94,13 @@ public class LiveRoomMessageList extends RecyclerView {
     }
 
     public void addMessage(int type, String user, String message, int... index) {
-        LiveMessageItem item = new LiveMessageItem(type, user, message);
         if (type == MSG_TYPE_GIFT && index != null) {
-            item.giftIndex = index[0];
-            item.message = getResources().getString(R.string.live_message_gift_send);
-        } else if (type == MSG_TYPE_SYSTEM) {
+            addGiftMessage(user, index[0], 1);
+            return;
+        }
+
+        LiveMessageItem item = new LiveMessageItem(type, user, message);
+        if (type == MSG_TYPE_SYSTEM) {
             if (index != null) {
                 if (index[0] == 1) {
                     item.message = mJoinNotificationText;
@@ -97,35 +109,109 @@ public class LiveRoomMessageList extends RecyclerView {
                 }
             }
         }
+        addItem(item);
+    }
+
+    /**
+     * @param count how many gifts are sent in a row
+     */
+    public void addGiftMessage(String user, int giftIndex, int count) {
+        LiveMessageItem item = new LiveMessageItem(MSG_TYPE_GIFT, user, count > 1
+                ? getResources().getString(R.string.live_message_gift_send_count, count)
+                : getResources().getString(R.string.live_message_gift_send));
+        item.giftIndex = giftIndex;
+        addItem(item);
+    }
+
+    private void addItem(LiveMessageItem item) {
         mAdapter.addMessage(item);
-        mLayoutManager.scrollToPosition(mAdapter.getItemCount() - 1);
-        mAdapter.notifyDataSetChanged();
+
+        // Messages added in the same frame are shown
+        // together by ranged notifications
+        if (!mUpdateScheduled) {
+            mUpdateScheduled = true;
+            postOnAnimation(mUpdateRunnable);
+        }
+    }
+
+    /**
+     * Removes all the messages, like when switching rooms.
+     */
+    public void clearMessages() {
+        removeCallbacks(mUpdateRunnable);
+        mUpdateScheduled = false;
+        mAdapter.clear();
     }
 
     public void setNarrow(boolean narrow) {
         mNarrow = narrow;
-        mAdapter.notifyDataSetChanged();
+        mAdapter.notifyAllChanged();
+    }
+
+    /**
+     * Set how many latest messages are kept, the older
+     * ones are removed. Must be called after init().
+     */
+    public void setMaxMessageCount(int count) {
+        mAdapter.setCapacity(count);
+    }
+
+    /**
+     * Build the styled text of a message, which is kept by
+     * the message and reused until the narrow mode changes.
+     */
+    private CharSequence buildText(LiveMessageItem item) {
+        int nameColor = mLightMode
+                ? Color.BLACK
+                : Color.WHITE;
+        int messageColor = mLightMode
+                ? MESSAGE_TEXT_COLOR_LIGHT
+                : MESSAGE_TEXT_COLOR;
+
+        String user = item.user == null ? "" : item.user;
+        String text = mNarrow ? user + ": " : user + ":  " + item.message;
+        SpannableString messageSpan = new SpannableString(text);
+        messageSpan.setSpan(new StyleSpan(Typeface.BOLD),
+                0, user.length() + 1, Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+        messageSpan.setSpan(new ForegroundColorSpan(nameColor),
+                0, user.length() + 1, Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+
+        if (!mNarrow || item.type != MSG_TYPE_GIFT) {
+            messageSpan.setSpan(new ForegroundColorSpan(messageColor),
+                    user.length() + 2, messageSpan.length(),
+                    Spannable.SPAN_INCLUSIVE_INCLUSIVE);
+        }
+
+        item.text = messageSpan;
+        item.narrowText = mNarrow;
+        return messageSpan;
     }
 
     private class LiveRoomMessageAdapter extends Adapter<MessageListViewHolder> {
-        private ArrayList<LiveMessageItem> mMessageList = new ArrayList<>();
+        private RingBuffer<LiveMessageItem> mMessageList = new RingBuffer<>(DEFAULT_MAX_MESSAGE);
+        private long mNextId;
+
+        LiveRoomMessageAdapter() {
+            setHasStableIds(true);
+        }
 
         @NonNull
         @Override
         public MessageListViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
             if (viewType == MSG_TYPE_GIFT) {
                 return new MessageListViewHolder(mInflater
-                        .inflate(R.layout.message_item_gift_layout, parent, false), viewType);
+                        .inflate(R.layout.message_item_gift_layout, parent, false));
             } else {
                 return new MessageListViewHolder(mInflater
-                        .inflate(R.layout.message_item_layout, parent, false), viewType);
+                        .inflate(R.layout.message_item_layout, parent, false));
             }
         }
 
         @Override
         public void onBindViewHolder(@NonNull MessageListViewHolder holder, int position) {
             LiveMessageItem item = mMessageList.get(position);
-            holder.setMessage(item.user, item.message);
+            holder.messageText.setText(item.text != null && item.narrowText == mNarrow
+                    ? item.text : buildText(item));
 
             if (item.type == MSG_TYPE_GIFT && holder.giftIcon != null) {
                 holder.giftIcon.setImageResource(GiftUtil.GIFT_ICON_RES[item.giftIndex]);
@@ -142,55 +228,82 @@ public class LiveRoomMessageList extends RecyclerView {
             return mMessageList.get(position).type;
         }
 
+        @Override
+        public long getItemId(int position) {
+            return mMessageList.get(position).id;
+        }
+
+        // Messages added but not shown yet. They are put into
+        // the message list together with the notifications,
+        // so that the list view never lays out changes that
+        // it has not been notified of.
+        private final List<LiveMessageItem> mPending = new ArrayList<>();
+
         void addMessage(LiveMessageItem item) {
-            if (mMessageList.size() == MAX_SAVED_MESSAGE) {
-                mMessageList.remove(mMessageList.size() - 1);
+            item.id = mNextId++;
+            mPending.add(item);
+
+            // Older ones would be removed at once when shown
+            if (mPending.size() > mMessageList.capacity()) {
+                mPending.remove(0);
             }
-            mMessageList.add(item);
+        }
+
+        void clear() {
+            mPending.clear();
+            mMessageList.clear();
+            notifyAllChanged();
+        }
+
+        void setCapacity(int capacity) {
+            boolean removed = mMessageList.setCapacity(capacity) > 0;
+            int trimmed = mPending.size() - capacity;
+            if (trimmed > 0) mPending.subList(0, trimmed).clear();
+            if (removed) notifyAllChanged();
+        }
+
+        /**
+         * Shows the messages added since the last time.
+         * @return true if there are any
+         */
+        boolean notifyPendingChanges() {
+            int inserted = mPending.size();
+            if (inserted == 0) return false;
+
+            // The pending ones are no more than the capacity,
+            // only messages already shown are removed.
+            int removed = Math.max(0, mMessageList.size() + inserted - mMessageList.capacity());
+            for (LiveMessageItem item : mPending) {
+                mMessageList.add(item);
+            }
+            mPending.clear();
+
+            if (removed > 0) {
+                notifyItemRangeRemoved(0, removed);
+            }
+            notifyItemRangeInserted(mMessageList.size() - inserted, inserted);
+            return true;
+        }
+
+        void notifyAllChanged() {
+            notifyDataSetChanged();
         }
     }
 
     private class MessageListViewHolder extends ViewHolder {
         private AppCompatTextView messageText;
         private AppCompatImageView giftIcon;
-        private RelativeLayout layout;
-        private int type;
 
-        MessageListViewHolder(@NonNull View itemView, int type) {
+        MessageListViewHolder(@NonNull View itemView) {
             super(itemView);
             messageText = itemView.findViewById(R.id.live_message_item_text);
             giftIcon = itemView.findViewById(R.id.live_message_gift_icon);
-            layout = itemView.findViewById(R.id.live_message_item_layout);
-            this.type = type;
-        }
 
-        void setMessage(String user, String message) {
-            int background = mLightMode
+            // The background depends only on the mode set in init()
+            RelativeLayout layout = itemView.findViewById(R.id.live_message_item_layout);
+            layout.setBackgroundResource(mLightMode
                     ? R.drawable.round_scalable_gray_transparent_bg
-                    : R.drawable.round_scalable_gray_bg;
-            int nameColor = mLightMode
-                    ? Color.BLACK
-                    : Color.WHITE;
-            int messageColor = mLightMode
-                    ? MESSAGE_TEXT_COLOR_LIGHT
-                    : MESSAGE_TEXT_COLOR;
-
-            layout.setBackgroundResource(background);
-
-            String text = mNarrow ? user + ": " : user + ":  " + message;
-            SpannableString messageSpan = new SpannableString(text);
-            messageSpan.setSpan(new StyleSpan(Typeface.BOLD),
-                    0, user.length() + 1, Spannable.SPAN_INCLUSIVE_INCLUSIVE);
-            messageSpan.setSpan(new ForegroundColorSpan(nameColor),
-                    0, user.length() + 1, Spannable.SPAN_INCLUSIVE_INCLUSIVE);
-
-            if (!mNarrow || this.type != MSG_TYPE_GIFT) {
-                messageSpan.setSpan(new ForegroundColorSpan(messageColor),
-                        user.length() + 2, messageSpan.length(),
-                        Spannable.SPAN_INCLUSIVE_INCLUSIVE);
-            }
-
-            messageText.setText(messageSpan);
+                    : R.drawable.round_scalable_gray_bg);
         }
     }
 
@@ -206,11 +319,16 @@ public class LiveRoomMessageList extends RecyclerView {
     }
 
     private static class LiveMessageItem {
+        long id;
         int type;
         String user;
         String message;
         int giftIndex;
 
+        // Cached styled text and the mode it is built for
+        CharSequence text;
+        boolean narrowText;
+
         LiveMessageItem(int type, String user, String message) {
             this.type = type;
             this.user = user;
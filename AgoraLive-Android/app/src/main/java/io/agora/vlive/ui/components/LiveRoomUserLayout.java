@@ -1,7 +1,6 @@
 package io.agora.vlive.ui.components;
 
 import android.content.Context;
-import android.graphics.BitmapFactory;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -9,15 +8,13 @@ import android.widget.RelativeLayout;
 
 import androidx.appcompat.widget.AppCompatImageView;
 import androidx.appcompat.widget.AppCompatTextView;
-import androidx.core.graphics.drawable.RoundedBitmapDrawable;
-import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
 
 import java.util.List;
 import java.util.Locale;
 
 import io.agora.vlive.R;
 import io.agora.vlive.protocol.model.response.EnterRoomResponse;
-import io.agora.vlive.utils.UserUtil;
+import io.agora.vlive.utils.AvatarCache;
 
 public class LiveRoomUserLayout extends RelativeLayout {
     private static final int MAX_ICON_COUNT = 4;
@@ -120,16 +117,11 @@ public class LiveRoomUserLayout extends RelativeLayout {
         for (int i = 0; i < rankUsers.size(); i++) {
             if (i >= MAX_ICON_COUNT) break;
             EnterRoomResponse.RankInfo info = rankUsers.get(i);
-            setIconResource(info.userId, id++);
+            setIcon(info, id++);
         }
     }
 
-    private void setIconResource(String userId, int referenceId) {
-        int resId = UserUtil.getUserProfileIcon(userId);
-        RoundedBitmapDrawable drawable = RoundedBitmapDrawableFactory.create(getResources(),
-                BitmapFactory.decodeResource(getResources(), resId));
-        drawable.setCircular(true);
-
+    private void setIcon(EnterRoomResponse.RankInfo info, int referenceId) {
         RelativeLayout.LayoutParams params = new
                 RelativeLayout.LayoutParams(mIconSize, mIconSize);
         params.rightMargin = mIconMargin;
@@ -141,7 +133,7 @@ public class LiveRoomUserLayout extends RelativeLayout {
 
         AppCompatImageView imageView = new AppCompatImageView(getContext());
         imageView.setId(referenceId + 1);
-        imageView.setImageDrawable(drawable);
+        AvatarCache.loadRoundIcon(imageView, info.avatar, info.userId, mIconSize);
         mIconLayout.addView(imageView, params);
     }
 
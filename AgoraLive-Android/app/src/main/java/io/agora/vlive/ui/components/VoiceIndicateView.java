@@ -0,0 +1,218 @@
+package io.agora.vlive.ui.components;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.gifdecoder.GifDecoder;
+import com.bumptech.glide.gifdecoder.GifHeader;
+import com.bumptech.glide.gifdecoder.GifHeaderParser;
+import com.bumptech.glide.gifdecoder.StandardGifDecoder;
+import com.bumptech.glide.load.resource.gif.GifBitmapProvider;
+import com.elvishew.xlog.XLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows that a user is speaking. The frames of voice.gif are
+ * decoded once in a background thread when an indicator is
+ * first attached, and shared by all the indicators, which are
+ * drawn with hardware acceleration. Nothing is drawn until
+ * the frames are ready. All the indicators play the same
+ * frame at the same time.
+ */
+public class VoiceIndicateView extends View {
+    private static final String VOICE_INDICATE_NAME = "voice.gif";
+
+    private static class Frames {
+        Bitmap[] bitmaps;
+
+        // The time when each frame ends, from the start
+        long[] ends;
+        long duration;
+    }
+
+    // Called in the UI thread
+    private static Frames sFrames;
+    private static boolean sDecoding;
+    private static boolean sDecoded;
+    private static final List<VoiceIndicateView> sWaitingViews = new ArrayList<>();
+
+    private final Rect mDstRect = new Rect();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private boolean mStarted;
+    private long mStopTimeStamp = -1;
+
+    public VoiceIndicateView(Context context) {
+        super(context);
+    }
+
+    public VoiceIndicateView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * Starts decoding the frames if not decoded yet.
+     * Called in the UI thread.
+     */
+    private static void prepare(Context context) {
+        if (sDecoded || sDecoding) return;
+        sDecoding = true;
+
+        Context appContext = context.getApplicationContext();
+        Handler handler = new Handler(Looper.getMainLooper());
+        new Thread(() -> {
+            Frames frames = decode(appContext);
+            handler.post(() -> onDecoded(frames));
+        }, "voice-indicator-decoder").start();
+    }
+
+    private static void onDecoded(Frames frames) {
+        sFrames = frames;
+        sDecoding = false;
+        sDecoded = true;
+        for (VoiceIndicateView view : sWaitingViews) {
+            view.invalidate();
+        }
+        sWaitingViews.clear();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        prepare(getContext());
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        sWaitingViews.remove(this);
+    }
+
+    private static Frames decode(Context context) {
+        byte[] data;
+        try (InputStream in = context.getAssets().open(VOICE_INDICATE_NAME)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            data = out.toByteArray();
+        } catch (IOException e) {
+            XLog.e("read voice indicator fails: " + e.getMessage());
+            return null;
+        }
+
+        GifHeader header = new GifHeaderParser().setData(data).parseHeader();
+        if (header.getStatus() != GifDecoder.STATUS_OK || header.getNumFrames() <= 0) {
+            return null;
+        }
+
+        StandardGifDecoder decoder = new StandardGifDecoder(new GifBitmapProvider(
+                Glide.get(context).getBitmapPool()), header, ByteBuffer.wrap(data), 1);
+        decoder.setDefaultBitmapConfig(Bitmap.Config.ARGB_8888);
+
+        Frames frames = new Frames();
+        int count = decoder.getFrameCount();
+        frames.bitmaps = new Bitmap[count];
+        frames.ends = new long[count];
+        for (int i = 0; i < count; i++) {
+            decoder.advance();
+            frames.duration += decoder.getNextDelay();
+            frames.ends[i] = frames.duration;
+            frames.bitmaps[i] = decoder.getNextFrame();
+            if (frames.bitmaps[i] == null) {
+                decoder.clear();
+                return null;
+            }
+        }
+        decoder.clear();
+        return frames.duration > 0 ? frames : null;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (!mStarted) return;
+
+        long now = SystemClock.uptimeMillis();
+        if (-1 < mStopTimeStamp && mStopTimeStamp < now) {
+            stop();
+            return;
+        }
+
+        Frames frames = sFrames;
+        if (frames == null) {
+            // Drawn once the frames are decoded
+            if (!sDecoded && !sWaitingViews.contains(this)) {
+                sWaitingViews.add(this);
+                prepare(getContext());
+            }
+            return;
+        }
+
+        // The shared clock keeps all indicators in step
+        long time = now % frames.duration;
+        int index = 0;
+        while (index < frames.bitmaps.length - 1 && frames.ends[index] <= time) {
+            index++;
+        }
+
+        mDstRect.set(getPaddingLeft(), getPaddingTop(),
+                getWidth() - getPaddingRight(), getHeight() - getPaddingBottom());
+        canvas.drawBitmap(frames.bitmaps[index], null, mDstRect, mPaint);
+        postInvalidateOnAnimation();
+    }
+
+    /**
+     * Start the animation repeatedly until stopped
+     */
+    public void start() {
+        if (!mStarted) {
+            mStarted = true;
+            invalidate();
+        }
+    }
+
+    /**
+     * Start the animation for a specific amount of time,
+     * or extend the time if it has started.
+     * @param duration
+     */
+    public void start(long duration) {
+        long stop = SystemClock.uptimeMillis() + duration;
+        if (mStarted) {
+            if (mStopTimeStamp > -1) mStopTimeStamp = stop;
+            return;
+        }
+
+        mStarted = true;
+        mStopTimeStamp = stop;
+        invalidate();
+    }
+
+    public void stop() {
+        if (mStarted) {
+            mStarted = false;
+            mStopTimeStamp = -1;
+            invalidate();
+        }
+    }
+}
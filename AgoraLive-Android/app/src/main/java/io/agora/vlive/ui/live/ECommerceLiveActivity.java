@@ -23,8 +23,6 @@ import java.util.List;
 import io.agora.rtc.Constants;
 import io.agora.rtc.video.ChannelMediaInfo;
 import io.agora.rtc.video.ChannelMediaRelayConfiguration;
-import io.agora.rtm.ErrorInfo;
-import io.agora.rtm.ResultCallback;
 import io.agora.vlive.R;
 import io.agora.vlive.agora.rtm.model.PKStateMessage;
 import io.agora.vlive.agora.rtm.model.SeatStateMessage;
@@ -626,9 +624,6 @@ public class ECommerceLiveActivity extends LiveRoomActivity
 
             if (isOwner && onlineUserActionSheetIsShown()) {
                 runOnUiThread(() -> mOnlineUserInviteActionSheet.append(userList));
-            } else if (mRoomUserListActionSheet != null &&
-                    mRoomUserListActionSheet.isShown()) {
-                runOnUiThread(() -> mRoomUserListActionSheet.appendUsers(userList));
             }
         }
     }
@@ -968,18 +963,7 @@ public class ECommerceLiveActivity extends LiveRoomActivity
     }
 
     private void enterAnotherPkRoom(String roomId) {
-        rtcEngine().leaveChannel();
-        leaveRtmChannel(new ResultCallback<Void>() {
-            @Override
-            public void onSuccess(Void aVoid) {
-
-            }
-
-            @Override
-            public void onFailure(ErrorInfo errorInfo) {
-
-            }
-        });
+        leaveChannels();
 
         sendRequest(Request.LEAVE_ROOM, new RoomRequest(
                 config().getUserProfile().getToken(), this.roomId));
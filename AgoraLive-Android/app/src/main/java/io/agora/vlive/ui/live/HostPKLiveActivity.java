@@ -14,8 +14,6 @@ import com.elvishew.xlog.XLog;
 import io.agora.rtc.Constants;
 import io.agora.rtc.video.ChannelMediaInfo;
 import io.agora.rtc.video.ChannelMediaRelayConfiguration;
-import io.agora.rtm.ErrorInfo;
-import io.agora.rtm.ResultCallback;
 import io.agora.vlive.Config;
 import io.agora.vlive.R;
 import io.agora.vlive.agora.rtm.model.PKStateMessage;
@@ -210,9 +208,6 @@ public class HostPKLiveActivity extends LiveRoomActivity
                     updatePkGiftRank(response.data.room.pk.localRank,
                             response.data.room.pk.remoteRank);
                 }
-
-                joinRtcChannel();
-                joinRtmChannel();
             });
         }
     }
@@ -318,6 +313,7 @@ public class HostPKLiveActivity extends LiveRoomActivity
 
     @Override
     public void onRtcJoinChannelSuccess(String channel, int uid, int elapsed) {
+        super.onRtcJoinChannelSuccess(channel, uid, elapsed);
         if (isOwner && mPendingStartPkRequest && mPendingPkConfig != null) {
             startMediaRelay(mPendingPkConfig);
             mPendingStartPkRequest = false;
@@ -346,18 +342,7 @@ public class HostPKLiveActivity extends LiveRoomActivity
     }
 
     private void enterAnotherPkRoom(String roomId) {
-        rtcEngine().leaveChannel();
-        leaveRtmChannel(new ResultCallback<Void>() {
-            @Override
-            public void onSuccess(Void aVoid) {
-
-            }
-
-            @Override
-            public void onFailure(ErrorInfo errorInfo) {
-
-            }
-        });
+        leaveChannels();
 
         sendRequest(Request.LEAVE_ROOM, new RoomRequest(
                 config().getUserProfile().getToken(), this.roomId));
@@ -72,6 +72,16 @@ public abstract class LiveBaseActivity extends BaseActivity
     protected String rtcChannelName;
 
     private RtmMessageManager mMessageManager;
+    private RoomSession mSession;
+
+    // Set when switching rooms, the channels of the last
+    // room are kept until those of the next are joined.
+    private boolean mSwitchRtc;
+    private boolean mSwitchRtm;
+
+    // Increased by every join and leave of rtm channels, so
+    // that results of joins given up are ignored.
+    private int mRtmGeneration;
     private CameraManager mCameraVideoManager;
     private PreprocessorFaceUnity mFUPreprocessor;
 
@@ -138,6 +148,9 @@ public abstract class LiveBaseActivity extends BaseActivity
         mMessageManager.registerMessageHandler(this);
         mMessageManager.setCallbackThread(new Handler(getMainLooper()));
 
+        SessionChannels channels = new SessionChannels();
+        mSession = new RoomSession(new Handler(getMainLooper()), channels, channels);
+
         initCameraIfNeeded();
     }
 
@@ -176,12 +189,126 @@ public abstract class LiveBaseActivity extends BaseActivity
         return mMessageManager;
     }
 
-    protected void joinRtcChannel() {
-        rtcEngine().setClientRole(myRtcRole);
-        rtcEngine().setVideoSource(new RtcVideoConsumer(VideoModule.instance()));
-        setVideoConfiguration();
-        rtcEngine().joinChannel(config().getUserProfile().getRtcToken(),
-                rtcChannelName, null, (int) config().getUserProfile().getAgoraUid());
+    protected RoomSession roomSession() {
+        return mSession;
+    }
+
+    /**
+     * Joins the rtc and rtm channels of the room entered at
+     * the same time, and retries until both are joined.
+     */
+    protected void joinChannels() {
+        runOnUiThread(() -> mSession.join());
+    }
+
+    /**
+     * Leaves the channels, like before entering another room.
+     */
+    protected void leaveChannels() {
+        if (mSession != null) mSession.leave();
+    }
+
+    /**
+     * Keeps the channels of the current room for the next
+     * room entered. The rtc channel is switched at once by
+     * the engine as audience, without leaving and joining,
+     * and the video source and encoder stay as they are.
+     * The rtm channel is left right before the next one is
+     * joined, since only one is kept by the message manager.
+     */
+    protected void switchChannelsOnNextJoin() {
+        mSwitchRtc = myRtcRole == Constants.CLIENT_ROLE_AUDIENCE;
+        mSwitchRtm = true;
+    }
+
+    protected void cancelChannelSwitch() {
+        mSwitchRtc = false;
+        mSwitchRtm = false;
+    }
+
+    private class SessionChannels implements RoomSession.Channels, RoomSession.Listener {
+        @Override
+        public boolean joinRtc() {
+            if (mSwitchRtc) {
+                // Joined as usual if retried
+                mSwitchRtc = false;
+                int result = rtcEngine().switchChannel(
+                        config().getUserProfile().getRtcToken(), rtcChannelName);
+                if (result == 0) return true;
+                XLog.w("rtc switch channel failed " + rtcChannelName + " error:" + result);
+                rtcEngine().leaveChannel();
+            }
+
+            rtcEngine().setClientRole(myRtcRole);
+            rtcEngine().setVideoSource(new RtcVideoConsumer(VideoModule.instance()));
+            setVideoConfiguration();
+            int result = rtcEngine().joinChannel(config().getUserProfile().getRtcToken(),
+                    rtcChannelName, null, (int) config().getUserProfile().getAgoraUid());
+            if (result != 0) XLog.e("rtc join channel failed " + rtcChannelName + " error:" + result);
+            return result == 0;
+        }
+
+        @Override
+        public boolean joinRtm() {
+            if (mSwitchRtm) {
+                mSwitchRtm = false;
+                mMessageManager.leaveChannel(null);
+            }
+
+            String channel = rtcChannelName;
+            int generation = ++mRtmGeneration;
+            return mMessageManager.joinChannel(channel, new ResultCallback<Void>() {
+                @Override
+                public void onSuccess(Void aVoid) {
+                    XLog.d("on rtm join channel success " + channel);
+                    runOnUiThread(() -> {
+                        if (generation != mRtmGeneration) return;
+                        RoomEntryTrace.mark(roomId, RoomEntryTrace.PHASE_RTM_JOINED);
+                        mSession.onRtmJoined();
+                    });
+                }
+
+                @Override
+                public void onFailure(ErrorInfo errorInfo) {
+                    XLog.e("rtm join channel failed " + channel + " msg:" + errorInfo.toString());
+                    runOnUiThread(() -> {
+                        if (generation == mRtmGeneration) mSession.onRtmJoinFailed();
+                    });
+                }
+            });
+        }
+
+        @Override
+        public void leaveRtc() {
+            rtcEngine().leaveChannel();
+        }
+
+        @Override
+        public void leaveRtm() {
+            mRtmGeneration++;
+            mMessageManager.leaveChannel(null);
+        }
+
+        @Override
+        public boolean isRtcJoined() {
+            return rtcEngine().getConnectionState() == Constants.CONNECTION_STATE_CONNECTED;
+        }
+
+        @Override
+        public void onSessionStateChanged(RoomSession session, int state) {
+            switch (state) {
+                case RoomSession.STATE_READY:
+                    XLog.i("room session ready: " + session.getLatency());
+                    break;
+                case RoomSession.STATE_FAILED:
+                    XLog.e("room session failed: " + session.getLatency());
+                    showLongToast(getString(R.string.live_room_join_failed));
+                    break;
+                case RoomSession.STATE_LEFT:
+                    XLog.i("room session left: " + session.getLatency());
+                    break;
+            }
+        }
     }
 
     protected SurfaceView setupRemoteVideo(int uid) {
@@ -280,24 +407,6 @@ public abstract class LiveBaseActivity extends BaseActivity
         }
     }
 
-    protected void joinRtmChannel() {
-        mMessageManager.joinChannel(rtcChannelName, new ResultCallback<Void>() {
-            @Override
-            public void onSuccess(Void aVoid) {
-                XLog.d("on rtm join channel success " + rtcChannelName);
-            }
-
-            @Override
-            public void onFailure(ErrorInfo errorInfo) {
-                XLog.e("rtm join channel failed " + rtcChannelName + " msg:" + errorInfo.toString());
-            }
-        });
-    }
-
-    protected void leaveRtmChannel(ResultCallback<Void> callback) {
-        mMessageManager.leaveChannel(callback);
-    }
-
     @Override
     public void onRtmConnectionStateChanged(int state, int reason) {
 
@@ -414,7 +523,7 @@ public abstract class LiveBaseActivity extends BaseActivity
     }
 
     @Override
-    public void onRtmGiftMessage(String fromUserId, String fromUserName, String toUserId, String toUserName, int giftId) {
+    public void onRtmGiftMessage(String fromUserId, String fromUserName, String toUserId, String toUserName, int giftId, int count) {
 
     }
 
@@ -440,12 +549,24 @@ public abstract class LiveBaseActivity extends BaseActivity
 
     @Override
     public void onRtcJoinChannelSuccess(String channel, int uid, int elapsed) {
-
+        runOnUiThread(() -> {
+            if (mSession != null) mSession.onRtcJoined();
+        });
     }
 
     @Override
     public void onRtcRemoteVideoStateChanged(int uid, int state, int reason, int elapsed) {
+        if (state != Constants.REMOTE_VIDEO_STATE_DECODING) return;
+        runOnUiThread(() -> {
+            if (mSession != null) mSession.onFirstRemoteFrame();
+        });
+    }
 
+    @Override
+    public void onRtcFirstLocalVideoFrame(int width, int height, int elapsed) {
+        runOnUiThread(() -> {
+            if (mSession != null) mSession.onFirstLocalFrame();
+        });
     }
 
     @Override
@@ -482,21 +603,7 @@ public abstract class LiveBaseActivity extends BaseActivity
     @Override
     public void finish() {
         super.finish();
-        rtcEngine().leaveChannel();
-
-        if (mMessageManager != null) {
-            mMessageManager.removeMessageHandler(this);
-            mMessageManager.leaveChannel(new ResultCallback<Void>() {
-                @Override
-                public void onSuccess(Void aVoid) {
-
-                }
-
-                @Override
-                public void onFailure(ErrorInfo errorInfo) {
-
-                }
-            });
-        }
+        leaveChannels();
+        if (mMessageManager != null) mMessageManager.removeMessageHandler(this);
     }
 }
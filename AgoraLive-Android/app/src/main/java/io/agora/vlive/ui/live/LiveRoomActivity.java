@@ -12,14 +12,18 @@ import android.net.NetworkInfo;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextUtils;
+import android.view.GestureDetector;
 import android.view.KeyEvent;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.widget.AppCompatEditText;
 
 import com.elvishew.xlog.XLog;
@@ -27,6 +31,7 @@ import com.elvishew.xlog.XLog;
 import java.util.ArrayList;
 import java.util.List;
 
+import io.agora.rtc.Constants;
 import io.agora.rtc.IRtcEngineEventHandler;
 import io.agora.rtm.ErrorInfo;
 import io.agora.rtm.ResultCallback;
@@ -35,12 +40,11 @@ import io.agora.vlive.R;
 import io.agora.vlive.agora.rtm.model.GiftRankMessage;
 import io.agora.vlive.agora.rtm.model.NotificationMessage;
 import io.agora.vlive.protocol.ClientProxy;
-import io.agora.vlive.protocol.model.model.UserProfile;
+import io.agora.vlive.protocol.RequestFuture;
 import io.agora.vlive.protocol.model.request.CreateRoomRequest;
 import io.agora.vlive.protocol.model.request.Request;
 import io.agora.vlive.protocol.model.request.RoomRequest;
 import io.agora.vlive.protocol.model.request.SendGiftRequest;
-import io.agora.vlive.protocol.model.response.AudienceListResponse;
 import io.agora.vlive.protocol.model.response.CreateRoomResponse;
 import io.agora.vlive.protocol.model.response.EnterRoomResponse;
 import io.agora.vlive.protocol.model.response.Response;
@@ -51,13 +55,12 @@ import io.agora.vlive.ui.actionsheets.LiveRoomUserListActionSheet;
 import io.agora.vlive.ui.actionsheets.LiveRoomSettingActionSheet;
 import io.agora.vlive.ui.actionsheets.toolactionsheet.LiveRoomToolActionSheet;
 import io.agora.vlive.ui.actionsheets.VoiceActionSheet;
-import io.agora.vlive.ui.components.GiftAnimWindow;
+import io.agora.vlive.ui.components.GiftAnimView;
 import io.agora.vlive.ui.components.bottomLayout.LiveBottomButtonLayout;
 import io.agora.vlive.ui.components.LiveMessageEditLayout;
 import io.agora.vlive.ui.components.LiveRoomMessageList;
 import io.agora.vlive.ui.components.LiveRoomUserLayout;
 import io.agora.vlive.ui.components.RtcStatsView;
-import io.agora.vlive.utils.GiftUtil;
 import io.agora.vlive.utils.Global;
 
 public abstract class LiveRoomActivity extends LiveBaseActivity implements
@@ -91,6 +94,7 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
     protected InputMethodManager inputMethodManager;
 
     private LiveRoomUserListActionSheet mRoomUserActionSheet;
+    private GiftAnimView mGiftAnimView;
 
     // Rtc Engine requires that the calls of startAudioMixing
     // should not be too frequent if online musics are played.
@@ -98,6 +102,16 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
     private volatile long mLastMusicPlayedTimeStamp;
 
     private boolean mActivityFinished;
+
+    // The rooms of the list that the audience can swipe to,
+    // and the room being switched from until the next room
+    // is entered.
+    private ArrayList<String> mRoomIds;
+    private GestureDetector mSwipeDetector;
+    private volatile String mSwitchedFromRoomId;
+    private volatile int mSwitchEnterType;
+    private volatile long mSwitchSentTime;
+
     protected boolean inEarMonitorEnabled;
     private boolean mHeadsetWithMicrophonePlugged;
 
@@ -119,6 +133,12 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        RoomEntryTrace.mark(roomId, RoomEntryTrace.PHASE_CREATE);
+
+        mRoomIds = getIntent().getStringArrayListExtra(Global.Constants.KEY_ROOM_ID_LIST);
+        if (supportsRoomSwitch() && mRoomIds != null && mRoomIds.size() > 1) {
+            mSwipeDetector = new GestureDetector(this, new RoomSwipeListener());
+        }
 
         getWindow().getDecorView().getViewTreeObserver()
                 .addOnGlobalLayoutListener(this::detectKeyboardLayout);
@@ -224,8 +244,64 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
     }
 
     protected void enterRoom(String roomId) {
-        RoomRequest request = new RoomRequest(config().getUserProfile().getToken(), roomId);
-        sendRequest(Request.ENTER_ROOM, request);
+        // The room may have been entered when its card
+        // was pressed in the room list.
+        RequestFuture<EnterRoomResponse> future =
+                isOwner ? null : RoomPreJoin.instance().take(roomId);
+        int enterType = future != null ? RoomSession.ENTER_PRE_JOINED
+                : mSwitchedFromRoomId != null ? RoomSession.ENTER_SWITCHED
+                : RoomSession.ENTER_NORMAL;
+        long sentTime = RoomSession.now();
+        if (mSwitchedFromRoomId != null) {
+            // The session of the last room goes on until
+            // the next room is entered
+            mSwitchEnterType = enterType;
+            mSwitchSentTime = sentTime;
+        } else {
+            runOnUiThread(() -> roomSession().onEnterSent(enterType, sentTime));
+        }
+        if (future != null) {
+            RoomEntryTrace.mark(roomId, RoomEntryTrace.PHASE_ENTER_TAKEN);
+        } else {
+            RoomEntryTrace.mark(roomId, RoomEntryTrace.PHASE_ENTER_SENT);
+            RoomRequest request = new RoomRequest(config().getUserProfile().getToken(), roomId);
+            future = proxy().requestEnterRoom(request);
+        }
+
+        // Not cancelled with the activity, since the request
+        // may have reached the server. The response is handled
+        // in the UI thread, where the activity is known to be
+        // destroyed or not.
+        future.then(new RequestFuture.Callback<EnterRoomResponse>() {
+            @Override
+            public void onSuccess(@NonNull EnterRoomResponse response) {
+                runOnUiThread(() -> {
+                    if (isDestroyed()) {
+                        leaveUnusedRoom(response);
+                    } else {
+                        onEnterRoomResponse(response);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(int requestType, int error, String message) {
+                runOnUiThread(() -> {
+                    if (!isDestroyed()) onResponseError(requestType, error, message);
+                });
+            }
+        });
+    }
+
+    /**
+     * Leaves the room entered after the activity is
+     * destroyed, whose channels are never joined.
+     */
+    private void leaveUnusedRoom(EnterRoomResponse response) {
+        if (response.code != Response.SUCCESS) return;
+        XLog.i("room " + response.data.room.roomId + " entered after the activity is destroyed, left");
+        proxy().requestLeaveRoom(new RoomRequest(
+                config().getUserProfile().getToken(), response.data.room.roomId));
     }
 
     @Override
@@ -238,12 +314,29 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
             rtcChannelName = response.data.room.channelName;
             roomId = response.data.room.roomId;
             roomName = response.data.room.roomName;
+            RoomEntryTrace.mark(roomId, RoomEntryTrace.PHASE_ENTER_RECEIVED);
+
+            // The last room is left on the server only when
+            // the next one is entered.
+            String lastRoomId = mSwitchedFromRoomId;
+            if (lastRoomId != null) {
+                mSwitchedFromRoomId = null;
+                leaveRoom(lastRoomId);
+                int enterType = mSwitchEnterType;
+                long sentTime = mSwitchSentTime;
+                runOnUiThread(() -> {
+                    messageList.clearMessages();
+                    roomSession().onEnterSent(enterType, sentTime);
+                });
+            }
 
-            joinRtcChannel();
-            joinRtmChannel();
+            joinChannels();
 
             initUserCount(response.data.room.currentUsers,
                     response.data.room.rankUsers);
+            runOnUiThread(() -> giftAnimView().prefetch());
+        } else {
+            cancelRoomSwitch();
         }
     }
 
@@ -474,22 +567,6 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
         mRoomUserActionSheet.requestMoreAudience();
     }
 
-    @Override
-    public void onAudienceListResponse(AudienceListResponse response) {
-        List<UserProfile> userList = new ArrayList<>();
-        for (AudienceListResponse.AudienceInfo info : response.data.list) {
-            UserProfile profile = new UserProfile();
-            profile.setUserId(info.userId);
-            profile.setUserName(info.userName);
-            profile.setAvatar(info.avatar);
-            userList.add(profile);
-        }
-
-        if (mRoomUserActionSheet != null && mRoomUserActionSheet.getVisibility() == View.VISIBLE) {
-            runOnUiThread(() -> mRoomUserActionSheet.appendUsers(userList));
-        }
-    }
-
     @Override
     public void onActionSheetUserListItemSelected(String userId, String userName) {
         // Called when clicking an online user's name, and want to see the detail
@@ -519,18 +596,29 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
     }
 
     @Override
-    public void onRtmGiftMessage(String fromUserId, String fromUserName, String toUserId, String toUserName, int giftId) {
+    public void onRtmGiftMessage(String fromUserId, String fromUserName, String toUserId, String toUserName, int giftId, int count) {
         runOnUiThread(() -> {
             String from = TextUtils.isEmpty(fromUserName) ? fromUserId : fromUserName;
-            String to = TextUtils.isEmpty(toUserName) ? toUserId : toUserName;
-            messageList.addMessage(LiveRoomMessageList.MSG_TYPE_GIFT, from, to, giftId);
-
-            GiftAnimWindow window = new GiftAnimWindow(LiveRoomActivity.this, R.style.gift_anim_window);
-            window.setAnimResource(GiftUtil.getGiftAnimRes(giftId));
-            window.show();
+            messageList.addGiftMessage(from, giftId, count);
+            giftAnimView().showGift(fromUserId, giftId, count);
         });
     }
 
+    /**
+     * The overlay of gift animations is created when first
+     * used, on top of the content of the room.
+     */
+    private GiftAnimView giftAnimView() {
+        if (mGiftAnimView == null) {
+            mGiftAnimView = new GiftAnimView(this);
+            ViewGroup content = findViewById(android.R.id.content);
+            content.addView(mGiftAnimView, new ViewGroup.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.MATCH_PARENT));
+        }
+        return mGiftAnimView;
+    }
+
     @Override
     public void onRtmChannelNotification(int total, List<NotificationMessage.NotificationItem> list) {
         // User enter & leave notifications.
@@ -558,13 +646,20 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
 
     @Override
     public void onRtcJoinChannelSuccess(String channel, int uid, int elapsed) {
+        super.onRtcJoinChannelSuccess(channel, uid, elapsed);
         XLog.d("onRtcJoinChannelSuccess:" + channel + " uid:" + (uid & 0xFFFFFFFFL));
+        RoomEntryTrace.mark(roomId, RoomEntryTrace.PHASE_RTC_JOINED);
     }
 
     @Override
     public void onRtcRemoteVideoStateChanged(int uid, int state, int reason, int elapsed) {
+        super.onRtcRemoteVideoStateChanged(uid, state, reason, elapsed);
         XLog.d("onRtcRemoteVideoStateChanged: " + (uid & 0xFFFFFFFFL) +
                 " state:" + state + " reason:" + reason);
+        if (state == Constants.REMOTE_VIDEO_STATE_DECODING) {
+            String trace = RoomEntryTrace.finish(roomId, RoomEntryTrace.PHASE_FIRST_FRAME);
+            if (trace != null) XLog.i(trace);
+        }
     }
 
     @Override
@@ -630,15 +725,95 @@ public abstract class LiveRoomActivity extends LiveBaseActivity implements
     public void onDestroy() {
         super.onDestroy();
         unregisterReceiver(mHeadPhoneReceiver);
+
+        // Left before any frame is shown
+        String trace = RoomEntryTrace.finish(roomId, RoomEntryTrace.PHASE_LEFT);
+        if (trace != null) XLog.i(trace);
     }
 
     @Override
     public void onResponseError(int requestType, int error, String message) {
         XLog.e("request:" + requestType + " error:" + error + " msg:" + message);
+        if (requestType == Request.ENTER_ROOM) cancelRoomSwitch();
         runOnUiThread(() -> showLongToast("request type: "+
                 Request.getRequestString(requestType) + " " + message));
     }
 
+    /**
+     * Stays in the last room if the next one is not entered.
+     * Its channels, session and messages are kept as they
+     * are, since they are changed only once entered.
+     */
+    private void cancelRoomSwitch() {
+        if (mSwitchedFromRoomId == null) return;
+        mSwitchedFromRoomId = null;
+        runOnUiThread(this::cancelChannelSwitch);
+    }
+
+    /**
+     * @return true if the audience can swipe up or down to
+     * the next or previous room of the list in place. The
+     * room is entered again by onEnterRoomResponse, which
+     * must set up the views of the room from scratch.
+     */
+    protected boolean supportsRoomSwitch() {
+        return false;
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (mSwipeDetector != null) mSwipeDetector.onTouchEvent(event);
+        return super.dispatchTouchEvent(event);
+    }
+
+    private boolean canSwitchRoom() {
+        return !isOwner && !isHost && mInputMethodHeight == 0 &&
+                mSwitchedFromRoomId == null &&
+                roomSession().getState() != RoomSession.STATE_ENTERING &&
+                roomSession().getState() != RoomSession.STATE_JOINING;
+    }
+
+    private class RoomSwipeListener extends GestureDetector.SimpleOnGestureListener {
+        @Override
+        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+            if (e1 == null || e2 == null || !canSwitchRoom()) return false;
+
+            // The messages scroll vertically too
+            Rect rect = new Rect();
+            if (messageList != null && messageList.getGlobalVisibleRect(rect) &&
+                    rect.contains((int) e1.getRawX(), (int) e1.getRawY())) {
+                return false;
+            }
+
+            float dx = e2.getX() - e1.getX();
+            float dy = e2.getY() - e1.getY();
+            int minDistance = getResources().getDisplayMetrics().heightPixels / 6;
+            if (Math.abs(dy) < minDistance || Math.abs(dy) < Math.abs(dx) * 2) return false;
+
+            // Swiping up shows the next room
+            int index = mRoomIds.indexOf(roomId);
+            int next = dy < 0 ? index + 1 : index - 1;
+            if (index < 0 || next < 0 || next >= mRoomIds.size()) return false;
+            switchRoom(mRoomIds.get(next));
+            return true;
+        }
+    }
+
+    /**
+     * Enters another room in place, with the engines, the
+     * camera and its preprocessor kept as they are. The
+     * channels of this room are kept until those of the next
+     * room are joined, and this room is left on the server
+     * when the next one is entered, which is when its session
+     * and messages are cleared.
+     */
+    protected void switchRoom(String nextRoomId) {
+        RoomEntryTrace.begin(nextRoomId, RoomEntryTrace.PHASE_SWIPE);
+        mSwitchedFromRoomId = roomId;
+        switchChannelsOnNextJoin();
+        enterRoom(nextRoomId);
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -19,8 +19,6 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.widget.AppCompatImageView;
 import androidx.appcompat.widget.AppCompatTextView;
 
-import com.elvishew.xlog.XLog;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -48,7 +46,7 @@ import io.agora.vlive.ui.components.bottomLayout.LiveBottomButtonLayout;
 import io.agora.vlive.ui.components.LiveMultiHostSeatLayout;
 import io.agora.vlive.ui.components.LiveMessageEditLayout;
 import io.agora.vlive.ui.components.SeatItemDialog;
-import io.agora.vlive.ui.components.VoiceIndicateGifView;
+import io.agora.vlive.ui.components.VoiceIndicateView;
 import io.agora.vlive.utils.Global;
 import io.agora.vlive.utils.UserUtil;
 
@@ -73,7 +71,7 @@ public class MultiHostLiveActivity extends LiveRoomActivity implements View.OnCl
         FrameLayout userLayout;
         AppCompatImageView profileImage;
         AppCompatImageView audioMuteIcon;
-        VoiceIndicateGifView mIndicateView;
+        VoiceIndicateView mIndicateView;
         AppCompatTextView ownerNameText;
 
         // for local rendering
@@ -355,11 +353,6 @@ public class MultiHostLiveActivity extends LiveRoomActivity implements View.OnCl
         bottomButtons.clearStates(application());
     }
 
-    @Override
-    public void onRtcJoinChannelSuccess(String channel, int uid, int elapsed) {
-        XLog.i("onRtcJoinChannelSuccess:" + channel + " uid:" + (uid & 0xFFFFFFFFL));
-    }
-
     @Override
     public void onEnterRoomResponse(EnterRoomResponse response) {
         super.onEnterRoomResponse(response);
@@ -603,11 +596,11 @@ public class MultiHostLiveActivity extends LiveRoomActivity implements View.OnCl
             for (IRtcEngineEventHandler.AudioVolumeInfo info : speakers) {
                 if (isOwner && info.uid == 0 || info.uid == ownerRtcUid) {
                     mOwnerUIManager.startVoiceIndicateAnim();
+                    break;
                 }
-
-                mSeatLayout.audioIndicate(speakers, (int) config().getUserProfile().getAgoraUid());
             }
 
+            mSeatLayout.audioIndicate(speakers, (int) config().getUserProfile().getAgoraUid());
         });
     }
 
@@ -0,0 +1,101 @@
+package io.agora.vlive.ui.live;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Times the phases of entering a room as audience, from the
+ * room card being pressed, or the previous room swiped away,
+ * to the first frame of the host being decoded. Only one
+ * room is entered at a time, and phases of other rooms are
+ * ignored, like those of rooms created by the user.
+ * Phases are marked in the UI thread and in the threads of
+ * the engines.
+ */
+public class RoomEntryTrace {
+    public static final String PHASE_PRESS = "press";
+    public static final String PHASE_PRE_JOIN = "pre_join";
+    public static final String PHASE_CLICK = "click";
+    public static final String PHASE_SWIPE = "swipe";
+    public static final String PHASE_CREATE = "create";
+    public static final String PHASE_ENTER_SENT = "enter_sent";
+    public static final String PHASE_ENTER_TAKEN = "enter_taken";
+    public static final String PHASE_ENTER_RECEIVED = "enter_received";
+    public static final String PHASE_RTC_JOINED = "rtc_joined";
+    public static final String PHASE_RTM_JOINED = "rtm_joined";
+    public static final String PHASE_FIRST_FRAME = "first_frame";
+    public static final String PHASE_LEFT = "left";
+
+    private static RoomEntryTrace sCurrent;
+
+    private final String mRoomId;
+    private final long mStartTime;
+    private final Map<String, Long> mPhases = new LinkedHashMap<>();
+
+    private RoomEntryTrace(String roomId, long startTime) {
+        mRoomId = roomId;
+        mStartTime = startTime;
+    }
+
+    /**
+     * Starts tracing a room, or goes on with the trace of
+     * the room if the phase has not been marked, like a
+     * click after the press.
+     */
+    public static synchronized void begin(String roomId, String phase) {
+        if (roomId == null) return;
+        long now = now();
+        if (sCurrent == null || !roomId.equals(sCurrent.mRoomId) ||
+                sCurrent.mPhases.containsKey(phase)) {
+            sCurrent = new RoomEntryTrace(roomId, now);
+        }
+        sCurrent.mPhases.put(phase, now);
+    }
+
+    /**
+     * Only the first time of a phase is kept.
+     */
+    public static synchronized void mark(String roomId, String phase) {
+        if (!isTracing(roomId) || sCurrent.mPhases.containsKey(phase)) return;
+        sCurrent.mPhases.put(phase, now());
+    }
+
+    /**
+     * Marks the last phase and stops tracing the room.
+     * @return the phases to log, or null if the room
+     * is not traced
+     */
+    public static synchronized String finish(String roomId, String phase) {
+        if (!isTracing(roomId)) return null;
+        mark(roomId, phase);
+        String trace = sCurrent.toString();
+        sCurrent = null;
+        return trace;
+    }
+
+    private static boolean isTracing(String roomId) {
+        return roomId != null && sCurrent != null && roomId.equals(sCurrent.mRoomId);
+    }
+
+    /**
+     * @return every phase from the start of the trace, and
+     * from the phase before
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("enter room " + mRoomId);
+        long last = mStartTime;
+        for (Map.Entry<String, Long> entry : mPhases.entrySet()) {
+            long time = entry.getValue();
+            builder.append(String.format(Locale.getDefault(), "\n%s: +%d ms (%d ms)",
+                    entry.getKey(), time - mStartTime, time - last));
+            last = time;
+        }
+        return builder.toString();
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
@@ -0,0 +1,144 @@
+package io.agora.vlive.ui.live;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.elvishew.xlog.XLog;
+
+import io.agora.rtc.Constants;
+import io.agora.rtc.RtcEngine;
+import io.agora.vlive.protocol.ClientProxy;
+import io.agora.vlive.protocol.RequestFuture;
+import io.agora.vlive.protocol.model.request.RoomRequest;
+import io.agora.vlive.protocol.model.response.EnterRoomResponse;
+import io.agora.vlive.protocol.model.response.Response;
+
+/**
+ * Enters a room speculatively when its card is pressed in
+ * the room list, so that the response of entering the room,
+ * which has the channel, the tokens and the seats of the
+ * room, is on the way or has come when the live activity
+ * asks for it. The rtc engine is set as audience meanwhile.
+ * A room entered but not taken by the activity in a while,
+ * like when the press turns out to be a scroll, is left.
+ * Called in the UI thread.
+ */
+public class RoomPreJoin {
+    // Long enough for a press to become a click
+    private static final long PRESS_EXPIRE = 3 * 1000;
+
+    // Long enough for the activity to start and get
+    // the permissions it needs
+    private static final long CLICK_EXPIRE = 15 * 1000;
+
+    private volatile static RoomPreJoin sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mExpireRunnable = this::expire;
+
+    private ClientProxy mProxy;
+    private String mToken;
+    private String mRoomId;
+    private RequestFuture<EnterRoomResponse> mFuture;
+
+    private int mPreparedCount;
+    private int mTakenCount;
+
+    public static RoomPreJoin instance() {
+        if (sInstance == null) {
+            synchronized (RoomPreJoin.class) {
+                if (sInstance == null) {
+                    sInstance = new RoomPreJoin();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private RoomPreJoin() {
+
+    }
+
+    /**
+     * Enters the room unless it is being entered, and
+     * leaves the room entered before.
+     * @param engine null if the engine is not created
+     */
+    public void prepare(@NonNull ClientProxy proxy, RtcEngine engine, String token, String roomId) {
+        if (token == null || roomId == null) return;
+        if (!roomId.equals(mRoomId)) {
+            expire();
+            mProxy = proxy;
+            mToken = token;
+            mRoomId = roomId;
+            mFuture = proxy.requestEnterRoom(new RoomRequest(token, roomId));
+            mPreparedCount++;
+            RoomEntryTrace.mark(roomId, RoomEntryTrace.PHASE_PRE_JOIN);
+
+            // Users enter rooms of the list as audience
+            if (engine != null) engine.setClientRole(Constants.CLIENT_ROLE_AUDIENCE);
+        }
+
+        mHandler.removeCallbacks(mExpireRunnable);
+        mHandler.postDelayed(mExpireRunnable, PRESS_EXPIRE);
+    }
+
+    /**
+     * The room is clicked, and is kept for the activity.
+     */
+    public void commit(String roomId) {
+        if (roomId == null || !roomId.equals(mRoomId)) return;
+        mHandler.removeCallbacks(mExpireRunnable);
+        mHandler.postDelayed(mExpireRunnable, CLICK_EXPIRE);
+    }
+
+    /**
+     * @return the pending or received response of entering
+     * the room, or null if the room is not prepared. The
+     * room is not left by this class any more, but by the
+     * activity if it is destroyed before the room is used.
+     */
+    public RequestFuture<EnterRoomResponse> take(String roomId) {
+        if (roomId == null || !roomId.equals(mRoomId)) return null;
+        mHandler.removeCallbacks(mExpireRunnable);
+        RequestFuture<EnterRoomResponse> future = mFuture;
+        clear();
+        mTakenCount++;
+        XLog.i("room pre-join taken " + mTakenCount + " of " + mPreparedCount);
+        return future;
+    }
+
+    private void expire() {
+        if (mFuture == null) return;
+        mHandler.removeCallbacks(mExpireRunnable);
+
+        // The request may have reached the server even if
+        // the response has not come, so the room is left
+        // after it is entered instead of cancelling it.
+        ClientProxy proxy = mProxy;
+        RoomRequest request = new RoomRequest(mToken, mRoomId);
+        mFuture.then(new RequestFuture.Callback<EnterRoomResponse>() {
+            @Override
+            public void onSuccess(@NonNull EnterRoomResponse response) {
+                if (response.code == Response.SUCCESS) {
+                    proxy.requestLeaveRoom(request);
+                }
+            }
+
+            @Override
+            public void onFailure(int requestType, int error, String message) {
+
+            }
+        });
+        clear();
+    }
+
+    private void clear() {
+        mProxy = null;
+        mToken = null;
+        mRoomId = null;
+        mFuture = null;
+    }
+}
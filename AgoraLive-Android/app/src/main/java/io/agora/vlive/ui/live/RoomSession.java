@@ -0,0 +1,329 @@
+package io.agora.vlive.ui.live;
+
+import android.os.Handler;
+
+import java.util.Locale;
+
+/**
+ * The connections of a live room. The rtc channel and the
+ * rtm channel are joined at the same time once the room is
+ * entered, and the session is ready when both are joined.
+ * A join that fails, or does not succeed in JOIN_TIMEOUT,
+ * is retried after a delay doubling from RETRY_DELAY, and
+ * the session fails after MAX_RETRIES retries.
+ * The times of entering the room, of both joins and of the
+ * first frames are kept as the latency of the session.
+ * Called in the UI thread.
+ */
+class RoomSession {
+    static final int STATE_IDLE = 0;
+    static final int STATE_ENTERING = 1;
+    static final int STATE_JOINING = 2;
+    static final int STATE_READY = 3;
+    static final int STATE_FAILED = 4;
+    static final int STATE_LEFT = 5;
+
+    // How the room is entered
+    static final int ENTER_NORMAL = 0;
+    static final int ENTER_PRE_JOINED = 1;
+    static final int ENTER_SWITCHED = 2;
+
+    static final long JOIN_TIMEOUT = 10 * 1000;
+    static final long RETRY_DELAY = 500;
+    static final long MAX_RETRY_DELAY = 8 * 1000;
+    static final int MAX_RETRIES = 4;
+
+    interface Channels {
+        /**
+         * @return false if the join fails at once
+         */
+        boolean joinRtc();
+
+        boolean joinRtm();
+
+        /**
+         * Leaves a channel whose join has failed or timed
+         * out before joining it again, or when the session
+         * is left.
+         */
+        void leaveRtc();
+
+        void leaveRtm();
+
+        /**
+         * @return true if the rtc channel is joined, in case
+         * the callback of joining has been missed
+         */
+        boolean isRtcJoined();
+    }
+
+    interface Listener {
+        void onSessionStateChanged(RoomSession session, int state);
+    }
+
+    private final Handler mHandler;
+    private final Channels mChannels;
+    private final Listener mListener;
+
+    private final Link mRtc = new Link("rtc", true);
+    private final Link mRtm = new Link("rtm", false);
+
+    private int mState = STATE_IDLE;
+    private int mEnterType;
+
+    // From when entering the room is requested
+    private long mStartTime;
+    private long mEnterTime = -1;
+    private long mReadyTime = -1;
+    private long mFirstLocalFrameTime = -1;
+    private long mFirstRemoteFrameTime = -1;
+
+    /**
+     * @param handler to retry later; joins are not retried
+     *                if null, until retried by hand.
+     */
+    RoomSession(Handler handler, Channels channels, Listener listener) {
+        mHandler = handler;
+        mChannels = channels;
+        mListener = listener;
+    }
+
+    int getState() {
+        return mState;
+    }
+
+    boolean isReady() {
+        return mState == STATE_READY;
+    }
+
+    /**
+     * Starts a new session, when entering a room is requested
+     * or taken from the room list.
+     * @param type ENTER_PRE_JOINED if the room has been
+     *             entered when its card is pressed in the
+     *             room list, ENTER_SWITCHED if switched from
+     *             another room whose channels are still joined
+     */
+    void onEnterSent(int type) {
+        onEnterSent(type, now());
+    }
+
+    /**
+     * Starts a new session whose request was sent before,
+     * like when switching rooms, where the session of the
+     * last room goes on until the next room is entered.
+     * @param sentTime in the time base of now()
+     */
+    void onEnterSent(int type, long sentTime) {
+        mRtc.reset();
+        mRtm.reset();
+        mEnterType = type;
+        mStartTime = sentTime;
+        mEnterTime = -1;
+        mReadyTime = -1;
+        mFirstLocalFrameTime = -1;
+        mFirstRemoteFrameTime = -1;
+        setState(STATE_ENTERING);
+    }
+
+    /**
+     * The room is entered, and both channels are joined.
+     * A session whose start is not known, like when a room
+     * is entered again for a switch, starts here.
+     */
+    void join() {
+        if (mState != STATE_ENTERING) onEnterSent(ENTER_NORMAL);
+        mEnterTime = now() - mStartTime;
+        setState(STATE_JOINING);
+        mRtc.join();
+        mRtm.join();
+    }
+
+    void onRtcJoined() {
+        mRtc.onJoined();
+    }
+
+    void onRtcJoinFailed() {
+        mRtc.onFailed();
+    }
+
+    void onRtmJoined() {
+        mRtm.onJoined();
+    }
+
+    void onRtmJoinFailed() {
+        mRtm.onFailed();
+    }
+
+    void onFirstLocalFrame() {
+        if (mState == STATE_IDLE || mState == STATE_LEFT || mFirstLocalFrameTime >= 0) return;
+        mFirstLocalFrameTime = now() - mStartTime;
+    }
+
+    void onFirstRemoteFrame() {
+        if (mState == STATE_IDLE || mState == STATE_LEFT || mFirstRemoteFrameTime >= 0) return;
+        mFirstRemoteFrameTime = now() - mStartTime;
+    }
+
+    /**
+     * Leaves both channels and stops retrying.
+     */
+    void leave() {
+        if (mState == STATE_IDLE || mState == STATE_LEFT) return;
+        mRtc.cancel();
+        mRtm.cancel();
+        mChannels.leaveRtc();
+        mChannels.leaveRtm();
+        setState(STATE_LEFT);
+    }
+
+    /**
+     * Retries the joins waiting for their delays at once.
+     */
+    void retry() {
+        if (mRtc.waiting) mRtc.join();
+        if (mRtm.waiting) mRtm.join();
+    }
+
+    private void setState(int state) {
+        if (mState == state) return;
+        mState = state;
+        if (mListener != null) mListener.onSessionStateChanged(this, state);
+    }
+
+    private void checkReady() {
+        if (mState == STATE_JOINING && mRtc.joined && mRtm.joined) {
+            mReadyTime = now() - mStartTime;
+            setState(STATE_READY);
+        }
+    }
+
+    private void schedule(Runnable runnable, long delay) {
+        if (mHandler == null) return;
+        mHandler.removeCallbacks(runnable);
+        mHandler.postDelayed(runnable, delay);
+    }
+
+    private void unschedule(Runnable runnable) {
+        if (mHandler != null) mHandler.removeCallbacks(runnable);
+    }
+
+    static long retryDelay(int retries) {
+        return Math.min(MAX_RETRY_DELAY, RETRY_DELAY << Math.min(retries, 16));
+    }
+
+    /**
+     * One of the two channels
+     */
+    private class Link {
+        final String name;
+        final boolean rtc;
+        final Runnable timeoutRunnable = this::onTimeout;
+        final Runnable retryRunnable = this::join;
+
+        boolean joining;
+        boolean joined;
+        boolean waiting;
+        int retries;
+        long joinTime = -1;
+
+        Link(String name, boolean rtc) {
+            this.name = name;
+            this.rtc = rtc;
+        }
+
+        void reset() {
+            cancel();
+            joining = false;
+            joined = false;
+            retries = 0;
+            joinTime = -1;
+        }
+
+        void cancel() {
+            unschedule(timeoutRunnable);
+            unschedule(retryRunnable);
+            waiting = false;
+        }
+
+        void join() {
+            if (mState != STATE_JOINING || joined || joining) return;
+            waiting = false;
+            joining = true;
+            schedule(timeoutRunnable, JOIN_TIMEOUT);
+            if (!(rtc ? mChannels.joinRtc() : mChannels.joinRtm())) onFailed();
+        }
+
+        void onJoined() {
+            if (mState != STATE_JOINING || joined) return;
+            unschedule(timeoutRunnable);
+            joining = false;
+            joined = true;
+            joinTime = now() - mStartTime - mEnterTime;
+            checkReady();
+        }
+
+        void onTimeout() {
+            if (rtc && mChannels.isRtcJoined()) {
+                onJoined();
+            } else {
+                onFailed();
+            }
+        }
+
+        void onFailed() {
+            if (mState != STATE_JOINING || joined || !joining) return;
+            unschedule(timeoutRunnable);
+            joining = false;
+            if (rtc) {
+                mChannels.leaveRtc();
+            } else {
+                mChannels.leaveRtm();
+            }
+
+            if (retries >= MAX_RETRIES) {
+                mRtc.cancel();
+                mRtm.cancel();
+                setState(STATE_FAILED);
+                return;
+            }
+
+            waiting = true;
+            schedule(retryRunnable, retryDelay(retries++));
+        }
+
+        String latency() {
+            String time = joinTime < 0 ? "-" : joinTime + " ms";
+            return String.format(Locale.getDefault(), "%s join %s (%d retries)", name, time, retries);
+        }
+    }
+
+    /**
+     * @return the time of each phase, the joins are from
+     * when the room is entered and the others from the
+     * request of entering the room
+     */
+    String getLatency() {
+        return String.format(Locale.getDefault(),
+                "enter %s%s, %s, %s, ready %s, first local frame %s, first remote frame %s",
+                time(mEnterTime), enterTypeName(),
+                mRtc.latency(), mRtm.latency(), time(mReadyTime),
+                time(mFirstLocalFrameTime), time(mFirstRemoteFrameTime));
+    }
+
+    private String enterTypeName() {
+        switch (mEnterType) {
+            case ENTER_PRE_JOINED: return " (pre-joined)";
+            case ENTER_SWITCHED: return " (switched)";
+            default: return "";
+        }
+    }
+
+    private static String time(long time) {
+        return time < 0 ? "-" : time + " ms";
+    }
+
+    static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
@@ -155,6 +155,11 @@ public class SingleHostLiveActivity extends LiveRoomActivity implements View.OnC
         }
     }
 
+    @Override
+    protected boolean supportsRoomSwitch() {
+        return true;
+    }
+
     private void becomesOwner(boolean audioMuted, boolean videoMuted) {
         if (!videoMuted) startCameraCapture();
         bottomButtons.setRole(LiveBottomButtonLayout.ROLE_OWNER);
@@ -181,6 +186,8 @@ public class SingleHostLiveActivity extends LiveRoomActivity implements View.OnC
     }
 
     private void setupRemotePreview() {
+        // The host of the last room when switched
+        mVideoLayout.removeAllViews();
         SurfaceView surfaceView = setupRemoteVideo(ownerRtcUid);
         mVideoLayout.addView(surfaceView);
     }
@@ -16,6 +16,7 @@ import java.lang.reflect.Field;
 
 import io.agora.rtm.ErrorInfo;
 import io.agora.rtm.ResultCallback;
+import io.agora.vlive.AgoraLiveApplication;
 import io.agora.vlive.Config;
 import io.agora.vlive.R;
 import io.agora.vlive.protocol.model.request.Request;
@@ -35,6 +36,10 @@ public class MainActivity extends BaseActivity {
     private static final int NETWORK_CHECK_INTERVAL = 10000;
     private static final int MAX_PERIODIC_APP_ID_TRY_COUNT = 5;
 
+    private static final String STARTUP_MUSIC_CACHE = "music_cache";
+    private static final String STARTUP_CATALOG = "catalog";
+    private static final String STARTUP_VERSION = "version";
+
     private BottomNavigationView mNavView;
     private NavController mNavController;
     private int mAppIdTryCount;
@@ -100,11 +105,32 @@ public class MainActivity extends BaseActivity {
     }
 
     private void initAsync() {
-        new Thread(() -> {
-            checkUpdate();
-            getGiftList();
-            getMusicList();
-        }).start();
+        application().startup()
+                .add(STARTUP_MUSIC_CACHE, this::loadCachedMusicList)
+                .add(STARTUP_CATALOG, () -> {
+                    getGiftList();
+                    getMusicList();
+                })
+                // The engines created with the cached app id
+                // must not replace those of the response
+                .add(STARTUP_VERSION, this::checkUpdate,
+                        AgoraLiveApplication.STARTUP_ENGINE);
+    }
+
+    /**
+     * Use the music list received last time until
+     * the request gets the latest one.
+     */
+    private void loadCachedMusicList() {
+        MusicListResponse response = proxy().catalogStore()
+                .get(Request.MUSIC_LIST, null, MusicListResponse.class);
+        if (response != null && response.data != null) {
+            runOnUiThread(() -> {
+                if (config().getMusicList().isEmpty()) {
+                    config().setMusicList(response.data);
+                }
+            });
+        }
     }
 
     private void checkUpdate() {
@@ -117,6 +143,8 @@ public class MainActivity extends BaseActivity {
     public void onAppVersionResponse(AppVersionResponse response) {
         config().setVersionInfo(response.data);
         config().setAppId(response.data.config.appId);
+
+        // Created at startup if the app id is the cached one
         application().initEngine(response.data.config.appId);
         mAppIdTryCount = 0;
         login();
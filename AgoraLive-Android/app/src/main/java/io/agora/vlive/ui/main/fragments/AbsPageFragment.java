@@ -2,61 +2,107 @@ package io.agora.vlive.ui.main.fragments;
 
 import android.content.Intent;
 import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.widget.AppCompatImageView;
 import androidx.appcompat.widget.AppCompatTextView;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import io.agora.vlive.Config;
 import io.agora.vlive.R;
+import io.agora.vlive.agora.rtm.RtmLobbyChannel;
+import io.agora.vlive.agora.rtm.model.RoomListChangeMessage;
 import io.agora.vlive.protocol.ClientProxy;
+import io.agora.vlive.protocol.RequestFuture;
+import io.agora.vlive.protocol.RequestGroup;
+import io.agora.vlive.protocol.RoomListCache;
 import io.agora.vlive.protocol.model.model.RoomInfo;
 import io.agora.vlive.protocol.model.request.Request;
 import io.agora.vlive.protocol.model.request.RoomListRequest;
 import io.agora.vlive.protocol.model.response.RoomListResponse;
-import io.agora.vlive.ui.components.SquareRelativeLayout;
+import io.agora.vlive.ui.live.RoomEntryTrace;
+import io.agora.vlive.ui.live.RoomPreJoin;
+import io.agora.vlive.utils.FrameTimeMonitor;
 import io.agora.vlive.utils.Global;
 import io.agora.vlive.utils.UserUtil;
 
-public abstract class AbsPageFragment extends AbstractFragment implements SwipeRefreshLayout.OnRefreshListener {
+public abstract class AbsPageFragment extends AbstractFragment implements
+        SwipeRefreshLayout.OnRefreshListener, RtmLobbyChannel.LobbyListener {
     private static final String TAG = AbsPageFragment.class.getSimpleName();
 
     private static final int SPAN_COUNT = 2;
+
+    // The list is requested periodically only when the
+    // changes of rooms are not received from the lobby.
     private static final int REFRESH_DELAY = 1000 * 60;
 
     // By default, the client asks for 10 more rooms to show in the list
     private static final int REQ_ROOM_COUNT = 10;
 
+    // The next page is requested when the last two rows
+    // of rooms are shown
+    private static final int PREFETCH_DISTANCE = SPAN_COUNT * 2;
+
     private Handler mHandler;
     private PageRefreshRunnable mPageRefreshRunnable;
+    private Runnable mPreJoinRunnable;
 
     private SwipeRefreshLayout mSwipeRefreshLayout;
     private RecyclerView mRecyclerView;
     private RoomListAdapter mAdapter;
+    private RoomListPager mPager;
     private View mNoDataBg;
     private View mNetworkErrorBg;
 
     private int mItemSpacing;
 
+    // Covers are decoded at the size of the room cards
+    private int mCoverSize;
+    private RequestBuilder<Drawable> mCoverRequest;
+    private FrameTimeMonitor mScrollMonitor;
+
+    private boolean mLobbySubscribed;
+    private boolean mLobbyLive;
+
+    // Pages being loaded are cancelled when paused
+    private final RequestGroup mRequests = new RequestGroup();
+    private RequestFuture<RoomListResponse> mPageRequest;
+
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         mHandler = new Handler(Looper.getMainLooper());
         mPageRefreshRunnable = new PageRefreshRunnable();
+        mPager = new RoomListPager((nextId, count) -> requestPage(nextId, count,
+                onGetRoomListType(), null), REQ_ROOM_COUNT, PREFETCH_DISTANCE);
         mItemSpacing = getContainer().getResources()
                 .getDimensionPixelSize(R.dimen.activity_horizontal_margin);
     }
@@ -72,16 +118,23 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
 
         mRecyclerView = layout.findViewById(R.id.host_in_room_list_recycler);
         mRecyclerView.setVisibility(View.VISIBLE);
-        mRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), SPAN_COUNT));
+        GridLayoutManager layoutManager = new GridLayoutManager(getContext(), SPAN_COUNT);
+        mRecyclerView.setLayoutManager(layoutManager);
         mAdapter = new RoomListAdapter();
         mRecyclerView.setAdapter(mAdapter);
         mRecyclerView.addItemDecoration(new RoomListItemDecoration());
+        initCovers();
         mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
             public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState != RecyclerView.SCROLL_STATE_IDLE) {
+                    mScrollMonitor.start();
+                }
+
                 if (newState == RecyclerView.SCROLL_STATE_DRAGGING) {
                     stopRefreshTimer();
                 } else if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    mScrollMonitor.stop();
                     if (mSwipeRefreshLayout.isRefreshing()) {
                         // The swipe layout is refreshing when
                         // we want to refresh the whole page.
@@ -91,17 +144,17 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
                     }
 
                     startRefreshTimer();
-                    int lastItemPosition = recyclerView.getChildAdapterPosition(
-                            recyclerView.getChildAt(recyclerView.getChildCount() - 1));
-                    if (lastItemPosition == recyclerView.getAdapter().getItemCount() - 1) {
-                        refreshPage(mAdapter.getLast() == null ? null : mAdapter.getLast().roomId);
-                    }
                 }
             }
 
             @Override
             public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
-                super.onScrolled(recyclerView, dx, dy);
+                // Also called after the list is laid out
+                // again, when a page is shorter than the
+                // screen for example.
+                if (!mSwipeRefreshLayout.isRefreshing()) {
+                    mPager.onScrolledTo(layoutManager.findLastVisibleItemPosition());
+                }
             }
         });
 
@@ -109,11 +162,62 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
         mNetworkErrorBg = layout.findViewById(R.id.network_error_bg);
         mNetworkErrorBg.setVisibility(View.GONE);
 
+        // The rooms loaded before the view is created again
+        mAdapter.submit(mPager.getRooms());
         checkRoomListEmpty();
 
         return layout;
     }
 
+    private void initCovers() {
+        int width = getResources().getDisplayMetrics().widthPixels;
+        mCoverSize = Math.max(1, (width - mItemSpacing * (SPAN_COUNT + 1)) / SPAN_COUNT);
+
+        // Covers are opaque, so half of the memory is
+        // enough. Both the downloaded and the resized
+        // images are kept in the disk cache.
+        mCoverRequest = Glide.with(this)
+                .asDrawable()
+                .override(mCoverSize)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .diskCacheStrategy(DiskCacheStrategy.ALL);
+
+        // Loads the covers of the next page of rooms while
+        // scrolling, before they are shown
+        mRecyclerView.addOnScrollListener(new RecyclerViewPreloader<>(Glide.with(this),
+                new CoverPreloadModelProvider(),
+                new FixedPreloadSizeProvider<>(mCoverSize, mCoverSize), REQ_ROOM_COUNT));
+
+        mScrollMonitor = new FrameTimeMonitor("room list " + onGetRoomListType() + " scroll",
+                getContainer().getWindowManager().getDefaultDisplay().getRefreshRate());
+    }
+
+    private RequestBuilder<Drawable> coverRequest(RoomInfo info) {
+        int defaultCover = UserUtil.getUserProfileIcon(info.roomId);
+        if (TextUtils.isEmpty(info.thumbnail)) {
+            return mCoverRequest.clone().load(defaultCover);
+        }
+
+        return mCoverRequest.clone().load(info.thumbnail)
+                .error(mCoverRequest.clone().load(defaultCover));
+    }
+
+    private class CoverPreloadModelProvider implements ListPreloader.PreloadModelProvider<RoomInfo> {
+        @NonNull
+        @Override
+        public List<RoomInfo> getPreloadItems(int position) {
+            RoomInfo info = mAdapter.getItem(position);
+            return info == null ? Collections.emptyList() : Collections.singletonList(info);
+        }
+
+        @Nullable
+        @Override
+        public RequestBuilder<?> getPreloadRequestBuilder(@NonNull RoomInfo item) {
+            return coverRequest(item);
+        }
+    }
+
     private void checkRoomListEmpty() {
         mRecyclerView.setVisibility(mAdapter.getItemCount() == 0 ? View.GONE : View.VISIBLE);
         mNoDataBg.setVisibility(mAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
@@ -136,12 +240,12 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
     }
 
     private void onPeriodicRefreshTimerTicked() {
-        refreshPage(null);
+        if (!mLobbyLive) mPager.refresh();
     }
 
     @Override
     public void onRefresh() {
-        refreshPage(null);
+        mPager.refresh();
     }
 
     @Override
@@ -149,50 +253,168 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
         super.onResume();
         startRefreshTimer();
         getContainer().proxy().registerProxyListener(this);
-        refreshPage(null);
+        showCachedPage();
+        RtmLobbyChannel.instance().subscribe(getContainer().rtmClient(), this);
+        mLobbySubscribed = true;
+    }
+
+    /**
+     * Show the cached first page at once if any, and request
+     * the latest one unless the cache is fresh enough.
+     */
+    private void showCachedPage() {
+        RoomListCache cache = getContainer().proxy().roomListCache();
+        RoomListCache.Entry entry = cache.peek(onGetRoomListType(), null);
+        if (entry != null) {
+            onCachedPageLoaded(entry);
+            return;
+        }
+
+        cache.load(onGetRoomListType(), null, loaded ->
+            mHandler.post(() -> {
+                if (isResumed()) onCachedPageLoaded(loaded);
+            }));
+    }
+
+    private void onCachedPageLoaded(RoomListCache.Entry entry) {
+        if (entry != null) {
+            List<RoomInfo> rooms = mPager.setFirstPage(entry.rooms);
+            if (rooms != null) {
+                mNetworkErrorBg.setVisibility(View.GONE);
+                mAdapter.submit(rooms);
+            }
+        }
+
+        if (entry == null || !entry.isFresh()) {
+            mPager.refresh();
+        }
     }
 
     @Override
     public void onPause() {
         super.onPause();
         stopRefreshTimer();
+        mScrollMonitor.stop();
         getContainer().proxy().removeProxyListener(this);
+        RtmLobbyChannel.instance().unsubscribe(this);
+        mLobbySubscribed = false;
+        mLobbyLive = false;
+        mRequests.cancelAll();
+        mPageRequest = null;
+        mPager.cancel();
+        cancelPreJoin();
     }
 
-    /**
-     * Refresh the page from after a specific room.
-     * @param nextId null if refresh from the beginning of list
-     */
-    private void refreshPage(String nextId) {
-        if (nextId == null) mAdapter.clear(false);
-        refreshPage(nextId, REQ_ROOM_COUNT, onGetRoomListType(), null);
+    @Override
+    public void onLobbyStateChanged(boolean live) {
+        boolean wasLive = mLobbyLive;
+        mLobbyLive = live;
+
+        // Changes may have been missed while disconnected
+        if (mLobbySubscribed && live && !wasLive) mPager.refresh();
+    }
+
+    @Override
+    public void onLobbyRoomListChanged(int roomType, List<RoomListChangeMessage.RoomChange> changes) {
+        if (roomType != onGetRoomListType()) return;
+        List<RoomInfo> rooms = mPager.applyChanges(changes);
+        if (rooms != null) mAdapter.submit(rooms);
     }
 
-    private void refreshPage(String nextId, int count, int type, Integer pkState) {
+    /**
+     * Request a page of rooms after a specific room.
+     * @param nextId null if from the beginning of list
+     */
+    private void requestPage(String nextId, int count, int type, Integer pkState) {
         RoomListRequest request = new RoomListRequest(
                 getContainer().config().getUserProfile().getToken(),
                 nextId, count, type, pkState);
-        getContainer().proxy().sendRequest(Request.ROOM_LIST, request);
-    }
 
-    @Override
-    public void onRoomListResponse(RoomListResponse response) {
-        final List<RoomInfo> list = response.data.list;
-        getContainer().runOnUiThread(() -> {
-            mNetworkErrorBg.setVisibility(View.GONE);
-            // Next id being empty indicates this is the
-            // start of room list and we need to refresh
-            // the whole page.
-            mAdapter.append(list, TextUtils.isEmpty(response.data.nextId));
-            checkRoomListEmpty();
-            if (mSwipeRefreshLayout.isRefreshing()) {
-                mSwipeRefreshLayout.setRefreshing(false);
+        // Only the response of this request is received,
+        // not those of other tabs. Cancelled when paused,
+        // or when the activity is destroyed.
+        RequestFuture<RoomListResponse> future = getContainer().bindRequest(
+                mRequests.add(getContainer().proxy().requestRoomList(request)));
+        mPageRequest = future;
+        future.then(new RequestFuture.Callback<RoomListResponse>() {
+            @Override
+            public void onSuccess(@NonNull RoomListResponse response) {
+                List<RoomInfo> list = response.data == null ? null : response.data.list;
+                getContainer().runOnUiThread(() -> {
+                    if (isCurrentPage(future)) onPageLoaded(list);
+                });
+            }
+
+            @Override
+            public void onFailure(int requestType, int error, String message) {
+                getContainer().runOnUiThread(() -> {
+                    if (isCurrentPage(future)) onPageFailed(message);
+                });
             }
         });
     }
 
+    /**
+     * @return false if the page is not waited for any more,
+     * like when the result comes after a pause
+     */
+    private boolean isCurrentPage(RequestFuture<RoomListResponse> future) {
+        if (future != mPageRequest) return false;
+        mPageRequest = null;
+        return true;
+    }
+
+    private void onPageLoaded(List<RoomInfo> list) {
+        // The pager knows whether it is the first page,
+        // which replaces the rooms shown currently.
+        List<RoomInfo> rooms = mPager.onPageLoaded(list);
+        if (rooms == null) return;
+
+        mNetworkErrorBg.setVisibility(View.GONE);
+        mAdapter.submit(rooms);
+        if (mSwipeRefreshLayout.isRefreshing()) {
+            mSwipeRefreshLayout.setRefreshing(false);
+        }
+    }
+
+    private void onPageFailed(String message) {
+        Toast.makeText(getContext(), "request type: " +
+                Request.getRequestString(Request.ROOM_LIST) +
+                ", error message:" + message, Toast.LENGTH_LONG).show();
+
+        mPager.onPageFailed();
+        if (mSwipeRefreshLayout.isRefreshing()) {
+            mSwipeRefreshLayout.setRefreshing(false);
+        }
+
+        // Keep showing the cached rooms if any
+        if (mAdapter != null && mAdapter.getItemCount() > 0) {
+            return;
+        }
+        mNoDataBg.setVisibility(View.GONE);
+        mNetworkErrorBg.setVisibility(View.VISIBLE);
+    }
+
+    private static final DiffUtil.ItemCallback<RoomInfo> ROOM_DIFF = new DiffUtil.ItemCallback<RoomInfo>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull RoomInfo oldInfo, @NonNull RoomInfo newInfo) {
+            return TextUtils.equals(oldInfo.roomId, newInfo.roomId);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull RoomInfo oldInfo, @NonNull RoomInfo newInfo) {
+            return TextUtils.equals(oldInfo.roomName, newInfo.roomName) &&
+                    TextUtils.equals(oldInfo.thumbnail, newInfo.thumbnail) &&
+                    oldInfo.currentUsers == newInfo.currentUsers &&
+                    oldInfo.ownerUid == newInfo.ownerUid;
+        }
+    };
+
     private class RoomListAdapter extends RecyclerView.Adapter<RoomListItemViewHolder> {
-        private List<RoomInfo> mRoomList = new ArrayList<>();
+        // The difference of lists is calculated in a
+        // background thread, and the list is replaced
+        // in the UI thread when it is done.
+        private final AsyncListDiffer<RoomInfo> mDiffer = new AsyncListDiffer<>(this, ROOM_DIFF);
 
         @NonNull
         @Override
@@ -203,16 +425,26 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
 
         @Override
         public void onBindViewHolder(@NonNull RoomListItemViewHolder holder, final int position) {
-            if (mRoomList.size() <= position) return;
+            RoomInfo info = getItem(position);
+            if (info == null) return;
 
-            RoomInfo info = mRoomList.get(position);
             holder.name.setText(info.roomName);
             holder.count.setText(String.valueOf(info.currentUsers));
-            holder.layout.setBackgroundResource(UserUtil.getUserProfileIcon(info.roomId));
+            coverRequest(info).into(holder.cover);
+            holder.itemView.setOnTouchListener(new RoomPressListener(holder));
             holder.itemView.setOnClickListener((view) -> {
-                if (config().appIdObtained() && position < mRoomList.size()) {
-                    goLiveRoom(mRoomList.get(position),
-                            serverTypeToTabType(onGetRoomListType()));
+                // Items may have moved without being bound
+                // again when the list is updated by difference.
+                int current = holder.getAdapterPosition();
+                if (current == RecyclerView.NO_POSITION) return;
+
+                RoomInfo room = getItem(current);
+                if (room == null) return;
+
+                if (config().appIdObtained()) {
+                    RoomEntryTrace.begin(room.roomId, RoomEntryTrace.PHASE_CLICK);
+                    RoomPreJoin.instance().commit(room.roomId);
+                    goLiveRoom(room, serverTypeToTabType(onGetRoomListType()));
                 } else {
                     Toast.makeText(getContext(), R.string.agora_app_id_failed,
                             Toast.LENGTH_SHORT).show();
@@ -239,24 +471,86 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
             }
         }
 
+        @Override
+        public void onViewRecycled(@NonNull RoomListItemViewHolder holder) {
+            // The bitmap goes back to the pool for other covers
+            Glide.with(AbsPageFragment.this).clear(holder.cover);
+        }
+
         @Override
         public int getItemCount() {
-            return mRoomList.size();
+            return mDiffer.getCurrentList().size();
+        }
+
+        RoomInfo getItem(int position) {
+            List<RoomInfo> list = mDiffer.getCurrentList();
+            return position >= 0 && position < list.size() ? list.get(position) : null;
+        }
+
+        /**
+         * Replace the rooms shown, only the rooms changed
+         * are bound again.
+         */
+        void submit(List<RoomInfo> infoList) {
+            mDiffer.submitList(infoList, () -> {
+                if (isAdded()) checkRoomListEmpty();
+            });
         }
+    }
+
+    /**
+     * Enters the room of a card when it is pressed, before
+     * it is known to be a click. The press waits for the tap
+     * timeout first, within which most scrolls cancel it.
+     */
+    private class RoomPressListener implements View.OnTouchListener {
+        private final RoomListItemViewHolder mHolder;
 
-        void append(List<RoomInfo> infoList, boolean reset) {
-            if (reset) mRoomList.clear();
-            mRoomList.addAll(infoList);
-            notifyDataSetChanged();
+        RoomPressListener(RoomListItemViewHolder holder) {
+            mHolder = holder;
         }
 
-        void clear(boolean notifyChange) {
-            mRoomList.clear();
-            if (notifyChange) notifyDataSetChanged();
+        @Override
+        public boolean onTouch(View view, MotionEvent event) {
+            switch (event.getActionMasked()) {
+                case MotionEvent.ACTION_DOWN:
+                    RoomInfo room = mAdapter.getItem(mHolder.getAdapterPosition());
+                    if (room == null || !config().appIdObtained()) break;
+                    RoomEntryTrace.begin(room.roomId, RoomEntryTrace.PHASE_PRESS);
+                    cancelPreJoin();
+                    mPreJoinRunnable = () -> preJoin(room);
+                    mHandler.postDelayed(mPreJoinRunnable, ViewConfiguration.getTapTimeout());
+                    break;
+                case MotionEvent.ACTION_UP:
+                    // A tap shorter than the timeout
+                    if (mPreJoinRunnable != null) {
+                        Runnable runnable = mPreJoinRunnable;
+                        cancelPreJoin();
+                        runnable.run();
+                    }
+                    break;
+                case MotionEvent.ACTION_CANCEL:
+                    cancelPreJoin();
+                    break;
+            }
+
+            // Clicks are still handled by the view
+            return false;
         }
+    }
+
+    private void preJoin(RoomInfo info) {
+        mPreJoinRunnable = null;
+        if (!isAdded()) return;
+        RoomPreJoin.instance().prepare(getContainer().proxy(),
+                getContainer().rtcEngine(),
+                config().getUserProfile().getToken(), info.roomId);
+    }
 
-        RoomInfo getLast() {
-            return mRoomList.isEmpty() ? null : mRoomList.get(mRoomList.size() - 1);
+    private void cancelPreJoin() {
+        if (mPreJoinRunnable != null) {
+            mHandler.removeCallbacks(mPreJoinRunnable);
+            mPreJoinRunnable = null;
         }
     }
 
@@ -266,19 +560,26 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
         intent.putExtra(Global.Constants.KEY_IS_ROOM_OWNER, false);
         intent.putExtra(Global.Constants.KEY_ROOM_NAME, info.roomName);
         intent.putExtra(Global.Constants.KEY_ROOM_ID, info.roomId);
+
+        // The rooms the audience can swipe to
+        ArrayList<String> roomIds = new ArrayList<>(mAdapter.getItemCount());
+        for (int i = 0; i < mAdapter.getItemCount(); i++) {
+            roomIds.add(mAdapter.getItem(i).roomId);
+        }
+        intent.putStringArrayListExtra(Global.Constants.KEY_ROOM_ID_LIST, roomIds);
         startActivity(intent);
     }
 
     private static class RoomListItemViewHolder extends RecyclerView.ViewHolder {
         AppCompatTextView count;
         AppCompatTextView name;
-        SquareRelativeLayout layout;
+        AppCompatImageView cover;
 
         RoomListItemViewHolder(@NonNull View itemView) {
             super(itemView);
             count = itemView.findViewById(R.id.live_room_list_item_count);
             name = itemView.findViewById(R.id.live_room_list_item_room_name);
-            layout = itemView.findViewById(R.id.live_room_list_item_background);
+            cover = itemView.findViewById(R.id.live_room_list_item_cover);
         }
     }
 
@@ -321,18 +622,8 @@ public abstract class AbsPageFragment extends AbstractFragment implements SwipeR
 
     @Override
     public void onResponseError(int requestType, int error, String message) {
-        getContainer().runOnUiThread(() -> {
-            Toast.makeText(getContext(),
-                    "request type: "+ Request.getRequestString(requestType) +
-                            ", error message:" + message, Toast.LENGTH_LONG).show();
-
-            if (requestType == Request.ROOM_LIST) {
-                if (mAdapter != null) {
-                    mAdapter.clear(true);
-                }
-                mNoDataBg.setVisibility(View.GONE);
-                mNetworkErrorBg.setVisibility(View.VISIBLE);
-            }
-        });
+        getContainer().runOnUiThread(() -> Toast.makeText(getContext(),
+                "request type: "+ Request.getRequestString(requestType) +
+                        ", error message:" + message, Toast.LENGTH_LONG).show());
     }
 }
@@ -1,8 +1,6 @@
 package io.agora.vlive.ui.main.fragments;
 
 import android.content.Intent;
-import android.graphics.BitmapFactory;
-import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -13,15 +11,13 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatImageView;
 import androidx.appcompat.widget.AppCompatTextView;
-import androidx.core.graphics.drawable.RoundedBitmapDrawable;
-import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
 
 import io.agora.vlive.Config;
 import io.agora.vlive.R;
 import io.agora.vlive.ui.profile.AboutActivity;
 import io.agora.vlive.ui.profile.ModifyUserNameActivity;
+import io.agora.vlive.utils.AvatarCache;
 import io.agora.vlive.utils.Global;
-import io.agora.vlive.utils.UserUtil;
 
 public class MeFragment extends AbstractFragment implements View.OnClickListener {
     private static final String TAG = MeFragment.class.getSimpleName();
@@ -65,19 +61,8 @@ public class MeFragment extends AbstractFragment implements View.OnClickListener
 
     private void setUserIcon(AppCompatImageView imageView) {
         Config.UserProfile profile = getContainer().config().getUserProfile();
-        Drawable saved = profile.getProfileIcon();
-        RoundedBitmapDrawable drawable =
-                saved instanceof RoundedBitmapDrawable ? (RoundedBitmapDrawable) saved : null;
-
-        if (drawable == null) {
-            drawable = RoundedBitmapDrawableFactory.create(getResources(),
-                    BitmapFactory.decodeResource(getResources(),
-                    UserUtil.getUserProfileIcon(profile.getUserId())));
-            drawable.setCircular(true);
-            profile.setProfileIcon(drawable);
-        }
-
-        imageView.setImageDrawable(drawable);
+        AvatarCache.loadRoundIcon(imageView, profile.getImageUrl(), profile.getUserId(),
+                getResources().getDimensionPixelSize(R.dimen.profile_portrait_size));
     }
 
     @Override
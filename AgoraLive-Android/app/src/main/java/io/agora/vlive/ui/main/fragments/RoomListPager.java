@@ -0,0 +1,260 @@
+package io.agora.vlive.ui.main.fragments;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.agora.vlive.agora.rtm.model.RoomListChangeMessage;
+import io.agora.vlive.protocol.model.model.RoomInfo;
+
+/**
+ * Loads the room list page by page, with the id of the last
+ * room loaded as the cursor of the next page. The next page
+ * is requested when the list is scrolled to within the
+ * prefetch distance of the end, before the end is shown.
+ * Rooms may shift between pages when rooms are created or
+ * closed, so a room already loaded is not added again.
+ * Only one page is requested at a time, so that pages are
+ * added in order. A page that comes when none is loading,
+ * like after cancel(), is ignored.
+ * Called in the UI thread.
+ */
+class RoomListPager {
+    interface PageLoader {
+        /**
+         * @param nextId null if from the start of the list
+         */
+        void onLoadPage(String nextId, int count);
+    }
+
+    private final PageLoader mLoader;
+    private final int mPageSize;
+    private final int mPrefetchDistance;
+
+    private List<RoomInfo> mRooms = Collections.emptyList();
+    private final Set<String> mRoomIds = new HashSet<>();
+
+    // The last room of the last page loaded
+    private String mNextId;
+    private boolean mEnd;
+
+    private boolean mLoading;
+    private boolean mLoadingFirst;
+    private boolean mRefreshPending;
+
+    private int mDuplicateCount;
+
+    /**
+     * @param prefetchDistance how many rooms before the end
+     *                         of the list the next page is
+     *                         requested
+     */
+    RoomListPager(PageLoader loader, int pageSize, int prefetchDistance) {
+        mLoader = loader;
+        mPageSize = pageSize;
+        mPrefetchDistance = prefetchDistance;
+    }
+
+    List<RoomInfo> getRooms() {
+        return mRooms;
+    }
+
+    boolean isLoading() {
+        return mLoading;
+    }
+
+    boolean isEnd() {
+        return mEnd;
+    }
+
+    int getDuplicateCount() {
+        return mDuplicateCount;
+    }
+
+    /**
+     * Loads the list from the start. The rooms are kept
+     * until the first page comes.
+     */
+    void refresh() {
+        if (mLoading) {
+            // Requested when the current page comes
+            mRefreshPending = !mLoadingFirst;
+            return;
+        }
+        load(null);
+    }
+
+    /**
+     * @param lastVisible the position of the last room shown
+     * @return true if the next page is requested
+     */
+    boolean onScrolledTo(int lastVisible) {
+        if (mLoading || mEnd || mRooms.isEmpty() ||
+                lastVisible < mRooms.size() - mPrefetchDistance) {
+            return false;
+        }
+        load(mNextId);
+        return true;
+    }
+
+    private void load(String nextId) {
+        mLoading = true;
+        mLoadingFirst = nextId == null;
+        mLoader.onLoadPage(nextId, mPageSize);
+    }
+
+    /**
+     * Shows a first page that does not come from a request,
+     * like the one cached, unless a page is being loaded.
+     * @return the rooms to show, or null if not changed
+     */
+    List<RoomInfo> setFirstPage(List<RoomInfo> page) {
+        if (mLoading && !mLoadingFirst) return null;
+        return replace(page);
+    }
+
+    /**
+     * @return the rooms to show after the page is added,
+     * or null if no page is loading
+     */
+    List<RoomInfo> onPageLoaded(List<RoomInfo> page) {
+        if (!mLoading) return null;
+        if (page == null) page = Collections.emptyList();
+        boolean first = mLoadingFirst;
+        mLoading = false;
+        mLoadingFirst = false;
+
+        List<RoomInfo> rooms = first ? replace(page) : append(page);
+        if (mRefreshPending) {
+            mRefreshPending = false;
+            load(null);
+        }
+        return rooms;
+    }
+
+    void onPageFailed() {
+        if (!mLoading) return;
+        mLoading = false;
+        mLoadingFirst = false;
+        if (mRefreshPending) {
+            mRefreshPending = false;
+            load(null);
+        }
+    }
+
+    /**
+     * Forgets the page being loaded, whose response will
+     * not be received, like when the page is paused.
+     */
+    void cancel() {
+        mLoading = false;
+        mLoadingFirst = false;
+        mRefreshPending = false;
+    }
+
+    /**
+     * Applies the changes of rooms sent by the server, so
+     * the list does not need to be requested again. Rooms
+     * created are shown first, and the rooms changed are
+     * new objects because the adapter compares them with
+     * the old ones.
+     * @return the rooms to show, or null if not changed
+     */
+    List<RoomInfo> applyChanges(List<RoomListChangeMessage.RoomChange> changes) {
+        List<RoomInfo> rooms = new ArrayList<>(mRooms);
+        boolean changed = false;
+        for (RoomListChangeMessage.RoomChange change : changes) {
+            if (change == null || change.roomId == null) continue;
+            switch (change.action) {
+                case RoomListChangeMessage.RoomChange.ROOM_ADDED:
+                    if (mRoomIds.add(change.roomId)) {
+                        rooms.add(0, toRoomInfo(change));
+                        changed = true;
+                    }
+                    break;
+                case RoomListChangeMessage.RoomChange.ROOM_REMOVED:
+                    if (mRoomIds.remove(change.roomId)) {
+                        rooms.remove(indexOf(rooms, change.roomId));
+                        changed = true;
+                    }
+                    break;
+                case RoomListChangeMessage.RoomChange.ROOM_UPDATED:
+                    int index = indexOf(rooms, change.roomId);
+                    if (index >= 0) {
+                        rooms.set(index, update(rooms.get(index), change));
+                        changed = true;
+                    }
+                    break;
+            }
+        }
+
+        if (!changed) return null;
+        mRooms = rooms;
+        return rooms;
+    }
+
+    private static int indexOf(List<RoomInfo> rooms, String roomId) {
+        for (int i = 0; i < rooms.size(); i++) {
+            if (roomId.equals(rooms.get(i).roomId)) return i;
+        }
+        return -1;
+    }
+
+    private static RoomInfo toRoomInfo(RoomListChangeMessage.RoomChange change) {
+        RoomInfo info = new RoomInfo();
+        info.roomId = change.roomId;
+        info.roomName = change.roomName;
+        info.thumbnail = change.thumbnail;
+        info.currentUsers = change.currentUsers;
+        info.ownerUid = change.ownerUid;
+        return info;
+    }
+
+    /**
+     * Only the number of users is sure to be sent, other
+     * fields are kept if missing.
+     */
+    private static RoomInfo update(RoomInfo old, RoomListChangeMessage.RoomChange change) {
+        RoomInfo info = new RoomInfo();
+        info.roomId = old.roomId;
+        info.roomName = change.roomName != null ? change.roomName : old.roomName;
+        info.thumbnail = change.thumbnail != null ? change.thumbnail : old.thumbnail;
+        info.currentUsers = change.currentUsers;
+        info.ownerUid = change.ownerUid != 0 ? change.ownerUid : old.ownerUid;
+        return info;
+    }
+
+    private List<RoomInfo> replace(List<RoomInfo> page) {
+        mRoomIds.clear();
+        mRooms = Collections.emptyList();
+        return append(page);
+    }
+
+    private List<RoomInfo> append(List<RoomInfo> page) {
+        // A new list every time, the old one may be
+        // compared by the adapter in the background.
+        List<RoomInfo> rooms = new ArrayList<>(mRooms.size() + page.size());
+        rooms.addAll(mRooms);
+        for (RoomInfo info : page) {
+            if (info == null || info.roomId == null) continue;
+            if (mRoomIds.add(info.roomId)) {
+                rooms.add(info);
+            } else {
+                mDuplicateCount++;
+            }
+        }
+
+        // The cursor is the last room the server sends,
+        // even if it has been loaded in an earlier page.
+        mEnd = page.size() < mPageSize;
+        if (!page.isEmpty()) {
+            RoomInfo last = page.get(page.size() - 1);
+            if (last != null && last.roomId != null) mNextId = last.roomId;
+        }
+
+        mRooms = rooms;
+        return rooms;
+    }
+}
@@ -0,0 +1,166 @@
+package io.agora.vlive.utils;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.Drawable;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.core.graphics.drawable.RoundedBitmapDrawable;
+import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
+
+import com.bumptech.glide.Glide;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Keeps the user icons decoded at the sizes they are shown,
+ * so that the same icon in a list, a name pad or the user
+ * layout is decoded once. Bitmaps are shared, while every
+ * view gets its own round drawable because drawables keep
+ * the bounds and state of the view.
+ * Remote avatars are loaded by Glide at the same size.
+ * Called in the UI thread.
+ */
+public class AvatarCache {
+    // The cache takes at most 1/32 of the heap, in KB
+    private static final int CACHE_DIVIDER = 32;
+
+    private static LruCache<String, Bitmap> sCache;
+
+    private static LruCache<String, Bitmap> cache() {
+        if (sCache == null) {
+            int maxSize = (int) (Runtime.getRuntime().maxMemory() / 1024 / CACHE_DIVIDER);
+            sCache = new LruCache<String, Bitmap>(maxSize) {
+                @Override
+                protected int sizeOf(String key, Bitmap value) {
+                    return value.getAllocationByteCount() / 1024;
+                }
+            };
+        }
+        return sCache;
+    }
+
+    /**
+     * Removes all the icons if the cache has been created
+     */
+    public static void trim() {
+        if (sCache != null) sCache.evictAll();
+    }
+
+    /**
+     * @param size the width and height of the view in pixels
+     * @return a circular drawable of the image resource, or
+     * null if it cannot be decoded
+     */
+    public static Drawable getRoundIcon(Resources resources, @DrawableRes int res, int size) {
+        String key = res + "@" + size;
+        Bitmap bitmap = cache().get(key);
+        if (bitmap == null) {
+            bitmap = decodeResource(resources, res, size);
+            if (bitmap == null) return null;
+            cache().put(key, bitmap);
+        }
+        return roundDrawable(resources, bitmap);
+    }
+
+    /**
+     * For development only, the icon is an image in assets
+     */
+    public static Drawable getRoundIcon(Resources resources, String assetName, int size) {
+        String key = assetName + "@" + size;
+        Bitmap bitmap = cache().get(key);
+        if (bitmap == null) {
+            bitmap = decodeAsset(resources, assetName, size);
+            if (bitmap == null) return null;
+            cache().put(key, bitmap);
+        }
+        return roundDrawable(resources, bitmap);
+    }
+
+    /**
+     * Shows the remote avatar of a user if there is one, or
+     * the default icon of the user id. The default icon is
+     * also shown while the avatar is loading or if it fails.
+     * @param avatar the url of the avatar, may be null
+     * @param size the width and height of the view in pixels
+     */
+    public static void loadRoundIcon(ImageView view, String avatar, String userId, int size) {
+        Drawable icon = getRoundIcon(view.getResources(), UserUtil.getUserProfileIcon(userId), size);
+        if (!isRemote(avatar)) {
+            // The view may be recycled from a remote avatar
+            Glide.with(view).clear(view);
+            view.setImageDrawable(icon);
+            return;
+        }
+
+        Glide.with(view).load(avatar)
+                .override(size)
+                .circleCrop()
+                .placeholder(icon)
+                .error(icon)
+                .into(view);
+    }
+
+    private static boolean isRemote(String avatar) {
+        return !TextUtils.isEmpty(avatar) &&
+                (avatar.startsWith("http://") || avatar.startsWith("https://"));
+    }
+
+    private static Drawable roundDrawable(Resources resources, Bitmap bitmap) {
+        RoundedBitmapDrawable drawable = RoundedBitmapDrawableFactory.create(resources, bitmap);
+        drawable.setCircular(true);
+        return drawable;
+    }
+
+    private static Bitmap decodeResource(Resources resources, int res, int size) {
+        // Not scaled by density, the sample size decides the size
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, res, options);
+
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, size);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap = BitmapFactory.decodeResource(resources, res, options);
+        if (bitmap != null) bitmap.setDensity(resources.getDisplayMetrics().densityDpi);
+        return bitmap;
+    }
+
+    private static Bitmap decodeAsset(Resources resources, String name, int size) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        try (InputStream in = resources.getAssets().open(name)) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeStream(in, null, options);
+        } catch (IOException e) {
+            return null;
+        }
+
+        try (InputStream in = resources.getAssets().open(name)) {
+            options.inSampleSize = sampleSize(options.outWidth, options.outHeight, size);
+            options.inJustDecodeBounds = false;
+            Bitmap bitmap = BitmapFactory.decodeStream(in, null, options);
+            if (bitmap != null) bitmap.setDensity(resources.getDisplayMetrics().densityDpi);
+            return bitmap;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the largest power of 2 that keeps both sides
+     * of the image not smaller than the target size
+     */
+    static int sampleSize(int width, int height, int size) {
+        int sampleSize = 1;
+        if (size <= 0) return sampleSize;
+        while (width / (sampleSize * 2) >= size && height / (sampleSize * 2) >= size) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
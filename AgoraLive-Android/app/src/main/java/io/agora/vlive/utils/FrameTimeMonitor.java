@@ -0,0 +1,77 @@
+package io.agora.vlive.utils;
+
+import android.view.Choreographer;
+
+import com.elvishew.xlog.XLog;
+
+/**
+ * Measures the frame times between start() and stop(), for
+ * example while a list scrolls, and logs how many frames
+ * are slow. Called in the UI thread.
+ */
+public class FrameTimeMonitor implements Choreographer.FrameCallback {
+    private final String mName;
+    private final long mFrameIntervalNanos;
+
+    private boolean mRunning;
+    private long mLastFrameNanos;
+    private int mFrames;
+    private int mSlowFrames;
+    private int mDroppedFrames;
+    private long mTotalNanos;
+    private long mMaxNanos;
+
+    /**
+     * @param refreshRate of the display, in frames a second
+     */
+    public FrameTimeMonitor(String name, float refreshRate) {
+        mName = name;
+        mFrameIntervalNanos = (long) (1000000000L / (refreshRate > 0 ? refreshRate : 60));
+    }
+
+    public void start() {
+        if (mRunning) return;
+        mRunning = true;
+        mLastFrameNanos = 0;
+        mFrames = 0;
+        mSlowFrames = 0;
+        mDroppedFrames = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void stop() {
+        if (!mRunning) return;
+        mRunning = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+        if (mFrames == 0) return;
+
+        XLog.d(mName + " frames " + mFrames +
+                " avg " + (mTotalNanos / mFrames / 100000) / 10f + " ms" +
+                " max " + (mMaxNanos / 100000) / 10f + " ms" +
+                " slow " + mSlowFrames + " dropped " + mDroppedFrames);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) return;
+
+        if (mLastFrameNanos > 0) {
+            long interval = frameTimeNanos - mLastFrameNanos;
+            mFrames++;
+            mTotalNanos += interval;
+            mMaxNanos = Math.max(mMaxNanos, interval);
+
+            // A frame is slow if it misses the next vsync
+            long missed = (interval + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+            if (missed > 0) {
+                mSlowFrames++;
+                mDroppedFrames += missed;
+            }
+        }
+
+        mLastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -32,6 +32,7 @@ public class Global {
 
         public static final String KEY_ROOM_ID = "room-id";
         public static final String KEY_ROOM_NAME = "room-name";
+        public static final String KEY_ROOM_ID_LIST = "room-id-list";
         public static final String KEY_IS_ROOM_OWNER = "is-room-owner";
         public static final String KEY_ROOM_OWNER_ID = "room-owner-id";
         public static final String KEY_CREATE_ROOM = "create-room";
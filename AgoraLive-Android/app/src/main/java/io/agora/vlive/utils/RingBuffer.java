@@ -0,0 +1,88 @@
+package io.agora.vlive.utils;
+
+/**
+ * A list of fixed capacity that removes the oldest element
+ * when a new one is added to a full list. Adding, getting
+ * and evicting elements take constant time.
+ * Not thread safe.
+ */
+public class RingBuffer<T> {
+    private Object[] mElements;
+    private int mHead;
+    private int mSize;
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        mElements = new Object[capacity];
+    }
+
+    /**
+     * @return the oldest element removed to make room,
+     * or null if the buffer was not full
+     */
+    @SuppressWarnings("unchecked")
+    public T add(T element) {
+        T evicted = null;
+        if (mSize == mElements.length) {
+            evicted = (T) mElements[mHead];
+            mElements[mHead] = element;
+            mHead = (mHead + 1) % mElements.length;
+        } else {
+            mElements[(mHead + mSize) % mElements.length] = element;
+            mSize++;
+        }
+        return evicted;
+    }
+
+    /**
+     * @param index 0 for the oldest element
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+        }
+        return (T) mElements[(mHead + index) % mElements.length];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int capacity() {
+        return mElements.length;
+    }
+
+    /**
+     * Change the capacity, the latest elements are kept
+     * if the new capacity is smaller than the size.
+     * @return the number of elements removed
+     */
+    public int setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        int kept = Math.min(mSize, capacity);
+        Object[] elements = new Object[capacity];
+        for (int i = 0; i < kept; i++) {
+            elements[i] = get(mSize - kept + i);
+        }
+
+        int removed = mSize - kept;
+        mElements = elements;
+        mHead = 0;
+        mSize = kept;
+        return removed;
+    }
+
+    public void clear() {
+        for (int i = 0; i < mElements.length; i++) {
+            mElements[i] = null;
+        }
+        mHead = 0;
+        mSize = 0;
+    }
+}
@@ -0,0 +1,205 @@
+package io.agora.vlive.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the initialization steps of a cold start at the same
+ * time in a bounded thread pool. A step starts when all the
+ * steps it depends on have finished, and the steps must be
+ * added after the ones they depend on, so there can be no
+ * cycle. Steps can be added after the graph starts, like
+ * the ones of the first activity.
+ * Every step is traced: how long it waits for a thread, how
+ * long it runs and in which thread.
+ */
+public class StartupGraph {
+    private static final int MIN_THREAD_COUNT = 2;
+    private static final int MAX_THREAD_COUNT = 4;
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    public interface Listener {
+        /**
+         * Called in the thread of the last step, when all
+         * the steps added so far have finished.
+         */
+        void onStartupFinished(StartupGraph graph);
+    }
+
+    private static class Task {
+        final String name;
+        final Runnable work;
+        final List<Task> dependents = new ArrayList<>();
+        int waiting;
+        boolean submitted;
+        boolean finished;
+
+        long readyTime;
+        long startTime;
+        long endTime;
+        String thread;
+        Throwable error;
+
+        Task(String name, Runnable work) {
+            this.name = name;
+            this.work = work;
+        }
+    }
+
+    private final Executor mExecutor;
+    private final Map<String, Task> mTasks = new LinkedHashMap<>();
+    private final long mCreateTime = now();
+    private Listener mListener;
+    private boolean mStarted;
+    private int mUnfinished;
+
+    /**
+     * @return a pool whose threads stop when idle, since
+     * they are needed only when the app starts
+     */
+    public static ThreadPoolExecutor newPool() {
+        int count = Math.max(MIN_THREAD_COUNT, Math.min(MAX_THREAD_COUNT,
+                Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(count, count,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "startup-" + index.incrementAndGet()));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    public StartupGraph(Executor executor) {
+        mExecutor = executor;
+    }
+
+    public synchronized void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * A step with the name of a finished step runs again,
+     * and is ignored if the step has not finished.
+     * A step that throws, even an error like a native library
+     * failing to load, is traced with the error, and the
+     * steps depending on it still run.
+     * @param dependencies the names of steps added before
+     * @throws IllegalArgumentException if a dependency is
+     * not added
+     */
+    public synchronized StartupGraph add(String name, Runnable work, String... dependencies) {
+        Task old = mTasks.get(name);
+        if (old != null && !old.finished) return this;
+
+        Task task = new Task(name, work);
+        for (String dependency : dependencies) {
+            Task before = mTasks.get(dependency);
+            if (before == null) {
+                throw new IllegalArgumentException(name + " depends on unknown step " + dependency);
+            }
+
+            if (!before.finished) {
+                before.dependents.add(task);
+                task.waiting++;
+            }
+        }
+
+        mTasks.put(name, task);
+        mUnfinished++;
+        if (mStarted && task.waiting == 0) submit(task);
+        return this;
+    }
+
+    /**
+     * Runs a step in the calling thread, for the steps that
+     * others depend on before the graph can start, and
+     * traces it as the other steps.
+     */
+    public void run(String name, Runnable work) {
+        Task task = new Task(name, work);
+        task.readyTime = now();
+        synchronized (this) {
+            mTasks.put(name, task);
+            mUnfinished++;
+            task.submitted = true;
+        }
+        execute(task);
+    }
+
+    public synchronized void start() {
+        if (mStarted) return;
+        mStarted = true;
+        for (Task task : mTasks.values()) {
+            if (!task.submitted && task.waiting == 0) submit(task);
+        }
+    }
+
+    public synchronized boolean isFinished(String name) {
+        Task task = mTasks.get(name);
+        return task != null && task.finished;
+    }
+
+    private void submit(Task task) {
+        task.submitted = true;
+        task.readyTime = now();
+        mExecutor.execute(() -> execute(task));
+    }
+
+    private void execute(Task task) {
+        long start = now();
+        Throwable error = null;
+        Listener listener = null;
+        try {
+            task.work.run();
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            synchronized (this) {
+                task.startTime = start;
+                task.endTime = now();
+                task.thread = Thread.currentThread().getName();
+                task.error = error;
+                task.finished = true;
+                for (Task dependent : task.dependents) {
+                    if (--dependent.waiting == 0 && mStarted) submit(dependent);
+                }
+                task.dependents.clear();
+                if (--mUnfinished == 0) listener = mListener;
+            }
+        }
+
+        if (listener != null) listener.onStartupFinished(this);
+    }
+
+    /**
+     * @return a line for every step finished, in the order
+     * they are added: when it starts from the creation of
+     * the graph, how long it waits for a thread and runs.
+     */
+    public synchronized String getTrace() {
+        StringBuilder builder = new StringBuilder();
+        long end = 0;
+        for (Task task : mTasks.values()) {
+            if (!task.finished) continue;
+            end = Math.max(end, task.endTime);
+            builder.append(String.format(Locale.getDefault(),
+                    "%s: +%d ms, wait %d ms, run %d ms on %s%s\n", task.name,
+                    task.startTime - mCreateTime, task.startTime - task.readyTime,
+                    task.endTime - task.startTime, task.thread,
+                    task.error == null ? "" : ", failed: " + task.error));
+        }
+        builder.append("total ").append(end - mCreateTime).append(" ms");
+        return builder.toString();
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
@@ -2,16 +2,14 @@ package io.agora.vlive.utils;
 
 import android.content.Context;
 import android.content.res.Resources;
-import android.graphics.BitmapFactory;
 import android.graphics.drawable.Drawable;
 import android.os.Environment;
 import android.text.TextUtils;
 
-import androidx.core.graphics.drawable.RoundedBitmapDrawable;
-import androidx.core.graphics.drawable.RoundedBitmapDrawableFactory;
-
 import java.io.File;
 
+import io.agora.vlive.R;
+
 public class UserUtil {
     private static final String LOG_FOLDER_NAME = "logs";
     private static final String LOG_FILE_NAME_RTC = "agora-rtc.log";
@@ -29,12 +27,20 @@ public class UserUtil {
         }
     }
 
+    /**
+     * @return the round icon of the user id at the size of
+     * the name pads, which is shared by user lists
+     */
     public static Drawable getUserRoundIcon(Resources resources, String userId) {
-        int res = UserUtil.getUserProfileIcon(userId);
-        RoundedBitmapDrawable drawable = RoundedBitmapDrawableFactory.create(
-                resources, BitmapFactory.decodeResource(resources, res));
-        drawable.setCircular(true);
-        return drawable;
+        return getUserRoundIcon(resources, userId,
+                resources.getDimensionPixelSize(R.dimen.live_name_pad_height));
+    }
+
+    /**
+     * @param size the width and height of the view in pixels
+     */
+    public static Drawable getUserRoundIcon(Resources resources, String userId, int size) {
+        return AvatarCache.getRoundIcon(resources, getUserProfileIcon(userId), size);
     }
 
     public static String getUserText(String userId, String userName) {
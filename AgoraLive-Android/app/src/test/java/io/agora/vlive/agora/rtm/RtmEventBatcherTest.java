@@ -0,0 +1,115 @@
+package io.agora.vlive.agora.rtm;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the batching of message list events without a
+ * looper: events are drained by hand as the frame callback
+ * would do.
+ */
+public class RtmEventBatcherTest {
+    private RtmEventBatcher mBatcher;
+
+    @Before
+    public void setUp() {
+        mBatcher = new RtmEventBatcher(null, event -> { });
+    }
+
+    private static RtmEvent chat(int index) {
+        return RtmEvent.fromChannelMessage("{\"cmd\":1,\"data\":{\"fromUserId\":\"u" + index +
+                "\",\"fromUserName\":\"user\",\"message\":\"message " + index + "\"}}");
+    }
+
+    private static RtmEvent gift(String from, int giftId) {
+        return RtmEvent.fromChannelMessage("{\"cmd\":7,\"data\":{\"fromUserId\":\"" + from +
+                "\",\"fromUserName\":\"" + from + "\",\"toUserId\":\"owner\"," +
+                "\"toUserName\":\"owner\",\"giftId\":" + giftId + "}}");
+    }
+
+    @Test
+    public void mergesRepeatedGifts() {
+        mBatcher.add(gift("u1", 2));
+        mBatcher.add(chat(1));
+        mBatcher.add(gift("u1", 2));
+        mBatcher.add(gift("u2", 2));
+        mBatcher.add(gift("u1", 2));
+
+        List<RtmEvent> batch = mBatcher.drain(RtmEventBatcher.MAX_EVENTS_PER_FRAME);
+        assertEquals(3, batch.size());
+        assertEquals(3, ((RtmEvent.Gift) batch.get(0)).count);
+        assertTrue(batch.get(1) instanceof RtmEvent.Chat);
+        assertEquals(1, ((RtmEvent.Gift) batch.get(2)).count);
+        assertEquals(2, mBatcher.getMergedCount());
+    }
+
+    @Test
+    public void keepsGiftOrderOfSender() {
+        mBatcher.add(gift("u1", 1));
+        mBatcher.add(gift("u1", 2));
+        mBatcher.add(gift("u1", 1));
+
+        // The third gift is not merged with the first one
+        // because another gift was sent between them
+        List<RtmEvent> batch = mBatcher.drain(RtmEventBatcher.MAX_EVENTS_PER_FRAME);
+        assertEquals(3, batch.size());
+        assertEquals(0, mBatcher.getMergedCount());
+    }
+
+    @Test
+    public void boundsEventsPerFrame() {
+        // A few thousand messages in a minute arrive
+        // in bursts between two frames
+        int messages = 3000;
+        for (int i = 0; i < messages; i++) {
+            mBatcher.add(chat(i));
+        }
+
+        assertEquals(RtmEventBatcher.MAX_PENDING_EVENTS, mBatcher.getPendingCount());
+        assertEquals(messages - RtmEventBatcher.MAX_PENDING_EVENTS, mBatcher.getDroppedCount());
+
+        int frames = 0;
+        int delivered = 0;
+        List<RtmEvent> batch;
+        while (!(batch = mBatcher.drain(RtmEventBatcher.MAX_EVENTS_PER_FRAME)).isEmpty()) {
+            assertTrue(batch.size() <= RtmEventBatcher.MAX_EVENTS_PER_FRAME);
+            delivered += batch.size();
+            frames++;
+        }
+
+        assertEquals(RtmEventBatcher.MAX_PENDING_EVENTS, delivered);
+        assertTrue(frames >= RtmEventBatcher.MAX_PENDING_EVENTS / RtmEventBatcher.MAX_EVENTS_PER_FRAME);
+    }
+
+    @Test
+    public void dropsChatsBeforeOtherEvents() {
+        mBatcher.add(gift("u1", 1));
+        for (int i = 0; i < RtmEventBatcher.MAX_PENDING_EVENTS; i++) {
+            mBatcher.add(chat(i));
+        }
+
+        List<RtmEvent> batch = mBatcher.drain(1);
+        assertTrue(batch.get(0) instanceof RtmEvent.Gift);
+        assertEquals(1, mBatcher.getDroppedCount());
+    }
+
+    @Test
+    public void boundsEventsWithoutChats() {
+        // Gifts of different users are not merged
+        int gifts = RtmEventBatcher.MAX_PENDING_EVENTS + 100;
+        for (int i = 0; i < gifts; i++) {
+            mBatcher.add(gift("u" + i, 1));
+        }
+
+        assertEquals(RtmEventBatcher.MAX_PENDING_EVENTS, mBatcher.getPendingCount());
+        assertEquals(100, mBatcher.getDroppedCount());
+
+        // The oldest ones are dropped
+        RtmEvent.Gift first = (RtmEvent.Gift) mBatcher.drain(1).get(0);
+        assertEquals("u100", first.fromUserId);
+    }
+}
@@ -0,0 +1,113 @@
+package io.agora.vlive.agora.rtm;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.agora.vlive.agora.rtm.model.SeatStateMessage;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that channel messages are parsed into events, and
+ * that listeners share what is parsed once.
+ */
+public class RtmEventTest {
+    private static final int LISTENERS = 4;
+
+    private static final String CHAT = "{\"cmd\":1,\"data\":{\"fromUserId\":\"u1\"," +
+            "\"fromUserName\":\"Alice\",\"message\":\"hello\"}}";
+
+    private static final String GIFT = "{\"cmd\":7,\"data\":{\"fromUserId\":\"u1\"," +
+            "\"fromUserName\":\"Alice\",\"toUserId\":\"u2\",\"toUserName\":\"Bob\",\"giftId\":3}}";
+
+    private static final String NOTIFY = "{\"cmd\":2,\"data\":{\"total\":12,\"list\":[" +
+            "{\"userId\":\"u3\",\"userName\":\"Carol\",\"role\":3,\"state\":1}]}}";
+
+    private static final String SEAT = "{\"cmd\":5,\"data\":[" +
+            "{\"seat\":{\"no\":1,\"state\":1},\"user\":{\"userId\":\"u1\",\"userName\":\"Alice\"," +
+            "\"uid\":101,\"enableAudio\":1,\"enableVideo\":0}}]}";
+
+    private static RtmMessageListener countingListener(AtomicInteger calls) {
+        return (RtmMessageListener) Proxy.newProxyInstance(
+                RtmMessageListener.class.getClassLoader(),
+                new Class[] { RtmMessageListener.class },
+                (proxy, method, args) -> {
+                    calls.incrementAndGet();
+                    return null;
+                });
+    }
+
+    private static RtmMessageListener recordingListener(List<Object> received) {
+        return (RtmMessageListener) Proxy.newProxyInstance(
+                RtmMessageListener.class.getClassLoader(),
+                new Class[] { RtmMessageListener.class },
+                (proxy, method, args) -> {
+                    received.add(args[0]);
+                    return null;
+                });
+    }
+
+    @Test
+    public void parsesChannelMessages() {
+        RtmEvent.Chat chat = (RtmEvent.Chat) RtmEvent.fromChannelMessage(CHAT);
+        assertNotNull(chat);
+        assertEquals("Alice", chat.userName);
+        assertEquals("hello", chat.message);
+
+        RtmEvent.Gift gift = (RtmEvent.Gift) RtmEvent.fromChannelMessage(GIFT);
+        assertNotNull(gift);
+        assertEquals(3, gift.giftId);
+
+        RtmEvent.Notification notification = (RtmEvent.Notification) RtmEvent.fromChannelMessage(NOTIFY);
+        assertNotNull(notification);
+        assertEquals(12, notification.total);
+        try {
+            notification.list.clear();
+            fail("lists of events must not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        assertNull(RtmEvent.fromChannelMessage("{\"cmd\":1}"));
+        assertNull(RtmEvent.fromChannelMessage("{\"cmd\":99,\"data\":{}}"));
+        assertNull(RtmEvent.fromChannelMessage("{\"data\":{}}"));
+        assertTrue(RtmEvent.fromChannelMessage("{\"cmd\":8}") instanceof RtmEvent.Leave);
+    }
+
+    @Test
+    public void parsesOnceForAnyListenerCount() {
+        for (int count = 1; count <= LISTENERS; count++) {
+            RtmEvent event = RtmEvent.fromChannelMessage(SEAT);
+            assertNotNull(event);
+
+            // Every listener gets the list parsed for the event
+            List<Object> received = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                event.dispatch(recordingListener(received));
+            }
+            assertEquals(count, received.size());
+            for (Object list : received) {
+                assertSame(((RtmEvent.SeatState) event).list, list);
+            }
+        }
+    }
+
+    @Test
+    public void deliversOneEventToAllListeners() {
+        AtomicInteger calls = new AtomicInteger();
+        RtmEvent event = RtmEvent.fromChannelMessage(SEAT);
+        assertNotNull(event);
+
+        for (int i = 0; i < LISTENERS; i++) {
+            event.dispatch(countingListener(calls));
+        }
+        assertEquals(LISTENERS, calls.get());
+
+        List<SeatStateMessage.SeatStateMessageDataItem> list = ((RtmEvent.SeatState) event).list;
+        assertEquals(101, list.get(0).user.uid);
+    }
+}
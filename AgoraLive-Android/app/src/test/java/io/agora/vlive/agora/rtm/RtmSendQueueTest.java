@@ -0,0 +1,127 @@
+package io.agora.vlive.agora.rtm;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.agora.rtm.ErrorInfo;
+import io.agora.rtm.ResultCallback;
+import io.agora.rtm.RtmStatusCode;
+import io.agora.vlive.agora.rtm.model.ChatMessage;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the rate and the order of outgoing messages without
+ * a looper: the queue is drained by hand at given times as
+ * the scheduled drains would do.
+ */
+public class RtmSendQueueTest {
+    private List<String> mSent;
+    private RtmSendQueue mQueue;
+
+    @Before
+    public void setUp() {
+        mSent = new ArrayList<>();
+        mQueue = new RtmSendQueue(null, (message, callback) -> {
+            mSent.add(message);
+            callback.onSuccess(null);
+        });
+    }
+
+    private static ChatMessage chat(String user, int index) {
+        return new ChatMessage(user, user, "message " + index);
+    }
+
+    private static ResultCallback<Void> counting(AtomicInteger successes, AtomicInteger failures) {
+        return new ResultCallback<Void>() {
+            @Override
+            public void onSuccess(Void aVoid) {
+                successes.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(ErrorInfo errorInfo) {
+                failures.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    public void boundsSendRate() {
+        int messages = 40;
+        for (int i = 0; i < messages; i++) {
+            mQueue.enqueueChat(chat("u1", i), null);
+        }
+
+        // A burst is sent at once, the rest one by one
+        int burst = mSent.size();
+        assertTrue(burst >= RtmSendQueue.SEND_BURST && burst < messages);
+
+        long start = RtmSendQueue.now();
+        long now = start;
+        long delay;
+        while ((delay = mQueue.drain(now)) >= 0) {
+            now += delay;
+        }
+        now -= start;
+
+        assertEquals(messages, mSent.size());
+        assertEquals(messages, mQueue.getSentCount());
+        assertTrue(mSent.get(messages - 1).contains("message 39"));
+
+        // Every second sends no more than the rate allows
+        long expected = (messages - burst) * 1000L / RtmSendQueue.SEND_RATE;
+        assertTrue("sent in " + now + " ms", now >= expected - 1000 / RtmSendQueue.SEND_RATE);
+    }
+
+    @Test
+    public void dropsOldestChats() {
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        int messages = RtmSendQueue.SEND_BURST + RtmSendQueue.MAX_PENDING_CHATS + 7;
+        for (int i = 0; i < messages; i++) {
+            mQueue.enqueueChat(chat("u1", i), counting(successes, failures));
+        }
+
+        assertEquals(RtmSendQueue.MAX_PENDING_CHATS, mQueue.getPendingCount());
+        assertEquals(7, mQueue.getDroppedCount());
+        assertEquals(7, failures.get());
+
+        mQueue.clear();
+        assertEquals(0, mQueue.getPendingCount());
+        assertEquals(7 + RtmSendQueue.MAX_PENDING_CHATS, failures.get());
+        assertEquals(RtmSendQueue.SEND_BURST, successes.get());
+        assertEquals(messages, mQueue.getQueuedCount());
+    }
+
+    @Test
+    public void clearFailsAsNotInChannel() {
+        List<Integer> codes = new ArrayList<>();
+        ResultCallback<Void> callback = new ResultCallback<Void>() {
+            @Override
+            public void onSuccess(Void aVoid) {
+
+            }
+
+            @Override
+            public void onFailure(ErrorInfo errorInfo) {
+                codes.add(errorInfo.getErrorCode());
+            }
+        };
+
+        for (int i = 0; i < RtmSendQueue.SEND_BURST + RtmSendQueue.MAX_PENDING_CHATS + 1; i++) {
+            mQueue.enqueueChat(chat("u1", i), callback);
+        }
+        mQueue.clear();
+
+        assertEquals(1 + RtmSendQueue.MAX_PENDING_CHATS, codes.size());
+        assertEquals(RtmStatusCode.ChannelMessageError.CHANNEL_MESSAGE_ERR_TOO_OFTEN, (int) codes.get(0));
+        for (int i = 1; i < codes.size(); i++) {
+            assertEquals(RtmStatusCode.ChannelMessageError.CHANNEL_MESSAGE_ERR_FAILURE, (int) codes.get(i));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package io.agora.vlive.protocol;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.agora.vlive.protocol.json.ProtocolGson;
+import io.agora.vlive.protocol.model.request.Request;
+import io.agora.vlive.protocol.model.response.MusicListResponse;
+import io.agora.vlive.protocol.model.response.ProductListResponse;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that catalogs are kept apart by their keys, are
+ * reloaded from disk by a new store through the temporary
+ * file, and are not used once older than the max age.
+ */
+public class CatalogStoreTest {
+    private static final String PRODUCTS = "{\"code\":0,\"msg\":\"ok\",\"data\":[" +
+            "{\"productId\":\"p1\",\"productName\":\"Tea\",\"price\":12,\"state\":1}," +
+            "{\"productId\":\"p2\",\"productName\":\"Cup\",\"price\":30,\"state\":0}]}";
+
+    private File mDir;
+    private CatalogStore mStore;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("catalog_store").toFile();
+        mStore = newStore();
+    }
+
+    @After
+    public void tearDown() {
+        delete(mDir);
+    }
+
+    private CatalogStore newStore() {
+        CatalogStore store = new CatalogStore();
+        store.setDirectory(mDir);
+        return store;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        file.delete();
+    }
+
+    private static ProductListResponse products() {
+        return ProtocolGson.gson().fromJson(PRODUCTS, ProductListResponse.class);
+    }
+
+    private File file(String name) {
+        return new File(mDir, "catalog/" + name);
+    }
+
+    @Test
+    public void keepsCatalogsApart() {
+        assertNull(mStore.peek(Request.PRODUCT_LIST, "room1", ProductListResponse.class));
+
+        ProductListResponse response = products();
+        mStore.put(Request.PRODUCT_LIST, "room1", response);
+        assertSame(response, mStore.peek(Request.PRODUCT_LIST, "room1", ProductListResponse.class));
+        assertNull(mStore.peek(Request.PRODUCT_LIST, "room2", ProductListResponse.class));
+        assertNull(mStore.peek(Request.PRODUCT_LIST, null, ProductListResponse.class));
+
+        // Not the type stored
+        assertNull(mStore.peek(Request.PRODUCT_LIST, "room1", MusicListResponse.class));
+    }
+
+    @Test
+    public void reloadsFromDisk() throws InterruptedException {
+        mStore.put(Request.PRODUCT_LIST, "room1", products());
+
+        // Reads wait for the writes in the store thread
+        assertNotNull(mStore.get(Request.PRODUCT_LIST, "room1", ProductListResponse.class));
+        assertTrue(file("product_list-room1.json").exists());
+        assertFalse(file("product_list-room1.tmp").exists());
+
+        CatalogStore store = newStore();
+        assertNull(store.peek(Request.PRODUCT_LIST, "room1", ProductListResponse.class));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        ProductListResponse[] result = new ProductListResponse[1];
+        store.load(Request.PRODUCT_LIST, "room1", ProductListResponse.class, response -> {
+            result[0] = response;
+            latch.countDown();
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        ProductListResponse response = result[0];
+        assertNotNull(response);
+        assertEquals(2, response.data.size());
+        assertEquals("p2", response.data.get(1).productId);
+        assertEquals(30, response.data.get(1).price);
+
+        // Loaded into memory
+        assertSame(response, store.peek(Request.PRODUCT_LIST, "room1", ProductListResponse.class));
+        assertNull(store.get(Request.PRODUCT_LIST, "room2", ProductListResponse.class));
+    }
+
+    @Test
+    public void ignoresExpiredCatalogs() {
+        mStore.put(Request.PRODUCT_LIST, "room1", products());
+        assertNotNull(mStore.get(Request.PRODUCT_LIST, "room1", ProductListResponse.class));
+
+        // The age on disk is the time of the file
+        File file = file("product_list-room1.json");
+        assertTrue(file.setLastModified(System.currentTimeMillis() - CatalogStore.MAX_AGE - 60 * 1000));
+        CatalogStore store = newStore();
+        assertNull(store.get(Request.PRODUCT_LIST, "room1", ProductListResponse.class));
+        assertNull(store.peek(Request.PRODUCT_LIST, "room1", ProductListResponse.class));
+
+        // Used again once the next response is stored
+        store.put(Request.PRODUCT_LIST, "room1", products());
+        assertNotNull(store.get(Request.PRODUCT_LIST, "room1", ProductListResponse.class));
+        assertNotNull(newStore().get(Request.PRODUCT_LIST, "room1", ProductListResponse.class));
+    }
+}
@@ -0,0 +1,100 @@
+package io.agora.vlive.protocol;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.agora.vlive.protocol.model.request.Request;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that identical read-only requests in flight share
+ * one pending call, and that requests in flight for longer
+ * than the max period are sent again.
+ */
+public class RequestCoalescerTest {
+    private long mNow;
+    private RequestCoalescer mCoalescer;
+
+    @Before
+    public void setUp() {
+        mNow = 1000;
+        mCoalescer = new RequestCoalescer() {
+            @Override
+            long now() {
+                return mNow;
+            }
+        };
+    }
+
+    private RequestFuture<?> attach(int request, Object params) {
+        return mCoalescer.attach(request, params, 0, false);
+    }
+
+    @Test
+    public void mergesSameKey() {
+        RequestFuture<?> first = attach(Request.ROOM_LIST, "page1");
+        RequestFuture<?> second = attach(Request.ROOM_LIST, "page1");
+        assertNotSame(first, second);
+        assertSame(first.getCall(), second.getCall());
+        assertEquals(1, mCoalescer.getMergedCount());
+
+        // Only the first caller sends the request
+        assertTrue(first.getCall().start());
+        assertFalse(second.getCall().start());
+
+        // Other parameters or request types are another key
+        assertNotSame(first.getCall(), attach(Request.ROOM_LIST, "page2").getCall());
+        assertNotSame(first.getCall(), attach(Request.AUDIENCE_LIST, "page1").getCall());
+        assertEquals(1, mCoalescer.getMergedCount());
+    }
+
+    @Test
+    public void neverMergesRequestsChangingState() {
+        RequestFuture<?> first = attach(Request.ENTER_ROOM, "room1");
+        RequestFuture<?> second = attach(Request.ENTER_ROOM, "room1");
+        assertNotSame(first.getCall(), second.getCall());
+        assertNull(first.getCall().getKey());
+        assertEquals(0, mCoalescer.getMergedCount());
+    }
+
+    @Test
+    public void sendsAgainAfterFinish() {
+        RequestFuture<?> first = attach(Request.ROOM_LIST, "page1");
+        mCoalescer.finish(first.getCall());
+        first.getCall().finish();
+
+        assertNotSame(first.getCall(), attach(Request.ROOM_LIST, "page1").getCall());
+        assertEquals(0, mCoalescer.getMergedCount());
+    }
+
+    @Test
+    public void expiresRequestsInFlight() {
+        RequestFuture<?> first = attach(Request.ROOM_LIST, "page1");
+
+        mNow += RequestCoalescer.MAX_IN_FLIGHT_PERIOD - 1;
+        assertSame(first.getCall(), attach(Request.ROOM_LIST, "page1").getCall());
+
+        // Regarded as lost, the request is sent again
+        mNow += 1;
+        RequestFuture<?> second = attach(Request.ROOM_LIST, "page1");
+        assertNotSame(first.getCall(), second.getCall());
+
+        // The lost one finishing late does not remove
+        // the request sent again
+        mCoalescer.finish(first.getCall());
+        assertSame(second.getCall(), attach(Request.ROOM_LIST, "page1").getCall());
+    }
+
+    @Test
+    public void sendsAgainWhenAllCallersCancelled() {
+        RequestFuture<?> first = attach(Request.ROOM_LIST, "page1");
+        RequestFuture<?> second = attach(Request.ROOM_LIST, "page1");
+        assertTrue(first.cancel());
+        assertTrue(second.cancel());
+
+        RequestFuture<?> third = attach(Request.ROOM_LIST, "page1");
+        assertNotSame(first.getCall(), third.getCall());
+        assertTrue(third.getCall().start());
+    }
+}
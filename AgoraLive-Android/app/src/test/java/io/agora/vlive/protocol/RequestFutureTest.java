@@ -0,0 +1,187 @@
+package io.agora.vlive.protocol;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.vlive.protocol.model.request.Request;
+import retrofit2.Call;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how the futures of one pending call are cancelled,
+ * completed and failed, and when the network call is
+ * cancelled with them.
+ */
+public class RequestFutureTest {
+    private final List<String> mResults = new ArrayList<>();
+    private int mCallCancels;
+    private PendingCall<String> mCall;
+
+    @Before
+    public void setUp() {
+        mResults.clear();
+        mCallCancels = 0;
+        mCall = new PendingCall<>(Request.ROOM_LIST, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Call<String> networkCall() {
+        return (Call<String>) Proxy.newProxyInstance(Call.class.getClassLoader(),
+                new Class[] { Call.class }, (proxy, method, args) -> {
+                    if ("cancel".equals(method.getName())) mCallCancels++;
+                    return null;
+                });
+    }
+
+    private RequestFuture<String> attach(String name, boolean broadcast) {
+        return listen(mCall.attach(0, broadcast), name);
+    }
+
+    private RequestFuture<String> listen(RequestFuture<String> future, String name) {
+        return future.then(new RequestFuture.Callback<String>() {
+            @Override
+            public void onSuccess(@NonNull String response) {
+                mResults.add(name + " " + response);
+            }
+
+            @Override
+            public void onFailure(int requestType, int error, String message) {
+                mResults.add(name + " " + requestType + " " + error + " " + message);
+            }
+        });
+    }
+
+    private void complete(String response) {
+        for (RequestFuture<String> future : mCall.finish()) {
+            future.complete(response);
+        }
+    }
+
+    @Test
+    public void cancelsOneOfManyWaiters() {
+        RequestFuture<String> a = attach("a", false);
+        RequestFuture<String> b = attach("b", false);
+        mCall.setCall(networkCall());
+
+        assertTrue(a.cancel());
+        assertFalse(a.cancel());
+        assertTrue(a.isCancelled());
+        assertEquals("b still waits", 0, mCallCancels);
+
+        complete("ok");
+        assertEquals(1, mResults.size());
+        assertEquals("b ok", mResults.get(0));
+        assertTrue(b.isDone());
+        assertFalse(b.isCancelled());
+    }
+
+    @Test
+    public void cancelsNetworkCallWithLastWaiter() {
+        RequestFuture<String> a = attach("a", false);
+        RequestFuture<String> b = attach("b", false);
+        mCall.setCall(networkCall());
+        a.cancel();
+        b.cancel();
+        assertEquals(1, mCallCancels);
+        assertNull(mCall.attach(0, false));
+
+        // A call set after the cancel is cancelled at once
+        mCall.setCall(networkCall());
+        assertEquals(2, mCallCancels);
+    }
+
+    @Test
+    public void keepsBroadcastCallsRunning() {
+        RequestFuture<String> a = attach("a", true);
+        mCall.setCall(networkCall());
+        a.cancel();
+        assertEquals("proxy listeners wait for the result", 0, mCallCancels);
+        assertTrue(mCall.isBroadcast());
+    }
+
+    @Test
+    public void finishesAfterCancel() {
+        RequestFuture<String> a = attach("a", false);
+        RequestFuture<String> b = attach("b", false);
+        b.cancel();
+        complete("ok");
+        assertEquals(1, mResults.size());
+
+        // Cancelled futures never call back
+        b.complete("late");
+        b.then(new RequestFuture.Callback<String>() {
+            @Override
+            public void onSuccess(@NonNull String response) {
+                fail();
+            }
+
+            @Override
+            public void onFailure(int requestType, int error, String message) {
+                fail();
+            }
+        });
+
+        // Completed ones call new callbacks at once, and
+        // neither cancel nor change their result
+        assertFalse(a.cancel());
+        a.fail(RequestFuture.ERROR_CONNECTION, "late");
+        listen(a, "again");
+        assertEquals("again ok", mResults.get(1));
+        assertEquals(2, mResults.size());
+    }
+
+    @Test
+    public void failsAllWaiters() {
+        attach("a", false);
+        attach("b", true);
+        RequestFuture<String> c = attach("c", false);
+        c.cancel();
+
+        for (RequestFuture<String> future : mCall.finish()) {
+            future.fail(RequestFuture.ERROR_CONNECTION, "timeout");
+        }
+
+        assertEquals(2, mResults.size());
+        assertEquals("a " + Request.ROOM_LIST + " -1 timeout", mResults.get(0));
+        assertEquals("b " + Request.ROOM_LIST + " -1 timeout", mResults.get(1));
+    }
+
+    @Test
+    public void cancelsGroup() {
+        RequestGroup group = new RequestGroup();
+        RequestFuture<String> a = group.add(attach("a", false));
+        RequestFuture<String> b = group.add(attach("b", false));
+        b.complete("ok");
+        group.cancelAll();
+
+        assertTrue(a.isCancelled());
+        assertFalse(b.isCancelled());
+        assertEquals(1, mResults.size());
+
+        // Emptied, cancelling again does nothing
+        group.cancelAll();
+        assertEquals(1, mResults.size());
+    }
+
+    @Test
+    public void boundCallbacksNotCalledAfterGroupCancelled() {
+        // Like the requests of a destroyed activity
+        RequestGroup group = new RequestGroup();
+        group.add(attach("a", false));
+        group.add(attach("b", false));
+        mCall.setCall(networkCall());
+        group.cancelAll();
+        assertEquals(1, mCallCancels);
+
+        // The result comes anyway
+        complete("ok");
+        assertTrue(mResults.isEmpty());
+    }
+}
@@ -0,0 +1,155 @@
+package io.agora.vlive.protocol;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.agora.vlive.protocol.json.ProtocolGson;
+import io.agora.vlive.protocol.model.model.RoomInfo;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that entries are fresh, then stale, then expired
+ * as they get older, and that a new cache reloads the
+ * entries written to disk by another one.
+ */
+public class RoomListCacheTest {
+    private static final int TYPE = 1;
+
+    private File mDir;
+    private RoomListCache mCache;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("room_list_cache").toFile();
+        mCache = new RoomListCache();
+        mCache.setDirectory(mDir);
+    }
+
+    @After
+    public void tearDown() {
+        delete(mDir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        file.delete();
+    }
+
+    private static List<RoomInfo> rooms(int count) {
+        List<RoomInfo> rooms = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            RoomInfo room = new RoomInfo();
+            room.roomId = "room" + i;
+            room.roomName = "Room " + i;
+            room.currentUsers = i * 7;
+            rooms.add(room);
+        }
+        return rooms;
+    }
+
+    private static RoomListCache.Entry load(RoomListCache cache, int type, Integer pkState)
+            throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        RoomListCache.Entry[] result = new RoomListCache.Entry[1];
+        cache.load(type, pkState, entry -> {
+            result[0] = entry;
+            latch.countDown();
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        return result[0];
+    }
+
+    @Test
+    public void agesFromFreshToExpired() {
+        assertNull(mCache.peek(TYPE, null));
+
+        mCache.put(TYPE, null, rooms(3));
+        RoomListCache.Entry entry = mCache.peek(TYPE, null);
+        assertNotNull(entry);
+        assertTrue(entry.isFresh());
+        assertEquals(3, entry.rooms.size());
+
+        // Stale entries are still shown, and revalidated
+        entry.updateTime = System.currentTimeMillis() - RoomListCache.FRESH_PERIOD - 1000;
+        assertFalse(entry.isFresh());
+        assertSame(entry, mCache.peek(TYPE, null));
+
+        entry.updateTime = System.currentTimeMillis() - RoomListCache.MAX_STALE_PERIOD - 1000;
+        assertNull(mCache.peek(TYPE, null));
+    }
+
+    @Test
+    public void keepsRoomTypesApart() {
+        mCache.put(TYPE, null, rooms(1));
+        mCache.put(TYPE, 1, rooms(2));
+        assertEquals(1, mCache.peek(TYPE, null).rooms.size());
+        assertEquals(2, mCache.peek(TYPE, 1).rooms.size());
+        assertNull(mCache.peek(TYPE + 1, null));
+    }
+
+    @Test
+    public void reloadsFromDisk() throws InterruptedException {
+        mCache.put(TYPE, null, rooms(3));
+        mCache.put(TYPE, 1, null);
+
+        // Loads run after the writes in the disk thread
+        assertNotNull(load(mCache, TYPE, null));
+        assertTrue(new File(mDir, "room_list/" + TYPE + ".json").exists());
+        assertFalse(new File(mDir, "room_list/" + TYPE + ".tmp").exists());
+
+        RoomListCache cache = new RoomListCache();
+        cache.setDirectory(mDir);
+        assertNull(cache.peek(TYPE, null));
+
+        RoomListCache.Entry entry = load(cache, TYPE, null);
+        assertNotNull(entry);
+        assertEquals(3, entry.rooms.size());
+        assertEquals("room2", entry.rooms.get(2).roomId);
+        assertEquals(14, entry.rooms.get(2).currentUsers);
+        assertTrue(entry.isFresh());
+        assertTrue(load(cache, TYPE, 1).rooms.isEmpty());
+        assertNull(load(cache, TYPE + 1, null));
+
+        // Loaded into memory
+        assertSame(entry, cache.peek(TYPE, null));
+    }
+
+    @Test
+    public void ignoresExpiredEntriesOnDisk() throws Exception {
+        RoomListCache.Entry old = new RoomListCache.Entry();
+        old.rooms = rooms(1);
+        old.updateTime = System.currentTimeMillis() - RoomListCache.MAX_STALE_PERIOD - 1000;
+        File dir = new File(mDir, "room_list");
+        assertTrue(dir.mkdirs());
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(
+                new File(dir, TYPE + ".json")), StandardCharsets.UTF_8)) {
+            ProtocolGson.gson().toJson(old, writer);
+        }
+
+        assertNull(load(mCache, TYPE, null));
+        assertNull(mCache.peek(TYPE, null));
+
+        // Replaced by the next response
+        mCache.put(TYPE, null, rooms(2));
+        RoomListCache cache = new RoomListCache();
+        cache.setDirectory(mDir);
+        assertNotNull(load(mCache, TYPE, null));
+        assertEquals(2, load(cache, TYPE, null).rooms.size());
+    }
+}
@@ -0,0 +1,59 @@
+package io.agora.vlive.protocol.json;
+
+import org.junit.Test;
+
+import io.agora.vlive.agora.rtm.model.ChatMessage;
+import io.agora.vlive.agora.rtm.model.SeatStateMessage;
+import io.agora.vlive.protocol.model.response.AudienceListResponse;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that only top level fields are peeked, and that
+ * messages and responses are parsed by the shared instance.
+ */
+public class ProtocolGsonTest {
+    private static final String CHAT = "{\"cmd\":1,\"data\":{\"fromUserId\":\"u1\"," +
+            "\"fromUserName\":\"Alice\",\"message\":\"hello \\u4f60\\u597d\",\"extra\":[1,2]}}";
+
+    private static final String SEAT = "{\"cmd\":5,\"data\":[" +
+            "{\"seat\":{\"no\":1,\"state\":1},\"user\":{\"userId\":\"u1\",\"userName\":\"Alice\"," +
+            "\"uid\":101,\"enableAudio\":1,\"enableVideo\":0}}," +
+            "{\"seat\":{\"no\":2,\"state\":0},\"user\":null}]}";
+
+    private static final String AUDIENCE_LIST = "{\"code\":0,\"msg\":\"ok\",\"data\":{\"count\":2," +
+            "\"total\":2,\"next\":null,\"list\":[{\"userId\":\"u1\",\"userName\":\"Alice\"," +
+            "\"avatar\":\"a.png\",\"uid\":101},{\"userId\":\"u2\",\"userName\":\"Bob\"," +
+            "\"avatar\":null,\"uid\":\"102\"}]}}";
+
+    @Test
+    public void peekReadsTopLevelFieldOnly() {
+        assertEquals(1, ProtocolGson.peekInt(CHAT, "cmd", -1));
+        assertEquals(5, ProtocolGson.peekInt(SEAT, "cmd", -1));
+        assertEquals(7, ProtocolGson.peekInt("{\"data\":{\"cmd\":3},\"cmd\":7}", "cmd", -1));
+        assertEquals(-1, ProtocolGson.peekInt("{\"data\":{\"cmd\":3}}", "cmd", -1));
+        assertEquals(-1, ProtocolGson.peekInt("{\"cmd\":null}", "cmd", -1));
+        assertEquals(-1, ProtocolGson.peekInt("not json", "cmd", -1));
+        assertEquals(-1, ProtocolGson.peekInt("[1,2]", "cmd", -1));
+    }
+
+    @Test
+    public void parsesMessagesAndResponses() {
+        assertSame(ProtocolGson.gson(), ProtocolGson.gson());
+
+        ChatMessage chat = ProtocolGson.gson().fromJson(CHAT, ChatMessage.class);
+        assertEquals(1, chat.cmd);
+        assertEquals("hello 你好", chat.data.message);
+
+        SeatStateMessage seat = ProtocolGson.gson().fromJson(SEAT, SeatStateMessage.class);
+        assertEquals(2, seat.data.size());
+        assertEquals(101, seat.data.get(0).user.uid);
+        assertNull(seat.data.get(1).user);
+
+        AudienceListResponse audience = ProtocolGson.gson().fromJson(AUDIENCE_LIST,
+                AudienceListResponse.class);
+        assertEquals(2, audience.data.list.size());
+        assertEquals("102", audience.data.list.get(1).uid);
+        assertNull(audience.data.list.get(1).avatar);
+    }
+}
@@ -0,0 +1,77 @@
+package io.agora.vlive.ui.components;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a gift storm turns into a bounded number of
+ * animations: repeated gifts become combos, and the cheapest
+ * gifts are dropped when too many are waiting.
+ */
+public class GiftAnimQueueTest {
+    private GiftAnimQueue mQueue;
+
+    @Before
+    public void setUp() {
+        mQueue = new GiftAnimQueue();
+    }
+
+    @Test
+    public void mergesGiftsOfSender() {
+        GiftAnimQueue.Entry first = mQueue.add("u1", 2, 1);
+        assertSame(first, mQueue.next());
+
+        // Merged into the playing gift as a combo
+        assertSame(first, mQueue.add("u1", 2, 3));
+        assertEquals(4, first.count);
+
+        // Another gift or sender waits for its own animation
+        GiftAnimQueue.Entry other = mQueue.add("u1", 3, 1);
+        assertNotSame(first, other);
+        assertNotSame(other, mQueue.add("u2", 3, 1));
+        assertSame(other, mQueue.add("u1", 3, 2));
+        assertEquals(3, other.count);
+
+        assertEquals(2, mQueue.getPendingCount());
+        assertEquals(2, mQueue.getMergedCount());
+    }
+
+    @Test
+    public void dropsCheapestGifts() {
+        for (int i = 0; i < GiftAnimQueue.MAX_PENDING; i++) {
+            assertNotNull(mQueue.add("u" + i, 1 + i % 3, 1));
+        }
+
+        // Not more expensive than the cheapest waiting gift
+        assertNull(mQueue.add("u100", 1, 1));
+        assertNull(mQueue.add("u101", 0, 1));
+
+        // Replaces the oldest cheapest waiting gift
+        assertNotNull(mQueue.add("u102", 7, 1));
+        assertEquals(GiftAnimQueue.MAX_PENDING, mQueue.getPendingCount());
+        assertEquals(3, mQueue.getDroppedCount());
+        assertEquals(2, mQueue.next().giftIndex);
+    }
+
+    @Test
+    public void boundsGiftStorm() {
+        // Fifty users send their gifts again and again
+        int gifts = 2000;
+        int animations = 0;
+        for (int i = 0; i < gifts; i++) {
+            mQueue.add("u" + (i % 50), i % 50 % 8, 1);
+
+            // One animation ends every 20 gifts
+            if (i % 20 == 0) {
+                mQueue.finish();
+                if (mQueue.next() != null) animations++;
+            }
+            assertTrue(mQueue.getPendingCount() <= GiftAnimQueue.MAX_PENDING);
+        }
+
+        assertEquals(gifts, animations + mQueue.getPendingCount() +
+                mQueue.getMergedCount() + mQueue.getDroppedCount());
+    }
+}
@@ -0,0 +1,47 @@
+package io.agora.vlive.ui.live;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the phases of entering a room are traced once
+ * from the press of the card, and phases of other rooms are
+ * ignored.
+ */
+public class RoomEntryTraceTest {
+    @Test
+    public void tracesPhasesFromPress() {
+        RoomEntryTrace.begin("1", RoomEntryTrace.PHASE_PRESS);
+        RoomEntryTrace.begin("1", RoomEntryTrace.PHASE_CLICK);
+        RoomEntryTrace.mark("1", RoomEntryTrace.PHASE_ENTER_TAKEN);
+        RoomEntryTrace.mark("1", RoomEntryTrace.PHASE_ENTER_TAKEN);
+        RoomEntryTrace.mark("2", RoomEntryTrace.PHASE_RTC_JOINED);
+
+        String trace = RoomEntryTrace.finish("1", RoomEntryTrace.PHASE_FIRST_FRAME);
+        assertNotNull(trace);
+        assertTrue(trace.startsWith("enter room 1"));
+        assertTrue(trace.indexOf(RoomEntryTrace.PHASE_PRESS) < trace.indexOf(RoomEntryTrace.PHASE_CLICK));
+        assertEquals(trace.indexOf(RoomEntryTrace.PHASE_ENTER_TAKEN),
+                trace.lastIndexOf(RoomEntryTrace.PHASE_ENTER_TAKEN));
+        assertFalse(trace.contains(RoomEntryTrace.PHASE_RTC_JOINED));
+        assertTrue(trace.contains(RoomEntryTrace.PHASE_FIRST_FRAME));
+
+        // Finished only once
+        assertNull(RoomEntryTrace.finish("1", RoomEntryTrace.PHASE_LEFT));
+    }
+
+    @Test
+    public void restartsOnAnotherPress() {
+        RoomEntryTrace.begin("1", RoomEntryTrace.PHASE_PRESS);
+        RoomEntryTrace.begin("2", RoomEntryTrace.PHASE_PRESS);
+        assertNull(RoomEntryTrace.finish("1", RoomEntryTrace.PHASE_LEFT));
+
+        // A click without a press starts the trace
+        RoomEntryTrace.begin("2", RoomEntryTrace.PHASE_PRESS);
+        RoomEntryTrace.begin("3", RoomEntryTrace.PHASE_CLICK);
+        String trace = RoomEntryTrace.finish("3", RoomEntryTrace.PHASE_LEFT);
+        assertFalse(trace.contains(RoomEntryTrace.PHASE_PRESS));
+        assertTrue(trace.contains("click: +0 ms"));
+    }
+}
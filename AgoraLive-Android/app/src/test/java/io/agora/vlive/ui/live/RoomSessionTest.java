@@ -0,0 +1,143 @@
+package io.agora.vlive.ui.live;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that both channels are joined at the same time,
+ * that failed joins are retried until the session fails,
+ * and that results after leaving are ignored.
+ */
+public class RoomSessionTest {
+    private final List<String> mCalls = new ArrayList<>();
+    private final List<Integer> mStates = new ArrayList<>();
+    private boolean mRtcFails;
+    private RoomSession mSession;
+
+    @Before
+    public void setUp() {
+        mCalls.clear();
+        mStates.clear();
+        mRtcFails = false;
+        mSession = new RoomSession(null, new RoomSession.Channels() {
+            @Override
+            public boolean joinRtc() {
+                mCalls.add("join rtc");
+                return !mRtcFails;
+            }
+
+            @Override
+            public boolean joinRtm() {
+                mCalls.add("join rtm");
+                return true;
+            }
+
+            @Override
+            public void leaveRtc() {
+                mCalls.add("leave rtc");
+            }
+
+            @Override
+            public void leaveRtm() {
+                mCalls.add("leave rtm");
+            }
+
+            @Override
+            public boolean isRtcJoined() {
+                return false;
+            }
+        }, (session, state) -> mStates.add(state));
+    }
+
+    @Test
+    public void joinsBothChannelsAtOnce() {
+        mSession.onEnterSent(RoomSession.ENTER_PRE_JOINED);
+        mSession.join();
+
+        // Both joins start before any of them succeeds
+        assertEquals(2, mCalls.size());
+        assertEquals(RoomSession.STATE_JOINING, mSession.getState());
+
+        mSession.onRtmJoined();
+        assertFalse(mSession.isReady());
+        mSession.onRtcJoined();
+        assertTrue(mSession.isReady());
+
+        mSession.onFirstRemoteFrame();
+        String latency = mSession.getLatency();
+        assertTrue(latency, latency.contains("pre-joined"));
+        assertTrue(latency, latency.matches(".*rtc join \\d+ ms \\(0 retries\\).*"));
+        assertFalse(latency, latency.contains("first remote frame -"));
+        assertTrue(latency, latency.contains("first local frame -"));
+    }
+
+    @Test
+    public void retriesFailedJoins() {
+        mSession.join();
+        mSession.onRtmJoinFailed();
+        assertEquals("leave rtm", mCalls.get(2));
+
+        mSession.retry();
+        assertEquals("join rtm", mCalls.get(3));
+        mSession.onRtmJoined();
+
+        // The rtc join fails at once every time
+        mRtcFails = true;
+        mSession.onRtcJoinFailed();
+        for (int i = 0; i < RoomSession.MAX_RETRIES; i++) {
+            assertEquals(RoomSession.STATE_JOINING, mSession.getState());
+            mSession.retry();
+        }
+        assertEquals(RoomSession.STATE_FAILED, mSession.getState());
+        assertTrue(mSession.getLatency().contains("rtc join - (4 retries)"));
+        assertTrue(mSession.getLatency().matches(".*rtm join \\d+ ms \\(1 retries\\).*"));
+    }
+
+    @Test
+    public void ignoresResultsAfterLeaving() {
+        mSession.join();
+        mSession.leave();
+        mSession.onRtcJoined();
+        mSession.onRtmJoined();
+        assertEquals(RoomSession.STATE_LEFT, mSession.getState());
+        assertTrue(mCalls.contains("leave rtc"));
+        assertTrue(mCalls.contains("leave rtm"));
+
+        // Entering another room starts a new session
+        mSession.onEnterSent(RoomSession.ENTER_SWITCHED);
+        mSession.join();
+        mSession.onRtcJoined();
+        mSession.onRtmJoined();
+        assertTrue(mSession.isReady());
+        assertTrue(mSession.getLatency().contains("switched"));
+        assertEquals(RoomSession.STATE_READY, (int) mStates.get(mStates.size() - 1));
+    }
+
+    @Test
+    public void startsAtTheTimeSent() {
+        mSession.join();
+        mSession.onRtcJoined();
+        mSession.onRtmJoined();
+
+        // Started once the next room of a switch is entered
+        mSession.onEnterSent(RoomSession.ENTER_SWITCHED, RoomSession.now() - 500);
+        assertEquals(RoomSession.STATE_ENTERING, mSession.getState());
+        mSession.join();
+        String latency = mSession.getLatency();
+        int enter = Integer.parseInt(latency.substring("enter ".length(), latency.indexOf(" ms")));
+        assertTrue(latency, enter >= 500);
+        assertTrue(latency, latency.contains("switched"));
+    }
+
+    @Test
+    public void doublesRetryDelay() {
+        assertEquals(RoomSession.RETRY_DELAY, RoomSession.retryDelay(0));
+        assertEquals(RoomSession.RETRY_DELAY * 4, RoomSession.retryDelay(2));
+        assertEquals(RoomSession.MAX_RETRY_DELAY, RoomSession.retryDelay(30));
+    }
+}
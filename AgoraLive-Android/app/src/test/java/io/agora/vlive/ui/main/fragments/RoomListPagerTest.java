@@ -0,0 +1,184 @@
+package io.agora.vlive.ui.main.fragments;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.vlive.agora.rtm.model.RoomListChangeMessage.RoomChange;
+import io.agora.vlive.protocol.model.model.RoomInfo;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that pages are requested ahead of the end of the
+ * list one at a time, and that rooms shifting between pages
+ * are shown once, also after changes from the lobby.
+ */
+public class RoomListPagerTest {
+    private static final int PAGE_SIZE = 4;
+    private static final int PREFETCH_DISTANCE = 2;
+
+    private final List<String> mRequests = new ArrayList<>();
+    private RoomListPager mPager;
+
+    @Before
+    public void setUp() {
+        mRequests.clear();
+        mPager = new RoomListPager((nextId, count) -> {
+            assertEquals(PAGE_SIZE, count);
+            mRequests.add(nextId);
+        }, PAGE_SIZE, PREFETCH_DISTANCE);
+    }
+
+    private static List<RoomInfo> rooms(int... ids) {
+        List<RoomInfo> list = new ArrayList<>();
+        for (int id : ids) {
+            RoomInfo info = new RoomInfo();
+            info.roomId = String.valueOf(id);
+            list.add(info);
+        }
+        return list;
+    }
+
+    @Test
+    public void prefetchesNextPage() {
+        mPager.refresh();
+        assertEquals(1, mRequests.size());
+        assertNull(mRequests.get(0));
+        assertEquals(4, mPager.onPageLoaded(rooms(1, 2, 3, 4)).size());
+
+        // Not close enough to the end yet
+        assertFalse(mPager.onScrolledTo(1));
+        assertTrue(mPager.onScrolledTo(2));
+        assertEquals("4", mRequests.get(1));
+
+        // One page at a time
+        assertFalse(mPager.onScrolledTo(3));
+        assertEquals(2, mRequests.size());
+
+        assertEquals(8, mPager.onPageLoaded(rooms(5, 6, 7, 8)).size());
+        assertTrue(mPager.onScrolledTo(6));
+        assertEquals("8", mRequests.get(2));
+
+        // A short page is the end of the list
+        assertEquals(9, mPager.onPageLoaded(rooms(9)).size());
+        assertTrue(mPager.isEnd());
+        assertFalse(mPager.onScrolledTo(8));
+    }
+
+    @Test
+    public void skipsShiftedRooms() {
+        mPager.refresh();
+        mPager.onPageLoaded(rooms(1, 2, 3, 4));
+        mPager.onScrolledTo(3);
+
+        // Two rooms are created, so 3 and 4 come again
+        List<RoomInfo> list = mPager.onPageLoaded(rooms(3, 4, 5, 6));
+        assertEquals(6, list.size());
+        assertEquals("6", list.get(5).roomId);
+        assertEquals(2, mPager.getDuplicateCount());
+        assertFalse(mPager.isEnd());
+
+        // The cursor is the last room sent
+        mPager.onScrolledTo(5);
+        assertEquals("6", mRequests.get(2));
+    }
+
+    @Test
+    public void refreshWaitsForLoadingPage() {
+        mPager.refresh();
+        mPager.onPageLoaded(rooms(1, 2, 3, 4));
+        mPager.onScrolledTo(3);
+
+        mPager.refresh();
+        assertEquals(2, mRequests.size());
+
+        // The response is the next page, and then the list
+        // is requested from the start
+        assertEquals(8, mPager.onPageLoaded(rooms(5, 6, 7, 8)).size());
+        assertEquals(3, mRequests.size());
+        assertNull(mRequests.get(2));
+
+        // The first page replaces all the rooms
+        List<RoomInfo> list = mPager.onPageLoaded(rooms(9, 1, 2, 3));
+        assertEquals(4, list.size());
+        assertEquals("9", list.get(0).roomId);
+        assertEquals(0, mPager.getDuplicateCount());
+    }
+
+    @Test
+    public void cachedPageKeepsLoadingPage() {
+        assertEquals(4, mPager.setFirstPage(rooms(1, 2, 3, 4)).size());
+        mPager.onScrolledTo(3);
+        assertNull(mPager.setFirstPage(rooms(1, 2)));
+
+        mPager.onPageFailed();
+        assertFalse(mPager.isLoading());
+        assertEquals(2, mPager.setFirstPage(rooms(1, 2)).size());
+
+        mPager.refresh();
+        mPager.cancel();
+        assertFalse(mPager.isLoading());
+    }
+
+    @Test
+    public void ignoresPagesNotWaitedFor() {
+        mPager.refresh();
+        assertEquals(4, mPager.onPageLoaded(rooms(1, 2, 3, 4)).size());
+
+        // Comes after the page request is cancelled
+        mPager.refresh();
+        mPager.cancel();
+        assertNull(mPager.onPageLoaded(rooms(5, 6)));
+        mPager.onPageFailed();
+        assertEquals(4, mPager.getRooms().size());
+        assertEquals("1", mPager.getRooms().get(0).roomId);
+    }
+
+    private static RoomChange change(int action, int id, int users) {
+        RoomChange change = new RoomChange();
+        change.action = action;
+        change.roomId = String.valueOf(id);
+        change.currentUsers = users;
+        return change;
+    }
+
+    @Test
+    public void appliesLobbyChanges() {
+        mPager.refresh();
+        List<RoomInfo> old = mPager.onPageLoaded(rooms(1, 2, 3, 4));
+        RoomInfo second = old.get(1);
+        second.roomName = "room 2";
+
+        List<RoomChange> changes = new ArrayList<>();
+        changes.add(change(RoomChange.ROOM_ADDED, 5, 1));
+        changes.add(change(RoomChange.ROOM_REMOVED, 3, 0));
+        changes.add(change(RoomChange.ROOM_UPDATED, 2, 7));
+        List<RoomInfo> list = mPager.applyChanges(changes);
+
+        assertEquals(4, list.size());
+        assertEquals("5", list.get(0).roomId);
+        assertEquals("1", list.get(1).roomId);
+        assertEquals("4", list.get(3).roomId);
+
+        // Updated as a new room, the old one is not changed
+        RoomInfo updated = list.get(2);
+        assertNotSame(second, updated);
+        assertEquals(7, updated.currentUsers);
+        assertEquals("room 2", updated.roomName);
+        assertEquals(0, second.currentUsers);
+
+        // Rooms not loaded are ignored
+        changes.clear();
+        changes.add(change(RoomChange.ROOM_REMOVED, 3, 0));
+        changes.add(change(RoomChange.ROOM_UPDATED, 9, 7));
+        assertNull(mPager.applyChanges(changes));
+
+        // A room added is not added again by the next page
+        mPager.onScrolledTo(3);
+        assertEquals(7, mPager.onPageLoaded(rooms(5, 6, 7, 8)).size());
+        assertEquals(1, mPager.getDuplicateCount());
+    }
+}
@@ -0,0 +1,50 @@
+package io.agora.vlive.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RingBufferTest {
+    @Test
+    public void evictsOldest() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        assertNull(buffer.add(0));
+        assertNull(buffer.add(1));
+        assertNull(buffer.add(2));
+        assertEquals(Integer.valueOf(0), buffer.add(3));
+        assertEquals(Integer.valueOf(1), buffer.add(4));
+
+        assertEquals(3, buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            assertEquals(Integer.valueOf(i + 2), buffer.get(i));
+        }
+    }
+
+    @Test
+    public void keepsLatestWhenShrunk() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 6; i++) buffer.add(i);
+
+        assertEquals(2, buffer.setCapacity(2));
+        assertEquals(2, buffer.size());
+        assertEquals(Integer.valueOf(4), buffer.get(0));
+        assertEquals(Integer.valueOf(5), buffer.get(1));
+
+        assertEquals(0, buffer.setCapacity(5));
+        buffer.add(6);
+        assertEquals(3, buffer.size());
+        assertEquals(Integer.valueOf(6), buffer.get(2));
+    }
+
+    @Test
+    public void rejectsIndexOutOfSize() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(2);
+        buffer.add(0);
+        try {
+            buffer.get(1);
+            fail("only added elements can be got");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package io.agora.vlive.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that independent steps run at the same time, and
+ * a step runs only after the steps it depends on.
+ */
+public class StartupGraphTest {
+    private static final long STEP_TIME = 100;
+
+    private ThreadPoolExecutor mPool;
+    private StartupGraph mGraph;
+    private final List<String> mOrder = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        mPool = StartupGraph.newPool();
+        mGraph = new StartupGraph(mPool);
+    }
+
+    @After
+    public void tearDown() {
+        mPool.shutdownNow();
+    }
+
+    private Runnable step(String name) {
+        return () -> {
+            try {
+                Thread.sleep(STEP_TIME);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            mOrder.add(name);
+        };
+    }
+
+    private void await() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        mGraph.setListener(graph -> latch.countDown());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void runsIndependentStepsTogether() throws InterruptedException {
+        long start = System.nanoTime();
+        mGraph.run("log", () -> mOrder.add("log"));
+        mGraph.add("a", step("a"))
+                .add("b", step("b"))
+                .add("c", step("c"), "a", "b");
+
+        // Nothing runs before the graph starts
+        Thread.sleep(STEP_TIME / 2);
+        assertEquals(1, mOrder.size());
+
+        mGraph.start();
+        await();
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(4, mOrder.size());
+        assertEquals("c", mOrder.get(3));
+        assertTrue(mGraph.isFinished("c"));
+
+        // a and b run at the same time, then c
+        String trace = mGraph.getTrace();
+        assertTrue(trace, elapsed < STEP_TIME * 3 + STEP_TIME / 2 + 50);
+        assertTrue(trace, trace.startsWith("log: "));
+    }
+
+    @Test
+    public void addsStepsAfterStart() throws InterruptedException {
+        mGraph.add("a", step("a")).start();
+        await();
+
+        mGraph.add("b", step("b"), "a");
+        await();
+        assertEquals("b", mOrder.get(1));
+
+        // A failed step is traced, and its dependents run
+        mGraph.add("fail", () -> {
+            throw new IllegalStateException("no network");
+        }).add("after", step("after"), "fail");
+        await();
+        assertTrue(mGraph.isFinished("after"));
+        assertTrue(mGraph.getTrace().contains("failed"));
+    }
+
+    @Test
+    public void finishesStepsThrowingErrors() throws InterruptedException {
+        // Like a native library failing to load
+        mGraph.add("native", () -> {
+            throw new UnsatisfiedLinkError("no libnative.so");
+        }).add("after", step("after"), "native").start();
+        await();
+        assertTrue(mGraph.isFinished("native"));
+        assertTrue(mGraph.isFinished("after"));
+        assertTrue(mGraph.getTrace(), mGraph.getTrace().contains("UnsatisfiedLinkError"));
+    }
+
+    @Test
+    public void rejectsUnknownDependency() {
+        try {
+            mGraph.add("a", step("a"), "b");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertFalse(mGraph.isFinished("a"));
+        }
+    }
+}
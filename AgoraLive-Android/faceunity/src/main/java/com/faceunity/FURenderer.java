@@ -128,6 +128,15 @@ public class FURenderer implements OnFUControlListener {
     // 句柄数量
     private static final int ITEM_ARRAYS_COUNT = 15;
 
+    // Face shape intensities that leave the face unchanged
+    public static final float NEUTRAL_INTENSITY_CHIN = 0.5f;
+    public static final float NEUTRAL_INTENSITY_FOREHEAD = 0.5f;
+    public static final float NEUTRAL_INTENSITY_MOUTH = 0.5f;
+    public static final float NEUTRAL_INTENSITY_NOSE = 0f;
+
+    // Values from sliders are not exact
+    private static final float PARAM_EPSILON = 0.001f;
+
     // 海报换脸 track face 50次
     private static final int MAX_TRACK_COUNT = 50;
 
@@ -601,6 +610,45 @@ public class FURenderer implements OnFUControlListener {
         return fuTex;
     }
 
+    /**
+     * Whether the current frames can be drawn by the cheaper
+     * beautify-only interface (fuBeautifyImage), that is, only
+     * skin smoothing, whitening and filters are active.
+     * Face shape parameters and any item loaded besides the
+     * beauty one (effects, makeup, avatars, hair, filters)
+     * require the dual input interface.
+     * It is evaluated per frame, so the caller may switch
+     * between the two interfaces as soon as any parameter
+     * changes. With the default face shapes it is false,
+     * until the user sets every face shape to neutral.
+     */
+    public boolean isBeautifyOnly() {
+        if (mItemsArray[ITEM_ARRAYS_FACE_BEAUTY_INDEX] <= 0) {
+            return false;
+        }
+
+        // Only the beauty item is rendered by fuBeautifyImage,
+        // so no other item can be loaded, whatever it is.
+        for (int index = 0; index < ITEM_ARRAYS_COUNT; index++) {
+            if (index != ITEM_ARRAYS_FACE_BEAUTY_INDEX && mItemsArray[index] > 0) {
+                return false;
+            }
+        }
+
+        return isNeutral(mEyeEnlarging, 0) && isNeutral(mCheekThinning, 0) &&
+                isNeutral(mCheekV, 0) && isNeutral(mCheekNarrow, 0) &&
+                isNeutral(mCheekSmall, 0) && isNeutral(mEyeBright, 0) &&
+                isNeutral(mToothWhiten, 0) &&
+                isNeutral(mIntensityChin, NEUTRAL_INTENSITY_CHIN) &&
+                isNeutral(mIntensityForehead, NEUTRAL_INTENSITY_FOREHEAD) &&
+                isNeutral(mIntensityMouth, NEUTRAL_INTENSITY_MOUTH) &&
+                isNeutral(mIntensityNose, NEUTRAL_INTENSITY_NOSE);
+    }
+
+    private static boolean isNeutral(float value, float neutral) {
+        return Math.abs(value - neutral) < PARAM_EPSILON;
+    }
+
     public float[] getRotationData() {
         Arrays.fill(rotationData, 0.0f);
         faceunity.fuGetFaceInfo(0, "rotation", rotationData);
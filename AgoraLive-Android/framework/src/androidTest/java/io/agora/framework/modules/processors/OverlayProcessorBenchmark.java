@@ -0,0 +1,124 @@
+package io.agora.framework.modules.processors;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.ImageFormat;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.agora.capture.video.camera.VideoCaptureFormat;
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.framework.helpers.gles.TexturePool;
+import io.agora.framework.helpers.gles.core.EglCore;
+import io.agora.framework.helpers.gles.core.GlUtil;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures the per-frame cost of the overlay processor on 1080p
+ * frames, including the GPU time (glFinish after every frame).
+ * Must run on a device or an emulator with OpenGL ES 2.0.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OverlayProcessorBenchmark {
+    private static final String TAG = OverlayProcessorBenchmark.class.getSimpleName();
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final int WARM_UP_FRAMES = 30;
+    private static final int FRAMES = 300;
+
+    // Like the frames from the camera sensor, so that
+    // the frame copy is measured as well.
+    private static final int ROTATION = 90;
+    private static final long MAX_AVERAGE_COST_NS = 1000000;
+
+    private EglCore mEglCore;
+    private EGLSurface mSurface;
+    private TexturePool mInputPool;
+    private OverlayProcessor mProcessor;
+    private Bitmap mLogo;
+
+    @Before
+    public void setUp() {
+        mEglCore = new EglCore();
+        mSurface = mEglCore.createOffscreenSurface(1, 1);
+        mEglCore.makeCurrent(mSurface);
+        mInputPool = new TexturePool();
+        mProcessor = new OverlayProcessor();
+        mProcessor.initPreprocessor();
+
+        mLogo = Bitmap.createBitmap(256, 128, Bitmap.Config.ARGB_8888);
+        mLogo.eraseColor(Color.argb(200, 0, 128, 255));
+    }
+
+    @After
+    public void tearDown() {
+        mProcessor.releasePreprocessor(null);
+        mInputPool.clear();
+        mLogo.recycle();
+        mEglCore.releaseSurface(mSurface);
+        mEglCore.release();
+    }
+
+    @Test
+    public void overlayCostAt1080p() {
+        int input = mInputPool.acquire(WIDTH, HEIGHT);
+        VideoCaptureFrame frame = new VideoCaptureFrame(
+                new VideoCaptureFormat(WIDTH, HEIGHT, 24, ImageFormat.NV21, GLES20.GL_TEXTURE_2D),
+                null, input, null, GlUtil.IDENTITY_MATRIX, 0, ROTATION, false, false);
+
+        mProcessor.setText("room", "AgoraLive Room 8848 主播间", 0.03f, 0.03f, 0.04f, Color.WHITE);
+        mProcessor.setClock("clock", null, 0.03f, 0.09f, 0.03f, Color.YELLOW);
+        mProcessor.setImage("logo", mLogo, 0.8f, 0.03f, 0.15f, 0.9f);
+
+        // Make sure all the glyphs a clock may show are cached
+        mProcessor.setText("digits", "0123456789-: ", 0, 0.5f, 0.03f, Color.WHITE);
+        runFrames(frame, input, 1);
+        mProcessor.remove("digits");
+        runFrames(frame, input, WARM_UP_FRAMES);
+
+        int glyphUploads = mProcessor.getGlyphUploadCount();
+        int imageUploads = mProcessor.getImageUploadCount();
+
+        long cost = runFrames(frame, input, FRAMES);
+        long average = cost / FRAMES;
+        Log.i(TAG, "overlay at " + WIDTH + "x" + HEIGHT + ": average " +
+                average / 1000 + "us per frame in " + FRAMES + " frames");
+
+        assertEquals("glyphs re-uploaded without content change",
+                glyphUploads, mProcessor.getGlyphUploadCount());
+        assertEquals("images re-uploaded without content change",
+                imageUploads, mProcessor.getImageUploadCount());
+        assertTrue("average cost " + average + "ns exceeds 1ms",
+                average < MAX_AVERAGE_COST_NS);
+    }
+
+    private long runFrames(VideoCaptureFrame frame, int input, int count) {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            // The processor outputs to its own texture and
+            // changes the frame, restore it as a new frame.
+            frame.textureId = input;
+            frame.textureTransform = GlUtil.IDENTITY_MATRIX;
+            frame.format.setTexFormat(GLES20.GL_TEXTURE_2D);
+            frame.format.setWidth(WIDTH);
+            frame.format.setHeight(HEIGHT);
+            frame.rotation = ROTATION;
+
+            long start = System.nanoTime();
+            mProcessor.onPreProcessFrame(frame, null);
+            GLES20.glFinish();
+            total += System.nanoTime() - start;
+        }
+        return total;
+    }
+}
@@ -195,4 +195,37 @@ public class CameraManager {
 
         return null;
     }
+
+    /**
+     * Add a preprocessor after the existing ones in the camera
+     * channel, like watermarks or background effects.
+     * @param name unique name of the preprocessor
+     * @param preprocessor
+     * @see io.agora.framework.modules.processors.PreprocessorChain
+     */
+    public void addPreprocessor(String name, IPreprocessor preprocessor) {
+        if (mCameraChannel != null) {
+            VideoModule.instance().addPreprocessor(CHANNEL_ID, name, preprocessor);
+        }
+    }
+
+    public void removePreprocessor(String name) {
+        if (mCameraChannel != null) {
+            VideoModule.instance().removePreprocessor(CHANNEL_ID, name);
+        }
+    }
+
+    public void enablePreprocessor(String name, boolean enabled) {
+        if (mCameraChannel != null) {
+            VideoModule.instance().enablePreprocessor(CHANNEL_ID, name, enabled);
+        }
+    }
+
+    public IPreprocessor getPreprocessor(String name) {
+        if (mCameraChannel != null) {
+            return VideoModule.instance().getPreprocessor(CHANNEL_ID, name);
+        }
+
+        return null;
+    }
 }
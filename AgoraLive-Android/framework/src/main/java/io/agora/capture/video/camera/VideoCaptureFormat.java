@@ -13,7 +13,7 @@ public class VideoCaptureFormat {
     private int mPixelFormat;
     private int mTexFormat;
 
-    VideoCaptureFormat(int width, int height, int frameRate, int pixelFormat, int texFormat) {
+    public VideoCaptureFormat(int width, int height, int frameRate, int pixelFormat, int texFormat) {
         mWidth = width;
         mHeight = height;
         mFrameRate = frameRate;
@@ -7,6 +7,7 @@ import io.agora.framework.modules.channels.ChannelManager;
 import io.agora.framework.modules.channels.VideoChannel;
 import io.agora.framework.modules.consumers.IVideoConsumer;
 import io.agora.framework.modules.processors.IPreprocessor;
+import io.agora.framework.modules.processors.PreprocessorChain;
 import io.agora.framework.modules.producers.IVideoProducer;
 
 public class VideoModule {
@@ -86,11 +87,56 @@ public class VideoModule {
         mChannelManager.enableOffscreenMode(channelId, enabled);
     }
 
+    /**
+     * Set the default preprocessor of the channel, replaces
+     * the current default one if already set.
+     * Other preprocessors can be combined with the default
+     * preprocessor by addPreprocessor()
+     * @param channelId
+     * @param preprocessor
+     */
     public void setPreprocessor(int channelId, IPreprocessor preprocessor) {
-        if (getPreprocessor(channelId) == null) {
-            Log.i(TAG, "current preprocessor has not been set");
-            mChannelManager.setPreprocessor(channelId, preprocessor);
+        if (getPreprocessor(channelId) != null) {
+            Log.i(TAG, "current default preprocessor is replaced");
         }
+        mChannelManager.setPreprocessor(channelId, preprocessor);
+    }
+
+    /**
+     * Append a preprocessor to the end of the preprocessor
+     * chain of the channel. Frames are processed by all the
+     * enabled preprocessors in order.
+     * @param channelId
+     * @param name unique name of the preprocessor in the chain,
+     *             the one of the same name will be replaced.
+     * @param preprocessor
+     */
+    public void addPreprocessor(int channelId, String name, IPreprocessor preprocessor) {
+        mChannelManager.addPreprocessor(channelId, -1, name, preprocessor);
+    }
+
+    public void addPreprocessor(int channelId, int index, String name, IPreprocessor preprocessor) {
+        mChannelManager.addPreprocessor(channelId, index, name, preprocessor);
+    }
+
+    public void removePreprocessor(int channelId, String name) {
+        mChannelManager.removePreprocessor(channelId, name);
+    }
+
+    /**
+     * Enable or bypass the preprocessor of the name in the
+     * chain. Bypassed preprocessors are not called at all.
+     */
+    public void enablePreprocessor(int channelId, String name, boolean enabled) {
+        mChannelManager.enablePreprocessor(channelId, name, enabled);
+    }
+
+    public IPreprocessor getPreprocessor(int channelId, String name) {
+        return mChannelManager.getPreprocessor(channelId, name);
+    }
+
+    public PreprocessorChain getPreprocessorChain(int channelId) {
+        return mChannelManager.getPreprocessorChain(channelId);
     }
 
     public void enablePreprocessor(int channelId, boolean enabled) {
@@ -0,0 +1,200 @@
+package io.agora.framework.helpers.gles;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.opengl.GLES20;
+import android.opengl.GLUtils;
+import android.util.Log;
+import android.util.SparseArray;
+
+import io.agora.framework.helpers.gles.core.GlUtil;
+
+/**
+ * A texture that caches rasterized glyphs, so that texts can be
+ * drawn by OpenGL as textured quads without drawing the whole
+ * strings on a bitmap every time the text changes.
+ * Glyphs are drawn white on a transparent background at a fixed
+ * size, and are scaled and tinted when rendered.
+ * Glyphs are packed in rows. The bitmap is uploaded to the texture
+ * only when new glyphs are added. If the atlas is full, it is
+ * cleared and glyphs are rasterized again on demand.
+ * Must be used in an OpenGL thread.
+ */
+public class GlyphAtlas {
+    private static final String TAG = GlyphAtlas.class.getSimpleName();
+
+    public static final int DEFAULT_ATLAS_WIDTH = 1024;
+    public static final int DEFAULT_ATLAS_HEIGHT = 512;
+    public static final float DEFAULT_GLYPH_SIZE = 48f;
+
+    private static final int PADDING = 2;
+
+    public static class Glyph {
+        // Texture coordinates, v0 is the top of the glyph
+        public float u0, v0, u1, v1;
+
+        // Size of the glyph cell and the horizontal
+        // advance in pixels at the atlas glyph size
+        public float width, height, advance;
+    }
+
+    private final int mWidth;
+    private final int mHeight;
+    private final float mGlyphSize;
+
+    private final Bitmap mBitmap;
+    private final Canvas mCanvas;
+    private final Paint mPaint;
+    private final Paint.FontMetrics mMetrics;
+    private final int mCellHeight;
+
+    private final SparseArray<Glyph> mGlyphs = new SparseArray<>();
+    private final char[] mCharBuffer = new char[2];
+
+    private int mCursorX = PADDING;
+    private int mCursorY = PADDING;
+
+    private int mTextureId;
+    private boolean mDirty;
+    private int mUploadCount;
+    private int mGeneration;
+
+    public GlyphAtlas() {
+        this(DEFAULT_ATLAS_WIDTH, DEFAULT_ATLAS_HEIGHT, DEFAULT_GLYPH_SIZE, Typeface.DEFAULT_BOLD);
+    }
+
+    public GlyphAtlas(int width, int height, float glyphSize, Typeface typeface) {
+        mWidth = width;
+        mHeight = height;
+        mGlyphSize = glyphSize;
+
+        mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mPaint.setColor(Color.WHITE);
+        mPaint.setTextSize(glyphSize);
+        mPaint.setTypeface(typeface);
+        // A light shadow keeps white texts readable
+        // on bright backgrounds.
+        mPaint.setShadowLayer(PADDING, 0, 0, Color.argb(160, 0, 0, 0));
+        mMetrics = mPaint.getFontMetrics();
+        mCellHeight = (int) Math.ceil(mMetrics.bottom - mMetrics.top) + PADDING;
+    }
+
+    public float getGlyphSize() {
+        return mGlyphSize;
+    }
+
+    public float getLineHeight() {
+        return mCellHeight;
+    }
+
+    /**
+     * Returns the glyph of the code point, rasterizes it into the
+     * atlas if not cached yet.
+     * @return the glyph, or null if it cannot be put into the atlas
+     */
+    public Glyph getGlyph(int codePoint) {
+        Glyph glyph = mGlyphs.get(codePoint);
+        if (glyph == null) {
+            glyph = rasterize(codePoint);
+        }
+        return glyph;
+    }
+
+    private Glyph rasterize(int codePoint) {
+        int length = Character.toChars(codePoint, mCharBuffer, 0);
+        float advance = mPaint.measureText(mCharBuffer, 0, length);
+        int cellWidth = (int) Math.ceil(advance) + PADDING * 2;
+
+        if (mCursorX + cellWidth > mWidth) {
+            mCursorX = PADDING;
+            mCursorY += mCellHeight + PADDING;
+        }
+
+        if (mCursorY + mCellHeight > mHeight) {
+            if (mGlyphs.size() == 0) {
+                Log.w(TAG, "glyph too large for the atlas:" + codePoint);
+                return null;
+            }
+
+            // The atlas is full, start over. Glyphs in
+            // use will be rasterized again on demand.
+            Log.i(TAG, "glyph atlas is full, reset");
+            reset();
+            return rasterize(codePoint);
+        }
+
+        mCanvas.drawText(mCharBuffer, 0, length,
+                mCursorX + PADDING, mCursorY - mMetrics.top, mPaint);
+
+        Glyph glyph = new Glyph();
+        glyph.width = cellWidth;
+        glyph.height = mCellHeight;
+        glyph.advance = advance;
+        glyph.u0 = (float) mCursorX / mWidth;
+        glyph.v0 = (float) mCursorY / mHeight;
+        glyph.u1 = (float) (mCursorX + cellWidth) / mWidth;
+        glyph.v1 = (float) (mCursorY + mCellHeight) / mHeight;
+        mGlyphs.put(codePoint, glyph);
+
+        mCursorX += cellWidth + PADDING;
+        mDirty = true;
+        return glyph;
+    }
+
+    private void reset() {
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        mGlyphs.clear();
+        mCursorX = PADDING;
+        mCursorY = PADDING;
+        mGeneration++;
+        mDirty = true;
+    }
+
+    /**
+     * The generation changes every time the atlas is reset, the
+     * texture coordinates obtained before become invalid.
+     */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Returns the texture of the atlas, uploads the bitmap
+     * if glyphs have been added since the last call.
+     */
+    public int getTexture() {
+        if (mTextureId == 0) {
+            mTextureId = GlUtil.createImageTexture(mBitmap);
+            mDirty = false;
+            mUploadCount++;
+        } else if (mDirty) {
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
+            GLUtils.texSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, mBitmap);
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+            mDirty = false;
+            mUploadCount++;
+        }
+        return mTextureId;
+    }
+
+    /**
+     * @return how many times the atlas bitmap has been
+     * uploaded to the texture.
+     */
+    public int getUploadCount() {
+        return mUploadCount;
+    }
+
+    public void release() {
+        if (mTextureId != 0) {
+            GLES20.glDeleteTextures(1, new int[] { mTextureId }, 0);
+            mTextureId = 0;
+        }
+        mBitmap.recycle();
+    }
+}
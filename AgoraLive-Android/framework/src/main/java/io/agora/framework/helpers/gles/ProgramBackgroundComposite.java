@@ -0,0 +1,161 @@
+package io.agora.framework.helpers.gles;
+
+import android.opengl.GLES20;
+
+import java.nio.FloatBuffer;
+
+import io.agora.framework.helpers.gles.core.Drawable2d;
+import io.agora.framework.helpers.gles.core.Framebuffer;
+import io.agora.framework.helpers.gles.core.GlUtil;
+import io.agora.framework.helpers.gles.core.Program;
+
+/**
+ * Blends the frame over a background by a segmentation mask:
+ * the frame is kept where the mask alpha is 1, and the
+ * background is shown where it is 0.
+ * The background and the mask are sampled with their own
+ * scale and offset (sx, sy, tx, ty) of the frame texture
+ * coordinates, to crop or flip them to fit the frame.
+ */
+public class ProgramBackgroundComposite extends Program {
+    private static final String VERTEX_SHADER =
+        "attribute vec4 aPosition;\n" +
+        "attribute vec2 aTextureCoord;\n" +
+        "uniform vec4 uBackgroundTransform;\n" +
+        "uniform vec4 uMaskTransform;\n" +
+        "varying vec2 vTextureCoord;\n" +
+        "varying vec2 vBackgroundCoord;\n" +
+        "varying vec2 vMaskCoord;\n" +
+        "void main() {\n" +
+        "    gl_Position = aPosition;\n" +
+        "    vTextureCoord = aTextureCoord;\n" +
+        "    vBackgroundCoord = aTextureCoord * uBackgroundTransform.xy + uBackgroundTransform.zw;\n" +
+        "    vMaskCoord = aTextureCoord * uMaskTransform.xy + uMaskTransform.zw;\n" +
+        "}\n";
+
+    private static final String FRAGMENT_SHADER =
+        "precision mediump float;\n" +
+        "varying vec2 vTextureCoord;\n" +
+        "varying vec2 vBackgroundCoord;\n" +
+        "varying vec2 vMaskCoord;\n" +
+        "uniform sampler2D sFrame;\n" +
+        "uniform sampler2D sBackground;\n" +
+        "uniform sampler2D sMask;\n" +
+        "uniform vec2 uMaskEdge;\n" +
+        "uniform float uHasMask;\n" +
+        "void main() {\n" +
+        "    vec3 frame = texture2D(sFrame, vTextureCoord).rgb;\n" +
+        "    vec3 background = texture2D(sBackground, vBackgroundCoord).rgb;\n" +
+        "    float alpha = smoothstep(uMaskEdge.x, uMaskEdge.y, texture2D(sMask, vMaskCoord).a);\n" +
+        "    gl_FragColor = vec4(mix(background, frame, alpha * uHasMask), 1.0);\n" +
+        "}\n";
+
+    private int maPositionLoc;
+    private int maTextureCoordLoc;
+    private int muBackgroundTransformLoc;
+    private int muMaskTransformLoc;
+    private int muMaskEdgeLoc;
+    private int muHasMaskLoc;
+    private int muFrameLoc;
+    private int muBackgroundLoc;
+    private int muMaskLoc;
+
+    private FloatBuffer mVertexBuffer;
+    private FloatBuffer mTextureBuffer;
+
+    public ProgramBackgroundComposite() {
+        super(VERTEX_SHADER, FRAGMENT_SHADER);
+        mVertexBuffer = mDrawable2d.vertexArray();
+        mTextureBuffer = mDrawable2d.texCoordArray();
+    }
+
+    @Override
+    protected Drawable2d getDrawable2d() {
+        return new Drawable2dFull();
+    }
+
+    @Override
+    protected void getLocations() {
+        maPositionLoc = GLES20.glGetAttribLocation(mProgramHandle, "aPosition");
+        GlUtil.checkLocation(maPositionLoc, "aPosition");
+        maTextureCoordLoc = GLES20.glGetAttribLocation(mProgramHandle, "aTextureCoord");
+        GlUtil.checkLocation(maTextureCoordLoc, "aTextureCoord");
+        muBackgroundTransformLoc = GLES20.glGetUniformLocation(mProgramHandle, "uBackgroundTransform");
+        GlUtil.checkLocation(muBackgroundTransformLoc, "uBackgroundTransform");
+        muMaskTransformLoc = GLES20.glGetUniformLocation(mProgramHandle, "uMaskTransform");
+        GlUtil.checkLocation(muMaskTransformLoc, "uMaskTransform");
+        muMaskEdgeLoc = GLES20.glGetUniformLocation(mProgramHandle, "uMaskEdge");
+        GlUtil.checkLocation(muMaskEdgeLoc, "uMaskEdge");
+        muHasMaskLoc = GLES20.glGetUniformLocation(mProgramHandle, "uHasMask");
+        GlUtil.checkLocation(muHasMaskLoc, "uHasMask");
+        muFrameLoc = GLES20.glGetUniformLocation(mProgramHandle, "sFrame");
+        GlUtil.checkLocation(muFrameLoc, "sFrame");
+        muBackgroundLoc = GLES20.glGetUniformLocation(mProgramHandle, "sBackground");
+        GlUtil.checkLocation(muBackgroundLoc, "sBackground");
+        muMaskLoc = GLES20.glGetUniformLocation(mProgramHandle, "sMask");
+        GlUtil.checkLocation(muMaskLoc, "sMask");
+    }
+
+    @Override
+    public void drawFrame(int textureId, float[] texMatrix, float[] mvpMatrix) {
+
+    }
+
+    /**
+     * @param maskTexture 0 if there is no mask, in which case
+     *                    only the background is drawn
+     * @param backgroundTransform sx, sy, tx, ty
+     * @param maskTransform sx, sy, tx, ty
+     * @param edgeLow mask alpha under which is background
+     * @param edgeHigh mask alpha above which is foreground
+     */
+    public void composite(int frameTexture, int backgroundTexture, int maskTexture,
+                          float[] backgroundTransform, float[] maskTransform,
+                          float edgeLow, float edgeHigh, Framebuffer target) {
+        GLES20.glUseProgram(mProgramHandle);
+        GlUtil.checkGlError("glUseProgram");
+        target.bind();
+
+        mVertexBuffer.position(0);
+        GLES20.glVertexAttribPointer(maPositionLoc, 2,
+                GLES20.GL_FLOAT, false, 0, mVertexBuffer);
+        GLES20.glEnableVertexAttribArray(maPositionLoc);
+
+        mTextureBuffer.position(0);
+        GLES20.glVertexAttribPointer(maTextureCoordLoc, 2,
+                GLES20.GL_FLOAT, false, 0, mTextureBuffer);
+        GLES20.glEnableVertexAttribArray(maTextureCoordLoc);
+
+        GLES20.glUniform4fv(muBackgroundTransformLoc, 1, backgroundTransform, 0);
+        GLES20.glUniform4fv(muMaskTransformLoc, 1, maskTransform, 0);
+        GLES20.glUniform2f(muMaskEdgeLoc, edgeLow, edgeHigh);
+        GLES20.glUniform1f(muHasMaskLoc, maskTexture != 0 ? 1f : 0f);
+
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, frameTexture);
+        GLES20.glUniform1i(muFrameLoc, 0);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, backgroundTexture);
+        GLES20.glUniform1i(muBackgroundLoc, 1);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE2);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, maskTexture);
+        GLES20.glUniform1i(muMaskLoc, 2);
+
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GlUtil.checkGlError("glDrawArrays");
+
+        GLES20.glDisableVertexAttribArray(maPositionLoc);
+        GLES20.glDisableVertexAttribArray(maTextureCoordLoc);
+
+        // The later programs of the chain use unit 0, which
+        // is left active.
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE2);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        target.unbind();
+        GLES20.glUseProgram(0);
+    }
+}
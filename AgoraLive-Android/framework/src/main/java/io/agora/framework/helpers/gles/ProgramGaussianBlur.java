@@ -0,0 +1,122 @@
+package io.agora.framework.helpers.gles;
+
+import android.opengl.GLES20;
+
+import java.nio.FloatBuffer;
+
+import io.agora.framework.helpers.gles.core.Drawable2d;
+import io.agora.framework.helpers.gles.core.Framebuffer;
+import io.agora.framework.helpers.gles.core.GlUtil;
+import io.agora.framework.helpers.gles.core.Program;
+
+/**
+ * One pass of a separable 9-tap gaussian blur, run once
+ * horizontally and once vertically for a full blur.
+ * The 9 taps are computed with 5 texture fetches by
+ * sampling between texels with linear filtering.
+ * Drawing from a larger texture into a smaller framebuffer
+ * downsamples and blurs in the same pass.
+ */
+public class ProgramGaussianBlur extends Program {
+    private static final String VERTEX_SHADER =
+        "attribute vec4 aPosition;\n" +
+        "attribute vec2 aTextureCoord;\n" +
+        "uniform vec2 uTexelOffset;\n" +
+        "varying vec2 vTextureCoord;\n" +
+        "varying vec4 vOffsetCoords[2];\n" +
+        "void main() {\n" +
+        "    gl_Position = aPosition;\n" +
+        "    vTextureCoord = aTextureCoord;\n" +
+        "    vec2 near = uTexelOffset * 1.3846153846;\n" +
+        "    vec2 far = uTexelOffset * 3.2307692308;\n" +
+        "    vOffsetCoords[0] = vec4(aTextureCoord - near, aTextureCoord + near);\n" +
+        "    vOffsetCoords[1] = vec4(aTextureCoord - far, aTextureCoord + far);\n" +
+        "}\n";
+
+    private static final String FRAGMENT_SHADER =
+        "precision mediump float;\n" +
+        "varying vec2 vTextureCoord;\n" +
+        "varying vec4 vOffsetCoords[2];\n" +
+        "uniform sampler2D sTexture;\n" +
+        "void main() {\n" +
+        "    vec3 color = texture2D(sTexture, vTextureCoord).rgb * 0.2270270270;\n" +
+        "    color += texture2D(sTexture, vOffsetCoords[0].xy).rgb * 0.3162162162;\n" +
+        "    color += texture2D(sTexture, vOffsetCoords[0].zw).rgb * 0.3162162162;\n" +
+        "    color += texture2D(sTexture, vOffsetCoords[1].xy).rgb * 0.0702702703;\n" +
+        "    color += texture2D(sTexture, vOffsetCoords[1].zw).rgb * 0.0702702703;\n" +
+        "    gl_FragColor = vec4(color, 1.0);\n" +
+        "}\n";
+
+    private int maPositionLoc;
+    private int maTextureCoordLoc;
+    private int muTexelOffsetLoc;
+    private int muTextureLoc;
+
+    private FloatBuffer mVertexBuffer;
+    private FloatBuffer mTextureBuffer;
+
+    public ProgramGaussianBlur() {
+        super(VERTEX_SHADER, FRAGMENT_SHADER);
+        mVertexBuffer = mDrawable2d.vertexArray();
+        mTextureBuffer = mDrawable2d.texCoordArray();
+    }
+
+    @Override
+    protected Drawable2d getDrawable2d() {
+        return new Drawable2dFull();
+    }
+
+    @Override
+    protected void getLocations() {
+        maPositionLoc = GLES20.glGetAttribLocation(mProgramHandle, "aPosition");
+        GlUtil.checkLocation(maPositionLoc, "aPosition");
+        maTextureCoordLoc = GLES20.glGetAttribLocation(mProgramHandle, "aTextureCoord");
+        GlUtil.checkLocation(maTextureCoordLoc, "aTextureCoord");
+        muTexelOffsetLoc = GLES20.glGetUniformLocation(mProgramHandle, "uTexelOffset");
+        GlUtil.checkLocation(muTexelOffsetLoc, "uTexelOffset");
+        muTextureLoc = GLES20.glGetUniformLocation(mProgramHandle, "sTexture");
+        GlUtil.checkLocation(muTextureLoc, "sTexture");
+    }
+
+    @Override
+    public void drawFrame(int textureId, float[] texMatrix, float[] mvpMatrix) {
+
+    }
+
+    /**
+     * Blur a 2D texture into the framebuffer.
+     * @param offsetX the horizontal distance between taps in
+     *                texture coordinates, 0 for a vertical pass
+     * @param offsetY the vertical distance between taps in
+     *                texture coordinates, 0 for a horizontal pass
+     */
+    public void blur(int textureId, Framebuffer target, float offsetX, float offsetY) {
+        GLES20.glUseProgram(mProgramHandle);
+        GlUtil.checkGlError("glUseProgram");
+        target.bind();
+
+        mVertexBuffer.position(0);
+        GLES20.glVertexAttribPointer(maPositionLoc, 2,
+                GLES20.GL_FLOAT, false, 0, mVertexBuffer);
+        GLES20.glEnableVertexAttribArray(maPositionLoc);
+
+        mTextureBuffer.position(0);
+        GLES20.glVertexAttribPointer(maTextureCoordLoc, 2,
+                GLES20.GL_FLOAT, false, 0, mTextureBuffer);
+        GLES20.glEnableVertexAttribArray(maTextureCoordLoc);
+
+        GLES20.glUniform2f(muTexelOffsetLoc, offsetX, offsetY);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+        GLES20.glUniform1i(muTextureLoc, 0);
+
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GlUtil.checkGlError("glDrawArrays");
+
+        GLES20.glDisableVertexAttribArray(maPositionLoc);
+        GLES20.glDisableVertexAttribArray(maTextureCoordLoc);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        target.unbind();
+        GLES20.glUseProgram(0);
+    }
+}
@@ -0,0 +1,175 @@
+package io.agora.framework.helpers.gles;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import io.agora.framework.helpers.gles.core.Drawable2d;
+import io.agora.framework.helpers.gles.core.GlUtil;
+import io.agora.framework.helpers.gles.core.Program;
+
+/**
+ * Draws batches of textured and tinted quads onto the current
+ * framebuffer with premultiplied alpha blending, used to render
+ * overlay texts and images.
+ * Each vertex has 8 floats: x, y in normalized device
+ * coordinates, u, v, and the premultiplied color r, g, b, a.
+ * Quads are drawn as two triangles, that is, 6 vertices.
+ */
+public class ProgramOverlay extends Program {
+    private static final String VERTEX_SHADER =
+        "attribute vec2 aPosition;\n" +
+        "attribute vec2 aTextureCoord;\n" +
+        "attribute vec4 aColor;\n" +
+        "varying vec2 vTextureCoord;\n" +
+        "varying vec4 vColor;\n" +
+        "void main() {\n" +
+        "    gl_Position = vec4(aPosition, 0.0, 1.0);\n" +
+        "    vTextureCoord = aTextureCoord;\n" +
+        "    vColor = aColor;\n" +
+        "}\n";
+
+    private static final String FRAGMENT_SHADER =
+        "precision mediump float;\n" +
+        "varying vec2 vTextureCoord;\n" +
+        "varying vec4 vColor;\n" +
+        "uniform sampler2D sTexture;\n" +
+        "void main() {\n" +
+        "    gl_FragColor = texture2D(sTexture, vTextureCoord) * vColor;\n" +
+        "}\n";
+
+    public static final int FLOATS_PER_VERTEX = 8;
+    public static final int VERTICES_PER_QUAD = 6;
+    public static final int FLOATS_PER_QUAD = FLOATS_PER_VERTEX * VERTICES_PER_QUAD;
+    private static final int STRIDE = FLOATS_PER_VERTEX * Drawable2d.SIZEOF_FLOAT;
+
+    private int maPositionLoc;
+    private int maTextureCoordLoc;
+    private int maColorLoc;
+    private int muTextureLoc;
+
+    private FloatBuffer mVertexBuffer;
+
+    public ProgramOverlay() {
+        super(VERTEX_SHADER, FRAGMENT_SHADER);
+    }
+
+    @Override
+    protected Drawable2d getDrawable2d() {
+        return new Drawable2dFull();
+    }
+
+    @Override
+    protected void getLocations() {
+        maPositionLoc = GLES20.glGetAttribLocation(mProgramHandle, "aPosition");
+        GlUtil.checkLocation(maPositionLoc, "aPosition");
+        maTextureCoordLoc = GLES20.glGetAttribLocation(mProgramHandle, "aTextureCoord");
+        GlUtil.checkLocation(maTextureCoordLoc, "aTextureCoord");
+        maColorLoc = GLES20.glGetAttribLocation(mProgramHandle, "aColor");
+        GlUtil.checkLocation(maColorLoc, "aColor");
+        muTextureLoc = GLES20.glGetUniformLocation(mProgramHandle, "sTexture");
+        GlUtil.checkLocation(muTextureLoc, "sTexture");
+    }
+
+    @Override
+    public void drawFrame(int textureId, float[] texMatrix, float[] mvpMatrix) {
+
+    }
+
+    /**
+     * Draw quads sampled from the same texture
+     * @param textureId 2D texture
+     * @param vertices vertex data, FLOATS_PER_QUAD floats per quad
+     * @param offset the first float of the quads in the array
+     * @param quadCount the number of quads
+     */
+    public void drawQuads(int textureId, float[] vertices, int offset, int quadCount) {
+        if (quadCount <= 0) {
+            return;
+        }
+
+        int floatCount = quadCount * FLOATS_PER_QUAD;
+        ensureBufferCapacity(floatCount);
+        mVertexBuffer.clear();
+        mVertexBuffer.put(vertices, offset, floatCount);
+
+        GLES20.glUseProgram(mProgramHandle);
+        GlUtil.checkGlError("glUseProgram");
+
+        GLES20.glEnable(GLES20.GL_BLEND);
+        GLES20.glBlendFunc(GLES20.GL_ONE, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+        GLES20.glUniform1i(muTextureLoc, 0);
+
+        mVertexBuffer.position(0);
+        GLES20.glVertexAttribPointer(maPositionLoc, 2,
+                GLES20.GL_FLOAT, false, STRIDE, mVertexBuffer);
+        GLES20.glEnableVertexAttribArray(maPositionLoc);
+
+        mVertexBuffer.position(2);
+        GLES20.glVertexAttribPointer(maTextureCoordLoc, 2,
+                GLES20.GL_FLOAT, false, STRIDE, mVertexBuffer);
+        GLES20.glEnableVertexAttribArray(maTextureCoordLoc);
+
+        mVertexBuffer.position(4);
+        GLES20.glVertexAttribPointer(maColorLoc, 4,
+                GLES20.GL_FLOAT, false, STRIDE, mVertexBuffer);
+        GLES20.glEnableVertexAttribArray(maColorLoc);
+
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, quadCount * VERTICES_PER_QUAD);
+        GlUtil.checkGlError("glDrawArrays");
+
+        GLES20.glDisableVertexAttribArray(maPositionLoc);
+        GLES20.glDisableVertexAttribArray(maTextureCoordLoc);
+        GLES20.glDisableVertexAttribArray(maColorLoc);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GLES20.glDisable(GLES20.GL_BLEND);
+        GLES20.glUseProgram(0);
+    }
+
+    private void ensureBufferCapacity(int floatCount) {
+        if (mVertexBuffer == null || mVertexBuffer.capacity() < floatCount) {
+            // Grows by doubling, the buffer is reused by all later frames
+            int capacity = mVertexBuffer == null ? floatCount :
+                    Math.max(floatCount, mVertexBuffer.capacity() * 2);
+            mVertexBuffer = ByteBuffer.allocateDirect(capacity * Drawable2d.SIZEOF_FLOAT)
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+    }
+
+    /**
+     * Writes the 6 vertices of a quad into the array.
+     * Positions are in normalized device coordinates, and the
+     * color is premultiplied.
+     * @return the index of the next float after the quad
+     */
+    public static int putQuad(float[] out, int offset,
+                              float left, float top, float right, float bottom,
+                              float u0, float v0, float u1, float v1,
+                              float r, float g, float b, float a) {
+        offset = putVertex(out, offset, left, top, u0, v0, r, g, b, a);
+        offset = putVertex(out, offset, left, bottom, u0, v1, r, g, b, a);
+        offset = putVertex(out, offset, right, top, u1, v0, r, g, b, a);
+        offset = putVertex(out, offset, right, top, u1, v0, r, g, b, a);
+        offset = putVertex(out, offset, left, bottom, u0, v1, r, g, b, a);
+        offset = putVertex(out, offset, right, bottom, u1, v1, r, g, b, a);
+        return offset;
+    }
+
+    private static int putVertex(float[] out, int offset, float x, float y,
+                                 float u, float v, float r, float g, float b, float a) {
+        out[offset++] = x;
+        out[offset++] = y;
+        out[offset++] = u;
+        out[offset++] = v;
+        out[offset++] = r;
+        out[offset++] = g;
+        out[offset++] = b;
+        out[offset++] = a;
+        return offset;
+    }
+}
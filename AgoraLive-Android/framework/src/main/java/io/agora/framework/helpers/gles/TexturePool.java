@@ -0,0 +1,147 @@
+package io.agora.framework.helpers.gles;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+import android.opengl.GLUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.framework.helpers.gles.core.GlUtil;
+
+/**
+ * Recycles 2D RGBA textures by size, so that textures of
+ * images that change often do not need to be generated
+ * and deleted every time.
+ * Must be used in an OpenGL thread.
+ */
+public class TexturePool {
+    private static final int DEFAULT_MAX_IDLE = 8;
+
+    private static class Entry {
+        int textureId;
+        int width;
+        int height;
+    }
+
+    private final List<Entry> mIdle = new ArrayList<>();
+    private final List<Entry> mInUse = new ArrayList<>();
+    private final int mMaxIdle;
+
+    private int mCreateCount;
+    private int mUploadCount;
+
+    public TexturePool() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    public TexturePool(int maxIdle) {
+        mMaxIdle = maxIdle;
+    }
+
+    /**
+     * Obtain a texture of the size, reuses an idle texture
+     * if possible. The content of a reused texture is undefined.
+     */
+    public int acquire(int width, int height) {
+        for (int i = 0; i < mIdle.size(); i++) {
+            Entry entry = mIdle.get(i);
+            if (entry.width == width && entry.height == height) {
+                mIdle.remove(i);
+                mInUse.add(entry);
+                return entry.textureId;
+            }
+        }
+
+        Entry entry = new Entry();
+        entry.textureId = createTexture(width, height);
+        entry.width = width;
+        entry.height = height;
+        mInUse.add(entry);
+        mCreateCount++;
+        return entry.textureId;
+    }
+
+    /**
+     * Obtain a texture and upload the bitmap
+     */
+    public int acquire(Bitmap bitmap) {
+        int textureId = acquire(bitmap.getWidth(), bitmap.getHeight());
+        upload(textureId, bitmap);
+        return textureId;
+    }
+
+    /**
+     * Replace the content of a texture obtained from this pool,
+     * the bitmap must be of the same size as the texture.
+     */
+    public void upload(int textureId, Bitmap bitmap) {
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+        GLUtils.texSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, bitmap);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GlUtil.checkGlError("texSubImage2D");
+        mUploadCount++;
+    }
+
+    public void release(int textureId) {
+        for (int i = 0; i < mInUse.size(); i++) {
+            Entry entry = mInUse.get(i);
+            if (entry.textureId == textureId) {
+                mInUse.remove(i);
+                if (mIdle.size() < mMaxIdle) {
+                    mIdle.add(entry);
+                } else {
+                    deleteTexture(entry.textureId);
+                }
+                return;
+            }
+        }
+    }
+
+    private int createTexture(int width, int height) {
+        int[] textures = new int[1];
+        GLES20.glGenTextures(1, textures, 0);
+        GlUtil.checkGlError("glGenTextures");
+
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[0]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        return textures[0];
+    }
+
+    private void deleteTexture(int textureId) {
+        GLES20.glDeleteTextures(1, new int[] { textureId }, 0);
+    }
+
+    /**
+     * @return how many textures have been created, which
+     * is expected to stay stable once the images in use
+     * do not change sizes.
+     */
+    public int getCreateCount() {
+        return mCreateCount;
+    }
+
+    public int getUploadCount() {
+        return mUploadCount;
+    }
+
+    /**
+     * Delete all the textures, including those in use.
+     */
+    public void clear() {
+        for (Entry entry : mIdle) deleteTexture(entry.textureId);
+        for (Entry entry : mInUse) deleteTexture(entry.textureId);
+        mIdle.clear();
+        mInUse.clear();
+    }
+}
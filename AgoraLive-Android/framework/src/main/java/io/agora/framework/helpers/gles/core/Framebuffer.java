@@ -0,0 +1,95 @@
+package io.agora.framework.helpers.gles.core;
+
+import android.opengl.GLES20;
+
+/**
+ * A framebuffer object with a 2D RGBA texture as its color
+ * attachment, used as an intermediate render target.
+ * Must be used in an OpenGL thread.
+ */
+public class Framebuffer {
+    private int[] mFramebuffer = new int[1];
+    private int[] mTexture = new int[1];
+    private int mWidth;
+    private int mHeight;
+
+    /**
+     * Make sure the framebuffer is of the size, recreate
+     * the texture if the size changes.
+     * @return true if the framebuffer is (re)created
+     */
+    public boolean update(int width, int height) {
+        if (mWidth == width && mHeight == height && mFramebuffer[0] != 0) {
+            return false;
+        }
+
+        release();
+        mWidth = width;
+        mHeight = height;
+
+        GLES20.glGenFramebuffers(1, mFramebuffer, 0);
+        GlUtil.checkGlError("glGenFramebuffers");
+        GLES20.glGenTextures(1, mTexture, 0);
+        GlUtil.checkGlError("glGenTextures");
+
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTexture[0]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D,
+                GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebuffer[0]);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER,
+                GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, mTexture[0], 0);
+
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        return true;
+    }
+
+    /**
+     * Bind the framebuffer as the render target and
+     * set the viewport to its size.
+     */
+    public void bind() {
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebuffer[0]);
+        GLES20.glViewport(0, 0, mWidth, mHeight);
+    }
+
+    public void unbind() {
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+    }
+
+    public int getTexture() {
+        return mTexture[0];
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public void release() {
+        if (mTexture[0] != 0) {
+            GLES20.glDeleteTextures(1, mTexture, 0);
+            mTexture[0] = 0;
+        }
+
+        if (mFramebuffer[0] != 0) {
+            GLES20.glDeleteFramebuffers(1, mFramebuffer, 0);
+            mFramebuffer[0] = 0;
+        }
+
+        mWidth = 0;
+        mHeight = 0;
+    }
+}
@@ -5,6 +5,7 @@ import android.content.Context;
 import io.agora.capture.video.camera.CameraVideoChannel;
 import io.agora.framework.modules.consumers.IVideoConsumer;
 import io.agora.framework.modules.processors.IPreprocessor;
+import io.agora.framework.modules.processors.PreprocessorChain;
 import io.agora.framework.modules.producers.IVideoProducer;
 
 public class ChannelManager {
@@ -99,6 +100,41 @@ public class ChannelManager {
                 null : mChannels[channelId].getPreprocessor();
     }
 
+    public void addPreprocessor(int channelId, int index, String name, IPreprocessor preprocessor) {
+        checkChannelId(channelId);
+        if (mChannels[channelId] == null) {
+            mChannels[channelId] = createVideoChannel(channelId);
+        }
+
+        mChannels[channelId].addPreprocessor(index, name, preprocessor);
+    }
+
+    public void removePreprocessor(int channelId, String name) {
+        checkChannelId(channelId);
+        if (mChannels[channelId] != null) {
+            mChannels[channelId].removePreprocessor(name);
+        }
+    }
+
+    public void enablePreprocessor(int channelId, String name, boolean enabled) {
+        checkChannelId(channelId);
+        if (mChannels[channelId] != null) {
+            mChannels[channelId].enablePreprocessorStage(name, enabled);
+        }
+    }
+
+    public IPreprocessor getPreprocessor(int channelId, String name) {
+        checkChannelId(channelId);
+        return mChannels[channelId] == null ?
+                null : mChannels[channelId].getPreprocessor(name);
+    }
+
+    public PreprocessorChain getPreprocessorChain(int channelId) {
+        checkChannelId(channelId);
+        return mChannels[channelId] == null ?
+                null : mChannels[channelId].getPreprocessorChain();
+    }
+
     private VideoChannel createVideoChannel(int id) {
         return id == ChannelID.CAMERA ?
                 new CameraVideoChannel(mContext, id) :
@@ -0,0 +1,166 @@
+package io.agora.framework.modules.channels;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.framework.modules.consumers.IVideoConsumer;
+import io.agora.framework.modules.processors.PreprocessorChain;
+
+/**
+ * Routes the frames of a video channel: preprocessor chain,
+ * rotation, the on-screen consumer, then off-screen consumers.
+ * It holds no OpenGL state of its own, the rotation and the
+ * surface restoring are provided by the channel, so that the
+ * scheduling logic can be run and measured without a camera
+ * or an OpenGL context.
+ * Not thread-safe, all methods are called in the channel thread.
+ */
+class FrameRouter {
+    /**
+     * Rotates the frame to its final orientation
+     */
+    interface Rotator {
+        VideoCaptureFrame rotate(VideoCaptureFrame frame, VideoChannel.ChannelContext context);
+    }
+
+    private final PreprocessorChain mPreprocessorChain;
+    private final Runnable mSurfaceRestorer;
+    private Rotator mRotator;
+
+    private final List<IVideoConsumer> mOnScreenConsumers = new ArrayList<>();
+    private final List<IVideoConsumer> mOffScreenConsumers = new ArrayList<>();
+    private boolean mOffScreenMode;
+
+    private long mRoutedFrameCount;
+    private long mDroppedFrameCount;
+
+    /**
+     * @param surfaceRestorer run after every step that may
+     *                        change the current EGL surface
+     */
+    FrameRouter(PreprocessorChain chain, Runnable surfaceRestorer) {
+        mPreprocessorChain = chain;
+        mSurfaceRestorer = surfaceRestorer;
+    }
+
+    void setRotator(Rotator rotator) {
+        mRotator = rotator;
+    }
+
+    void setOffScreenMode(boolean enabled) {
+        mOffScreenMode = enabled;
+    }
+
+    /**
+     * @return true if the consumer is newly added
+     */
+    boolean addConsumer(IVideoConsumer consumer, int type) {
+        List<IVideoConsumer> consumers;
+        if (type == IVideoConsumer.TYPE_ON_SCREEN) {
+            consumers = mOnScreenConsumers;
+        } else if (type == IVideoConsumer.TYPE_OFF_SCREEN) {
+            consumers = mOffScreenConsumers;
+        } else {
+            return false;
+        }
+
+        if (consumers.contains(consumer)) {
+            return false;
+        }
+        consumers.add(consumer);
+        return true;
+    }
+
+    /**
+     * @return the type the consumer was connected as,
+     * or -1 if it is not connected.
+     */
+    int removeConsumer(IVideoConsumer consumer) {
+        if (mOnScreenConsumers.remove(consumer)) {
+            return IVideoConsumer.TYPE_ON_SCREEN;
+        } else if (mOffScreenConsumers.remove(consumer)) {
+            return IVideoConsumer.TYPE_OFF_SCREEN;
+        }
+        return -1;
+    }
+
+    List<IVideoConsumer> getOffScreenConsumers() {
+        return mOffScreenConsumers;
+    }
+
+    void clearOnScreenConsumers() {
+        mOnScreenConsumers.clear();
+    }
+
+    void clearOffScreenConsumers() {
+        mOffScreenConsumers.clear();
+    }
+
+    boolean hasConsumer() {
+        return !mOnScreenConsumers.isEmpty() || !mOffScreenConsumers.isEmpty();
+    }
+
+    void route(VideoCaptureFrame frame, VideoChannel.ChannelContext context) {
+        mRoutedFrameCount++;
+        if (!mPreprocessorChain.isEmpty()) {
+            frame = mPreprocessorChain.process(frame, context, mSurfaceRestorer);
+        }
+
+        if (mRotator != null) {
+            // Rotate the image to the final state.
+            // Further rotation procedure will not be
+            // necessary for all consumers.
+            frame = mRotator.rotate(frame, context);
+            restoreSurface();
+        }
+
+        if (mOnScreenConsumers.size() > 0) {
+            // Currently we only render to the latest
+            // registered on-screen consumer.
+            // Multiple on-screen consumers are not supported yet.
+            mOnScreenConsumers.get(mOnScreenConsumers.size() - 1).onConsumeFrame(frame, context);
+            restoreSurface();
+        }
+
+        if (mOnScreenConsumers.size() > 0 || mOffScreenMode) {
+            // If there is no on-screen consumers connected,
+            // the off-screen consumers cannot actually be
+            // called, unless the channel runs in off-screen
+            // mode.
+            for (int i = 0; i < mOffScreenConsumers.size(); i++) {
+                mOffScreenConsumers.get(i).onConsumeFrame(frame, context);
+                restoreSurface();
+            }
+        } else {
+            mDroppedFrameCount++;
+        }
+    }
+
+    private void restoreSurface() {
+        if (mSurfaceRestorer != null) {
+            mSurfaceRestorer.run();
+        }
+    }
+
+    /**
+     * @return the number of frames routed since created
+     */
+    long getRoutedFrameCount() {
+        return mRoutedFrameCount;
+    }
+
+    /**
+     * @return the number of frames that reached no consumer
+     * because no on-screen consumer is connected and the
+     * channel is not in off-screen mode.
+     */
+    long getDroppedFrameCount() {
+        return mDroppedFrameCount;
+    }
+
+    void resetStatistics() {
+        mRoutedFrameCount = 0;
+        mDroppedFrameCount = 0;
+    }
+}
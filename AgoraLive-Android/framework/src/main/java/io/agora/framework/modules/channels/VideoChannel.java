@@ -16,6 +16,7 @@ import io.agora.framework.helpers.gles.ProgramTexture2d;
 import io.agora.framework.helpers.gles.ProgramTextureOES;
 import io.agora.framework.helpers.gles.core.EglCore;
 import io.agora.framework.modules.processors.IPreprocessor;
+import io.agora.framework.modules.processors.PreprocessorChain;
 import io.agora.framework.modules.processors.RotateProcessor;
 import io.agora.framework.modules.producers.IVideoProducer;
 
@@ -23,19 +24,31 @@ public class VideoChannel extends HandlerThread {
     private static final String TAG = VideoChannel.class.getSimpleName();
 
     private int mChannelId;
-    private boolean mOffScreenMode;
 
     private IVideoProducer mProducer;
-    private List<IVideoConsumer> mOnScreenConsumers = new ArrayList<>();
-    private List<IVideoConsumer> mOffScreenConsumers = new ArrayList<>();
-    private IPreprocessor mPreprocessor;
+    private PreprocessorChain mPreprocessorChain = new PreprocessorChain();
+    private Runnable mDummySurfaceRestorer = this::makeDummySurfaceCurrent;
+    private FrameRouter mRouter = new FrameRouter(mPreprocessorChain, mDummySurfaceRestorer);
 
     // Used to rotate the image to normal direction according
     // to texture transformation matrix and possibly surface
     // rotation if the surface is not in natural rotation.
     private RotateProcessor mRotateProcessor;
 
-    private Handler mHandler;
+    // The handler is published with the running state under
+    // this lock. It is not the thread itself, which getLooper()
+    // waits on while the channel thread is initializing.
+    private final Object mHandlerLock = new Object();
+    private volatile Handler mHandler;
+
+    // Set when the channel stops. The thread is still alive
+    // while releasing, but the handler does not run anything
+    // any more, so changes of the chain are kept here and
+    // run after the chain is released. Later changes run in
+    // the calling thread.
+    private boolean mQuitting;
+    private boolean mReleased;
+    private final List<Runnable> mPendingChanges = new ArrayList<>();
 
     private ChannelContext mContext;
     private EGLSurface mDummyEglSurface;
@@ -48,7 +61,69 @@ public class VideoChannel extends HandlerThread {
     }
 
     void setPreprocessor(IPreprocessor preprocessor) {
-        mPreprocessor = preprocessor;
+        addPreprocessor(-1, PreprocessorChain.DEFAULT_STAGE, preprocessor);
+    }
+
+    /**
+     * Add a preprocessor to the chain, or replace the one
+     * with the same name.
+     * @param index position in the chain, negative means
+     *              the end of the chain
+     * @param name unique name of the preprocessor stage
+     * @param preprocessor the preprocessor
+     * @see PreprocessorChain
+     */
+    void addPreprocessor(int index, String name, IPreprocessor preprocessor) {
+        runInChannelThread(() -> mPreprocessorChain.addStage(
+                index, name, preprocessor, mContext));
+    }
+
+    void removePreprocessor(String name) {
+        runInChannelThread(() -> mPreprocessorChain.removeStage(name, mContext));
+    }
+
+    /**
+     * Enable or bypass a preprocessor stage. A disabled
+     * stage is skipped without any cost.
+     */
+    public void enablePreprocessorStage(String name, boolean enabled) {
+        mPreprocessorChain.enableStage(name, enabled);
+    }
+
+    public IPreprocessor getPreprocessor(String name) {
+        return mPreprocessorChain.getPreprocessor(name);
+    }
+
+    public PreprocessorChain getPreprocessorChain() {
+        return mPreprocessorChain;
+    }
+
+    private void runInChannelThread(Runnable runnable) {
+        // The chain is modified in the channel thread when
+        // the channel is running, so that the preprocessors
+        // are initialized or released with the current OpenGL
+        // context. Otherwise they will be initialized when
+        // the channel starts.
+        if (Thread.currentThread() == this) {
+            runnable.run();
+            return;
+        }
+
+        synchronized (mHandlerLock) {
+            if (mQuitting && !mReleased) {
+                mPendingChanges.add(runnable);
+                return;
+            }
+
+            if (!mReleased && isRunning() && mHandler != null) {
+                if (!mHandler.post(runnable)) {
+                    // The looper has quit
+                    mPendingChanges.add(runnable);
+                }
+                return;
+            }
+        }
+        runnable.run();
     }
 
     @Override
@@ -56,6 +131,20 @@ public class VideoChannel extends HandlerThread {
         init();
         super.run();
         release();
+        runPendingChanges();
+    }
+
+    private void runPendingChanges() {
+        // The chain is released, so no preprocessor is
+        // initialized or released by them. They run before
+        // the later changes in other threads.
+        synchronized (mHandlerLock) {
+            for (Runnable change : mPendingChanges) {
+                change.run();
+            }
+            mPendingChanges.clear();
+            mReleased = true;
+        }
     }
 
     private void init() {
@@ -81,14 +170,13 @@ public class VideoChannel extends HandlerThread {
     }
 
     private void initPreprocessor() {
-        if (mPreprocessor != null) {
-            mPreprocessor.initPreprocessor();
-        }
+        mPreprocessorChain.init();
     }
 
     private void initRotateProcessor() {
         mRotateProcessor = new RotateProcessor();
         mRotateProcessor.init(mContext);
+        mRouter.setRotator(mRotateProcessor::process);
     }
 
     private void release() {
@@ -99,14 +187,12 @@ public class VideoChannel extends HandlerThread {
     }
 
     private void releasePreprocessor() {
-        if (mPreprocessor != null) {
-            mPreprocessor.releasePreprocessor(getChannelContext());
-            mPreprocessor = null;
-        }
+        mPreprocessorChain.release(getChannelContext());
     }
 
     private void releaseRotateProcessor() {
         if (mRotateProcessor != null) {
+            mRouter.setRotator(null);
             mRotateProcessor.release(mContext);
             mRotateProcessor = null;
         }
@@ -125,15 +211,20 @@ public class VideoChannel extends HandlerThread {
     }
 
     public IPreprocessor getPreprocessor() {
-        return mPreprocessor;
+        return getPreprocessor(PreprocessorChain.DEFAULT_STAGE);
     }
 
     void startChannel() {
-        if (isRunning()) {
-            return;
+        // A caller in another thread must not find the channel
+        // running without its handler, and modify the chain
+        // while it is being initialized in the channel thread.
+        synchronized (mHandlerLock) {
+            if (isRunning()) {
+                return;
+            }
+            start();
+            mHandler = new Handler(getLooper());
         }
-        start();
-        mHandler = new Handler(getLooper());
     }
 
     public Handler getHandler() {
@@ -148,15 +239,16 @@ public class VideoChannel extends HandlerThread {
             mProducer = null;
         }
 
-        if (!mOffScreenConsumers.isEmpty()) {
-            for (IVideoConsumer consumer : mOffScreenConsumers) {
-                consumer.disconnectChannel(mChannelId);
-            }
+        for (IVideoConsumer consumer : mRouter.getOffScreenConsumers()) {
+            consumer.disconnectChannel(mChannelId);
         }
-        mOffScreenConsumers.clear();
+        mRouter.clearOffScreenConsumers();
 
         removeOnScreenConsumer();
-        quit();
+        synchronized (mHandlerLock) {
+            mQuitting = true;
+            quit();
+        }
     }
 
     private void resetOpenGLSurface() {
@@ -169,18 +261,16 @@ public class VideoChannel extends HandlerThread {
     }
 
     private void removeOnScreenConsumer() {
-        if (mOnScreenConsumers != null) {
-            mHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    mOnScreenConsumers.clear();
-                    // To remove on-screen consumer, we need
-                    // to reset the GLSurface and maintain
-                    // the OpenGL context properly.
-                    makeDummySurfaceCurrent();
-                }
-            });
-        }
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mRouter.clearOnScreenConsumers();
+                // To remove on-screen consumer, we need
+                // to reset the GLSurface and maintain
+                // the OpenGL context properly.
+                makeDummySurfaceCurrent();
+            }
+        });
     }
 
     public boolean isRunning() {
@@ -209,16 +299,9 @@ public class VideoChannel extends HandlerThread {
         checkThreadRunningState();
 
         mHandler.post(() -> {
-            if (type == IVideoConsumer.TYPE_ON_SCREEN) {
-                if (!mOnScreenConsumers.contains(consumer)) {
-                    Log.d(TAG, "On-screen consumer connected:" + consumer);
-                    mOnScreenConsumers.add(consumer);
-                }
-            } else if (type == IVideoConsumer.TYPE_OFF_SCREEN) {
-                if (!mOffScreenConsumers.contains(consumer)) {
-                    Log.d(TAG, "Off-screen consumer connected:" + consumer);
-                    mOffScreenConsumers.add(consumer);
-                }
+            if (mRouter.addConsumer(consumer, type)) {
+                Log.d(TAG, (type == IVideoConsumer.TYPE_ON_SCREEN ?
+                        "On-screen" : "Off-screen") + " consumer connected:" + consumer);
             }
         });
     }
@@ -227,14 +310,11 @@ public class VideoChannel extends HandlerThread {
         checkThreadRunningState();
 
         mHandler.post(() -> {
-            if (mOnScreenConsumers.contains(consumer)) {
-                mOnScreenConsumers.remove(consumer);
+            if (mRouter.removeConsumer(consumer) == IVideoConsumer.TYPE_ON_SCREEN) {
                 Log.d(TAG, "On-screen consumer disconnected:" + consumer);
             } else {
-                mOffScreenConsumers.remove(consumer);
                 Log.d(TAG, "Off-screen consumer disconnected:" + consumer);
-                if (mOnScreenConsumers.isEmpty() &&
-                        mOffScreenConsumers.isEmpty()) {
+                if (!mRouter.hasConsumer()) {
                     // If there's no consumer after remove
                     // this off screen consumer, the OpenGL
                     // drawing surface must be reset
@@ -245,45 +325,15 @@ public class VideoChannel extends HandlerThread {
     }
 
     public void enablePreProcess(boolean enabled) {
-        if (mPreprocessor != null) {
-            mHandler.post(() -> mPreprocessor.enablePreProcess(enabled));
+        IPreprocessor preprocessor = getPreprocessor();
+        if (preprocessor != null) {
+            mHandler.post(() -> preprocessor.enablePreProcess(enabled));
         }
     }
 
     public void pushVideoFrame(VideoCaptureFrame frame) {
         checkThreadRunningState();
-
-        if (mPreprocessor != null) {
-            frame = mPreprocessor.onPreProcessFrame(frame, getChannelContext());
-            makeDummySurfaceCurrent();
-        }
-
-        if (mRotateProcessor != null) {
-            // Rotate the image to the final state.
-            // Further rotation procedure will not be
-            // necessary for all consumers.
-            frame = mRotateProcessor.process(frame, getChannelContext());
-            makeDummySurfaceCurrent();
-        }
-
-        if (mOnScreenConsumers.size() > 0) {
-            // Currently we only render to the latest
-            // registered on-screen consumer.
-            // Multiple on-screen consumers are not supported yet.
-            mOnScreenConsumers.get(mOnScreenConsumers.size() - 1).onConsumeFrame(frame, mContext);
-            makeDummySurfaceCurrent();
-        }
-
-        if (mOnScreenConsumers.size() > 0 || mOffScreenMode) {
-            // If there is no on-screen consumers connected,
-            // the off-screen consumers cannot actually be
-            // called, unless the channel runs in off-screen
-            // mode.
-            for (IVideoConsumer consumer : mOffScreenConsumers) {
-                consumer.onConsumeFrame(frame, mContext);
-                makeDummySurfaceCurrent();
-            }
-        }
+        mRouter.route(frame, getChannelContext());
     }
 
     private void makeDummySurfaceCurrent() {
@@ -305,7 +355,7 @@ public class VideoChannel extends HandlerThread {
     }
 
     void enableOffscreenMode(boolean enabled) {
-        mOffScreenMode = enabled;
+        mRouter.setOffScreenMode(enabled);
     }
 
     public static class ChannelContext {
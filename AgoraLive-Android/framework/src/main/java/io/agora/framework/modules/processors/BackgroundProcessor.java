@@ -0,0 +1,383 @@
+package io.agora.framework.modules.processors;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.framework.helpers.gles.ProgramBackgroundComposite;
+import io.agora.framework.helpers.gles.ProgramGaussianBlur;
+import io.agora.framework.helpers.gles.TexturePool;
+import io.agora.framework.helpers.gles.core.Framebuffer;
+import io.agora.framework.modules.channels.VideoChannel;
+
+/**
+ * Blurs or replaces the background of the video frames with
+ * OpenGL only, independent of the FaceUnity SDK and its
+ * background bundles.
+ * The blur is a separable gaussian blur computed at a reduced
+ * internal resolution (1/4 of the frame size by default) and
+ * upsampled by linear filtering when composited, so the cost
+ * is a few passes over a small texture plus one full size draw.
+ * The foreground is decided by a segmentation mask supplied
+ * by a segmenter outside this class, as a bitmap or a texture
+ * whose alpha is 1 for the person and 0 for the background.
+ * Without a mask, the blur mode blurs the whole frame and the
+ * replace mode leaves the frame untouched.
+ * Settings can be changed in any thread.
+ * The output frame is always an upright 2D texture.
+ */
+public class BackgroundProcessor implements IPreprocessor {
+    private static final String TAG = BackgroundProcessor.class.getSimpleName();
+
+    /**
+     * The suggested stage name in the preprocessor chain
+     */
+    public static final String STAGE_NAME = "background";
+
+    public static final int MODE_BLUR = 0;
+    public static final int MODE_REPLACE = 1;
+
+    private static final int DEFAULT_DOWNSCALE = 4;
+    private static final int DEFAULT_ITERATIONS = 2;
+    private static final float DEFAULT_RADIUS = 1.5f;
+    private static final float DEFAULT_EDGE_LOW = 0.3f;
+    private static final float DEFAULT_EDGE_HIGH = 0.7f;
+
+    // Bitmaps are stored from top to bottom while frame
+    // textures are from bottom to top, so flip vertically.
+    private static final float[] BITMAP_TRANSFORM = { 1, -1, 0, 1 };
+    private static final float[] IDENTITY_TRANSFORM = { 1, 1, 0, 0 };
+
+    private volatile boolean mEnabled = true;
+    private volatile int mMode = MODE_BLUR;
+    private volatile int mDownscale = DEFAULT_DOWNSCALE;
+    private volatile int mIterations = DEFAULT_ITERATIONS;
+    private volatile float mRadius = DEFAULT_RADIUS;
+    private volatile float mEdgeLow = DEFAULT_EDGE_LOW;
+    private volatile float mEdgeHigh = DEFAULT_EDGE_HIGH;
+
+    // Bitmap sources are uploaded in the channel thread
+    // when their versions change.
+    private volatile Bitmap mMaskBitmap;
+    private volatile int mMaskVersion;
+    private volatile int mMaskTexture;
+    private volatile Bitmap mBackgroundBitmap;
+    private volatile int mBackgroundVersion;
+
+    // The following are only accessed in the channel thread
+    private UprightFrameDrawer mUprightDrawer;
+    private ProgramGaussianBlur mBlurProgram;
+    private ProgramBackgroundComposite mCompositeProgram;
+    private TexturePool mTexturePool;
+    private Framebuffer mBlurBuffer;
+    private Framebuffer mBlurSwapBuffer;
+    private Framebuffer mOutputBuffer;
+
+    private Texture mMaskUploaded = new Texture();
+    private boolean mMaskFromBitmap;
+    private Texture mBackgroundUploaded = new Texture();
+    private float[] mBackgroundTransform = new float[4];
+
+    private static class Texture {
+        int textureId;
+        int width;
+        int height;
+        int version = -1;
+    }
+
+    /**
+     * @param mode MODE_BLUR or MODE_REPLACE. The replace mode
+     *             falls back to blur if no background image is set.
+     */
+    public void setMode(int mode) {
+        if (mode != MODE_BLUR && mode != MODE_REPLACE) {
+            throw new IllegalArgumentException("[BackgroundProcessor] wrong mode: " + mode);
+        }
+        mMode = mode;
+    }
+
+    /**
+     * @param radius the distance between blur taps in texels
+     *               of the reduced resolution; larger values
+     *               give stronger blur at the same cost.
+     * @param iterations the number of blur passes, each of
+     *                   which is one horizontal plus one
+     *                   vertical pass.
+     */
+    public void setBlur(float radius, int iterations) {
+        if (radius < 0 || iterations < 1) {
+            throw new IllegalArgumentException("[BackgroundProcessor] wrong blur: " +
+                    radius + ", " + iterations);
+        }
+        mRadius = radius;
+        mIterations = iterations;
+    }
+
+    /**
+     * @param downscale the ratio of the frame size to the
+     *                  internal blur resolution
+     */
+    public void setDownscale(int downscale) {
+        if (downscale < 1) {
+            throw new IllegalArgumentException("[BackgroundProcessor] wrong downscale: " + downscale);
+        }
+        mDownscale = downscale;
+    }
+
+    /**
+     * Mask alpha below low is taken as background, above high
+     * as foreground, and in between is blended smoothly.
+     */
+    public void setMaskEdge(float low, float high) {
+        if (low < 0 || high > 1 || low >= high) {
+            throw new IllegalArgumentException("[BackgroundProcessor] wrong mask edge: " +
+                    low + ", " + high);
+        }
+        mEdgeLow = low;
+        mEdgeHigh = high;
+    }
+
+    /**
+     * Set the segmentation mask of the coming frames, in the
+     * upright frame orientation with the first row at the top.
+     * The bitmap is ARGB_8888 and only its alpha channel is
+     * used; a mask smaller than the frame is fine as it is
+     * scaled by linear filtering. The bitmap must not be recycled
+     * until it is replaced or cleared; setting the same bitmap
+     * again re-uploads its content.
+     */
+    public void setSegmentationMask(Bitmap mask) {
+        mMaskTexture = 0;
+        mMaskBitmap = mask;
+        mMaskVersion++;
+    }
+
+    /**
+     * Use a mask texture rendered by a segmenter in the same
+     * EGL context. The texture is a 2D texture in the upright
+     * frame orientation, and only its alpha channel is used.
+     */
+    public void setSegmentationMaskTexture(int textureId) {
+        mMaskBitmap = null;
+        mMaskTexture = textureId;
+        mMaskVersion++;
+    }
+
+    public void clearSegmentationMask() {
+        mMaskBitmap = null;
+        mMaskTexture = 0;
+        mMaskVersion++;
+    }
+
+    /**
+     * The image replacing the background in the replace mode,
+     * scaled to fill the frame and center cropped.
+     * The bitmap must not be recycled until it is replaced.
+     * @param image null to remove the image
+     */
+    public void setBackgroundImage(Bitmap image) {
+        mBackgroundBitmap = image;
+        mBackgroundVersion++;
+    }
+
+    @Override
+    public void initPreprocessor() {
+        mUprightDrawer = new UprightFrameDrawer();
+        mUprightDrawer.init();
+        mBlurProgram = new ProgramGaussianBlur();
+        mCompositeProgram = new ProgramBackgroundComposite();
+        mTexturePool = new TexturePool();
+        mBlurBuffer = new Framebuffer();
+        mBlurSwapBuffer = new Framebuffer();
+        mOutputBuffer = new Framebuffer();
+        mMaskUploaded = new Texture();
+        mBackgroundUploaded = new Texture();
+    }
+
+    @Override
+    public void enablePreProcess(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    @Override
+    public VideoCaptureFrame onPreProcessFrame(VideoCaptureFrame outFrame, VideoChannel.ChannelContext context) {
+        if (!mEnabled || mBlurProgram == null) {
+            return outFrame;
+        }
+
+        int maskTexture = prepareMask();
+        int imageTexture = 0;
+        if (mMode == MODE_REPLACE) {
+            imageTexture = prepareBackgroundImage();
+        } else if (mBackgroundBitmap == null) {
+            releaseUploaded(mBackgroundUploaded);
+        }
+        if (mMode == MODE_REPLACE && maskTexture == 0) {
+            // Cannot tell what to replace
+            return outFrame;
+        }
+
+        int frameTexture = mUprightDrawer.draw(outFrame);
+        int width = outFrame.format.getWidth();
+        int height = outFrame.format.getHeight();
+
+        int backgroundTexture;
+        float[] backgroundTransform;
+        if (imageTexture != 0) {
+            backgroundTexture = imageTexture;
+            backgroundTransform = centerCrop(width, height);
+        } else {
+            backgroundTexture = blur(frameTexture, width, height);
+            backgroundTransform = IDENTITY_TRANSFORM;
+        }
+
+        mOutputBuffer.update(width, height);
+        mCompositeProgram.composite(frameTexture, backgroundTexture, maskTexture,
+                backgroundTransform, mMaskFromBitmap ? BITMAP_TRANSFORM : IDENTITY_TRANSFORM,
+                mEdgeLow, mEdgeHigh, mOutputBuffer);
+
+        outFrame.textureId = mOutputBuffer.getTexture();
+        return outFrame;
+    }
+
+    /**
+     * @return the texture of the blurred frame at the internal
+     * resolution
+     */
+    private int blur(int frameTexture, int width, int height) {
+        int downscale = mDownscale;
+        int blurWidth = Math.max(1, width / downscale);
+        int blurHeight = Math.max(1, height / downscale);
+        mBlurBuffer.update(blurWidth, blurHeight);
+        mBlurSwapBuffer.update(blurWidth, blurHeight);
+
+        float radius = mRadius;
+        int iterations = mIterations;
+
+        // The first horizontal pass reads the full size frame,
+        // its taps are spread over the whole downscaled texel.
+        mBlurProgram.blur(frameTexture, mBlurSwapBuffer,
+                radius * downscale / width, 0);
+        mBlurProgram.blur(mBlurSwapBuffer.getTexture(), mBlurBuffer,
+                0, radius / blurHeight);
+
+        for (int i = 1; i < iterations; i++) {
+            mBlurProgram.blur(mBlurBuffer.getTexture(), mBlurSwapBuffer,
+                    radius / blurWidth, 0);
+            mBlurProgram.blur(mBlurSwapBuffer.getTexture(), mBlurBuffer,
+                    0, radius / blurHeight);
+        }
+
+        return mBlurBuffer.getTexture();
+    }
+
+    /**
+     * @return the mask texture of the current frame, 0 if none
+     */
+    private int prepareMask() {
+        int version = mMaskVersion;
+        int external = mMaskTexture;
+        if (external != 0) {
+            releaseUploaded(mMaskUploaded);
+            mMaskFromBitmap = false;
+            return external;
+        }
+
+        Bitmap bitmap = mMaskBitmap;
+        if (bitmap == null || bitmap.isRecycled()) {
+            releaseUploaded(mMaskUploaded);
+            return 0;
+        }
+
+        mMaskFromBitmap = true;
+        uploadIfChanged(mMaskUploaded, bitmap, version);
+        return mMaskUploaded.textureId;
+    }
+
+    private int prepareBackgroundImage() {
+        int version = mBackgroundVersion;
+        Bitmap bitmap = mBackgroundBitmap;
+        if (bitmap == null || bitmap.isRecycled()) {
+            releaseUploaded(mBackgroundUploaded);
+            return 0;
+        }
+
+        uploadIfChanged(mBackgroundUploaded, bitmap, version);
+        return mBackgroundUploaded.textureId;
+    }
+
+    /**
+     * Returns the texture of a source cleared to the pool,
+     * instead of keeping it until the processor is released.
+     */
+    private void releaseUploaded(Texture texture) {
+        if (texture.textureId == 0) {
+            return;
+        }
+        mTexturePool.release(texture.textureId);
+        texture.textureId = 0;
+        texture.version = -1;
+    }
+
+    private void uploadIfChanged(Texture texture, Bitmap bitmap, int version) {
+        if (texture.version == version && texture.textureId != 0) {
+            return;
+        }
+
+        if (texture.textureId != 0 &&
+                texture.width == bitmap.getWidth() &&
+                texture.height == bitmap.getHeight()) {
+            mTexturePool.upload(texture.textureId, bitmap);
+        } else {
+            if (texture.textureId != 0) {
+                mTexturePool.release(texture.textureId);
+            }
+            texture.textureId = mTexturePool.acquire(bitmap);
+            texture.width = bitmap.getWidth();
+            texture.height = bitmap.getHeight();
+        }
+        texture.version = version;
+    }
+
+    /**
+     * Scale the background image to fill the frame keeping
+     * its aspect ratio, and crop the center.
+     */
+    private float[] centerCrop(int width, int height) {
+        float frameRatio = (float) width / height;
+        float imageRatio = (float) mBackgroundUploaded.width / mBackgroundUploaded.height;
+        float scaleX = 1;
+        float scaleY = 1;
+        if (imageRatio > frameRatio) {
+            scaleX = frameRatio / imageRatio;
+        } else {
+            scaleY = imageRatio / frameRatio;
+        }
+
+        mBackgroundTransform[0] = scaleX;
+        mBackgroundTransform[1] = -scaleY;
+        mBackgroundTransform[2] = (1 - scaleX) / 2;
+        mBackgroundTransform[3] = 1 - (1 - scaleY) / 2;
+        return mBackgroundTransform;
+    }
+
+    @Override
+    public void releasePreprocessor(VideoChannel.ChannelContext context) {
+        Log.i(TAG, "release background processor");
+        if (mUprightDrawer != null) mUprightDrawer.release();
+        if (mBlurProgram != null) mBlurProgram.release();
+        if (mCompositeProgram != null) mCompositeProgram.release();
+        if (mTexturePool != null) mTexturePool.clear();
+        if (mBlurBuffer != null) mBlurBuffer.release();
+        if (mBlurSwapBuffer != null) mBlurSwapBuffer.release();
+        if (mOutputBuffer != null) mOutputBuffer.release();
+
+        mUprightDrawer = null;
+        mBlurProgram = null;
+        mCompositeProgram = null;
+        mTexturePool = null;
+        mBlurBuffer = null;
+        mBlurSwapBuffer = null;
+        mOutputBuffer = null;
+    }
+}
@@ -11,12 +11,4 @@ public interface IPreprocessor {
     void enablePreProcess(boolean enabled);
 
     void releasePreprocessor(VideoChannel.ChannelContext context);
-
-    void setBlurValue(float blur);
-
-    void setWhitenValue(float whiten);
-
-    void setCheekValue(float cheek);
-
-    void setEyeValue(float eye);
 }
@@ -0,0 +1,483 @@
+package io.agora.framework.modules.processors;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.opengl.GLES20;
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.framework.helpers.gles.GlyphAtlas;
+import io.agora.framework.helpers.gles.ProgramOverlay;
+import io.agora.framework.helpers.gles.TexturePool;
+import io.agora.framework.helpers.gles.core.GlUtil;
+import io.agora.framework.modules.channels.VideoChannel;
+
+/**
+ * Burns texts, clocks and images (like room names, timestamps
+ * and logos) into the video frames with OpenGL, so that they
+ * are seen by both the local preview and the remote audience.
+ * Texts are drawn from a cached glyph atlas, images from pooled
+ * textures. Nothing is uploaded to the GPU unless the content
+ * changes, so the per-frame cost in steady state is one frame
+ * copy plus a few textured quads.
+ * Overlay elements are identified by keys and can be set or
+ * removed in any thread. Positions and sizes are relative to
+ * the upright output frame, (0, 0) is the top left corner.
+ * The output frame is always an upright 2D texture. If the
+ * input frame is already upright, the overlays are drawn onto
+ * its texture directly.
+ * It is not added to any channel by the framework, and is
+ * added to a chain by the app that needs overlays.
+ */
+public class OverlayProcessor implements IPreprocessor {
+    private static final String TAG = OverlayProcessor.class.getSimpleName();
+
+    /**
+     * The suggested stage name in the preprocessor chain
+     */
+    public static final String STAGE_NAME = "overlay";
+
+    private static final String DEFAULT_CLOCK_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private static abstract class Element {
+        String key;
+        float x;
+        float y;
+    }
+
+    private static class TextElement extends Element {
+        String text;
+        float sizeRatio;
+        int color;
+    }
+
+    private static class ClockElement extends TextElement {
+        SimpleDateFormat format;
+        long lastSecond = -1;
+    }
+
+    private static class ImageElement extends Element {
+        Bitmap bitmap;
+        float widthRatio;
+        float alpha;
+        int version;
+    }
+
+    // The texture uploaded for an image element
+    private static class ImageTexture {
+        int textureId;
+        int width;
+        int height;
+        int version;
+    }
+
+    // Written in any thread, guarded by itself
+    private final Map<String, Element> mElements = new LinkedHashMap<>();
+    private volatile int mVersion;
+
+    // Increased by every image set, so that the texture of
+    // a key is uploaded again even if the key has been
+    // removed or has been a text in between.
+    private int mImageVersion;
+    private volatile boolean mEnabled = true;
+
+    // The following are only accessed in the channel thread
+    private int mAppliedVersion = -1;
+    private final List<Element> mSnapshot = new ArrayList<>();
+    private final Map<String, ImageTexture> mImageTextures = new HashMap<>();
+
+    private UprightFrameDrawer mUprightDrawer;
+    private ProgramOverlay mOverlayProgram;
+    private GlyphAtlas mGlyphAtlas;
+    private TexturePool mTexturePool;
+
+    private int[] mFramebuffer = new int[1];
+    private int mAttachedTexture;
+
+    private float[] mTextVertices = new float[ProgramOverlay.FLOATS_PER_QUAD * 32];
+    private int mTextQuadCount;
+    private boolean mTextLayoutDirty = true;
+    private int mLayoutWidth;
+    private int mLayoutHeight;
+    private int mLayoutGeneration;
+
+    private float[] mImageVertices = new float[ProgramOverlay.FLOATS_PER_QUAD];
+
+    /**
+     * Set or replace a text overlay
+     * @param key identifies the overlay element
+     * @param text the content
+     * @param x left of the text, relative to the frame width
+     * @param y top of the text, relative to the frame height
+     * @param sizeRatio text size relative to the frame height
+     * @param color ARGB color of the text
+     */
+    public void setText(String key, String text, float x, float y, float sizeRatio, int color) {
+        TextElement element = new TextElement();
+        element.text = text;
+        fillText(element, x, y, sizeRatio, color);
+        putElement(key, element);
+    }
+
+    /**
+     * Set or replace a clock overlay, the text of which is
+     * refreshed every second in the channel thread.
+     * @param pattern the date format pattern, the default
+     *                pattern is used if null.
+     * @see SimpleDateFormat
+     */
+    public void setClock(String key, String pattern, float x, float y, float sizeRatio, int color) {
+        ClockElement element = new ClockElement();
+        element.format = new SimpleDateFormat(pattern != null ?
+                pattern : DEFAULT_CLOCK_PATTERN, Locale.getDefault());
+        element.text = "";
+        fillText(element, x, y, sizeRatio, color);
+        putElement(key, element);
+    }
+
+    private void fillText(TextElement element, float x, float y, float sizeRatio, int color) {
+        element.x = x;
+        element.y = y;
+        element.sizeRatio = sizeRatio;
+        element.color = color;
+    }
+
+    /**
+     * Set or replace an image overlay. The bitmap is uploaded
+     * once in the channel thread, and must not be recycled
+     * until it is removed or replaced. Setting the same bitmap
+     * again with the same key re-uploads its content.
+     * @param widthRatio image width relative to the frame width,
+     *                   the height is computed by the aspect ratio.
+     * @param alpha opacity from 0 to 1
+     */
+    public void setImage(String key, Bitmap bitmap, float x, float y, float widthRatio, float alpha) {
+        ImageElement element = new ImageElement();
+        element.bitmap = bitmap;
+        element.x = x;
+        element.y = y;
+        element.widthRatio = widthRatio;
+        element.alpha = alpha;
+        synchronized (mElements) {
+            element.version = ++mImageVersion;
+        }
+        putElement(key, element);
+    }
+
+    private void putElement(String key, Element element) {
+        element.key = key;
+        synchronized (mElements) {
+            mElements.put(key, element);
+            mVersion++;
+        }
+    }
+
+    public void remove(String key) {
+        synchronized (mElements) {
+            if (mElements.remove(key) != null) {
+                mVersion++;
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (mElements) {
+            mElements.clear();
+            mVersion++;
+        }
+    }
+
+    @Override
+    public void initPreprocessor() {
+        mUprightDrawer = new UprightFrameDrawer();
+        mUprightDrawer.init();
+        mOverlayProgram = new ProgramOverlay();
+        mGlyphAtlas = new GlyphAtlas();
+        mTexturePool = new TexturePool();
+        GLES20.glGenFramebuffers(1, mFramebuffer, 0);
+        GlUtil.checkGlError("glGenFramebuffers");
+        mAttachedTexture = 0;
+        mAppliedVersion = -1;
+        mTextLayoutDirty = true;
+    }
+
+    @Override
+    public void enablePreProcess(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    @Override
+    public VideoCaptureFrame onPreProcessFrame(VideoCaptureFrame outFrame, VideoChannel.ChannelContext context) {
+        if (!mEnabled || mOverlayProgram == null) {
+            return outFrame;
+        }
+
+        syncElements();
+        if (mSnapshot.isEmpty()) {
+            return outFrame;
+        }
+
+        int targetTexture = mUprightDrawer.draw(outFrame);
+        int width = outFrame.format.getWidth();
+        int height = outFrame.format.getHeight();
+
+        if (mAttachedTexture != targetTexture) {
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebuffer[0]);
+            GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER,
+                    GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, targetTexture, 0);
+            mAttachedTexture = targetTexture;
+        } else {
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mFramebuffer[0]);
+        }
+        GLES20.glViewport(0, 0, width, height);
+
+        drawImages(width, height);
+        drawTexts(width, height);
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        return outFrame;
+    }
+
+    private void syncElements() {
+        int version = mVersion;
+        if (version == mAppliedVersion) {
+            return;
+        }
+
+        mSnapshot.clear();
+        synchronized (mElements) {
+            mSnapshot.addAll(mElements.values());
+            version = mVersion;
+        }
+        mAppliedVersion = version;
+        mTextLayoutDirty = true;
+        releaseRemovedImages();
+    }
+
+    private void drawImages(int width, int height) {
+        for (int i = 0; i < mSnapshot.size(); i++) {
+            Element element = mSnapshot.get(i);
+            if (!(element instanceof ImageElement)) {
+                continue;
+            }
+
+            ImageElement image = (ImageElement) element;
+            ImageTexture texture = prepareImageTexture(image);
+            if (texture == null) {
+                continue;
+            }
+
+            float left = image.x * width;
+            float top = image.y * height;
+            float right = left + image.widthRatio * width;
+            float bottom = top + (right - left) * texture.height / texture.width;
+            ProgramOverlay.putQuad(mImageVertices, 0,
+                    toNdcX(left, width), toNdcY(top, height),
+                    toNdcX(right, width), toNdcY(bottom, height),
+                    0, 0, 1, 1,
+                    image.alpha, image.alpha, image.alpha, image.alpha);
+            mOverlayProgram.drawQuads(texture.textureId, mImageVertices, 0, 1);
+        }
+    }
+
+    private ImageTexture prepareImageTexture(ImageElement image) {
+        ImageTexture texture = mImageTextures.get(image.key);
+        Bitmap bitmap = image.bitmap;
+        if (bitmap == null || bitmap.isRecycled()) {
+            return texture;
+        }
+
+        if (texture == null) {
+            texture = new ImageTexture();
+            texture.textureId = mTexturePool.acquire(bitmap);
+            texture.width = bitmap.getWidth();
+            texture.height = bitmap.getHeight();
+            texture.version = image.version;
+            mImageTextures.put(image.key, texture);
+        } else if (texture.version != image.version) {
+            if (texture.width == bitmap.getWidth() &&
+                    texture.height == bitmap.getHeight()) {
+                mTexturePool.upload(texture.textureId, bitmap);
+            } else {
+                mTexturePool.release(texture.textureId);
+                texture.textureId = mTexturePool.acquire(bitmap);
+                texture.width = bitmap.getWidth();
+                texture.height = bitmap.getHeight();
+            }
+            texture.version = image.version;
+        }
+        return texture;
+    }
+
+    private void releaseRemovedImages() {
+        Iterator<Map.Entry<String, ImageTexture>> iterator =
+                mImageTextures.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ImageTexture> entry = iterator.next();
+            if (!isImageInSnapshot(entry.getKey())) {
+                mTexturePool.release(entry.getValue().textureId);
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean isImageInSnapshot(String key) {
+        for (int i = 0; i < mSnapshot.size(); i++) {
+            Element element = mSnapshot.get(i);
+            if (element instanceof ImageElement && element.key.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drawTexts(int width, int height) {
+        updateClocks();
+
+        if (mTextLayoutDirty || mLayoutWidth != width || mLayoutHeight != height) {
+            layoutTexts(width, height);
+            // Laying out may have reset the atlas, the
+            // coordinates of the former glyphs are invalid.
+            if (mLayoutGeneration != mGlyphAtlas.getGeneration()) {
+                layoutTexts(width, height);
+            }
+        }
+
+        if (mTextQuadCount > 0) {
+            mOverlayProgram.drawQuads(mGlyphAtlas.getTexture(),
+                    mTextVertices, 0, mTextQuadCount);
+        }
+    }
+
+    private void updateClocks() {
+        long second = System.currentTimeMillis() / 1000;
+        for (int i = 0; i < mSnapshot.size(); i++) {
+            Element element = mSnapshot.get(i);
+            if (element instanceof ClockElement) {
+                ClockElement clock = (ClockElement) element;
+                if (clock.lastSecond != second) {
+                    clock.lastSecond = second;
+                    clock.text = clock.format.format(new Date(second * 1000));
+                    mTextLayoutDirty = true;
+                }
+            }
+        }
+    }
+
+    private void layoutTexts(int width, int height) {
+        mLayoutGeneration = mGlyphAtlas.getGeneration();
+        int offset = 0;
+        int quads = 0;
+
+        for (int i = 0; i < mSnapshot.size(); i++) {
+            Element element = mSnapshot.get(i);
+            if (!(element instanceof TextElement)) {
+                continue;
+            }
+
+            TextElement text = (TextElement) element;
+            if (text.text == null || text.text.isEmpty()) {
+                continue;
+            }
+
+            float scale = text.sizeRatio * height / mGlyphAtlas.getGlyphSize();
+            float alpha = Color.alpha(text.color) / 255f;
+            float r = Color.red(text.color) / 255f * alpha;
+            float g = Color.green(text.color) / 255f * alpha;
+            float b = Color.blue(text.color) / 255f * alpha;
+
+            float penX = text.x * width;
+            float top = text.y * height;
+            int index = 0;
+            while (index < text.text.length()) {
+                int codePoint = text.text.codePointAt(index);
+                index += Character.charCount(codePoint);
+
+                GlyphAtlas.Glyph glyph = mGlyphAtlas.getGlyph(codePoint);
+                if (glyph == null) {
+                    continue;
+                }
+
+                ensureTextCapacity(offset + ProgramOverlay.FLOATS_PER_QUAD);
+                float right = penX + glyph.width * scale;
+                float bottom = top + glyph.height * scale;
+                offset = ProgramOverlay.putQuad(mTextVertices, offset,
+                        toNdcX(penX, width), toNdcY(top, height),
+                        toNdcX(right, width), toNdcY(bottom, height),
+                        glyph.u0, glyph.v0, glyph.u1, glyph.v1,
+                        r, g, b, alpha);
+                quads++;
+                penX += glyph.advance * scale;
+            }
+        }
+
+        mTextQuadCount = quads;
+        mLayoutWidth = width;
+        mLayoutHeight = height;
+        mTextLayoutDirty = false;
+    }
+
+    private void ensureTextCapacity(int floatCount) {
+        if (mTextVertices.length < floatCount) {
+            float[] vertices = new float[Math.max(floatCount, mTextVertices.length * 2)];
+            System.arraycopy(mTextVertices, 0, vertices, 0, mTextVertices.length);
+            mTextVertices = vertices;
+        }
+    }
+
+    private static float toNdcX(float x, int width) {
+        return x / width * 2f - 1f;
+    }
+
+    private static float toNdcY(float y, int height) {
+        // The top of the frame is +1 in the framebuffer
+        return 1f - y / height * 2f;
+    }
+
+    /**
+     * @return how many times the glyph atlas is uploaded to
+     * the GPU, it does not grow once all the characters in
+     * use have been cached.
+     */
+    public int getGlyphUploadCount() {
+        return mGlyphAtlas != null ? mGlyphAtlas.getUploadCount() : 0;
+    }
+
+    /**
+     * @return how many times images are uploaded to the GPU,
+     * it only grows when images are set or replaced.
+     */
+    public int getImageUploadCount() {
+        return mTexturePool != null ? mTexturePool.getUploadCount() : 0;
+    }
+
+    @Override
+    public void releasePreprocessor(VideoChannel.ChannelContext context) {
+        Log.i(TAG, "release overlay processor");
+        if (mUprightDrawer != null) mUprightDrawer.release();
+        if (mOverlayProgram != null) mOverlayProgram.release();
+        if (mGlyphAtlas != null) mGlyphAtlas.release();
+        if (mTexturePool != null) mTexturePool.clear();
+        if (mFramebuffer[0] != 0) {
+            GLES20.glDeleteFramebuffers(1, mFramebuffer, 0);
+            mFramebuffer[0] = 0;
+        }
+
+        mUprightDrawer = null;
+        mOverlayProgram = null;
+        mGlyphAtlas = null;
+        mTexturePool = null;
+        mImageTextures.clear();
+        mSnapshot.clear();
+    }
+}
@@ -0,0 +1,282 @@
+package io.agora.framework.modules.processors;
+
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.framework.modules.channels.VideoChannel;
+
+/**
+ * An ordered list of preprocessors applied one by one to
+ * every frame of a video channel, for example beautification,
+ * background blur and watermarks.
+ * Each preprocessor is wrapped in a named stage, which can
+ * be enabled or disabled at any time. Disabled stages are
+ * skipped entirely, the wrapped preprocessor is not called.
+ * Stages can be added or removed while the channel is running,
+ * but the chain itself should only be modified in the video
+ * channel thread, where the OpenGL context is current, so that
+ * the preprocessors can be initialized and released properly.
+ * Reading the stages is thread-safe.
+ */
+public class PreprocessorChain {
+    private static final String TAG = PreprocessorChain.class.getSimpleName();
+
+    /**
+     * The name of the stage set by the single-preprocessor
+     * APIs, like VideoModule.setPreprocessor()
+     */
+    public static final String DEFAULT_STAGE = "default";
+
+    public static class Stage {
+        private final String mName;
+        private final IPreprocessor mPreprocessor;
+        private volatile boolean mEnabled = true;
+
+        // Written in the channel thread, read in any thread
+        private volatile long mFrameCount;
+        private volatile long mTotalCostNs;
+        private volatile long mMaxCostNs;
+        private volatile long mLastCostNs;
+
+        private Stage(String name, IPreprocessor preprocessor) {
+            mName = name;
+            mPreprocessor = preprocessor;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public IPreprocessor getPreprocessor() {
+            return mPreprocessor;
+        }
+
+        public boolean isEnabled() {
+            return mEnabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            mEnabled = enabled;
+        }
+
+        private VideoCaptureFrame process(VideoCaptureFrame frame,
+                                          VideoChannel.ChannelContext context) {
+            long start = System.nanoTime();
+            VideoCaptureFrame out = mPreprocessor.onPreProcessFrame(frame, context);
+            mLastCostNs = System.nanoTime() - start;
+            mTotalCostNs += mLastCostNs;
+            if (mLastCostNs > mMaxCostNs) mMaxCostNs = mLastCostNs;
+            mFrameCount++;
+            return out;
+        }
+
+        /**
+         * @return the number of frames processed by this
+         * stage since added or the statistics are reset.
+         */
+        public long getFrameCount() {
+            return mFrameCount;
+        }
+
+        public long getAverageCostNs() {
+            return mFrameCount == 0 ? 0 : mTotalCostNs / mFrameCount;
+        }
+
+        public long getMaxCostNs() {
+            return mMaxCostNs;
+        }
+
+        public long getLastCostNs() {
+            return mLastCostNs;
+        }
+
+        public void resetStatistics() {
+            mFrameCount = 0;
+            mTotalCostNs = 0;
+            mMaxCostNs = 0;
+            mLastCostNs = 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Stage{" +
+                    "name=" + mName +
+                    ", enabled=" + mEnabled +
+                    ", frames=" + mFrameCount +
+                    ", avgUs=" + getAverageCostNs() / 1000 +
+                    ", maxUs=" + mMaxCostNs / 1000 +
+                    '}';
+        }
+    }
+
+    private final List<Stage> mStages = new CopyOnWriteArrayList<>();
+
+    // Whether the OpenGL environment of the channel is ready,
+    // stages added afterwards are initialized immediately.
+    private boolean mInitialized;
+
+    /**
+     * Add a preprocessor stage to the end of the chain
+     * @param name unique name of the stage
+     * @param preprocessor the preprocessor
+     * @param context the context of the channel, used to
+     *                release the preprocessor of the stage
+     *                replaced if the name already exists.
+     */
+    public void addStage(String name, IPreprocessor preprocessor,
+                         VideoChannel.ChannelContext context) {
+        addStage(-1, name, preprocessor, context);
+    }
+
+    /**
+     * Insert a preprocessor stage into the chain. If a stage with
+     * the same name exists, it is replaced at the same position
+     * and its preprocessor is released.
+     * @param index position of the stage, negative or larger than
+     *              the current stage count means the end of the chain
+     */
+    public void addStage(int index, String name, IPreprocessor preprocessor,
+                         VideoChannel.ChannelContext context) {
+        if (name == null || preprocessor == null) {
+            throw new IllegalArgumentException(
+                    "[PreprocessorChain] wrong argument: null stage name or preprocessor");
+        }
+
+        Stage stage = new Stage(name, preprocessor);
+        int existing = indexOf(name);
+        if (existing >= 0) {
+            Stage old = mStages.set(existing, stage);
+            releaseStage(old, context);
+            Log.i(TAG, "stage replaced:" + name);
+        } else if (index < 0 || index >= mStages.size()) {
+            mStages.add(stage);
+            Log.i(TAG, "stage added:" + name);
+        } else {
+            mStages.add(index, stage);
+            Log.i(TAG, "stage inserted:" + name + " at " + index);
+        }
+
+        if (mInitialized) {
+            preprocessor.initPreprocessor();
+        }
+    }
+
+    public void removeStage(String name, VideoChannel.ChannelContext context) {
+        int index = indexOf(name);
+        if (index >= 0) {
+            releaseStage(mStages.remove(index), context);
+            Log.i(TAG, "stage removed:" + name);
+        }
+    }
+
+    private void releaseStage(Stage stage, VideoChannel.ChannelContext context) {
+        if (mInitialized && stage != null) {
+            stage.mPreprocessor.releasePreprocessor(context);
+        }
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < mStages.size(); i++) {
+            if (mStages.get(i).mName.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public Stage getStage(String name) {
+        // Iterating over a snapshot, may be called in any thread
+        for (Stage stage : mStages) {
+            if (stage.mName.equals(name)) {
+                return stage;
+            }
+        }
+        return null;
+    }
+
+    public IPreprocessor getPreprocessor(String name) {
+        Stage stage = getStage(name);
+        return stage == null ? null : stage.mPreprocessor;
+    }
+
+    public void enableStage(String name, boolean enabled) {
+        Stage stage = getStage(name);
+        if (stage != null) {
+            stage.setEnabled(enabled);
+        }
+    }
+
+    /**
+     * @return a read-only view of the stages in processing order
+     */
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(mStages);
+    }
+
+    public int size() {
+        return mStages.size();
+    }
+
+    public boolean isEmpty() {
+        return mStages.isEmpty();
+    }
+
+    /**
+     * Called when the OpenGL environment of the channel is
+     * created, initializes all current stages.
+     */
+    public void init() {
+        for (int i = 0; i < mStages.size(); i++) {
+            mStages.get(i).mPreprocessor.initPreprocessor();
+        }
+        mInitialized = true;
+    }
+
+    /**
+     * Let the frame pass through all enabled stages.
+     * @param listener called after each stage that has been
+     *                 run, may be null.
+     */
+    public VideoCaptureFrame process(VideoCaptureFrame frame,
+                                     VideoChannel.ChannelContext context,
+                                     Runnable listener) {
+        // Index iteration to avoid creating an iterator per frame
+        for (int i = 0; i < mStages.size(); i++) {
+            Stage stage = mStages.get(i);
+            if (!stage.mEnabled) {
+                continue;
+            }
+
+            frame = stage.process(frame, context);
+            if (listener != null) {
+                listener.run();
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Release all the stages and clear the chain. Called when
+     * the OpenGL environment of the channel is going to be destroyed.
+     */
+    public void release(VideoChannel.ChannelContext context) {
+        for (int i = 0; i < mStages.size(); i++) {
+            releaseStage(mStages.get(i), context);
+        }
+        mStages.clear();
+        mInitialized = false;
+    }
+
+    public String dumpStatistics() {
+        StringBuilder builder = new StringBuilder("PreprocessorChain[");
+        for (int i = 0; i < mStages.size(); i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(mStages.get(i));
+        }
+        return builder.append(']').toString();
+    }
+}
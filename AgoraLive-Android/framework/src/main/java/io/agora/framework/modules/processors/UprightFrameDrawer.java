@@ -0,0 +1,69 @@
+package io.agora.framework.modules.processors;
+
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.framework.helpers.gles.RotateProgram2D;
+import io.agora.framework.helpers.gles.RotateProgramOES;
+import io.agora.framework.helpers.gles.core.GlUtil;
+
+/**
+ * Draws a frame to an upright 2D texture, the same way the
+ * channel's rotate processor does except the surface rotation.
+ * Preprocessors that draw in the final orientation of the
+ * image use it first, later stages then receive an upright
+ * frame and do not need to copy it again.
+ */
+class UprightFrameDrawer {
+    private RotateProgram2D mProgram2D;
+    private RotateProgramOES mProgramOES;
+
+    void init() {
+        mProgram2D = new RotateProgram2D();
+        mProgramOES = new RotateProgramOES();
+    }
+
+    /**
+     * @return the upright texture, which is also set to the frame
+     */
+    int draw(VideoCaptureFrame frame) {
+        if (frame.rotation == 0 &&
+                frame.format.getTexFormat() == GLES20.GL_TEXTURE_2D &&
+                frame.textureTransform == GlUtil.IDENTITY_MATRIX) {
+            // Already drawn upright by a former stage
+            return frame.textureId;
+        }
+
+        int width = frame.format.getWidth();
+        int height = frame.format.getHeight();
+        if (frame.rotation == 90 || frame.rotation == 270) {
+            width = frame.format.getHeight();
+            height = frame.format.getWidth();
+        }
+
+        if (frame.format.getTexFormat() == GLES11Ext.GL_TEXTURE_EXTERNAL_OES) {
+            mProgramOES.update(width, height);
+            frame.textureId = mProgramOES.drawRotateFrame(
+                    frame.textureId, frame.textureTransform, GlUtil.IDENTITY_MATRIX);
+        } else {
+            mProgram2D.update(width, height);
+            frame.textureId = mProgram2D.drawRotateFrame(
+                    frame.textureId, frame.textureTransform, GlUtil.IDENTITY_MATRIX);
+        }
+
+        frame.rotation = 0;
+        frame.format.setWidth(width);
+        frame.format.setHeight(height);
+        frame.format.setTexFormat(GLES20.GL_TEXTURE_2D);
+        frame.textureTransform = GlUtil.IDENTITY_MATRIX;
+        return frame.textureId;
+    }
+
+    void release() {
+        if (mProgram2D != null) mProgram2D.destroyProgram();
+        if (mProgramOES != null) mProgramOES.destroyProgram();
+        mProgram2D = null;
+        mProgramOES = null;
+    }
+}
@@ -0,0 +1,91 @@
+package io.agora.framework.modules.channels;
+
+import java.util.List;
+
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.framework.modules.processors.IPreprocessor;
+
+/**
+ * Stands for a GPU preprocessor: spends a fixed cost per frame
+ * and outputs a "new texture" by adding its offset to the
+ * texture id, so that consumers can tell which stages ran.
+ */
+class FakePreprocessor implements IPreprocessor {
+    private final String mName;
+    private final int mTextureOffset;
+    private final long mCostNs;
+    private final List<String> mTrace;
+
+    private volatile boolean mEnabled = true;
+    private int mInitCount;
+    private int mReleaseCount;
+    private long mFrameCount;
+
+    /**
+     * @param costNs time spent on every frame, busy waiting
+     *               like a preprocessor waiting for the GPU
+     * @param trace if not null, the name is added to it for
+     *              every frame processed, shared by stages
+     *              to check their order.
+     */
+    FakePreprocessor(String name, int textureOffset, long costNs, List<String> trace) {
+        mName = name;
+        mTextureOffset = textureOffset;
+        mCostNs = costNs;
+        mTrace = trace;
+    }
+
+    @Override
+    public VideoCaptureFrame onPreProcessFrame(VideoCaptureFrame outFrame, VideoChannel.ChannelContext context) {
+        if (!mEnabled) {
+            return outFrame;
+        }
+
+        if (mCostNs > 0) {
+            long end = System.nanoTime() + mCostNs;
+            while (System.nanoTime() < end) {
+                // Busy waiting
+            }
+        }
+
+        if (mTrace != null) mTrace.add(mName);
+        outFrame.textureId += mTextureOffset;
+        mFrameCount++;
+        return outFrame;
+    }
+
+    @Override
+    public void initPreprocessor() {
+        mInitCount++;
+    }
+
+    @Override
+    public void enablePreProcess(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    @Override
+    public void releasePreprocessor(VideoChannel.ChannelContext context) {
+        mReleaseCount++;
+    }
+
+    String getName() {
+        return mName;
+    }
+
+    int getTextureOffset() {
+        return mTextureOffset;
+    }
+
+    int getInitCount() {
+        return mInitCount;
+    }
+
+    int getReleaseCount() {
+        return mReleaseCount;
+    }
+
+    long getFrameCount() {
+        return mFrameCount;
+    }
+}
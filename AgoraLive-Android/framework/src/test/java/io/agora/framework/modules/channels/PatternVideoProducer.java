@@ -0,0 +1,85 @@
+package io.agora.framework.modules.channels;
+
+import io.agora.capture.video.camera.VideoCaptureFormat;
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.framework.modules.producers.IVideoProducer;
+
+/**
+ * Generates synthetic frames in place of the camera. The frame
+ * sequence number is carried as the texture id, starting from 1,
+ * and the timestamp is the System.nanoTime() of the generation,
+ * so that consumers can check the order, gaps and latency.
+ * Frames are pushed to the harness channel thread the same way
+ * VideoProducer posts them to the channel handler.
+ */
+class PatternVideoProducer implements IVideoProducer {
+    static final int TEXTURE_FORMAT = 0x0DE1; // GL_TEXTURE_2D
+    static final int PIXEL_FORMAT = 0x11;     // ImageFormat.NV21
+
+    private final int mWidth;
+    private final int mHeight;
+    private final int mFrameRate;
+    private final int mRotation;
+
+    private VideoPipelineHarness mHarness;
+    private int mSequence;
+
+    PatternVideoProducer(int width, int height, int frameRate, int rotation) {
+        mWidth = width;
+        mHeight = height;
+        mFrameRate = frameRate;
+        mRotation = rotation;
+    }
+
+    void attach(VideoPipelineHarness harness) {
+        mHarness = harness;
+    }
+
+    @Override
+    public void connectChannel(int channelId) {
+        // Connected by the harness with attach()
+    }
+
+    /**
+     * @return a new frame as the camera creates one for every
+     * captured image
+     */
+    VideoCaptureFrame nextFrame() {
+        mSequence++;
+        return new VideoCaptureFrame(
+                new VideoCaptureFormat(mWidth, mHeight, mFrameRate, PIXEL_FORMAT, TEXTURE_FORMAT),
+                null, mSequence, null, null, System.nanoTime(),
+                mRotation, false, mSequence == 1);
+    }
+
+    @Override
+    public void pushVideoFrame(VideoCaptureFrame frame) {
+        if (mHarness != null) {
+            mHarness.post(frame);
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        mHarness = null;
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    int getRotation() {
+        return mRotation;
+    }
+
+    /**
+     * @return the interval between frames at the frame rate
+     */
+    long getFrameIntervalNs() {
+        return 1000000000L / mFrameRate;
+    }
+}
@@ -0,0 +1,130 @@
+package io.agora.framework.modules.channels;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.framework.modules.consumers.IVideoConsumer;
+
+/**
+ * Counts and validates the frames of the pattern producer:
+ * sequence numbers must increase, the size must be the one
+ * expected after rotation, and the texture id must carry the
+ * offsets of all enabled fake preprocessors.
+ * Records the latency from frame generation to consumption.
+ */
+class ValidatingVideoConsumer implements IVideoConsumer {
+    private final int mExpectedWidth;
+    private final int mExpectedHeight;
+    private volatile int mTextureOffset;
+
+    private volatile long mFrameCount;
+    private long mLastSequence;
+    private long mGapCount;
+    private long mOutOfOrderCount;
+    private long mTotalLatencyNs;
+    private long mMaxLatencyNs;
+    private final List<String> mErrors = new ArrayList<>();
+
+    ValidatingVideoConsumer(int expectedWidth, int expectedHeight) {
+        mExpectedWidth = expectedWidth;
+        mExpectedHeight = expectedHeight;
+    }
+
+    /**
+     * @param offset the sum of texture offsets of the
+     *               preprocessors expected to run
+     */
+    void expectTextureOffset(int offset) {
+        mTextureOffset = offset;
+    }
+
+    @Override
+    public void onConsumeFrame(VideoCaptureFrame frame, VideoChannel.ChannelContext context) {
+        long latency = System.nanoTime() - frame.timestamp;
+        mTotalLatencyNs += latency;
+        if (latency > mMaxLatencyNs) mMaxLatencyNs = latency;
+
+        long sequence = frame.textureId - mTextureOffset;
+        if (sequence <= mLastSequence) {
+            mOutOfOrderCount++;
+            addError("frame " + sequence + " after " + mLastSequence);
+        } else if (sequence != mLastSequence + 1) {
+            // Frames dropped before reaching this consumer
+            mGapCount += sequence - mLastSequence - 1;
+        }
+        mLastSequence = sequence;
+
+        if (frame.format.getWidth() != mExpectedWidth ||
+                frame.format.getHeight() != mExpectedHeight) {
+            addError("frame " + sequence + " of size " + frame.format.getWidth() +
+                    "x" + frame.format.getHeight());
+        }
+
+        if (frame.rotation != 0) {
+            addError("frame " + sequence + " not rotated: " + frame.rotation);
+        }
+
+        mFrameCount++;
+    }
+
+    private void addError(String error) {
+        // Keep the first few errors, enough to tell what is wrong
+        if (mErrors.size() < 10) {
+            mErrors.add(error);
+        }
+    }
+
+    @Override
+    public void connectChannel(int channelId) {
+
+    }
+
+    @Override
+    public void disconnectChannel(int channelId) {
+
+    }
+
+    @Override
+    public Object onGetDrawingTarget() {
+        return null;
+    }
+
+    @Override
+    public int onMeasuredWidth() {
+        return mExpectedWidth;
+    }
+
+    @Override
+    public int onMeasuredHeight() {
+        return mExpectedHeight;
+    }
+
+    long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return the number of frames missing between the
+     * frames received
+     */
+    long getGapCount() {
+        return mGapCount;
+    }
+
+    long getOutOfOrderCount() {
+        return mOutOfOrderCount;
+    }
+
+    long getAverageLatencyNs() {
+        return mFrameCount == 0 ? 0 : mTotalLatencyNs / mFrameCount;
+    }
+
+    long getMaxLatencyNs() {
+        return mMaxLatencyNs;
+    }
+
+    List<String> getErrors() {
+        return mErrors;
+    }
+}
@@ -0,0 +1,281 @@
+package io.agora.framework.modules.channels;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import io.agora.capture.video.camera.VideoCaptureFrame;
+import io.agora.framework.modules.consumers.IVideoConsumer;
+import io.agora.framework.modules.processors.IPreprocessor;
+import io.agora.framework.modules.processors.PreprocessorChain;
+
+/**
+ * Runs the frame scheduling of a video channel on the host JVM:
+ * a single channel thread in place of the channel HandlerThread,
+ * the real preprocessor chain and frame router, and a rotation
+ * step that only changes the frame metadata instead of drawing.
+ * Measures the throughput, the queueing latency, frames dropped
+ * and the bytes allocated by the channel thread per frame.
+ */
+class VideoPipelineHarness {
+    static class Result {
+        long producedFrames;
+        long routedFrames;
+        long queueDroppedFrames;
+        long routerDroppedFrames;
+        long elapsedNs;
+        long averageQueueLatencyNs;
+        long maxQueueLatencyNs;
+
+        // -1 if the JVM cannot measure allocations
+        long allocatedBytesPerFrame;
+        String stageStatistics;
+
+        double getThroughputFps() {
+            return elapsedNs == 0 ? 0 : routedFrames * 1e9 / elapsedNs;
+        }
+
+        double getDropRate() {
+            return producedFrames == 0 ? 0 :
+                    (double) (queueDroppedFrames + routerDroppedFrames) / producedFrames;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "produced=" + producedFrames +
+                    ", routed=" + routedFrames +
+                    ", queueDropped=" + queueDroppedFrames +
+                    ", routerDropped=" + routerDroppedFrames +
+                    ", fps=" + String.format("%.1f", getThroughputFps()) +
+                    ", dropRate=" + String.format("%.3f", getDropRate()) +
+                    ", avgQueueUs=" + averageQueueLatencyNs / 1000 +
+                    ", maxQueueUs=" + maxQueueLatencyNs / 1000 +
+                    ", allocBytesPerFrame=" + allocatedBytesPerFrame +
+                    ", stages=" + stageStatistics +
+                    '}';
+        }
+    }
+
+    private final PreprocessorChain mChain = new PreprocessorChain();
+    private final VideoChannel.ChannelContext mContext = new VideoChannel.ChannelContext();
+    private final AtomicInteger mSurfaceRestoreCount = new AtomicInteger();
+    private final FrameRouter mRouter = new FrameRouter(mChain, mSurfaceRestoreCount::incrementAndGet);
+    private final ExecutorService mChannelThread = Executors.newSingleThreadExecutor();
+
+    // Frames posted but not routed yet, a frame is dropped
+    // when it reaches the limit.
+    private final int mMaxPendingFrames;
+    private final AtomicInteger mPendingFrames = new AtomicInteger();
+    private final AtomicLong mProducedFrames = new AtomicLong();
+    private final AtomicLong mQueueDroppedFrames = new AtomicLong();
+
+    // Only accessed in the channel thread
+    private final ThreadMXBean mThreadBean = ManagementFactory.getThreadMXBean();
+    private long mTotalQueueLatencyNs;
+    private long mMaxQueueLatencyNs;
+    private long mAllocatedBytes;
+    private boolean mAllocationSupported;
+
+    // Some JVMs allocate when asked for allocated bytes
+    private long mAllocationQueryBytes;
+
+    /**
+     * @param maxPendingFrames the number of frames that can be
+     *                         waiting for the channel thread, 0
+     *                         for unlimited like the channel handler.
+     */
+    VideoPipelineHarness(int maxPendingFrames) {
+        mMaxPendingFrames = maxPendingFrames;
+    }
+
+    /**
+     * Start the channel thread and initialize the stages
+     * added so far, as the channel does when it starts.
+     */
+    void start() throws Exception {
+        runInChannelThread(() -> {
+            mAllocationSupported = isAllocationSupported();
+            mAllocationQueryBytes = measureAllocationQuery();
+            mChain.init();
+        });
+    }
+
+    private boolean isAllocationSupported() {
+        return mThreadBean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) mThreadBean).isThreadAllocatedMemorySupported() &&
+                ((com.sun.management.ThreadMXBean) mThreadBean).isThreadAllocatedMemoryEnabled();
+    }
+
+    private long measureAllocationQuery() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long before = allocatedBytes();
+            min = Math.min(min, allocatedBytes() - before);
+        }
+        return min;
+    }
+
+    void addPreprocessor(String name, IPreprocessor preprocessor) throws Exception {
+        runInChannelThread(() -> mChain.addStage(name, preprocessor, mContext));
+    }
+
+    void removePreprocessor(String name) throws Exception {
+        runInChannelThread(() -> mChain.removeStage(name, mContext));
+    }
+
+    void enableStage(String name, boolean enabled) {
+        mChain.enableStage(name, enabled);
+    }
+
+    PreprocessorChain getChain() {
+        return mChain;
+    }
+
+    void connectConsumer(IVideoConsumer consumer, int type) throws Exception {
+        runInChannelThread(() -> mRouter.addConsumer(consumer, type));
+    }
+
+    void disconnectConsumer(IVideoConsumer consumer) throws Exception {
+        runInChannelThread(() -> mRouter.removeConsumer(consumer));
+    }
+
+    void setOffScreenMode(boolean enabled) throws Exception {
+        runInChannelThread(() -> mRouter.setOffScreenMode(enabled));
+    }
+
+    /**
+     * Rotate frames like the rotate processor, without drawing
+     */
+    void enableRotation(boolean enabled) throws Exception {
+        runInChannelThread(() -> mRouter.setRotator(enabled ?
+                VideoPipelineHarness::rotate : null));
+    }
+
+    private static VideoCaptureFrame rotate(VideoCaptureFrame frame,
+                                            VideoChannel.ChannelContext context) {
+        if (frame.rotation == 90 || frame.rotation == 270) {
+            int width = frame.format.getWidth();
+            frame.format.setWidth(frame.format.getHeight());
+            frame.format.setHeight(width);
+        }
+        frame.rotation = 0;
+        return frame;
+    }
+
+    /**
+     * Called by the producer in its own thread
+     */
+    void post(VideoCaptureFrame frame) {
+        mProducedFrames.incrementAndGet();
+        if (mMaxPendingFrames > 0 && mPendingFrames.get() >= mMaxPendingFrames) {
+            mQueueDroppedFrames.incrementAndGet();
+            return;
+        }
+
+        mPendingFrames.incrementAndGet();
+        long postTime = System.nanoTime();
+        mChannelThread.execute(() -> routeFrame(frame, postTime));
+    }
+
+    private void routeFrame(VideoCaptureFrame frame, long postTime) {
+        long latency = System.nanoTime() - postTime;
+        mTotalQueueLatencyNs += latency;
+        if (latency > mMaxQueueLatencyNs) mMaxQueueLatencyNs = latency;
+
+        long allocated = allocatedBytes();
+        mRouter.route(frame, mContext);
+        mAllocatedBytes += allocatedBytes() - allocated - mAllocationQueryBytes;
+        mPendingFrames.decrementAndGet();
+    }
+
+    private long allocatedBytes() {
+        return mAllocationSupported ? ((com.sun.management.ThreadMXBean) mThreadBean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * Produce frames and wait until the channel thread has
+     * routed all of them.
+     * @param paced whether to produce at the frame rate of the
+     *              producer, or as fast as possible
+     */
+    Result run(PatternVideoProducer producer, int frameCount, boolean paced) throws Exception {
+        resetStatistics();
+        producer.attach(this);
+
+        long start = System.nanoTime();
+        long interval = producer.getFrameIntervalNs();
+        for (int i = 0; i < frameCount; i++) {
+            producer.pushVideoFrame(producer.nextFrame());
+            if (paced) {
+                long next = start + (i + 1) * interval;
+                long wait;
+                while ((wait = next - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        }
+
+        // Frames are routed in order, so all of them are
+        // done when a task posted afterwards runs.
+        Result result = new Result();
+        runInChannelThread(() -> {
+            result.elapsedNs = System.nanoTime() - start;
+            result.routedFrames = mRouter.getRoutedFrameCount();
+            result.routerDroppedFrames = mRouter.getDroppedFrameCount();
+            result.averageQueueLatencyNs = result.routedFrames == 0 ? 0 :
+                    mTotalQueueLatencyNs / result.routedFrames;
+            result.maxQueueLatencyNs = mMaxQueueLatencyNs;
+            result.allocatedBytesPerFrame = !mAllocationSupported ? -1 :
+                    result.routedFrames == 0 ? 0 : mAllocatedBytes / result.routedFrames;
+            result.stageStatistics = mChain.dumpStatistics();
+        });
+        result.producedFrames = mProducedFrames.get();
+        result.queueDroppedFrames = mQueueDroppedFrames.get();
+        producer.disconnect();
+        return result;
+    }
+
+    private void resetStatistics() throws Exception {
+        runInChannelThread(() -> {
+            mTotalQueueLatencyNs = 0;
+            mMaxQueueLatencyNs = 0;
+            mAllocatedBytes = 0;
+            mRouter.resetStatistics();
+            for (PreprocessorChain.Stage stage : mChain.getStages()) {
+                stage.resetStatistics();
+            }
+        });
+        mProducedFrames.set(0);
+        mQueueDroppedFrames.set(0);
+    }
+
+    int getSurfaceRestoreCount() {
+        return mSurfaceRestoreCount.get();
+    }
+
+    /**
+     * Release the stages and stop the channel thread
+     */
+    void release() throws Exception {
+        runInChannelThread(() -> mChain.release(mContext));
+        mChannelThread.shutdown();
+    }
+
+    private void runInChannelThread(Runnable runnable) throws Exception {
+        try {
+            mChannelThread.submit(runnable).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+}
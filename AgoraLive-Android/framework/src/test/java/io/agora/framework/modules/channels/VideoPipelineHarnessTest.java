@@ -0,0 +1,237 @@
+package io.agora.framework.modules.channels;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.agora.framework.modules.consumers.IVideoConsumer;
+import io.agora.framework.modules.processors.PreprocessorChain;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the video channel scheduling on the host without a
+ * camera or an OpenGL context, see VideoPipelineHarness.
+ * Bounds of time and allocations are loose, so that they
+ * hold on a loaded machine, and the numbers are in the
+ * failure messages.
+ */
+public class VideoPipelineHarnessTest {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int FRAME_RATE = 24;
+    private static final int ROTATION = 90;
+
+    private VideoPipelineHarness mHarness;
+    private PatternVideoProducer mProducer;
+
+    @Before
+    public void setUp() throws Exception {
+        mHarness = new VideoPipelineHarness(0);
+        mHarness.enableRotation(true);
+        mProducer = new PatternVideoProducer(WIDTH, HEIGHT, FRAME_RATE, ROTATION);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mHarness.release();
+    }
+
+    private ValidatingVideoConsumer newConsumer() {
+        // Frames are rotated upright before consumed
+        return new ValidatingVideoConsumer(HEIGHT, WIDTH);
+    }
+
+    private void assertValid(ValidatingVideoConsumer consumer) {
+        assertTrue(consumer.getErrors().toString(), consumer.getErrors().isEmpty());
+        assertEquals(0, consumer.getOutOfOrderCount());
+    }
+
+    @Test
+    public void deliversAllFramesInOrder() throws Exception {
+        ValidatingVideoConsumer consumer = newConsumer();
+        mHarness.connectConsumer(consumer, IVideoConsumer.TYPE_ON_SCREEN);
+        mHarness.start();
+
+        VideoPipelineHarness.Result result = mHarness.run(mProducer, 500, false);
+
+        assertValid(consumer);
+        assertEquals(500, result.producedFrames);
+        assertEquals(500, result.routedFrames);
+        assertEquals(500, consumer.getFrameCount());
+        assertEquals(0, consumer.getGapCount());
+        assertEquals(0, result.getDropRate(), 0);
+    }
+
+    @Test
+    public void runsEnabledStagesInOrder() throws Exception {
+        List<String> trace = Collections.synchronizedList(new ArrayList<>());
+        mHarness.addPreprocessor("a", new FakePreprocessor("a", 1000, 0, trace));
+        mHarness.addPreprocessor("b", new FakePreprocessor("b", 2000, 0, trace));
+        mHarness.addPreprocessor("c", new FakePreprocessor("c", 4000, 0, trace));
+        mHarness.enableStage("b", false);
+
+        ValidatingVideoConsumer consumer = newConsumer();
+        consumer.expectTextureOffset(1000 + 4000);
+        mHarness.connectConsumer(consumer, IVideoConsumer.TYPE_ON_SCREEN);
+        mHarness.start();
+
+        mHarness.run(mProducer, 2, false);
+
+        assertValid(consumer);
+        assertEquals(2, consumer.getFrameCount());
+        assertEquals(Arrays.asList("a", "c", "a", "c"), trace);
+        assertEquals(0, mHarness.getChain().getStage("b").getFrameCount());
+        assertEquals(2, mHarness.getChain().getStage("c").getFrameCount());
+    }
+
+    @Test
+    public void restoresSurfaceAfterEveryStep() throws Exception {
+        mHarness.addPreprocessor("a", new FakePreprocessor("a", 0, 0, null));
+        mHarness.addPreprocessor("b", new FakePreprocessor("b", 0, 0, null));
+        mHarness.connectConsumer(newConsumer(), IVideoConsumer.TYPE_ON_SCREEN);
+        mHarness.connectConsumer(newConsumer(), IVideoConsumer.TYPE_OFF_SCREEN);
+        mHarness.start();
+
+        mHarness.run(mProducer, 10, false);
+
+        // 2 stages, rotation, on-screen and off-screen consumers
+        assertEquals(10 * 5, mHarness.getSurfaceRestoreCount());
+    }
+
+    @Test
+    public void initializesAndReleasesStages() throws Exception {
+        FakePreprocessor early = new FakePreprocessor("early", 0, 0, null);
+        mHarness.addPreprocessor("early", early);
+        assertEquals("initialized before the channel starts", 0, early.getInitCount());
+
+        mHarness.start();
+        assertEquals(1, early.getInitCount());
+
+        FakePreprocessor late = new FakePreprocessor("late", 0, 0, null);
+        mHarness.addPreprocessor("late", late);
+        assertEquals(1, late.getInitCount());
+
+        FakePreprocessor replacement = new FakePreprocessor("late", 0, 0, null);
+        mHarness.addPreprocessor("late", replacement);
+        assertEquals(1, late.getReleaseCount());
+        assertEquals(1, replacement.getInitCount());
+        assertEquals(2, mHarness.getChain().size());
+
+        mHarness.removePreprocessor("early");
+        assertEquals(1, early.getReleaseCount());
+
+        mHarness.release();
+        assertEquals(1, replacement.getReleaseCount());
+        assertTrue(mHarness.getChain().isEmpty());
+        mHarness = new VideoPipelineHarness(0);
+    }
+
+    @Test
+    public void dropsFramesWithoutOnScreenConsumer() throws Exception {
+        ValidatingVideoConsumer offScreen = newConsumer();
+        mHarness.connectConsumer(offScreen, IVideoConsumer.TYPE_OFF_SCREEN);
+        mHarness.start();
+
+        VideoPipelineHarness.Result result = mHarness.run(mProducer, 50, false);
+        assertEquals(50, result.routerDroppedFrames);
+        assertEquals(1, result.getDropRate(), 0);
+        assertEquals(0, offScreen.getFrameCount());
+
+        mHarness.setOffScreenMode(true);
+        result = mHarness.run(mProducer, 50, false);
+        assertEquals(0, result.routerDroppedFrames);
+        assertEquals(50, offScreen.getFrameCount());
+        assertValid(offScreen);
+    }
+
+    @Test
+    public void rendersToLatestOnScreenConsumerOnly() throws Exception {
+        ValidatingVideoConsumer first = newConsumer();
+        ValidatingVideoConsumer second = newConsumer();
+        mHarness.connectConsumer(first, IVideoConsumer.TYPE_ON_SCREEN);
+        mHarness.connectConsumer(second, IVideoConsumer.TYPE_ON_SCREEN);
+        mHarness.start();
+
+        mHarness.run(mProducer, 20, false);
+        assertEquals(0, first.getFrameCount());
+        assertEquals(20, second.getFrameCount());
+
+        mHarness.disconnectConsumer(second);
+        mHarness.run(mProducer, 20, false);
+        assertEquals(20, first.getFrameCount());
+        assertValid(first);
+    }
+
+    @Test
+    public void dropsFramesWhenStagesAreSlowerThanCamera() throws Exception {
+        mHarness.release();
+        mHarness = new VideoPipelineHarness(2);
+        mHarness.enableRotation(true);
+
+        // A 50ms stage cannot keep up with 24 fps
+        mHarness.addPreprocessor("slow", new FakePreprocessor("slow", 0, 50000000L, null));
+        ValidatingVideoConsumer consumer = newConsumer();
+        mHarness.connectConsumer(consumer, IVideoConsumer.TYPE_ON_SCREEN);
+        mHarness.start();
+
+        VideoPipelineHarness.Result result = mHarness.run(mProducer, 48, true);
+
+        assertValid(consumer);
+        assertTrue(result.queueDroppedFrames > 0);
+        assertEquals(result.producedFrames, result.routedFrames + result.queueDroppedFrames);
+        assertEquals(result.routedFrames, consumer.getFrameCount());
+        // Frames dropped at the end of the run leave no gap
+        assertTrue(consumer.getGapCount() > 0);
+        assertTrue(consumer.getGapCount() <= result.queueDroppedFrames);
+        assertTrue(result.getThroughputFps() < FRAME_RATE);
+    }
+
+    @Test
+    public void measuresStageCostAtFrameRate() throws Exception {
+        mHarness.addPreprocessor("beauty", new FakePreprocessor("beauty", 0, 5000000L, null));
+        mHarness.addPreprocessor("overlay", new FakePreprocessor("overlay", 0, 1000000L, null));
+        ValidatingVideoConsumer consumer = newConsumer();
+        mHarness.connectConsumer(consumer, IVideoConsumer.TYPE_ON_SCREEN);
+        mHarness.start();
+
+        VideoPipelineHarness.Result result = mHarness.run(mProducer, 48, true);
+
+        assertValid(consumer);
+        assertEquals(48, consumer.getFrameCount());
+        PreprocessorChain.Stage beauty = mHarness.getChain().getStage("beauty");
+        assertTrue(result.toString(), beauty.getAverageCostNs() >= 5000000L);
+        assertTrue(result.toString(),
+                mHarness.getChain().getStage("overlay").getAverageCostNs() >= 1000000L);
+
+        // 6 ms of stages keep up with a frame every 41 ms, so
+        // frames do not queue up. A single frame delayed by a
+        // busy machine is not a backlog, the average is bound.
+        assertTrue(result.toString(),
+                result.averageQueueLatencyNs < mProducer.getFrameIntervalNs() * 2);
+    }
+
+    @Test
+    public void routingDoesNotAllocatePerFrame() throws Exception {
+        mHarness.addPreprocessor("a", new FakePreprocessor("a", 0, 0, null));
+        mHarness.addPreprocessor("b", new FakePreprocessor("b", 0, 0, null));
+        mHarness.connectConsumer(newConsumer(), IVideoConsumer.TYPE_ON_SCREEN);
+        mHarness.connectConsumer(newConsumer(), IVideoConsumer.TYPE_OFF_SCREEN);
+        mHarness.start();
+
+        // Warm up so that the numbers are not of the interpreter
+        mHarness.run(mProducer, 5000, false);
+        VideoPipelineHarness.Result result = mHarness.run(mProducer, 5000, false);
+
+        // The JIT and the allocator may add a few bytes per
+        // frame, while a list or a frame per frame adds more
+        if (result.allocatedBytesPerFrame >= 0) {
+            assertTrue(result.toString(), result.allocatedBytesPerFrame < 64);
+        }
+    }
+}